@@ -87,6 +87,9 @@ module rife {
     exports rife.validation.exceptions;
     exports rife.web;
     exports rife.workflow;
+    exports rife.workflow.exceptions;
+    exports rife.workflow.journals;
+    exports rife.workflow.transports;
     exports rife.xml;
     exports rife.xml.exceptions;
 }
\ No newline at end of file
@@ -32,6 +32,7 @@ public class Content implements Cloneable {
     private Map<String, String> attributes_ = null;
     private Map<String, String> properties_ = null;
     private Object cachedLoadedData_ = null;
+    private boolean formatted_ = false;
 
     /**
      * Creates a new {@code Content} instance with the minimal required
@@ -733,6 +734,53 @@ public class Content implements Cloneable {
         return cachedLoadedData_;
     }
 
+    /**
+     * Indicates that the data of this content has already been formatted.
+     * <p>This is <b>internally</b> used to format content ahead of time,
+     * for instance in parallel before a batch of content is stored. The
+     * content stores then store the data as-is, without formatting or
+     * transforming it again. Contrary to the {@code unformatted} attribute,
+     * this isn't stored together with the content.
+     *
+     * @param formatted {@code true} if the data has already been formatted; or
+     *                  <p>{@code false} otherwise
+     * @return the current {@code Content} instance
+     * @see #setFormatted(boolean)
+     * @see #isFormatted()
+     * @since 1.9.2
+     */
+    public Content formatted(boolean formatted) {
+        setFormatted(formatted);
+
+        return this;
+    }
+
+    /**
+     * Indicates that the data of this content has already been formatted.
+     *
+     * @param formatted {@code true} if the data has already been formatted; or
+     *                  <p>{@code false} otherwise
+     * @see #formatted(boolean)
+     * @see #isFormatted()
+     * @since 1.9.2
+     */
+    public void setFormatted(boolean formatted) {
+        formatted_ = formatted;
+    }
+
+    /**
+     * Retrieves whether the data of this content has already been formatted.
+     *
+     * @return {@code true} if the data has already been formatted; or
+     * <p>{@code false} otherwise
+     * @see #formatted(boolean)
+     * @see #setFormatted(boolean)
+     * @since 1.9.2
+     */
+    public boolean isFormatted() {
+        return formatted_;
+    }
+
     /**
      * Simply clones the instance with the default clone method since we
      * want to create a shallow copy
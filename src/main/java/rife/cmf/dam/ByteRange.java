@@ -0,0 +1,160 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.cmf.dam;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Contains a range of bytes of content data, as requested through the HTTP
+ * {@code Range} header.
+ * <p>Both the first and the last positions are inclusive.
+ *
+ * @param first the position of the first byte of the range
+ * @param last  the position of the last byte of the range
+ * @author Geert Bevin (gbevin[remove] at uwyn dot com)
+ * @since 1.9.2
+ */
+public record ByteRange(long first, long last) {
+    /**
+     * The maximum number of ranges that are honored in one request, requests
+     * with more ranges are served in full.
+     *
+     * @since 1.9.2
+     */
+    public static final int MAX_RANGES = 16;
+
+    /**
+     * Creates a new byte range.
+     *
+     * @param first the position of the first byte of the range
+     * @param last  the position of the last byte of the range
+     * @since 1.9.2
+     */
+    public ByteRange {
+        if (first < 0) throw new IllegalArgumentException("first can't be negative");
+        if (last < first) throw new IllegalArgumentException("last can't be smaller than first");
+    }
+
+    /**
+     * Retrieves the number of bytes in this range.
+     *
+     * @return this range's length
+     * @since 1.9.2
+     */
+    public long length() {
+        return last - first + 1;
+    }
+
+    /**
+     * Generates the value of the {@code Content-Range} header for this range.
+     *
+     * @param size the total size of the content data
+     * @return the content range header value
+     * @since 1.9.2
+     */
+    public String toContentRange(long size) {
+        return "bytes " + first + "-" + last + "/" + size;
+    }
+
+    /**
+     * Parses the value of a {@code Range} header into the byte ranges
+     * that are satisfiable for content data of a certain size.
+     * <p>Overlapping and adjacent ranges are coalesced, and the resulting
+     * ranges are sorted by their position.
+     *
+     * @param header the value of the {@code Range} header
+     * @param size   the total size of the content data
+     * @return {@code null} if the header is invalid or asks for too many
+     * ranges, the header should then be ignored; or
+     * <p>an empty list if none of the ranges can be satisfied; or
+     * <p>the list of satisfiable byte ranges
+     * @since 1.9.2
+     */
+    public static List<ByteRange> parse(String header, long size) {
+        if (null == header) {
+            return null;
+        }
+
+        var value = header.trim();
+        if (!value.regionMatches(true, 0, "bytes=", 0, 6)) {
+            return null;
+        }
+
+        var ranges = new ArrayList<ByteRange>();
+        var specs = value.substring(6).split(",");
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+
+        for (var spec : specs) {
+            spec = spec.trim();
+            var dash = spec.indexOf('-');
+            if (dash == -1) {
+                return null;
+            }
+
+            long first;
+            long last;
+            try {
+                var first_part = spec.substring(0, dash).trim();
+                var last_part = spec.substring(dash + 1).trim();
+                if (first_part.isEmpty()) {
+                    // suffix range with the length of the last bytes
+                    if (last_part.isEmpty()) {
+                        return null;
+                    }
+                    var suffix = Long.parseLong(last_part);
+                    if (suffix < 0) {
+                        return null;
+                    }
+                    if (0 == suffix || 0 == size) {
+                        continue;
+                    }
+                    first = Math.max(0, size - suffix);
+                    last = size - 1;
+                } else {
+                    first = Long.parseLong(first_part);
+                    if (last_part.isEmpty()) {
+                        last = size - 1;
+                    } else {
+                        last = Long.parseLong(last_part);
+                        if (last < first) {
+                            return null;
+                        }
+                    }
+                    if (first < 0) {
+                        return null;
+                    }
+                    if (first >= size) {
+                        continue;
+                    }
+                    last = Math.min(last, size - 1);
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+
+            ranges.add(new ByteRange(first, last));
+        }
+
+        // coalesce the ranges that overlap or are adjacent
+        ranges.sort(Comparator.comparingLong(ByteRange::first));
+        var coalesced = new ArrayList<ByteRange>(ranges.size());
+        for (var range : ranges) {
+            if (!coalesced.isEmpty()) {
+                var previous = coalesced.get(coalesced.size() - 1);
+                if (range.first() <= previous.last() + 1) {
+                    coalesced.set(coalesced.size() - 1, new ByteRange(previous.first(), Math.max(previous.last(), range.last())));
+                    continue;
+                }
+            }
+            coalesced.add(range);
+        }
+
+        return coalesced;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.cmf.dam;
+
+import rife.cmf.Content;
+
+/**
+ * Receives the outcome of content that is formatted in the background by a
+ * {@link ContentQueryManager}.
+ * <p>The methods are called from the thread of the background executor.
+ *
+ * @author Geert Bevin (gbevin[remove] at uwyn dot com)
+ * @see ContentQueryManager#backgroundFormatting
+ * @since 1.9.2
+ */
+public interface ContentFormattingListener {
+    /**
+     * Called when the content was formatted and stored as the new version
+     * at its location.
+     *
+     * @param location the location of the content
+     * @param content  the formatted content
+     * @since 1.9.2
+     */
+    void formatted(String location, Content content);
+
+    /**
+     * Called when newer content was stored at the location before the
+     * formatted content could be stored, the formatted content is then
+     * discarded.
+     *
+     * @param location the location of the content
+     * @param content  the content that wasn't formatted
+     * @since 1.9.2
+     */
+    void superseded(String location, Content content);
+
+    /**
+     * Called when the content couldn't be formatted or stored, the original
+     * data then remains the current version at its location and is still
+     * pending, it's thus not served until newer content is stored there.
+     *
+     * @param location  the location of the content
+     * @param content   the content that couldn't be formatted
+     * @param exception the exception that occurred
+     * @since 1.9.2
+     */
+    void failed(String location, Content content, Exception exception);
+}
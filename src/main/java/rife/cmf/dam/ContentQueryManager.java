@@ -5,9 +5,18 @@
 package rife.cmf.dam;
 
 import rife.cmf.Content;
+import rife.cmf.MimeType;
+import rife.cmf.MimeTypeFormatter;
+import rife.cmf.dam.contentmanagers.DatabaseContent;
 import rife.cmf.dam.contentmanagers.DatabaseContentFactory;
 import rife.cmf.dam.exceptions.*;
+import rife.cmf.format.Formatter;
+import rife.cmf.format.ImageFormatter;
+import rife.cmf.format.exceptions.FormatException;
+import rife.cmf.transform.ContentTransformer;
 import rife.database.Datasource;
+import rife.database.DbConnection;
+import rife.database.DbConnectionUser;
 import rife.database.DbQueryManager;
 import rife.database.DbTransactionUser;
 import rife.database.exceptions.DatabaseException;
@@ -23,8 +32,13 @@ import rife.validation.Constrained;
 import rife.validation.ConstrainedProperty;
 import rife.validation.ConstrainedUtils;
 
-import java.util.Collection;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 
 /**
@@ -70,14 +84,30 @@ import java.util.logging.Logger;
  * @since 1.0
  */
 public class ContentQueryManager<T> extends GenericQueryManagerDelegate<T> implements Cloneable {
+    /**
+     * The content property that marks content whose original data was
+     * stored while its formatting is still pending in the background.
+     *
+     * @see #backgroundFormatting
+     * @since 1.9.2
+     */
+    public static final String PROPERTY_PENDING_FORMATTING = "cmf:pendingFormatting";
+
     private final Class class_;
     private final Class backendClass_;
     private final DbQueryManager dbQueryManager_;
     private final ContentManager contentManager_;
 
     private String repository_ = null;
+    private int ordinalSpacing_ = OrdinalManager.DEFAULT_SPACING;
+    private OrdinalAllocator ordinalAllocator_ = null;
+    private Executor formattingExecutor_ = null;
+    private Executor backgroundExecutor_ = null;
+    private ContentFormattingListener formattingListener_ = null;
 
     private final ThreadLocal<T> deletedBean_ = new ThreadLocal<>();
+    private final ThreadLocal<Map<Object, Map<String, Content>>> formattedContent_ = new ThreadLocal<>();
+    private final ThreadLocal<List<Runnable>> backgroundFormatting_ = new ThreadLocal<>();
 
     /**
      * Creates a new {@code ContentQueryManager} instance for a specific
@@ -197,6 +227,181 @@ public class ContentQueryManager<T> extends GenericQueryManagerDelegate<T> imple
         return repository_;
     }
 
+    /**
+     * Sets the spacing between the ordinals of consecutive rows.
+     * <p>With a spacing larger than {@code 1}, new rows get ordinals with
+     * gaps in between. Rows can then be moved in front of other rows by only
+     * changing their own ordinal, and the remaining ordinals aren't
+     * tightened when a row is deleted.
+     * <p><b>The spacing isn't stored in the database.</b> Every content
+     * query manager and {@link OrdinalManager} of the same table has to be
+     * set up with the same spacing, otherwise the spaced ordinals are
+     * treated as dense ones and are tightened again.
+     *
+     * @param spacing the spacing between the ordinals
+     * @return this {@code ContentQueryManager}
+     * @see #getOrdinalSpacing
+     * @see OrdinalManager#spacing(int)
+     * @since 1.9.2
+     */
+    public ContentQueryManager<T> ordinalSpacing(int spacing) {
+        if (spacing < 1) throw new IllegalArgumentException("spacing should be at least 1");
+
+        ordinalSpacing_ = spacing;
+
+        return this;
+    }
+
+    /**
+     * Retrieves the spacing between the ordinals of consecutive rows.
+     *
+     * @return this {@code ContentQueryManager}'s ordinal spacing
+     * @see #ordinalSpacing
+     * @since 1.9.2
+     */
+    public int getOrdinalSpacing() {
+        return ordinalSpacing_;
+    }
+
+    /**
+     * Sets the allocator that hands out the ordinals of new beans.
+     * <p>Without an allocator, the ordinal of a new bean is determined by
+     * looking up the highest ordinal that is currently stored. An allocator
+     * reserves the ordinals in blocks instead, which avoids that query and
+     * prevents concurrent saves from obtaining the same ordinal.
+     *
+     * @param allocator the ordinal allocator; or
+     *                  {@code null} to look up the highest ordinal for each new bean
+     * @return this {@code ContentQueryManager}
+     * @see #getOrdinalAllocator
+     * @since 1.9.2
+     */
+    public ContentQueryManager<T> ordinalAllocator(OrdinalAllocator allocator) {
+        ordinalAllocator_ = allocator;
+
+        return this;
+    }
+
+    /**
+     * Retrieves the allocator that hands out the ordinals of new beans.
+     *
+     * @return this {@code ContentQueryManager}'s ordinal allocator; or
+     * <p>{@code null} if no allocator was set
+     * @see #ordinalAllocator
+     * @since 1.9.2
+     */
+    public OrdinalAllocator getOrdinalAllocator() {
+        return ordinalAllocator_;
+    }
+
+    /**
+     * Sets the executor that formats the content of the beans that are
+     * saved with {@link #saveAll(Collection) saveAll}.
+     *
+     * @param executor the executor that formats the content; or
+     *                 {@code null} to use the common fork/join pool
+     * @return this {@code ContentQueryManager}
+     * @see #getFormattingExecutor
+     * @since 1.9.2
+     */
+    public ContentQueryManager<T> formattingExecutor(Executor executor) {
+        formattingExecutor_ = executor;
+
+        return this;
+    }
+
+    /**
+     * Retrieves the executor that formats the content of the beans that
+     * are saved with {@link #saveAll(Collection) saveAll}.
+     *
+     * @return this {@code ContentQueryManager}'s formatting executor; or
+     * <p>{@code null} if the common fork/join pool is used
+     * @see #formattingExecutor
+     * @since 1.9.2
+     */
+    public Executor getFormattingExecutor() {
+        return formattingExecutor_;
+    }
+
+    /**
+     * Sets the executor that formats the content of the beans that are
+     * saved with {@link #save(Object) save} in the background.
+     * <p>Without a background executor, the content is loaded, validated,
+     * transformed and formatted while the bean is saved, inside its
+     * transaction. With one, the original data of the content is stored
+     * as-is, marked with the {@link #PROPERTY_PENDING_FORMATTING} property.
+     * After the transaction has been committed, the executor formats the
+     * content and stores the result as a new version at the same location.
+     * This keeps slow image encoding out of the request and the
+     * transaction, at the cost of the content not being served until the
+     * formatting is done. Content that couldn't be formatted remains
+     * pending and is thus never served, until newer content is stored at
+     * its location.
+     * <p>Only content that is provided as bytes or text is formatted in the
+     * background, streams can only be read once and are still formatted
+     * while the bean is saved. The same goes for beans that are saved inside
+     * a transaction that was already active, since their content can only
+     * be formatted in the background once that transaction is committed.
+     * When newer content is stored at the same
+     * location before the formatting starts, it is skipped. The outcome can
+     * be followed with a {@link #formattingListener(ContentFormattingListener)
+     * formatting listener}.
+     *
+     * @param executor the executor that formats the content in the background; or
+     *                 {@code null} to format the content while the bean is saved
+     * @return this {@code ContentQueryManager}
+     * @see #getBackgroundFormatting
+     * @since 1.9.2
+     */
+    public ContentQueryManager<T> backgroundFormatting(Executor executor) {
+        backgroundExecutor_ = executor;
+
+        return this;
+    }
+
+    /**
+     * Retrieves the executor that formats content in the background.
+     *
+     * @return this {@code ContentQueryManager}'s background executor; or
+     * <p>{@code null} if content is formatted while the beans are saved
+     * @see #backgroundFormatting
+     * @since 1.9.2
+     */
+    public Executor getBackgroundFormatting() {
+        return backgroundExecutor_;
+    }
+
+    /**
+     * Sets the listener that receives the outcome of the content that is
+     * formatted in the background.
+     * <p>Without a listener, formatting failures are logged.
+     *
+     * @param listener the formatting listener; or
+     *                 {@code null} if the outcome shouldn't be reported
+     * @return this {@code ContentQueryManager}
+     * @see #getFormattingListener
+     * @see #backgroundFormatting
+     * @since 1.9.2
+     */
+    public ContentQueryManager<T> formattingListener(ContentFormattingListener listener) {
+        formattingListener_ = listener;
+
+        return this;
+    }
+
+    /**
+     * Retrieves the listener that receives the outcome of the content that
+     * is formatted in the background.
+     *
+     * @return this {@code ContentQueryManager}'s formatting listener; or
+     * <p>{@code null} if no listener was set
+     * @see #formattingListener
+     * @since 1.9.2
+     */
+    public ContentFormattingListener getFormattingListener() {
+        return formattingListener_;
+    }
+
     /**
      * Returns the {@code ContentManager} that is used to store and
      * retrieve the content.
@@ -235,46 +440,100 @@ public class ContentQueryManager<T> extends GenericQueryManagerDelegate<T> imple
             throw new ExpectedOrdinalConstraintException(bean.getClass(), propertyName);
         }
 
-        // obtain the ordinal value
-        var ordinal = -1;
+        var ordinal = getOrdinalValue(bean, propertyName);
+        var ordinals = createOrdinalManager(property);
+
+        if (property.hasOrdinalRestriction()) {
+            var restriction = getOrdinalRestrictionValue(bean, property);
+            return ordinals.move(direction, restriction, ordinal);
+        } else {
+            return ordinals.move(direction, ordinal);
+        }
+    }
+
+    /**
+     * Moves the row that corresponds to the provided bean instance in front
+     * of the row of another bean instance, according to a property with an
+     * ordinal constraint.
+     * <p>The ordinals of both bean instances have to correspond to the ones
+     * that are currently stored. When the {@link #ordinalSpacing ordinals are
+     * spaced}, typically only the row of the moved bean is updated.
+     *
+     * @param bean         the bean instance that corresponds to the row that has to
+     *                     be moved
+     * @param propertyName the name of the property with an ordinal constraint
+     * @param before       the bean instance that corresponds to the row in front
+     *                     of which the row will be moved
+     * @return {@code true} if the row was moved successfully; or
+     * <p>{@code false} otherwise, for instance when the ordinal restrictions
+     * of both beans are different
+     * @since 1.9.2
+     */
+    public boolean move(Constrained bean, String propertyName, Constrained before) {
+        if (null == bean) throw new IllegalArgumentException("constrained can't be null");
+        if (null == propertyName) throw new IllegalArgumentException("propertyName can't be null");
+        if (propertyName.isEmpty()) throw new IllegalArgumentException("propertyName can't be empty");
+        if (null == before) throw new IllegalArgumentException("before can't be null");
+
+        var property = bean.getConstrainedProperty(propertyName);
+        if (null == property) {
+            throw new UnknownConstrainedPropertyException(bean.getClass(), propertyName);
+        }
+
+        if (!property.isOrdinal()) {
+            throw new ExpectedOrdinalConstraintException(bean.getClass(), propertyName);
+        }
+
+        var ordinal = getOrdinalValue(bean, propertyName);
+        var before_ordinal = getOrdinalValue(before, propertyName);
+        var ordinals = createOrdinalManager(property);
+
+        if (property.hasOrdinalRestriction()) {
+            var restriction = getOrdinalRestrictionValue(bean, property);
+            if (restriction != getOrdinalRestrictionValue(before, property)) {
+                return false;
+            }
+
+            return ordinals.move(restriction, ordinal, before_ordinal);
+        } else {
+            return ordinals.move(ordinal, before_ordinal);
+        }
+    }
+
+    private OrdinalManager createOrdinalManager(ConstrainedProperty property) {
+        if (property.hasOrdinalRestriction()) {
+            return new OrdinalManager(getDatasource(), getTable(), property.getPropertyName(), property.getOrdinalRestriction()).spacing(ordinalSpacing_);
+        }
+
+        return new OrdinalManager(getDatasource(), getTable(), property.getPropertyName()).spacing(ordinalSpacing_);
+    }
+
+    private static int getOrdinalValue(Constrained bean, String propertyName) {
         try {
             var ordinal_object = BeanUtils.getPropertyValue(bean, propertyName);
             if (!(ordinal_object instanceof Integer)) {
                 throw new InvalidOrdinalTypeException(bean.getClass(), propertyName);
             }
-            ordinal = (Integer) ordinal_object;
+            return (Integer) ordinal_object;
         } catch (BeanUtilsException e) {
             throw new UnknownOrdinalException(bean.getClass(), propertyName, e);
         }
+    }
 
-        OrdinalManager ordinals = null;
-
-        if (property.hasOrdinalRestriction()) {
-            var restriction_name = property.getOrdinalRestriction();
-
-            // initially the ordinal manager, taking the restriction property into account
-            ordinals = new OrdinalManager(getDatasource(), getTable(), propertyName, restriction_name);
-
-            // obtain the restriction value
-            long restriction = -1;
-            try {
-                var restriction_object = BeanUtils.getPropertyValue(bean, restriction_name);
-                if (null == restriction_object) {
-                    throw new OrdinalRestrictionCantBeNullException(bean.getClass(), property.getPropertyName(), restriction_name);
-                }
-                if (!(restriction_object instanceof Number)) {
-                    throw new InvalidOrdinalRestrictionTypeException(bean.getClass(), propertyName, restriction_name, restriction_object.getClass());
-                }
-                restriction = ((Number) restriction_object).longValue();
-            } catch (BeanUtilsException e) {
-                throw new UnknownOrdinalRestrictionException(bean.getClass(), propertyName, restriction_name, e);
+    private static long getOrdinalRestrictionValue(Object bean, ConstrainedProperty property) {
+        var propertyName = property.getPropertyName();
+        var restrictionName = property.getOrdinalRestriction();
+        try {
+            var restriction_object = BeanUtils.getPropertyValue(bean, restrictionName);
+            if (null == restriction_object) {
+                throw new OrdinalRestrictionCantBeNullException(bean.getClass(), propertyName, restrictionName);
             }
-
-            // obtain a new ordinal, taking the restriction value into account
-            return ordinals.move(direction, restriction, ordinal);
-        } else {
-            ordinals = new OrdinalManager(getDatasource(), getTable(), propertyName);
-            return ordinals.move(direction, ordinal);
+            if (!(restriction_object instanceof Number)) {
+                throw new InvalidOrdinalRestrictionTypeException(bean.getClass(), propertyName, restrictionName, restriction_object.getClass());
+            }
+            return ((Number) restriction_object).longValue();
+        } catch (BeanUtilsException e) {
+            throw new UnknownOrdinalRestrictionException(bean.getClass(), propertyName, restrictionName, e);
         }
     }
 
@@ -376,6 +635,12 @@ public class ContentQueryManager<T> extends GenericQueryManagerDelegate<T> imple
      * constraint. This is needed to make it possible to only update a bean's
      * data without having to fetch the content from the back-end and store it
      * together with the other data just to make a simple update.
+     * <p>When a {@link #backgroundFormatting(Executor) background executor}
+     * is set, the content is formatted after this method has committed the
+     * bean and its original content data. When this method is called
+     * inside a transaction that's already active, the bean is only committed
+     * together with that transaction, the content is then formatted while
+     * the bean is saved instead.
      *
      * @param bean the bean instance that has to be saved
      * @return {@code true} if the bean was stored successfully; or
@@ -384,7 +649,47 @@ public class ContentQueryManager<T> extends GenericQueryManagerDelegate<T> imple
      */
     public int save(final T bean)
     throws DatabaseException {
-        return dbQueryManager_.inTransaction(new DbTransactionUser<Integer, Object>() {
+        // the formatting can only be handed off once the bean and the
+        // pending content are committed, which the transaction of a caller
+        // only does after this method returned
+        final var executor = backgroundExecutor_;
+        if (null == executor || isInTransaction()) {
+            return saveInTransaction(bean);
+        }
+
+        // collect the content that has to be formatted and only hand it to
+        // the executor once the transaction succeeded
+        final var pending = new ArrayList<Runnable>();
+        backgroundFormatting_.set(pending);
+        final int id;
+        try {
+            id = saveInTransaction(bean);
+        } finally {
+            backgroundFormatting_.remove();
+        }
+
+        for (var task : pending) {
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                task.run();
+            }
+        }
+
+        return id;
+    }
+
+    private boolean isInTransaction() {
+        Boolean result = dbQueryManager_.reserveConnection(new DbConnectionUser() {
+            public Boolean useConnection(DbConnection connection) {
+                return connection.isTransactionValidForThread();
+            }
+        });
+        return null != result && result;
+    }
+
+    private int saveInTransaction(final T bean) {
+        return invalidateContentInfoAfter(() -> dbQueryManager_.inTransaction(new DbTransactionUser<Integer, Object>() {
             public Integer useTransaction()
             throws InnerClassException {
                 var id = -1;
@@ -396,54 +701,9 @@ public class ContentQueryManager<T> extends GenericQueryManagerDelegate<T> imple
                     update = true;
                 }
 
-                // handle the pre-storage constraints logic
-                var constrained = ConstrainedUtils.makeConstrainedInstance(bean);
-                Collection<ConstrainedProperty> properties = null;
-                if (constrained != null) {
-                    properties = constrained.getConstrainedProperties();
-
-                    for (var property : properties) {
-                        if (!update) {
-                            if (property.isOrdinal()) {
-                                try {
-                                    OrdinalManager ordinals = null;
-
-                                    var new_ordinal = -1;
-
-                                    if (property.hasOrdinalRestriction()) {
-                                        var restriction_name = property.getOrdinalRestriction();
-
-                                        // initialize the ordinal manager, taking the restriction property into account
-                                        ordinals = new OrdinalManager(getDatasource(), getTable(), property.getPropertyName(), restriction_name);
-
-                                        // obtain the restriction value
-                                        long restriction = -1;
-                                        try {
-                                            var restriction_object = BeanUtils.getPropertyValue(bean, restriction_name);
-                                            if (null == restriction_object) {
-                                                throw new OrdinalRestrictionCantBeNullException(bean.getClass(), property.getPropertyName(), restriction_name);
-                                            }
-                                            if (!(restriction_object instanceof Number)) {
-                                                throw new InvalidOrdinalRestrictionTypeException(bean.getClass(), property.getPropertyName(), restriction_name, restriction_object.getClass());
-                                            }
-                                            restriction = ((Number) restriction_object).longValue();
-                                        } catch (BeanUtilsException e) {
-                                            throw new UnknownOrdinalRestrictionException(bean.getClass(), property.getPropertyName(), restriction_name, e);
-                                        }
-
-                                        // obtain a new ordinal, taking the restriction value into account
-                                        new_ordinal = ordinals.obtainInsertOrdinal(restriction);
-                                    } else {
-                                        ordinals = new OrdinalManager(getDatasource(), getTable(), property.getPropertyName());
-                                        new_ordinal = ordinals.obtainInsertOrdinal();
-                                    }
-                                    BeanUtils.setPropertyValue(bean, property.getPropertyName(), new_ordinal);
-                                } catch (BeanUtilsException e) {
-                                    throw new DatabaseException(e);
-                                }
-                            }
-                        }
-                    }
+                // obtain the ordinals of a new bean
+                if (!update) {
+                    assignOrdinals(bean, null);
                 }
 
                 // store the new bean or update it
@@ -451,7 +711,271 @@ public class ContentQueryManager<T> extends GenericQueryManagerDelegate<T> imple
 
                 return id;
             }
-        });
+        }));
+    }
+
+    /**
+     * Saves a collection of beans.
+     * <p>This behaves like calling {@link #save(Object) save} for each
+     * bean, but is much faster when a lot of beans have to be stored at
+     * once, for instance during an import:
+     * <ul>
+     * <li>the content of all the beans is formatted in parallel with the
+     * {@link #formattingExecutor(Executor) formatting executor}, before the
+     * database transaction starts,
+     * <li>the ordinals of the new beans are determined once for each
+     * restriction value, and then simply incremented,
+     * <li>all the beans and their content are stored in a single transaction.
+     * </ul>
+     * <p>When any of the beans can't be saved, none of them are.
+     *
+     * @param beans the bean instances that have to be saved
+     * @return the IDs of the saved beans, in the iteration order of the
+     * collection
+     * @throws DatabaseException when an error occurred while formatting
+     *                           the content or while storing the beans
+     * @see #save(Object)
+     * @since 1.9.2
+     */
+    public int[] saveAll(final Collection<T> beans)
+    throws DatabaseException {
+        if (null == beans) throw new IllegalArgumentException("beans can't be null");
+
+        if (beans.isEmpty()) {
+            return new int[0];
+        }
+
+        // format all the content before starting the transaction, to
+        // not keep it open while the CPU intensive work is done
+        final var formatted = formatContent(beans);
+
+        return invalidateContentInfoAfter(() -> dbQueryManager_.inTransaction(() -> {
+            final var ids = new int[beans.size()];
+            final var next_ordinals = new HashMap<String, Integer>();
+
+            formattedContent_.set(formatted);
+            try {
+                var i = 0;
+                for (var bean : beans) {
+                    if (getIdentifierValue(bean) < 0) {
+                        assignOrdinals(bean, next_ordinals);
+                    }
+                    ids[i++] = super.save(bean);
+                }
+            } finally {
+                formattedContent_.remove();
+            }
+
+            return ids;
+        }));
+    }
+
+    // content that's stored or deleted is only committed together with the
+    // transaction of this manager, the cached content info is thus
+    // invalidated again once that transaction ended
+    private <R> R invalidateContentInfoAfter(Supplier<R> action) {
+        if (contentManager_ instanceof DatabaseContent database_content) {
+            return database_content.invalidateContentInfoAfter(action);
+        }
+
+        return action.get();
+    }
+
+    // the next ordinals are remembered per property and restriction when
+    // several beans are saved at once, they're otherwise looked up each time
+    private void assignOrdinals(T bean, Map<String, Integer> nextOrdinals) {
+        var constrained = ConstrainedUtils.makeConstrainedInstance(bean);
+        if (null == constrained) {
+            return;
+        }
+
+        for (var property : constrained.getConstrainedProperties()) {
+            if (!property.isOrdinal()) {
+                continue;
+            }
+
+            final var property_name = property.getPropertyName();
+            final var ordinals = createOrdinalManager(property);
+            final int new_ordinal;
+            if (property.hasOrdinalRestriction()) {
+                final var restriction = getOrdinalRestrictionValue(bean, property);
+                if (ordinalAllocator_ != null) {
+                    new_ordinal = ordinalAllocator_.allocate(ordinals, restriction);
+                } else if (null == nextOrdinals) {
+                    new_ordinal = ordinals.obtainInsertOrdinal(restriction);
+                } else {
+                    new_ordinal = nextOrdinals.merge(property_name + "=" + restriction, ordinals.obtainInsertOrdinal(restriction), (current, ignored) -> current + ordinalSpacing_);
+                }
+            } else {
+                if (ordinalAllocator_ != null) {
+                    new_ordinal = ordinalAllocator_.allocate(ordinals);
+                } else if (null == nextOrdinals) {
+                    new_ordinal = ordinals.obtainInsertOrdinal();
+                } else {
+                    new_ordinal = nextOrdinals.merge(property_name, ordinals.obtainInsertOrdinal(), (current, ignored) -> current + ordinalSpacing_);
+                }
+            }
+
+            try {
+                BeanUtils.setPropertyValue(bean, property_name, new_ordinal);
+            } catch (BeanUtilsException e) {
+                throw new DatabaseException(e);
+            }
+        }
+    }
+
+    private Map<Object, Map<String, Content>> formatContent(Collection<T> beans) {
+        var executor = formattingExecutor_;
+        if (null == executor) {
+            executor = ForkJoinPool.commonPool();
+        }
+
+        var formatted = new IdentityHashMap<Object, Map<String, Content>>();
+        var pending = new ArrayList<CompletableFuture<Void>>();
+        for (var bean : beans) {
+            var constrained = ConstrainedUtils.makeConstrainedInstance(bean);
+            if (null == constrained) {
+                continue;
+            }
+
+            var contents = new HashMap<String, Content>();
+            for (var property : constrained.getConstrainedProperties()) {
+                if (!property.hasMimeType()) {
+                    continue;
+                }
+
+                var content = createContent(bean, property);
+                if (null == content) {
+                    continue;
+                }
+                contents.put(property.getPropertyName(), content);
+
+                if (!isFormattable(content)) {
+                    continue;
+                }
+
+                var formatter = getFormatter(content);
+
+                var transformer = property.getTransformer();
+                pending.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        content.setData(formatter.format(content, transformer));
+                        content.setFormatted(true);
+                    } catch (FormatException e) {
+                        throw new CompletionException(e);
+                    }
+                }, executor));
+            }
+            formatted.put(bean, contents);
+        }
+
+        try {
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            throw new DatabaseException(e.getCause());
+        }
+
+        return formatted;
+    }
+
+    // the content is formatted ahead of time with the formatter of the
+    // store that it will be stored in, as the store would do itself
+    private Formatter getFormatter(Content content) {
+        if (contentManager_ instanceof DatabaseContent database_content) {
+            var store = database_content.getStore(content.getMimeType());
+            if (null == store) {
+                return null;
+            }
+            return store.getFormatter(content.getMimeType(), content.isFragment());
+        }
+
+        return MimeTypeFormatter.getFormatter(content.getMimeType());
+    }
+
+    private boolean isFormattable(Content content) {
+        // raw content is streamed into the store, it doesn't
+        // benefit from being formatted ahead of time
+        return getFormatter(content) != null &&
+               MimeType.RAW != content.getMimeType() &&
+               content.getData() != null &&
+               !Convert.toBoolean(content.getAttribute("unformatted"), false);
+    }
+
+    private boolean hasStorableOriginal(Content content) {
+        // the stores keep images as bytes and all the other formatted
+        // content as text, streams can't be read again for formatting
+        if (getFormatter(content) instanceof ImageFormatter) {
+            return content.getData() instanceof byte[];
+        }
+        return content.getData() instanceof String;
+    }
+
+    private Runnable createFormattingTask(final String location, final Content content, final ContentTransformer transformer, final String token) {
+        return () -> {
+            var listener = formattingListener_;
+            try {
+                // skip the formatting when other content was stored at the
+                // location in the meantime
+                if (!isPendingFormatting(location, token)) {
+                    if (listener != null) {
+                        listener.superseded(location, content);
+                    }
+                    return;
+                }
+
+                // format outside the transaction that stores the new version
+                content.setData(getFormatter(content).format(content, transformer));
+                content.setFormatted(true);
+
+                // check again and store in the same transaction, so that
+                // newer content can't be replaced by the formatted data
+                Boolean stored = invalidateContentInfoAfter(() -> dbQueryManager_.inTransaction(() -> {
+                    if (!isPendingFormatting(location, token)) {
+                        return false;
+                    }
+
+                    return contentManager_.storeContent(location, content, transformer);
+                }));
+
+                if (listener != null) {
+                    if (null != stored && stored) {
+                        listener.formatted(location, content);
+                    } else {
+                        listener.superseded(location, content);
+                    }
+                }
+            } catch (Exception e) {
+                if (listener != null) {
+                    listener.failed(location, content, e);
+                } else {
+                    Logger.getLogger("rife.cmf").warning("Unable to format the content at '" + location + "' in the background\n" + ExceptionUtils.getExceptionStackTrace(e));
+                }
+            }
+        };
+    }
+
+    private boolean isPendingFormatting(String location, String token) {
+        var info = contentManager_.getContentInfo(location);
+        return info != null &&
+               token.equals(info.getProperty(PROPERTY_PENDING_FORMATTING));
+    }
+
+    private Content createContent(T bean, ConstrainedProperty property) {
+        try {
+            var value = BeanUtils.getPropertyValue(bean, property.getPropertyName());
+            if (null == value &&
+                !property.isAutoRetrieved()) {
+                return null;
+            }
+
+            return new Content(property.getMimeType(), value)
+                .fragment(property.isFragment())
+                .name(property.getName())
+                .attributes(property.getContentAttributes())
+                .cachedLoadedData(property.getCachedLoadedData());
+        } catch (BeanUtilsException e) {
+            throw new DatabaseException(e);
+        }
     }
 
     /**
@@ -550,7 +1074,7 @@ public class ContentQueryManager<T> extends GenericQueryManagerDelegate<T> imple
      */
     public boolean delete(final int objectId)
     throws DatabaseException {
-        Boolean result = dbQueryManager_.inTransaction(() -> {
+        Boolean result = invalidateContentInfoAfter(() -> dbQueryManager_.inTransaction(() -> {
             var bean = restore(objectId);
             if (null == bean) {
                 return false;
@@ -566,7 +1090,7 @@ public class ContentQueryManager<T> extends GenericQueryManagerDelegate<T> imple
             }
 
             return false;
-        });
+        }));
 
         return null != result && result;
     }
@@ -808,23 +1332,46 @@ public class ContentQueryManager<T> extends GenericQueryManagerDelegate<T> imple
             if (properties != null) {
                 var id = getIdentifierValue(bean);
 
+                // use the content that was already formatted by saveAll
+                Map<String, Content> formatted = null;
+                var formatted_beans = formattedContent_.get();
+                if (formatted_beans != null) {
+                    formatted = formatted_beans.get(bean);
+                }
+
                 for (var property : properties) {
                     if (property.hasMimeType()) {
                         try {
-                            var value = BeanUtils.getPropertyValue(bean, property.getPropertyName());
-                            if (value != null ||
-                                property.isAutoRetrieved()) {
-                                var content = new Content(property.getMimeType(), value)
-                                    .fragment(property.isFragment())
-                                    .name(property.getName())
-                                    .attributes(property.getContentAttributes())
-                                    .cachedLoadedData(property.getCachedLoadedData());
-
-                                contentManager_.storeContent(buildCmfPath(constrained, id, property.getPropertyName()),
-                                    content,
-                                    property.getTransformer());
+                            Content content;
+                            if (formatted != null) {
+                                content = formatted.get(property.getPropertyName());
+                            } else {
+                                content = createContent(bean, property);
                             }
-                        } catch (BeanUtilsException | ContentManagerException e) {
+
+                            if (content != null) {
+                                var location = buildCmfPath(constrained, id, property.getPropertyName());
+
+                                // store the original data for now and format it
+                                // in the background after the transaction
+                                var background = backgroundFormatting_.get();
+                                if (background != null &&
+                                    !content.isFormatted() &&
+                                    isFormattable(content) &&
+                                    hasStorableOriginal(content)) {
+                                    var token = UUID.randomUUID().toString();
+                                    var original = createContent(bean, property)
+                                        .formatted(true)
+                                        .property(PROPERTY_PENDING_FORMATTING, token);
+                                    contentManager_.storeContent(location, original, null);
+                                    background.add(createFormattingTask(location, content, property.getTransformer(), token));
+                                } else {
+                                    contentManager_.storeContent(location,
+                                        content,
+                                        property.getTransformer());
+                                }
+                            }
+                        } catch (ContentManagerException e) {
                             throw new DatabaseException(e);
                         }
                     }
@@ -848,33 +1395,14 @@ public class ContentQueryManager<T> extends GenericQueryManagerDelegate<T> imple
                 for (var property : properties) {
                     if (property.hasMimeType()) {
                         contentManager_.deleteContent(buildCmfPath(constrained, objectId, property.getPropertyName()));
-                    } else if (property.isOrdinal()) {
-                        OrdinalManager ordinals = null;
+                    } else if (property.isOrdinal() && OrdinalManager.DEFAULT_SPACING == ordinalSpacing_) {
+                        // spaced ordinals are allowed to have gaps, they
+                        // thus don't need to be tightened
+                        var ordinals = createOrdinalManager(property);
                         if (property.hasOrdinalRestriction()) {
-                            var restriction_name = property.getOrdinalRestriction();
-
-                            // initialize the ordinal manager, taking the restriction property into account
-                            ordinals = new OrdinalManager(getDatasource(), getTable(), property.getPropertyName(), restriction_name);
-
-                            // obtain the restriction value
-                            long restriction = -1;
-                            try {
-                                var restriction_object = BeanUtils.getPropertyValue(bean, restriction_name);
-                                if (null == restriction_object) {
-                                    throw new OrdinalRestrictionCantBeNullException(bean.getClass(), property.getPropertyName(), restriction_name);
-                                }
-                                if (!(restriction_object instanceof Number)) {
-                                    throw new InvalidOrdinalRestrictionTypeException(bean.getClass(), property.getPropertyName(), restriction_name, restriction_object.getClass());
-                                }
-                                restriction = ((Number) restriction_object).longValue();
-                            } catch (BeanUtilsException e) {
-                                throw new UnknownOrdinalRestrictionException(bean.getClass(), property.getPropertyName(), restriction_name, e);
-                            }
-
                             // tighten the remaining ordinals, taking the restriction value into account
-                            ordinals.tighten(restriction);
+                            ordinals.tighten(getOrdinalRestrictionValue(bean, property));
                         } else {
-                            ordinals = new OrdinalManager(getDatasource(), getTable(), property.getPropertyName());
                             ordinals.tighten();
                         }
                     }
@@ -14,6 +14,7 @@ import rife.cmf.transform.ContentTransformer;
 import rife.engine.Context;
 import rife.engine.Route;
 
+import java.io.OutputStream;
 import java.util.Collection;
 
 /**
@@ -193,6 +194,44 @@ public interface ContentStore {
     void serveContentData(Context context, int id)
     throws ContentManagerException;
 
+    /**
+     * Indicates whether this store is able to output byte ranges of its
+     * content data.
+     * <p>Stores that return {@code true} have to implement
+     * {@link #outputContentDataRange} and report the size of their content
+     * data in bytes.
+     *
+     * @return {@code true} if byte ranges are supported; or
+     * <p>{@code false} if the content data can only be served as a whole
+     * @since 1.9.2
+     */
+    default boolean supportsByteRanges() {
+        return false;
+    }
+
+    /**
+     * Outputs a range of the bytes of the content data for a certain
+     * content id.
+     * <p>This only writes the bytes of the range, the response headers are
+     * expected to have been set up already.
+     * <p>Stores that don't support byte ranges output nothing and return
+     * {@code false}.
+     *
+     * @param id    the id of the content whose data will be output
+     * @param range the range of bytes to output
+     * @param os    the stream to write the bytes to
+     * @return {@code true} if the range was output; or
+     * <p>{@code false} if no content data is available or byte ranges
+     * aren't supported
+     * @throws ContentManagerException if an unexpected error occurred
+     * @see #supportsByteRanges
+     * @since 1.9.2
+     */
+    default boolean outputContentDataRange(int id, ByteRange range, OutputStream os)
+    throws ContentManagerException {
+        return false;
+    }
+
     /**
      * Retrieves a content data representation for use in html.
      * <p>This is mainly used to integrate content data inside a html
@@ -0,0 +1,299 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.cmf.dam;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Caches generated variants of images on disk.
+ * <p>Each variant is identified by a key and is only generated once, even
+ * when several threads request it at the same time. The total size of the
+ * cached variants is bounded, the least recently used variants are removed
+ * first when the cache grows too large.
+ * <p>Only variants with one of the allowed sizes are served, the sizes
+ * are the pixel widths and heights that variants can have. This bounds
+ * the number of variants that requests can cause to be generated for each
+ * image.
+ * <p>The variants that are already present in the cache directory when
+ * the cache is created are taken over, ordered by their modification time.
+ *
+ * @author Geert Bevin (gbevin[remove] at uwyn dot com)
+ * @see rife.cmf.dam.contentmanagers.DatabaseContent#serveImageVariant
+ * @since 1.9.2
+ */
+public class ImageVariantCache {
+    /**
+     * Generates the data of a variant that isn't cached yet.
+     *
+     * @since 1.9.2
+     */
+    @FunctionalInterface
+    public interface Generator {
+        /**
+         * Generates the data of a variant.
+         *
+         * @return the bytes of the variant
+         * @throws Exception when an error occurred during the generation
+         * @since 1.9.2
+         */
+        byte[] generate()
+        throws Exception;
+    }
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final File directory_;
+    private final long maximumSize_;
+    private final SortedSet<Integer> sizes_;
+    private final LinkedHashMap<String, Long> entries_ = new LinkedHashMap<>(16, 0.75f, true);
+    private final ConcurrentHashMap<String, CompletableFuture<File>> pending_ = new ConcurrentHashMap<>();
+    private long size_ = 0;
+
+    /**
+     * Creates a new image variant cache.
+     *
+     * @param directory   the directory in which the variants are stored, it
+     *                    will be created if it doesn't exist
+     * @param maximumSize the maximum total size in bytes of the cached variants
+     * @param sizes       the pixel widths and heights that variants are
+     *                    allowed to have
+     * @throws IOException when the cache directory couldn't be created
+     * @since 1.9.2
+     */
+    public ImageVariantCache(File directory, long maximumSize, int... sizes)
+    throws IOException {
+        if (null == directory) throw new IllegalArgumentException("directory can't be null");
+        if (maximumSize <= 0) throw new IllegalArgumentException("maximumSize should be positive");
+        if (null == sizes || 0 == sizes.length) throw new IllegalArgumentException("sizes can't be empty");
+
+        var allowed_sizes = new TreeSet<Integer>();
+        for (var size : sizes) {
+            if (size <= 0) throw new IllegalArgumentException("sizes should be positive");
+            allowed_sizes.add(size);
+        }
+
+        directory_ = directory;
+        maximumSize_ = maximumSize;
+        sizes_ = Collections.unmodifiableSortedSet(allowed_sizes);
+
+        Files.createDirectories(directory_.toPath());
+
+        var files = directory_.listFiles();
+        if (files != null) {
+            Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+            for (var file : files) {
+                if (file.getName().endsWith(TEMP_SUFFIX)) {
+                    file.delete();
+                } else if (file.isFile()) {
+                    entries_.put(file.getName(), file.length());
+                    size_ += file.length();
+                }
+            }
+        }
+
+        evict(null);
+    }
+
+    /**
+     * Retrieves the directory in which the variants are stored.
+     *
+     * @return the cache directory
+     * @since 1.9.2
+     */
+    public File getDirectory() {
+        return directory_;
+    }
+
+    /**
+     * Retrieves the maximum total size of the cached variants.
+     *
+     * @return the maximum size in bytes
+     * @since 1.9.2
+     */
+    public long getMaximumSize() {
+        return maximumSize_;
+    }
+
+    /**
+     * Retrieves the pixel widths and heights that variants are allowed to have.
+     *
+     * @return the allowed sizes in ascending order
+     * @since 1.9.2
+     */
+    public SortedSet<Integer> getSizes() {
+        return sizes_;
+    }
+
+    /**
+     * Indicates whether variants are allowed to have a certain pixel width
+     * or height.
+     *
+     * @param size the pixel width or height
+     * @return {@code true} if the size is allowed; or
+     * <p>{@code false} otherwise
+     * @since 1.9.2
+     */
+    public boolean isAllowedSize(int size) {
+        return sizes_.contains(size);
+    }
+
+    /**
+     * Retrieves the current total size of the cached variants.
+     *
+     * @return the current size in bytes
+     * @since 1.9.2
+     */
+    public synchronized long getSize() {
+        return size_;
+    }
+
+    /**
+     * Indicates whether a variant is currently cached.
+     *
+     * @param key the key of the variant
+     * @return {@code true} if the variant is cached; or
+     * <p>{@code false} otherwise
+     * @since 1.9.2
+     */
+    public synchronized boolean contains(String key) {
+        return entries_.containsKey(key);
+    }
+
+    /**
+     * Obtains the file of a variant, generating it if it isn't cached yet.
+     * <p>When the variant is being generated by another thread, this waits
+     * for that generation to finish instead of generating it again.
+     * <p>The returned file can be removed when the cache is full, it should
+     * thus be read immediately.
+     *
+     * @param key       the key of the variant, it's used as the file name
+     * @param generator the generator that will be used if the variant isn't cached
+     * @return the file with the data of the variant
+     * @throws IOException when the variant couldn't be generated or stored
+     * @since 1.9.2
+     */
+    public File obtain(String key, Generator generator)
+    throws IOException {
+        if (null == key) throw new IllegalArgumentException("key can't be null");
+        if (null == generator) throw new IllegalArgumentException("generator can't be null");
+        if (key.isEmpty() || key.contains("/") || key.contains(File.separator) || key.startsWith(".") || key.endsWith(TEMP_SUFFIX)) {
+            throw new IllegalArgumentException("key '" + key + "' isn't a valid variant key");
+        }
+
+        var file = new File(directory_, key);
+        synchronized (this) {
+            if (entries_.get(key) != null && file.exists()) {
+                return file;
+            }
+        }
+
+        var future = new CompletableFuture<File>();
+        var existing = pending_.putIfAbsent(key, future);
+        if (existing != null) {
+            return await(existing);
+        }
+
+        try {
+            future.complete(generate(key, file, generator));
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+        } finally {
+            pending_.remove(key, future);
+        }
+
+        return await(future);
+    }
+
+    /**
+     * Removes all the cached variants.
+     *
+     * @since 1.9.2
+     */
+    public synchronized void clear() {
+        for (var key : entries_.keySet()) {
+            new File(directory_, key).delete();
+        }
+        entries_.clear();
+        size_ = 0;
+    }
+
+    private File generate(String key, File file, Generator generator)
+    throws Exception {
+        // another thread could have finished the generation right before
+        // this one started it
+        synchronized (this) {
+            if (entries_.get(key) != null && file.exists()) {
+                return file;
+            }
+        }
+
+        var bytes = generator.generate();
+        if (null == bytes) {
+            throw new IOException("No data was generated for image variant '" + key + "'.");
+        }
+
+        // write the variant to a temporary file first, so that other
+        // processes never see partially written variants
+        var temp = File.createTempFile(key + ".", TEMP_SUFFIX, directory_);
+        try {
+            Files.write(temp.toPath(), bytes);
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            temp.delete();
+        }
+
+        synchronized (this) {
+            var previous = entries_.put(key, (long) bytes.length);
+            if (previous != null) {
+                size_ -= previous;
+            }
+            size_ += bytes.length;
+            evict(key);
+        }
+
+        return file;
+    }
+
+    private void evict(String keep) {
+        var iterator = entries_.entrySet().iterator();
+        while (size_ > maximumSize_ && iterator.hasNext()) {
+            var entry = iterator.next();
+            if (entry.getKey().equals(keep)) {
+                continue;
+            }
+
+            new File(directory_, entry.getKey()).delete();
+            size_ -= entry.getValue();
+            iterator.remove();
+        }
+    }
+
+    private static File await(CompletableFuture<File> future)
+    throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException | CompletionException e) {
+            var cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
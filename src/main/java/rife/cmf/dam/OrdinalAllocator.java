@@ -0,0 +1,326 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.cmf.dam;
+
+import rife.database.Datasource;
+import rife.database.DbQueryManager;
+import rife.database.exceptions.DatabaseException;
+import rife.database.queries.CreateTable;
+import rife.database.queries.DropTable;
+import rife.database.queries.Insert;
+import rife.database.queries.Select;
+import rife.database.queries.Update;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hands out the ordinals of new rows in blocks that are reserved from a
+ * counter table.
+ * <p>{@link OrdinalManager#obtainInsertOrdinal()} looks up the highest
+ * ordinal for every new row, which requires an aggregate query per insert
+ * and lets concurrent inserts obtain the same ordinal. This allocator
+ * instead keeps a counter row for each table, ordinal column and
+ * restriction value. Each time a block of ordinals is needed, the counter
+ * is advanced with a compare-and-set update, after which the ordinals of
+ * the block are handed out from memory.
+ * <p>Ordinals are never handed out twice, but the ordinals of a block that
+ * wasn't used up, for instance because the application stopped, are lost.
+ * The allocator is thus best combined with {@link OrdinalManager#spacing(int)
+ * spaced ordinals}, which expect gaps anyway. When a counter is created or a
+ * new block is reserved, the ordinals that are present in the table are
+ * taken into account, ordinals that are changed by other means while a
+ * block is in use aren't.
+ * <p>Blocks are reserved in their own short transaction on a separate
+ * connection, independently of the transaction of the caller. When the
+ * transaction of the caller is rolled back, the reserved block thus stays
+ * valid and its ordinals are never handed out by another allocator. The
+ * datasource needs a connection to be available for this while the caller
+ * holds one for its own transaction.
+ * <p>The counter table is named {@value #DEFAULT_TABLE} by default. The table
+ * has to be installed once, for instance together with the content manager:
+ * <pre>
+ * DatabaseContentFactory.instance(datasource).install();
+ * new OrdinalAllocator(datasource).install();</pre>
+ *
+ * @author Geert Bevin (gbevin[remove] at uwyn dot com)
+ * @see ContentQueryManager#ordinalAllocator(OrdinalAllocator)
+ * @since 1.9.2
+ */
+public class OrdinalAllocator extends DbQueryManager {
+    /**
+     * The default number of ordinals that are reserved at once.
+     *
+     * @since 1.9.2
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 20;
+    /**
+     * The default name of the counter table.
+     *
+     * @since 1.9.2
+     */
+    public static final String DEFAULT_TABLE = "OrdinalCounter";
+
+    private final String table_;
+    private final int blockSize_;
+    private final ConcurrentHashMap<String, Block> blocks_ = new ConcurrentHashMap<>();
+
+    private final CreateTable createTableCounter_;
+    private final DropTable dropTableCounter_;
+    private final Select getCounter_;
+    private final Insert createCounter_;
+    private final Update advanceCounter_;
+
+    /**
+     * Creates a new allocator with the default counter table and the
+     * default block size.
+     *
+     * @param datasource the datasource of the counter table
+     * @since 1.9.2
+     */
+    public OrdinalAllocator(Datasource datasource) {
+        this(datasource, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Creates a new allocator with the default counter table.
+     *
+     * @param datasource the datasource of the counter table
+     * @param blockSize  the number of ordinals that are reserved at once
+     * @since 1.9.2
+     */
+    public OrdinalAllocator(Datasource datasource, int blockSize) {
+        this(datasource, DEFAULT_TABLE, blockSize);
+    }
+
+    /**
+     * Creates a new allocator.
+     *
+     * @param datasource the datasource of the counter table
+     * @param table      the name of the counter table
+     * @param blockSize  the number of ordinals that are reserved at once
+     * @since 1.9.2
+     */
+    public OrdinalAllocator(Datasource datasource, String table, int blockSize) {
+        super(datasource);
+
+        if (null == table) throw new IllegalArgumentException("table can't be null");
+        if (table.isEmpty()) throw new IllegalArgumentException("table can't be empty");
+        if (blockSize < 1) throw new IllegalArgumentException("blockSize should be at least 1");
+
+        table_ = table;
+        blockSize_ = blockSize;
+
+        createTableCounter_ = new CreateTable(getDatasource())
+            .table(table_)
+            .column("name", String.class, 255, CreateTable.NOTNULL)
+            .column("nextOrdinal", int.class, CreateTable.NOTNULL)
+            .primaryKey("PK_" + table_, "name");
+
+        dropTableCounter_ = new DropTable(getDatasource())
+            .table(table_);
+
+        getCounter_ = new Select(getDatasource())
+            .from(table_)
+            .field("nextOrdinal")
+            .whereParameter("name", "=");
+
+        createCounter_ = new Insert(getDatasource())
+            .into(table_)
+            .fieldParameter("name")
+            .fieldParameter("nextOrdinal");
+
+        advanceCounter_ = new Update(getDatasource())
+            .table(table_)
+            .fieldParameter("nextOrdinal", "next")
+            .whereParameter("name", "=")
+            .whereParameterAnd("nextOrdinal", "current", "=");
+    }
+
+    /**
+     * Retrieves the name of the counter table.
+     *
+     * @return the name of the counter table
+     * @since 1.9.2
+     */
+    public String getTable() {
+        return table_;
+    }
+
+    /**
+     * Retrieves the number of ordinals that are reserved at once.
+     *
+     * @return the block size
+     * @since 1.9.2
+     */
+    public int getBlockSize() {
+        return blockSize_;
+    }
+
+    /**
+     * Installs the counter table.
+     *
+     * @return {@code true} if the table was installed successfully; or
+     * <p>{@code false} otherwise
+     * @throws DatabaseException when an error occurred during the installation
+     * @since 1.9.2
+     */
+    public boolean install()
+    throws DatabaseException {
+        executeUpdate(createTableCounter_);
+
+        return true;
+    }
+
+    /**
+     * Removes the counter table and forgets the blocks that are in use.
+     *
+     * @return {@code true} if the table was removed successfully; or
+     * <p>{@code false} otherwise
+     * @throws DatabaseException when an error occurred during the removal
+     * @since 1.9.2
+     */
+    public boolean remove()
+    throws DatabaseException {
+        blocks_.clear();
+        executeUpdate(dropTableCounter_);
+
+        return true;
+    }
+
+    /**
+     * Allocates the ordinal of a new row behind all the other rows in the
+     * entire table of an {@code OrdinalManager}.
+     *
+     * @param ordinals the ordinal manager of the table
+     * @return the allocated ordinal
+     * @throws DatabaseException when an error occurred while reserving a
+     *                           new block of ordinals
+     * @see #allocate(OrdinalManager, long)
+     * @since 1.9.2
+     */
+    public int allocate(OrdinalManager ordinals)
+    throws DatabaseException {
+        if (null == ordinals) throw new IllegalArgumentException("ordinals can't be null");
+
+        var name = ordinals.getTable() + "." + ordinals.getOrdinalColumn();
+        return allocate(name, ordinals.getSpacing(), ordinals::obtainInsertOrdinal);
+    }
+
+    /**
+     * Allocates the ordinal of a new row behind all the other rows in the
+     * range of an {@code OrdinalManager} that is restricted by the provided ID.
+     *
+     * @param ordinals   the ordinal manager of the table
+     * @param restrictId the restriction ID value
+     * @return the allocated ordinal
+     * @throws DatabaseException when an error occurred while reserving a
+     *                           new block of ordinals
+     * @see #allocate(OrdinalManager)
+     * @since 1.9.2
+     */
+    public int allocate(OrdinalManager ordinals, long restrictId)
+    throws DatabaseException {
+        if (null == ordinals) throw new IllegalArgumentException("ordinals can't be null");
+        if (null == ordinals.getRestrictColumn()) throw new IllegalArgumentException("ordinals should have a restriction column");
+
+        var name = ordinals.getTable() + "." + ordinals.getOrdinalColumn() + "." + ordinals.getRestrictColumn() + "=" + restrictId;
+        return allocate(name, ordinals.getSpacing(), () -> ordinals.obtainInsertOrdinal(restrictId));
+    }
+
+    private int allocate(String name, int spacing, InsertOrdinal insertOrdinal) {
+        var block = blocks_.computeIfAbsent(name, n -> new Block());
+        synchronized (block) {
+            if (block.next_ >= block.limit_) {
+                // the ordinals in the table take precedence over the counter,
+                // rows could have been inserted without this allocator, they're
+                // looked up by the caller since they can be part of its own
+                // transaction
+                var first = insertOrdinal.obtain();
+                var size = blockSize_ * spacing;
+                block.next_ = reserve(name, size, first);
+                block.limit_ = block.next_ + size;
+            }
+
+            var ordinal = block.next_;
+            block.next_ += spacing;
+            return ordinal;
+        }
+    }
+
+    private int reserve(final String name, final int size, final int first) {
+        // a thread without a transaction obtains its own connection, the
+        // reservation is thus never rolled back together with the caller
+        var result = new CompletableFuture<Integer>();
+        var thread = new Thread(() -> {
+            try {
+                result.complete(reserveInTransaction(name, size, first));
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        }, "ORDINAL_ALLOCATOR");
+        thread.setDaemon(true);
+        thread.start();
+
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw e;
+        }
+    }
+
+    private int reserveInTransaction(final String name, final int size, final int first) {
+        while (true) {
+            try {
+                Integer start = inTransaction(() -> advanceCounter(name, size, first));
+                if (start != null) {
+                    return start;
+                }
+            } catch (DatabaseException e) {
+                // another process created the counter in the meantime, the
+                // failed transaction was rolled back and the counter is
+                // advanced instead
+                if (-1 == executeGetFirstInt(getCounter_, s -> s.setString("name", name))) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private Integer advanceCounter(final String name, final int size, final int first) {
+        var current = executeGetFirstInt(getCounter_, s -> s.setString("name", name));
+        if (-1 == current) {
+            executeUpdate(createCounter_, s -> s
+                .setString("name", name)
+                .setInt("nextOrdinal", first + size));
+            return first;
+        }
+
+        final var start = Math.max(first, current);
+        if (executeUpdate(advanceCounter_, s -> s
+            .setInt("next", start + size)
+            .setString("name", name)
+            .setInt("current", current)) > 0) {
+            return start;
+        }
+
+        // another allocator advanced the counter concurrently
+        return null;
+    }
+
+    @FunctionalInterface
+    private interface InsertOrdinal {
+        int obtain();
+    }
+
+    private static class Block {
+        private int next_ = 0;
+        private int limit_ = 0;
+    }
+}
@@ -11,7 +11,10 @@ import rife.datastructures.EnumClass;
 import rife.tools.ExceptionUtils;
 import rife.tools.InnerClassException;
 
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Logger;
 
 /**
@@ -45,6 +48,20 @@ import java.util.logging.Logger;
  * level methods: {@link #free(int) free}, {@link #update(int, int) update},
  * {@link #tighten() tighten} and {@link #obtainInsertOrdinal()
  * obtainInsertOrdinal}.
+ * <p>Moving a row up or down swaps its ordinal with the one of its
+ * neighbour and thus only changes two rows. By default the ordinals are
+ * kept dense, which makes it necessary to shift all the rows in between
+ * when a row is moved to another position with {@link #move(int, int)}.
+ * When a {@link #spacing(int) spacing} is set, new rows are given ordinals
+ * that leave gaps in between, and a moved row simply takes an ordinal in
+ * the gap in front of its target. The ordinals are only spread out again
+ * with {@link #respace() respace} when no gap is left.
+ * <p><b>The spacing isn't stored in the database.</b> Every
+ * {@code OrdinalManager} that works with the same table and ordinal column
+ * has to be set up with the same spacing. A manager with the default
+ * spacing treats spaced ordinals as if they were dense, for instance
+ * {@link #tighten() tighten} removes the gaps and {@link #move(int, int)
+ * move} shifts all the rows in between again.
  *
  * @author Geert Bevin (gbevin[remove] at uwyn dot com)
  * @since 1.0
@@ -58,19 +75,33 @@ public class OrdinalManager implements Cloneable {
      * @see Direction#DOWN
      */
     public static final Direction DOWN = Direction.DOWN;
+    /**
+     * The default spacing, which keeps the ordinals dense.
+     *
+     * @see #spacing(int)
+     * @since 1.9.2
+     */
+    public static final int DEFAULT_SPACING = 1;
 
     private final Datasource datasource_;
     private final DbQueryManager dbQueryManager_;
     private final String table_;
     private final String ordinalColumn_;
     private String restrictColumn_;
+    private int spacing_ = DEFAULT_SPACING;
 
     private final Update freeMoveOrdinal_;
     private final Select getFinalOrdinal_;
     private final Select getOrdinals_;
+    private final Select getOrdinal_;
+    private final Select getPreviousOrdinal_;
+    private final Select getNextOrdinal_;
     private Select getFinalOrdinalRestricted_ = null;
     private Update freeMoveOrdinalRestricted_ = null;
     private Select getOrdinalsRestricted_ = null;
+    private Select getOrdinalRestricted_ = null;
+    private Select getPreviousOrdinalRestricted_ = null;
+    private Select getNextOrdinalRestricted_ = null;
 
     /**
      * Creates a new {@code OrdinalManager} that manages ordinals
@@ -112,6 +143,28 @@ public class OrdinalManager implements Cloneable {
             .field(ordinalColumn_)
             .from(table_)
             .orderBy(ordinalColumn_, Select.ASC);
+
+        getOrdinal_ = new Select(datasource);
+        getOrdinal_
+            .field(ordinalColumn_)
+            .from(table_)
+            .whereParameter(ordinalColumn_, "current", "=");
+
+        getPreviousOrdinal_ = new Select(datasource);
+        getPreviousOrdinal_
+            .field(ordinalColumn_)
+            .from(table_)
+            .whereParameter(ordinalColumn_, "current", "<")
+            .orderBy(ordinalColumn_, Select.DESC)
+            .limit(1);
+
+        getNextOrdinal_ = new Select(datasource);
+        getNextOrdinal_
+            .field(ordinalColumn_)
+            .from(table_)
+            .whereParameter(ordinalColumn_, "current", ">")
+            .orderBy(ordinalColumn_, Select.ASC)
+            .limit(1);
     }
 
     /**
@@ -155,6 +208,30 @@ public class OrdinalManager implements Cloneable {
             .whereParameter(restrictColumn_, "=")
             .orderBy(ordinalColumn_, Select.ASC);
 
+        getOrdinalRestricted_ = new Select(datasource_);
+        getOrdinalRestricted_
+            .field(ordinalColumn_)
+            .from(table_)
+            .whereParameter(restrictColumn_, "=")
+            .whereParameterAnd(ordinalColumn_, "current", "=");
+
+        getPreviousOrdinalRestricted_ = new Select(datasource_);
+        getPreviousOrdinalRestricted_
+            .field(ordinalColumn_)
+            .from(table_)
+            .whereParameter(restrictColumn_, "=")
+            .whereParameterAnd(ordinalColumn_, "current", "<")
+            .orderBy(ordinalColumn_, Select.DESC)
+            .limit(1);
+
+        getNextOrdinalRestricted_ = new Select(datasource_);
+        getNextOrdinalRestricted_
+            .field(ordinalColumn_)
+            .from(table_)
+            .whereParameter(restrictColumn_, "=")
+            .whereParameterAnd(ordinalColumn_, "current", ">")
+            .orderBy(ordinalColumn_, Select.ASC)
+            .limit(1);
     }
 
     /**
@@ -189,6 +266,43 @@ public class OrdinalManager implements Cloneable {
         return restrictColumn_;
     }
 
+    /**
+     * Sets the spacing between the ordinals of consecutive rows.
+     * <p>With the default spacing of {@code 1}, the ordinals are kept
+     * dense. A larger spacing leaves gaps between the ordinals of new rows,
+     * which allows {@link #move(int, int) move} to reposition a row by only
+     * changing its own ordinal. Spaced ordinals start at the spacing value,
+     * so that rows can also be moved in front of the first one.
+     * <p>Spaced ordinals should not be {@link #tighten() tightened}, since
+     * that removes the gaps again.
+     * <p>The spacing isn't stored in the database, it has to be set up
+     * identically for every manager of the same table and ordinal column.
+     *
+     * @param spacing the spacing between the ordinals
+     * @return this {@code OrdinalManager}
+     * @see #getSpacing()
+     * @see #respace()
+     * @since 1.9.2
+     */
+    public OrdinalManager spacing(int spacing) {
+        if (spacing < 1) throw new IllegalArgumentException("spacing should be at least 1");
+
+        spacing_ = spacing;
+
+        return this;
+    }
+
+    /**
+     * Retrieves the spacing between the ordinals of consecutive rows.
+     *
+     * @return the spacing between the ordinals
+     * @see #spacing(int)
+     * @since 1.9.2
+     */
+    public int getSpacing() {
+        return spacing_;
+    }
+
     /**
      * Moves the position of a row with a specific ordinal within the entire
      * table.
@@ -246,24 +360,7 @@ public class OrdinalManager implements Cloneable {
      * @since 1.0
      */
     public boolean up(final int ordinal) {
-        Boolean result = dbQueryManager_.inTransaction(new DbTransactionUser() {
-            public Boolean useTransaction()
-            throws InnerClassException {
-                if (!free(ordinal - 1)) {
-                    rollback();
-                }
-                if (!update(ordinal + 1, ordinal - 1)) {
-                    rollback();
-                }
-                if (!tighten()) {
-                    rollback();
-                }
-
-                return true;
-            }
-        });
-
-        return null != result && result;
+        return swapNeighbour(null, ordinal, true);
     }
 
     /**
@@ -278,24 +375,7 @@ public class OrdinalManager implements Cloneable {
      * @since 1.0
      */
     public boolean up(final long restrictId, final int ordinal) {
-        Boolean result = dbQueryManager_.inTransaction(new DbTransactionUser() {
-            public Boolean useTransaction()
-            throws InnerClassException {
-                if (!free(restrictId, ordinal - 1)) {
-                    rollback();
-                }
-                if (!update(restrictId, ordinal + 1, ordinal - 1)) {
-                    rollback();
-                }
-                if (!tighten(restrictId)) {
-                    rollback();
-                }
-
-                return true;
-            }
-        });
-
-        return null != result && result;
+        return swapNeighbour(restrictId, ordinal, true);
     }
 
     /**
@@ -308,24 +388,7 @@ public class OrdinalManager implements Cloneable {
      * @since 1.0
      */
     public boolean down(final int ordinal) {
-        Boolean result = dbQueryManager_.inTransaction(new DbTransactionUser() {
-            public Boolean useTransaction()
-            throws InnerClassException {
-                if (!free(ordinal + 2)) {
-                    rollback();
-                }
-                if (!update(ordinal, ordinal + 2)) {
-                    rollback();
-                }
-                if (!tighten()) {
-                    rollback();
-                }
-
-                return true;
-            }
-        });
-
-        return null != result && result;
+        return swapNeighbour(null, ordinal, false);
     }
 
     /**
@@ -340,29 +403,15 @@ public class OrdinalManager implements Cloneable {
      * @since 1.0
      */
     public boolean down(final long restrictId, final int ordinal) {
-        Boolean result = dbQueryManager_.inTransaction(new DbTransactionUser() {
-            public Boolean useTransaction()
-            throws InnerClassException {
-                if (!free(restrictId, ordinal + 2)) {
-                    rollback();
-                }
-                if (!update(restrictId, ordinal, ordinal + 2)) {
-                    rollback();
-                }
-                if (!tighten(restrictId)) {
-                    rollback();
-                }
-
-                return true;
-            }
-        });
-
-        return null != result && result;
+        return swapNeighbour(restrictId, ordinal, false);
     }
 
     /**
      * Moves a row with a specific ordinal to the location of another ordinal
      * within the entire table.
+     * <p>When the ordinals are {@link #spacing(int) spaced}, only the
+     * ordinal of the moved row changes, unless there's no gap left in front
+     * of the target row.
      *
      * @param fromOrdinal the ordinal of the row that has to be moved
      * @param toOrdinal   the ordinal of the row where the from row has will be
@@ -373,6 +422,10 @@ public class OrdinalManager implements Cloneable {
      * @since 1.0
      */
     public boolean move(final int fromOrdinal, final int toOrdinal) {
+        if (spacing_ > 1) {
+            return moveSpaced(null, fromOrdinal, toOrdinal);
+        }
+
         Boolean result = dbQueryManager_.inTransaction(new DbTransactionUser() {
             public Boolean useTransaction()
             throws InnerClassException {
@@ -400,6 +453,9 @@ public class OrdinalManager implements Cloneable {
     /**
      * Moves a row with a specific ordinal to the location of another ordinal
      * within the range restricted by the provided ID.
+     * <p>When the ordinals are {@link #spacing(int) spaced}, only the
+     * ordinal of the moved row changes, unless there's no gap left in front
+     * of the target row.
      *
      * @param restrictId  the restriction ID value
      * @param fromOrdinal the ordinal of the row that has to be moved
@@ -415,6 +471,10 @@ public class OrdinalManager implements Cloneable {
             return true;
         }
 
+        if (spacing_ > 1) {
+            return moveSpaced(restrictId, fromOrdinal, toOrdinal);
+        }
+
         Boolean result = dbQueryManager_.inTransaction(new DbTransactionUser() {
             public Boolean useTransaction()
             throws InnerClassException {
@@ -674,10 +734,7 @@ public class OrdinalManager implements Cloneable {
      * @since 1.0
      */
     public int obtainInsertOrdinal() {
-        // return next ordinal to use
-        // +1 because mGetFinalOrdinal returns the last ordinal
-        // in the db series
-        return dbQueryManager_.executeGetFirstInt(getFinalOrdinal_) + 1;
+        return nextInsertOrdinal(dbQueryManager_.executeGetFirstInt(getFinalOrdinal_));
     }
 
     /**
@@ -704,11 +761,216 @@ public class OrdinalManager implements Cloneable {
      * @since 1.0
      */
     public int obtainInsertOrdinal(final long restrictId) {
-        // return next ordinal to use
         int ordinal = dbQueryManager_.executeGetFirstInt(getFinalOrdinalRestricted_, s ->
             s.setLong(restrictColumn_, restrictId));
 
-        return ordinal + 1;
+        return nextInsertOrdinal(ordinal);
+    }
+
+    /**
+     * Spreads the ordinals within the entire table so that they're
+     * {@link #spacing(int) spacing} apart, starting at the spacing value.
+     * <p>This happens automatically when a row is moved with spaced
+     * ordinals and no gap is left, it can also be used to convert the
+     * dense ordinals of an existing table.
+     *
+     * @return {@code true} if the respacing was executed correctly; or
+     * <p>{@code false} if no rows were found in the table
+     * @see #respace(long)
+     * @since 1.9.2
+     */
+    public boolean respace() {
+        List<Integer> ordinals = dbQueryManager_.inTransaction(() -> spreadOrdinals(null));
+
+        return ordinals != null && !ordinals.isEmpty();
+    }
+
+    /**
+     * Spreads the ordinals within the range restricted by the provided ID so
+     * that they're {@link #spacing(int) spacing} apart, starting at the
+     * spacing value.
+     *
+     * @param restrictId the id by which to restrict with
+     * @return {@code true} if the respacing was executed correctly; or
+     * <p>{@code false} if no rows were found within the range
+     * @see #respace()
+     * @since 1.9.2
+     */
+    public boolean respace(final long restrictId) {
+        List<Integer> ordinals = dbQueryManager_.inTransaction(() -> spreadOrdinals(restrictId));
+
+        return ordinals != null && !ordinals.isEmpty();
+    }
+
+    private int nextInsertOrdinal(int lastOrdinal) {
+        if (lastOrdinal < 0) {
+            return spacing_ > 1 ? spacing_ : 0;
+        }
+
+        return lastOrdinal + spacing_;
+    }
+
+    private boolean swapNeighbour(final Long restrictId, final int ordinal, final boolean previous) {
+        Boolean result = dbQueryManager_.inTransaction(new DbTransactionUser<>() {
+            public Boolean useTransaction()
+            throws InnerClassException {
+                var neighbour = previous ? getPreviousOrdinal(restrictId, ordinal) : getNextOrdinal(restrictId, ordinal);
+                if (-1 == neighbour) {
+                    // the last row can't move further down, which isn't
+                    // considered to be a failure
+                    return !previous && hasOrdinal(restrictId, ordinal);
+                }
+
+                // swap the ordinals through a temporary value behind the
+                // last ordinal, which can't collide with the ones of other
+                // rows and respects range constraints on the column
+                var temporary = getFinalOrdinal(restrictId) + 1;
+                if (!change(restrictId, ordinal, temporary) ||
+                    !change(restrictId, neighbour, ordinal) ||
+                    !change(restrictId, temporary, neighbour)) {
+                    rollback();
+                }
+
+                return true;
+            }
+        });
+
+        return null != result && result;
+    }
+
+    private boolean moveSpaced(final Long restrictId, final int fromOrdinal, final int toOrdinal) {
+        if (fromOrdinal == toOrdinal) {
+            return true;
+        }
+
+        Boolean result = dbQueryManager_.inTransaction(new DbTransactionUser<>() {
+            public Boolean useTransaction()
+            throws InnerClassException {
+                // the target ordinal isn't used, the row can simply take it
+                if (!hasOrdinal(restrictId, toOrdinal)) {
+                    if (!change(restrictId, fromOrdinal, toOrdinal)) {
+                        rollback();
+                    }
+                    return true;
+                }
+
+                // the row is already right in front of the target row
+                var from = fromOrdinal;
+                var to = toOrdinal;
+                var lower = getPreviousOrdinal(restrictId, to);
+                if (lower == from) {
+                    return true;
+                }
+
+                // spread out the ordinals when there's no gap in front of
+                // the target row
+                if (to - lower < 2) {
+                    var ordinals = spreadOrdinals(restrictId);
+                    var from_index = ordinals.indexOf(from);
+                    var to_index = ordinals.indexOf(to);
+                    if (-1 == from_index) {
+                        rollback();
+                    }
+                    from = (from_index + 1) * spacing_;
+                    to = (to_index + 1) * spacing_;
+                    lower = 0 == to_index ? 0 : to - spacing_;
+                }
+
+                // take the ordinal in the middle of the gap
+                if (!change(restrictId, from, lower + (to - lower) / 2)) {
+                    rollback();
+                }
+
+                return true;
+            }
+        });
+
+        return null != result && result;
+    }
+
+    private List<Integer> spreadOrdinals(final Long restrictId) {
+        final var ordinals = new ArrayList<Integer>();
+        var processor = new DbRowProcessor() {
+            public boolean processRow(ResultSet resultSet)
+            throws SQLException {
+                ordinals.add(resultSet.getInt(ordinalColumn_));
+                return true;
+            }
+        };
+        if (null == restrictId) {
+            dbQueryManager_.executeFetchAll(getOrdinals_, processor);
+        } else {
+            dbQueryManager_.executeFetchAll(getOrdinalsRestricted_, processor, s ->
+                s.setLong(restrictColumn_, restrictId));
+        }
+
+        // rows that get a lower ordinal are updated in ascending order and
+        // rows that get a higher ordinal in descending order, an updated
+        // ordinal thus never collides with one that wasn't updated yet
+        for (var i = 0; i < ordinals.size(); i++) {
+            var ordinal = (i + 1) * spacing_;
+            if (ordinal < ordinals.get(i)) {
+                change(restrictId, ordinals.get(i), ordinal);
+            }
+        }
+        for (var i = ordinals.size() - 1; i >= 0; i--) {
+            var ordinal = (i + 1) * spacing_;
+            if (ordinal > ordinals.get(i)) {
+                change(restrictId, ordinals.get(i), ordinal);
+            }
+        }
+
+        return ordinals;
+    }
+
+    private boolean hasOrdinal(final Long restrictId, final int ordinal) {
+        if (null == restrictId) {
+            return dbQueryManager_.executeHasResultRows(getOrdinal_, s ->
+                s.setInt("current", ordinal));
+        }
+
+        return dbQueryManager_.executeHasResultRows(getOrdinalRestricted_, s ->
+            s.setLong(restrictColumn_, restrictId)
+                .setInt("current", ordinal));
+    }
+
+    private int getFinalOrdinal(final Long restrictId) {
+        if (null == restrictId) {
+            return dbQueryManager_.executeGetFirstInt(getFinalOrdinal_);
+        }
+
+        return dbQueryManager_.executeGetFirstInt(getFinalOrdinalRestricted_, s ->
+            s.setLong(restrictColumn_, restrictId));
+    }
+
+    private int getPreviousOrdinal(final Long restrictId, final int ordinal) {
+        if (null == restrictId) {
+            return dbQueryManager_.executeGetFirstInt(getPreviousOrdinal_, s ->
+                s.setInt("current", ordinal));
+        }
+
+        return dbQueryManager_.executeGetFirstInt(getPreviousOrdinalRestricted_, s ->
+            s.setLong(restrictColumn_, restrictId)
+                .setInt("current", ordinal));
+    }
+
+    private int getNextOrdinal(final Long restrictId, final int ordinal) {
+        if (null == restrictId) {
+            return dbQueryManager_.executeGetFirstInt(getNextOrdinal_, s ->
+                s.setInt("current", ordinal));
+        }
+
+        return dbQueryManager_.executeGetFirstInt(getNextOrdinalRestricted_, s ->
+            s.setLong(restrictColumn_, restrictId)
+                .setInt("current", ordinal));
+    }
+
+    private boolean change(Long restrictId, int currentOrdinal, int newOrdinal) {
+        if (null == restrictId) {
+            return update(currentOrdinal, newOrdinal);
+        }
+
+        return update(restrictId, currentOrdinal, newOrdinal);
     }
 
     /**
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.cmf.dam.contentmanagers;
+
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of the content info of the most recently used locations.
+ * <p>Every invalidation increases a generation counter. Content info that
+ * was retrieved from the database is only put into the cache when no
+ * invalidation happened since the retrieval started, which prevents content
+ * info that was concurrently replaced from being cached.
+ *
+ * @author Geert Bevin (gbevin[remove] at uwyn dot com)
+ * @since 1.9.2
+ */
+class ContentInfoCache {
+    private final LinkedHashMap<ContentLocation, Entry> entries_ = new LinkedHashMap<>(16, 0.75f, true) {
+        protected boolean removeEldestEntry(Map.Entry<ContentLocation, Entry> eldest) {
+            return size() > capacity_;
+        }
+    };
+    private long generation_ = 0;
+    private int capacity_;
+    private long maxAge_;
+
+    ContentInfoCache(int capacity, long maxAge) {
+        capacity_ = capacity;
+        maxAge_ = maxAge;
+    }
+
+    synchronized void setCapacity(int capacity) {
+        capacity_ = capacity;
+        if (0 == capacity) {
+            entries_.clear();
+        } else {
+            var iterator = entries_.entrySet().iterator();
+            while (entries_.size() > capacity && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+    }
+
+    synchronized int getCapacity() {
+        return capacity_;
+    }
+
+    synchronized void setMaxAge(long maxAge) {
+        maxAge_ = maxAge;
+    }
+
+    synchronized long getMaxAge() {
+        return maxAge_;
+    }
+
+    synchronized long getGeneration() {
+        return generation_;
+    }
+
+    synchronized DatabaseContentInfo get(ContentLocation location) {
+        var entry = entries_.get(location);
+        if (null == entry) {
+            return null;
+        }
+
+        if (maxAge_ > 0 && System.currentTimeMillis() - entry.cached() > maxAge_) {
+            entries_.remove(location);
+            return null;
+        }
+
+        return copy(entry.info());
+    }
+
+    synchronized void put(ContentLocation location, DatabaseContentInfo info, long generation) {
+        if (0 == capacity_ || generation != generation_) {
+            return;
+        }
+
+        entries_.put(location, new Entry(copy(info), System.currentTimeMillis()));
+    }
+
+    synchronized void invalidate(ContentLocation location) {
+        generation_++;
+
+        // the content info of a path is also found through the name of its
+        // content, the locations below the path are thus invalidated too
+        var prefix = location.path() + "/";
+        entries_.keySet().removeIf(key ->
+            key.repository().equals(location.repository()) &&
+            (key.path().equals(location.path()) || key.path().startsWith(prefix)));
+    }
+
+    synchronized void clear() {
+        generation_++;
+        entries_.clear();
+    }
+
+    private static DatabaseContentInfo copy(DatabaseContentInfo info) {
+        var copy = new DatabaseContentInfo();
+        copy.setContentId(info.getContentId());
+        copy.setPath(info.getPath());
+        copy.setVersion(info.getVersion());
+        copy.setMimeType(info.getMimeType());
+        copy.setFragment(info.isFragment());
+        copy.setName(info.getName());
+        if (info.getCreated() != null) {
+            copy.setCreated((Timestamp) info.getCreated().clone());
+        }
+        copy.setSize(info.getSize());
+        if (info.getAttributes() != null) {
+            copy.setAttributes(new HashMap<>(info.getAttributes()));
+        }
+        if (info.getProperties() != null) {
+            copy.setProperties(new HashMap<>(info.getProperties()));
+        }
+        return copy;
+    }
+
+    private record Entry(DatabaseContentInfo info, long cached) {
+    }
+}
@@ -5,20 +5,28 @@
 package rife.cmf.dam.contentmanagers;
 
 import rife.cmf.Content;
+import rife.cmf.ContentInfo;
 import rife.cmf.ContentRepository;
 import rife.cmf.MimeType;
+import rife.cmf.dam.ByteRange;
 import rife.cmf.dam.ContentDataUser;
 import rife.cmf.dam.ContentDataUserWithoutResult;
 import rife.cmf.dam.ContentManager;
+import rife.cmf.dam.ContentQueryManager;
 import rife.cmf.dam.ContentStore;
+import rife.cmf.dam.ImageVariantCache;
+import rife.cmf.dam.contentmanagers.exceptions.ImageVariantErrorException;
 import rife.cmf.dam.contentmanagers.exceptions.InstallContentErrorException;
 import rife.cmf.dam.contentmanagers.exceptions.RemoveContentErrorException;
 import rife.cmf.dam.contentmanagers.exceptions.UnknownContentRepositoryException;
 import rife.cmf.dam.contentmanagers.exceptions.UnsupportedMimeTypeException;
+import rife.cmf.dam.contentstores.exceptions.UseContentDataErrorException;
+import rife.cmf.dam.contentstores.DatabaseImageStore;
 import rife.cmf.dam.contentstores.DatabaseImageStoreFactory;
 import rife.cmf.dam.contentstores.DatabaseRawStoreFactory;
 import rife.cmf.dam.contentstores.DatabaseTextStoreFactory;
 import rife.cmf.dam.exceptions.ContentManagerException;
+import rife.cmf.format.ImageFormatter;
 import rife.cmf.transform.ContentTransformer;
 import rife.database.Datasource;
 import rife.database.DbQueryManager;
@@ -27,19 +35,49 @@ import rife.database.DbTransactionUser;
 import rife.database.exceptions.DatabaseException;
 import rife.database.queries.*;
 import rife.engine.Context;
+import rife.engine.RequestMethod;
 import rife.engine.Route;
 import rife.tools.InnerClassException;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
 
 public abstract class DatabaseContent extends DbQueryManager implements ContentManager {
+    /**
+     * The default maximum number of locations whose content info is cached,
+     * the cache is disabled by default.
+     *
+     * @see #setContentInfoCacheSize(int)
+     * @since 1.9.2
+     */
+    public static final int DEFAULT_CONTENT_INFO_CACHE_SIZE = 0;
+    /**
+     * The default number of milliseconds that cached content info stays valid.
+     *
+     * @since 1.9.2
+     */
+    public static final long DEFAULT_CONTENT_INFO_CACHE_MAX_AGE = 60 * 1000;
+
     protected final ArrayList<ContentStore> stores_;
     protected final HashMap<MimeType, ContentStore> mimeMapping_;
+    private final ContentInfoCache contentInfoCache_ = new ContentInfoCache(DEFAULT_CONTENT_INFO_CACHE_SIZE, DEFAULT_CONTENT_INFO_CACHE_MAX_AGE);
+    private final ThreadLocal<Set<ContentLocation>> deferredInvalidations_ = new ThreadLocal<>();
 
     public DatabaseContent(Datasource datasource) {
         super(datasource);
@@ -57,6 +95,143 @@ public abstract class DatabaseContent extends DbQueryManager implements ContentM
         }
     }
 
+    /**
+     * Adds a content store that will take over the storage of the content
+     * with the mime types it supports.
+     * <p>The store is installed and removed together with the content
+     * manager. Content that was stored before with another store for the
+     * same mime types will not be found anymore, stores should thus be
+     * added before any content is stored.
+     *
+     * @param store the content store to add
+     * @since 1.9.2
+     */
+    public void addStore(ContentStore store) {
+        if (null == store) throw new IllegalArgumentException("store can't be null");
+
+        synchronized (stores_) {
+            stores_.add(store);
+            for (var mime_type : store.getSupportedMimeTypes()) {
+                mimeMapping_.put(mime_type, store);
+            }
+        }
+    }
+
+    /**
+     * Retrieves the content store that stores the content with a certain
+     * mime type.
+     *
+     * @param mimeType the mime type of the content
+     * @return the content store; or
+     * <p>{@code null} if no store supports the mime type
+     * @see #addStore(ContentStore)
+     * @since 1.9.2
+     */
+    public ContentStore getStore(MimeType mimeType) {
+        synchronized (stores_) {
+            return mimeMapping_.get(mimeType);
+        }
+    }
+
+    /**
+     * Sets the maximum number of locations whose content info is cached.
+     * <p>The cache is disabled by default. Cached content info is
+     * invalidated when content is stored or deleted through this content
+     * manager, but changes that were made by other content managers or
+     * processes can go unnoticed for as long as the maximum age of the
+     * cache. Only enable it when that is acceptable for the application.
+     *
+     * @param size the maximum number of cached locations; or
+     *             {@code 0} to disable the cache
+     * @see #getContentInfoCacheSize()
+     * @since 1.9.2
+     */
+    public void setContentInfoCacheSize(int size) {
+        if (size < 0) throw new IllegalArgumentException("size can't be negative");
+
+        contentInfoCache_.setCapacity(size);
+    }
+
+    /**
+     * Retrieves the maximum number of locations whose content info is cached.
+     *
+     * @return the maximum number of cached locations
+     * @see #setContentInfoCacheSize(int)
+     * @since 1.9.2
+     */
+    public int getContentInfoCacheSize() {
+        return contentInfoCache_.getCapacity();
+    }
+
+    /**
+     * Sets the number of milliseconds that cached content info stays valid.
+     *
+     * @param maxAge the maximum age in milliseconds; or
+     *               {@code 0} to keep content info cached until it's invalidated
+     * @see #getContentInfoCacheMaxAge()
+     * @since 1.9.2
+     */
+    public void setContentInfoCacheMaxAge(long maxAge) {
+        if (maxAge < 0) throw new IllegalArgumentException("maxAge can't be negative");
+
+        contentInfoCache_.setMaxAge(maxAge);
+    }
+
+    /**
+     * Retrieves the number of milliseconds that cached content info stays valid.
+     *
+     * @return the maximum age in milliseconds
+     * @see #setContentInfoCacheMaxAge(long)
+     * @since 1.9.2
+     */
+    public long getContentInfoCacheMaxAge() {
+        return contentInfoCache_.getMaxAge();
+    }
+
+    /**
+     * Executes an action and invalidates the cached content info of all the
+     * locations that it stored or deleted content at again after it returned.
+     * <p>Content that is stored or deleted inside a transaction that's
+     * already active is only committed together with that transaction,
+     * while the content info is invalidated when this content manager
+     * returns. A concurrent lookup in between still retrieves the previous
+     * content info and caches it. The action should thus be the one that
+     * starts and commits the outer transaction, nested calls are executed
+     * without invalidating anything on their own.
+     *
+     * @param action the action that stores or deletes content
+     * @param <ResultType> the type of the result of the action
+     * @return the result of the action
+     * @since 1.9.2
+     */
+    public <ResultType> ResultType invalidateContentInfoAfter(Supplier<ResultType> action) {
+        if (null == action) throw new IllegalArgumentException("action can't be null");
+
+        if (deferredInvalidations_.get() != null) {
+            return action.get();
+        }
+
+        var locations = new HashSet<ContentLocation>();
+        deferredInvalidations_.set(locations);
+        try {
+            return action.get();
+        } finally {
+            deferredInvalidations_.remove();
+            for (var location : locations) {
+                contentInfoCache_.invalidate(location);
+            }
+        }
+    }
+
+    private void invalidateContentInfo(ContentLocation location) {
+        contentInfoCache_.invalidate(location);
+
+        var deferred = deferredInvalidations_.get();
+        if (deferred != null) {
+            deferred.add(location);
+        }
+    }
+
     public abstract DatabaseContentInfo getContentInfo(String location)
     throws ContentManagerException;
 
@@ -85,6 +260,8 @@ public abstract class DatabaseContent extends DbQueryManager implements ContentM
             }
         } catch (DatabaseException e) {
             throw new InstallContentErrorException(e);
+        } finally {
+            contentInfoCache_.clear();
         }
 
         return true;
@@ -113,6 +290,8 @@ public abstract class DatabaseContent extends DbQueryManager implements ContentM
             executeUpdate(dropSequenceContentRepository);
         } catch (DatabaseException e) {
             throw new RemoveContentErrorException(e);
+        } finally {
+            contentInfoCache_.clear();
         }
 
         return true;
@@ -253,6 +432,8 @@ public abstract class DatabaseContent extends DbQueryManager implements ContentM
             });
         } catch (InnerClassException e) {
             throw (ContentManagerException) e.getCause();
+        } finally {
+            invalidateContentInfo(split_location);
         }
 
         return result != null && result;
@@ -303,6 +484,8 @@ public abstract class DatabaseContent extends DbQueryManager implements ContentM
             });
         } catch (InnerClassException e) {
             throw (ContentManagerException) e.getCause();
+        } finally {
+            invalidateContentInfo(split_location);
         }
 
         return result != null && result;
@@ -400,6 +583,15 @@ public abstract class DatabaseContent extends DbQueryManager implements ContentM
         assert getContentAttributes != null;
         assert getContentProperties != null;
 
+        var cached = contentInfoCache_.get(split_location);
+        if (cached != null) {
+            return cached;
+        }
+
+        // remember the generation of the cache before querying, the result
+        // isn't cached when the content changed in the meantime
+        var generation = contentInfoCache_.getGeneration();
+
         final var content_info = executeFetchFirstBean(getContentInfo, DatabaseContentInfo.class, s ->
             s.setString("repository", split_location.repository())
                 .setString("path", split_location.path())
@@ -428,6 +620,8 @@ public abstract class DatabaseContent extends DbQueryManager implements ContentM
 
             // retrieve the content size
             content_info.setSize(store.getSize(content_info.getContentId()));
+
+            contentInfoCache_.put(split_location, content_info, generation);
         }
 
         return content_info;
@@ -452,7 +646,9 @@ public abstract class DatabaseContent extends DbQueryManager implements ContentM
             context.defer();
             return;
         }
-        if (null == content_info) {
+        if (null == content_info ||
+            content_info.hasProperty(ContentQueryManager.PROPERTY_PENDING_FORMATTING)) {
+            // content that is still being formatted isn't served yet
             context.defer();
             return;
         }
@@ -464,26 +660,340 @@ public abstract class DatabaseContent extends DbQueryManager implements ContentM
             throw new UnsupportedMimeTypeException(mime_type);
         }
 
-        // set cache headers
-        long if_modified_since = context.headerDate("If-Modified-Since");
+        // the content id changes with every stored version, together with
+        // the version it thus strongly identifies the content data
+        var etag = "\"" + content_info.getContentId() + "-" + content_info.getVersion() + "\"";
         var last_modified = content_info.getCreated();
         var last_modified_timestamp = (last_modified.getTime() / 1000) * 1000;
-        if (if_modified_since > 0 &&
-            if_modified_since >= last_modified_timestamp) {
-            context.setStatus(Context.SC_NOT_MODIFIED);
+
+        if (isNotModified(context, etag, last_modified_timestamp)) {
             return;
         }
 
         // set general headers
         context.setContentType(store.getContentType(content_info));
-        if (content_info.hasName()) {
-            context.addHeader("Content-Disposition", "inline; filename=" + content_info.getName());
+        addGeneralHeaders(context, content_info, etag, last_modified_timestamp);
+
+        // serve byte ranges if they were requested and the store supports them
+        var size = content_info.getSize();
+        if (store.supportsByteRanges() && size >= 0) {
+            context.addHeader("Accept-Ranges", "bytes");
+
+            var range = context.header("Range");
+            if (range != null &&
+                RequestMethod.GET == context.method() &&
+                isIfRangeSatisfied(context, etag, last_modified_timestamp)) {
+                var ranges = ByteRange.parse(range, size);
+                if (ranges != null) {
+                    serveRanges(context, store, content_info, ranges, size);
+                    return;
+                }
+            }
+        }
+
+        store.serveContentData(context, content_info.getContentId());
+    }
+
+    /**
+     * Serves a resized variant of the image content at a location.
+     * <p>The variant is generated once with the {@link ImageFormatter} and
+     * stored in the provided cache, concurrent requests for the same
+     * variant wait for its generation instead of generating it again.
+     * <p>Only the pixel dimensions that are allowed by the cache are
+     * served, requests for other dimensions are rejected with a
+     * {@code 400} status. Images are never enlarged, when the requested
+     * dimensions aren't smaller than the ones of the stored image, or when
+     * the content isn't an image, the content is served as-is.
+     *
+     * @param context  the context of the request
+     * @param location the location of the image content
+     * @param variants the cache in which the variants are stored
+     * @param width    the requested width in CSS pixels; or
+     *                 {@code -1} if the width should follow from the height
+     * @param height   the requested height in CSS pixels; or
+     *                 {@code -1} if the height should follow from the width
+     * @param hidpi    {@code true} if the variant is intended for hidpi
+     *                 displays and should have twice the requested pixels; or
+     *                 {@code false} otherwise
+     * @throws ContentManagerException when an error occurred while
+     *                                 generating or serving the variant
+     * @see #serveContentData(Context, String)
+     * @since 1.9.2
+     */
+    public void serveImageVariant(Context context, String location, ImageVariantCache variants, int width, int height, boolean hidpi)
+    throws ContentManagerException {
+        if (null == context) throw new IllegalArgumentException("context can't be null.");
+        if (null == variants) throw new IllegalArgumentException("variants can't be null.");
+
+        DatabaseContentInfo content_info = null;
+        try {
+            content_info = getContentInfo(location);
+        } catch (IllegalArgumentException e) {
+            context.defer();
+            return;
+        }
+        if (null == content_info ||
+            content_info.hasProperty(ContentQueryManager.PROPERTY_PENDING_FORMATTING)) {
+            // content that is still being formatted isn't served yet
+            context.defer();
+            return;
+        }
+
+        var mime_type = MimeType.getMimeType(content_info.getMimeType());
+        var store = mimeMapping_.get(mime_type);
+        if (null == store) {
+            throw new UnsupportedMimeTypeException(mime_type);
+        }
+
+        // determine the pixel dimensions of the variant
+        if (hidpi) {
+            width = width > 0 ? width * 2 : -1;
+            height = height > 0 ? height * 2 : -1;
+        } else {
+            width = width > 0 ? width : -1;
+            height = height > 0 ? height : -1;
+        }
+
+        // only a bounded number of variants can be generated for an image
+        if ((width > 0 && !variants.isAllowedSize(width)) ||
+            (height > 0 && !variants.isAllowedSize(height))) {
+            context.setStatus(Context.SC_BAD_REQUEST);
+            return;
+        }
+
+        // only images that would be reduced get a variant
+        var original_width = getIntProperty(content_info, ImageFormatter.CmfProperty.WIDTH);
+        var original_height = getIntProperty(content_info, ImageFormatter.CmfProperty.HEIGHT);
+        if (!(store instanceof DatabaseImageStore) ||
+            original_width <= 0 || original_height <= 0 ||
+            (width < 0 && height < 0) ||
+            ((width < 0 || width >= original_width) && (height < 0 || height >= original_height))) {
+            serveContentData(context, location);
+            return;
+        }
+
+        // the content id changes with every stored version, variants
+        // of replaced content are thus never served and are eventually
+        // evicted from the cache, content ids are only unique within a
+        // datasource which is thus also part of the key
+        final var content_id = content_info.getContentId();
+        final var variant = width + "x" + height;
+        final var key = getImageVariantNamespace(location) + "-" + content_id + "-" + variant;
+        var etag = "\"" + content_id + "-" + content_info.getVersion() + "-" + variant + "\"";
+        var last_modified_timestamp = (content_info.getCreated().getTime() / 1000) * 1000;
+
+        if (isNotModified(context, etag, last_modified_timestamp)) {
+            return;
+        }
+
+        final var variant_width = width;
+        final var variant_height = height;
+        ImageVariantCache.Generator generator = () -> {
+            var data = store.useContentDataResult(content_id, d -> (byte[]) d);
+            if (null == data) {
+                throw new IOException("The data of content " + content_id + " couldn't be found.");
+            }
+
+            var content = new Content(mime_type, data);
+            if (variant_width > 0) {
+                content.attribute(ImageFormatter.ContentAttribute.WIDTH, variant_width);
+            }
+            if (variant_height > 0) {
+                content.attribute(ImageFormatter.ContentAttribute.HEIGHT, variant_height);
+            }
+            return new ImageFormatter().format(content, null);
+        };
+
+        try {
+            // the variant can be evicted by another thread before it's
+            // opened, it's then generated again
+            FileChannel channel;
+            try {
+                channel = FileChannel.open(variants.obtain(key, generator).toPath());
+            } catch (NoSuchFileException e) {
+                channel = FileChannel.open(variants.obtain(key, generator).toPath());
+            }
+
+            try (channel) {
+                var size = channel.size();
+
+                context.setContentType(store.getContentType(content_info));
+                addGeneralHeaders(context, content_info, etag, last_modified_timestamp);
+                context.setContentLength((int) size);
+
+                var os = context.outputStream();
+                var target = Channels.newChannel(os);
+                var position = 0L;
+                while (position < size) {
+                    position += channel.transferTo(position, size - position, target);
+                }
+                os.flush();
+            }
+        } catch (IOException e) {
+            throw new ImageVariantErrorException(location, variant, e);
+        }
+    }
+
+    private String getImageVariantNamespace(String location) {
+        var datasource = getDatasource();
+        var identity = datasource.getDriver() + "\n" + datasource.getUrl() + "\n" + datasource.getUser() + "\n" +
+                       ContentLocation.split(location).repository();
+        return UUID.nameUUIDFromBytes(identity.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    private static int getIntProperty(ContentInfo contentInfo, String name) {
+        var value = contentInfo.getProperty(name);
+        if (null == value) {
+            return -1;
+        }
+
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static boolean isNotModified(Context context, String etag, long lastModified) {
+        // handle conditional requests, the entity tag takes precedence
+        // over the modification date
+        var if_none_match = context.header("If-None-Match");
+        if (if_none_match != null) {
+            if (matchesEntityTag(if_none_match, etag, false)) {
+                context.addHeader("ETag", etag);
+                context.setStatus(Context.SC_NOT_MODIFIED);
+                return true;
+            }
+        } else {
+            long if_modified_since = context.headerDate("If-Modified-Since");
+            if (if_modified_since > 0 &&
+                if_modified_since >= lastModified) {
+                context.setStatus(Context.SC_NOT_MODIFIED);
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static void addGeneralHeaders(Context context, ContentInfo contentInfo, String etag, long lastModified) {
+        if (contentInfo.hasName()) {
+            context.addHeader("Content-Disposition", "inline; filename=" + contentInfo.getName());
         }
         context.addHeader("Cache-Control", "must-revalidate");
         context.addDateHeader("Expires", System.currentTimeMillis() + 60 * 60 * 1000);
-        context.addDateHeader("Last-Modified", last_modified_timestamp);
+        context.addDateHeader("Last-Modified", lastModified);
+        context.addHeader("ETag", etag);
+    }
 
-        store.serveContentData(context, content_info.getContentId());
+    private void serveRanges(Context context, ContentStore store, DatabaseContentInfo contentInfo, List<ByteRange> ranges, int size)
+    throws ContentManagerException {
+        assert store.supportsByteRanges();
+
+        if (ranges.isEmpty()) {
+            context.setStatus(Context.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            context.addHeader("Content-Range", "bytes */" + size);
+            context.setContentLength(0);
+            return;
+        }
+
+        var id = contentInfo.getContentId();
+        context.setStatus(Context.SC_PARTIAL_CONTENT);
+        try {
+            // a single range is served as-is
+            if (1 == ranges.size()) {
+                var range = ranges.get(0);
+                context.addHeader("Content-Range", range.toContentRange(size));
+                context.setContentLength((int) range.length());
+
+                var os = context.outputStream();
+                outputRange(store, id, range, os);
+                os.flush();
+                return;
+            }
+
+            // multiple ranges are served as separate parts of a multipart
+            // response, whose total length is known in advance
+            var content_type = store.getContentType(contentInfo);
+            var boundary = UUID.randomUUID().toString();
+            var part_headers = new ArrayList<byte[]>(ranges.size());
+            long length = 0;
+            for (var range : ranges) {
+                var header = new StringBuilder("\r\n--").append(boundary).append("\r\n");
+                if (content_type != null) {
+                    header.append("Content-Type: ").append(content_type).append("\r\n");
+                }
+                header.append("Content-Range: ").append(range.toContentRange(size)).append("\r\n\r\n");
+
+                var header_bytes = header.toString().getBytes(StandardCharsets.ISO_8859_1);
+                part_headers.add(header_bytes);
+                length += header_bytes.length + range.length();
+            }
+            var closing_bytes = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.ISO_8859_1);
+            length += closing_bytes.length;
+
+            context.setContentType("multipart/byteranges; boundary=" + boundary);
+            context.setContentLength((int) length);
+
+            var os = context.outputStream();
+            for (var i = 0; i < ranges.size(); i++) {
+                os.write(part_headers.get(i));
+                outputRange(store, id, ranges.get(i), os);
+            }
+            os.write(closing_bytes);
+            os.flush();
+        } catch (IOException e) {
+            // don't do anything, the client has probably disconnected
+        }
+    }
+
+    private static void outputRange(ContentStore store, int id, ByteRange range, OutputStream os)
+    throws ContentManagerException {
+        // the partial content status and length are already committed, the
+        // response can thus only be aborted when the data disappeared
+        if (!store.outputContentDataRange(id, range, os)) {
+            throw new UseContentDataErrorException(id, new NoSuchElementException("The content data is no longer available."));
+        }
+    }
+
+    private static boolean isIfRangeSatisfied(Context context, String etag, long lastModified) {
+        var if_range = context.header("If-Range");
+        if (null == if_range) {
+            return true;
+        }
+
+        // the range is only served when the content data didn't change,
+        // entity tags are compared strongly and dates have to be exact
+        if_range = if_range.trim();
+        if (if_range.startsWith("\"") || if_range.startsWith("W/")) {
+            return matchesEntityTag(if_range, etag, true);
+        }
+
+        try {
+            return context.headerDate("If-Range") == lastModified;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static boolean matchesEntityTag(String header, String etag, boolean strong) {
+        for (var tag : header.split(",")) {
+            tag = tag.trim();
+            if (tag.equals("*")) {
+                return !strong;
+            }
+            if (tag.startsWith("W/")) {
+                if (strong) {
+                    continue;
+                }
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+
+        return false;
     }
 
     protected String _getContentForHtml(String location, Context context, Route route)
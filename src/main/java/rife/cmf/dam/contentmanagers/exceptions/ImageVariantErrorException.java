@@ -0,0 +1,31 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.cmf.dam.contentmanagers.exceptions;
+
+import rife.cmf.dam.exceptions.ContentManagerException;
+
+import java.io.Serial;
+
+public class ImageVariantErrorException extends ContentManagerException {
+    @Serial private static final long serialVersionUID = -5270918244726352051L;
+
+    private final String location_;
+    private final String variant_;
+
+    public ImageVariantErrorException(String location, String variant, Throwable cause) {
+        super("Can't provide the image variant '" + variant + "' of the content at location '" + location + "'.", cause);
+
+        location_ = location;
+        variant_ = variant;
+    }
+
+    public String getLocation() {
+        return location_;
+    }
+
+    public String getVariant() {
+        return variant_;
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.cmf.dam.contentstores;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Keeps a bounded number of chunk-sized buffers around for reuse, so that
+ * streaming content data doesn't allocate a new buffer for every request.
+ * <p>Buffers that are acquired when the pool is empty are newly allocated,
+ * buffers that are released when the pool is full are left to the garbage
+ * collector.
+ *
+ * @author Geert Bevin (gbevin[remove] at uwyn dot com)
+ * @since 1.9.2
+ */
+class ChunkBufferPool {
+    private final int bufferSize_;
+    private final ArrayBlockingQueue<byte[]> buffers_;
+
+    ChunkBufferPool(int bufferSize, int maxPooled) {
+        bufferSize_ = bufferSize;
+        buffers_ = new ArrayBlockingQueue<>(maxPooled);
+    }
+
+    int getBufferSize() {
+        return bufferSize_;
+    }
+
+    byte[] acquire() {
+        var buffer = buffers_.poll();
+        if (null == buffer) {
+            buffer = new byte[bufferSize_];
+        }
+        return buffer;
+    }
+
+    void release(byte[] buffer) {
+        if (buffer != null && buffer.length == bufferSize_) {
+            buffers_.offer(buffer);
+        }
+    }
+}
@@ -5,6 +5,7 @@
 package rife.cmf.dam.contentstores;
 
 import rife.cmf.MimeType;
+import rife.cmf.dam.ByteRange;
 import rife.cmf.dam.ContentStore;
 import rife.cmf.dam.contentstores.exceptions.*;
 import rife.cmf.dam.exceptions.ContentManagerException;
@@ -18,6 +19,8 @@ import rife.database.queries.Select;
 import rife.engine.Context;
 import rife.tools.ExceptionUtils;
 
+import java.io.FilterOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -138,6 +141,54 @@ public abstract class DatabaseContentStore extends DbQueryManager implements Con
         }
     }
 
+    protected boolean _outputContentDataRange(Select retrieveContent, final int id, final ByteRange range, final OutputStream os)
+    throws ContentManagerException {
+        if (id < 0) throw new IllegalArgumentException("id must be positive");
+        if (null == range) throw new IllegalArgumentException("range can't be null");
+        if (null == os) throw new IllegalArgumentException("os can't be null");
+
+        assert retrieveContent != null;
+
+        try {
+            return executeFetchFirst(retrieveContent, resultSet ->
+                outputContentColumn(resultSet, new RangeOutputStream(os, range)), s -> s.setInt("contentId", id));
+        } catch (DatabaseException e) {
+            throw new UseContentDataErrorException(id, e);
+        }
+    }
+
     protected abstract void outputContentColumn(ResultSet resultSet, OutputStream os)
     throws SQLException;
+
+    private static class RangeOutputStream extends FilterOutputStream {
+        private final ByteRange range_;
+        private long position_ = 0;
+
+        RangeOutputStream(OutputStream out, ByteRange range) {
+            super(out);
+            range_ = range;
+        }
+
+        public void write(int b)
+        throws IOException {
+            if (position_ >= range_.first() && position_ <= range_.last()) {
+                out.write(b);
+            }
+            position_++;
+        }
+
+        public void write(byte[] b, int off, int len)
+        throws IOException {
+            var from = Math.max(position_, range_.first());
+            var to = Math.min(position_ + len, range_.last() + 1);
+            if (from < to) {
+                out.write(b, off + (int) (from - position_), (int) (to - from));
+            }
+            position_ += len;
+        }
+
+        public void close() {
+            // the underlying stream belongs to the response
+        }
+    }
 }
@@ -64,6 +64,10 @@ public abstract class DatabaseImageStore extends DatabaseContentStore {
         return content_type;
     }
 
+    public boolean supportsByteRanges() {
+        return true;
+    }
+
     public String getContentForHtml(int id, ContentInfo info, Context context, Route route)
     throws ContentManagerException {
         if (null == context) throw new IllegalArgumentException("context can't be null.");
@@ -126,7 +130,8 @@ public abstract class DatabaseImageStore extends DatabaseContentStore {
             typed_data = null;
         } else {
             Formatter formatter = null;
-            if (!Convert.toBoolean(content.getAttribute("unformatted"), false)) {
+            if (!content.isFormatted() &&
+                !Convert.toBoolean(content.getAttribute("unformatted"), false)) {
                 formatter = getFormatter(content.getMimeType(), content.isFragment());
             }
 
@@ -7,6 +7,7 @@ package rife.cmf.dam.contentstores;
 import rife.cmf.Content;
 import rife.cmf.ContentInfo;
 import rife.cmf.MimeType;
+import rife.cmf.dam.ByteRange;
 import rife.cmf.dam.ContentDataUser;
 import rife.cmf.dam.ContentDataUserWithoutResult;
 import rife.cmf.dam.ContentStore;
@@ -27,22 +28,186 @@ import rife.tools.FileUtils;
 import rife.tools.InnerClassException;
 
 import java.io.*;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.logging.Logger;
 
 public abstract class DatabaseRawStore extends DbQueryManager implements ContentStore {
+    /**
+     * The default number of bytes that are stored in each chunk, only the
+     * last chunk of the content data can be smaller.
+     *
+     * @see #getChunkSize()
+     * @since 1.9.2
+     */
+    public static final int CHUNK_SIZE = 65535;
+
+    /**
+     * The default number of chunks that are inserted together in one
+     * JDBC batch.
+     *
+     * @since 1.9.2
+     */
+    public static final int DEFAULT_CHUNK_BATCH_SIZE = 16;
+
+    private static final int MAX_POOLED_BUFFERS = 16;
+    private static final String HASH_ALGORITHM = "SHA-256";
+
     private final List<MimeType> mimeTypes_ = new ArrayList<>();
+    private final ChunkBufferPool chunkBuffers_;
+    private final int chunkSize_;
+    private int chunkBatchSize_ = DEFAULT_CHUNK_BATCH_SIZE;
+    private volatile boolean deduplicated_ = false;
 
     public DatabaseRawStore(Datasource datasource) {
         super(datasource);
 
+        chunkSize_ = getChunkSize();
+        chunkBuffers_ = new ChunkBufferPool(chunkSize_, MAX_POOLED_BUFFERS);
+
         addMimeType(MimeType.RAW);
     }
 
+    /**
+     * Retrieves the number of bytes that are stored in each chunk.
+     * <p>Drivers can override this to use chunks that better suit their
+     * database. Byte ranges are retrieved by calculating the ordinals of
+     * the chunks that contain them, the chunk size should thus never be
+     * changed for a database that already contains content data.
+     * <p>This is called during construction and should simply return a
+     * constant.
+     *
+     * @return the chunk size in bytes
+     * @since 1.9.2
+     */
+    protected int getChunkSize() {
+        return CHUNK_SIZE;
+    }
+
+    /**
+     * Sets the number of chunks that are inserted together in one JDBC
+     * batch when content data is stored.
+     * <p>Larger batches need fewer round trips to the database, but keep
+     * more chunks in memory while the content data is stored.
+     *
+     * @param size the number of chunks per batch
+     * @see #getChunkBatchSize
+     * @since 1.9.2
+     */
+    public void setChunkBatchSize(int size) {
+        if (size < 1) throw new IllegalArgumentException("size should be at least 1");
+
+        chunkBatchSize_ = size;
+    }
+
+    /**
+     * Retrieves the number of chunks that are inserted together in one
+     * JDBC batch.
+     *
+     * @return the number of chunks per batch
+     * @see #setChunkBatchSize
+     * @since 1.9.2
+     */
+    public int getChunkBatchSize() {
+        return chunkBatchSize_;
+    }
+
+    /**
+     * Installs the table that makes identical content data only be stored
+     * once.
+     * <p>Data that is provided as bytes, or that is formatted into bytes,
+     * is hashed before it's stored. If the chunks of other content already
+     * contain the same data, the content refers to the existing ones and no
+     * chunks are written for it. Other streams are hashed while their
+     * chunks are stored, those chunks are deleted again when the data turns
+     * out to be a duplicate.
+     * Chunks that are referred to by other content are handed over to that
+     * content when the content that they belong to is deleted, they are
+     * thus only removed together with their last reference.
+     * <p>The presence of the table is what enables deduplication, for all
+     * the stores that use the database. It should thus be installed
+     * together with the store, or while no application is using it, and it
+     * can't be disabled again without removing the store.
+     *
+     * @return {@code true} if the table was installed successfully; or
+     * <p>{@code false} otherwise
+     * @throws ContentManagerException if an unexpected error occurred
+     * @see #isDeduplicated
+     * @since 1.9.2
+     */
+    public abstract boolean installDeduplication()
+    throws ContentManagerException;
+
+    /**
+     * Indicates whether identical content data is only stored once.
+     * <p>This is the case when the table for it was installed in the
+     * database. Once the table is found, that's remembered since
+     * deduplication can't be disabled again without removing the store.
+     * While it's absent, it's looked up each time, as deduplication can
+     * be installed by another process at any moment.
+     *
+     * @return {@code true} if identical content data is only stored once; or
+     * <p>{@code false} otherwise
+     * @see #installDeduplication
+     * @since 1.9.2
+     */
+    public boolean isDeduplicated() {
+        if (deduplicated_) {
+            return true;
+        }
+
+        var deduplicated = hasTable(getTableContentHash());
+        if (deduplicated) {
+            deduplicated_ = true;
+        }
+        return deduplicated;
+    }
+
+    /**
+     * Retrieves the name of the table that refers content to the chunks of
+     * identical data.
+     *
+     * @return the name of the hash table
+     * @see #installDeduplication
+     * @since 1.9.2
+     */
+    protected String getTableContentHash() {
+        return RifeConfig.cmf().getTableContentStoreRawInfo() + "hash";
+    }
+
+    private boolean hasTable(final String table) {
+        // the database metadata is used since a failing query would abort
+        // the transaction that the store might be used in
+        Boolean result = reserveConnection(new DbConnectionUser() {
+            public Boolean useConnection(DbConnection connection) {
+                try {
+                    var metadata = connection.getMetaData();
+                    for (var name : new String[]{table, table.toUpperCase(), table.toLowerCase()}) {
+                        try (var tables = metadata.getTables(null, null, name, null)) {
+                            if (tables.next()) {
+                                return true;
+                            }
+                        }
+                    }
+                    return false;
+                } catch (SQLException e) {
+                    throw new DatabaseException(e);
+                }
+            }
+        });
+        return result != null && result;
+    }
+
     protected void addMimeType(MimeType mimeType) {
         mimeTypes_.add(mimeType);
     }
@@ -75,6 +240,10 @@ public abstract class DatabaseRawStore extends DbQueryManager implements Content
         return "";
     }
 
+    public boolean supportsByteRanges() {
+        return true;
+    }
+
     protected boolean _install(CreateTable createTableContentInfo, CreateTable createTableContentChunk)
     throws ContentManagerException {
         assert createTableContentInfo != null;
@@ -90,31 +259,88 @@ public abstract class DatabaseRawStore extends DbQueryManager implements Content
         return true;
     }
 
-    protected boolean _remove(DropTable dropTableContentInfo, DropTable dropTableContentChunk)
+    protected boolean _installDeduplication(CreateTable createTableContentHash)
+    throws ContentManagerException {
+        assert createTableContentHash != null;
+
+        try {
+            executeUpdate(createTableContentHash);
+        } catch (DatabaseException e) {
+            throw new InstallContentStoreErrorException(e);
+        } finally {
+            deduplicated_ = false;
+        }
+
+        return true;
+    }
+
+    protected boolean _remove(DropTable dropTableContentInfo, DropTable dropTableContentChunk, DropTable dropTableContentHash)
     throws ContentManagerException {
         assert dropTableContentInfo != null;
+        assert dropTableContentChunk != null;
+        assert dropTableContentHash != null;
 
         try {
+            // the hash table only exists when deduplication was installed
+            if (isDeduplicated()) {
+                executeUpdate(dropTableContentHash);
+            }
             executeUpdate(dropTableContentChunk);
             executeUpdate(dropTableContentInfo);
         } catch (DatabaseException e) {
             throw new RemoveContentStoreErrorException(e);
+        } finally {
+            deduplicated_ = false;
         }
 
         return true;
     }
 
-    protected boolean _deleteContentData(final Delete deleteContentInfo, final Delete deleteContentChunk, final int id)
+    protected boolean _deleteContentData(final Delete deleteContentInfo, final Delete deleteContentChunk, final Select getContentHashOwner, final Select getContentHashReferrer, final Update moveContentChunks, final Update moveContentHashOwner, final Delete deleteContentHash, final int id)
     throws ContentManagerException {
         if (id < 0) throw new IllegalArgumentException("id must be positive");
 
         assert deleteContentInfo != null;
         assert deleteContentChunk != null;
+        assert getContentHashOwner != null;
+        assert getContentHashReferrer != null;
+        assert moveContentChunks != null;
+        assert moveContentHashOwner != null;
+        assert deleteContentHash != null;
 
         Boolean result = null;
 
         try {
             result = inTransaction(() -> {
+                if (isDeduplicated()) {
+                    var owner = executeGetFirstInt(getContentHashOwner, s -> s.setInt("contentId", id));
+                    if (owner != -1) {
+                        executeUpdate(deleteContentHash, s -> s.setInt("contentId", id));
+
+                        // hand the chunks over to other content that
+                        // refers to them, if there is any
+                        if (owner == id) {
+                            var referrer = executeGetFirstInt(getContentHashReferrer, s -> s
+                                .setInt("ownerId", id)
+                                .setInt("contentId", id));
+                            if (referrer != -1) {
+                                executeUpdate(moveContentChunks, s -> s
+                                    .setInt("newContentId", referrer)
+                                    .setInt("contentId", id));
+                                executeUpdate(moveContentHashOwner, s -> s
+                                    .setInt("newOwnerId", referrer)
+                                    .setInt("ownerId", id));
+                                owner = referrer;
+                            }
+                        }
+
+                        // the content doesn't have chunks of its own anymore
+                        if (owner != id) {
+                            return executeUpdate(deleteContentInfo, s -> s.setInt("contentId", id)) != 0;
+                        }
+                    }
+                }
+
                 if (executeUpdate(deleteContentChunk, s -> s.setInt("contentId", id)) == 0) {
                     return false;
                 }
@@ -128,6 +354,25 @@ public abstract class DatabaseRawStore extends DbQueryManager implements Content
         return result != null && result;
     }
 
+    protected int _getDataId(Select getContentHashOwner, final int id)
+    throws ContentManagerException {
+        if (!isDeduplicated()) {
+            return id;
+        }
+
+        assert getContentHashOwner != null;
+
+        try {
+            var owner = executeGetFirstInt(getContentHashOwner, s -> s.setInt("contentId", id));
+            if (-1 == owner) {
+                return id;
+            }
+            return owner;
+        } catch (DatabaseException e) {
+            throw new UseContentDataErrorException(id, e);
+        }
+    }
+
     protected int _getSize(Select retrieveSize, final int id)
     throws ContentManagerException {
         if (id < 0) throw new IllegalArgumentException("id must be positive");
@@ -154,7 +399,7 @@ public abstract class DatabaseRawStore extends DbQueryManager implements Content
         }
     }
 
-    protected boolean _storeContentData(final Insert storeContentInfo, final Insert storeContentChunk, final int id, Content content, ContentTransformer transformer)
+    protected boolean _storeContentData(final Insert storeContentInfo, final Insert storeContentChunk, final Select getContentHashMatch, final Insert storeContentHash, final Delete deleteContentChunk, final int id, Content content, ContentTransformer transformer)
     throws ContentManagerException {
         if (id < 0) throw new IllegalArgumentException("id must be positive");
         if (content != null &&
@@ -165,6 +410,9 @@ public abstract class DatabaseRawStore extends DbQueryManager implements Content
 
         assert storeContentInfo != null;
         assert storeContentChunk != null;
+        assert getContentHashMatch != null;
+        assert storeContentHash != null;
+        assert deleteContentChunk != null;
 
         final InputStream typed_data;
 
@@ -180,7 +428,8 @@ public abstract class DatabaseRawStore extends DbQueryManager implements Content
             }
 
             Formatter formatter = null;
-            if (!Convert.toBoolean(content.getAttribute("unformatted"), false)) {
+            if (!content.isFormatted() &&
+                !Convert.toBoolean(content.getAttribute("unformatted"), false)) {
                 formatter = getFormatter(content.getMimeType(), content.isFragment());
             }
 
@@ -195,15 +444,77 @@ public abstract class DatabaseRawStore extends DbQueryManager implements Content
             }
         }
 
+        // data that's in memory is hashed before it's stored, so that no
+        // chunks are written at all when identical data is already present,
+        // other streams are hashed while their chunks are being stored
+        final MessageDigest digest;
+        final String memory_hash;
+        if (typed_data != null && isDeduplicated()) {
+            try {
+                digest = MessageDigest.getInstance(HASH_ALGORITHM);
+                if (typed_data instanceof ByteArrayInputStream bytes) {
+                    memory_hash = hashBytes(bytes, digest);
+                } else {
+                    memory_hash = null;
+                }
+            } catch (NoSuchAlgorithmException | IOException e) {
+                throw new StoreContentDataErrorException(id, e);
+            }
+        } else {
+            digest = null;
+            memory_hash = null;
+        }
+
         // store the data
         try {
             Boolean success = inTransaction(new DbTransactionUser<>() {
                 public Object useTransaction()
                 throws InnerClassException {
                     try {
-                        final var size = storeChunks(storeContentChunk, id, typed_data);
-                        if (size < 0) {
-                            rollback();
+                        var match = -1;
+                        if (memory_hash != null) {
+                            match = executeGetFirstInt(getContentHashMatch, s -> s.setString("hash", memory_hash));
+                        }
+
+                        final int size;
+                        final String hash;
+                        if (match != -1 && match != id) {
+                            // refer to the chunks of identical data without
+                            // writing any of its own
+                            size = typed_data.available();
+                            hash = memory_hash;
+                        } else {
+                            InputStream data = typed_data;
+                            if (digest != null && null == memory_hash) {
+                                data = new DigestInputStream(typed_data, digest);
+                            }
+
+                            size = storeChunks(storeContentChunk, id, data);
+                            if (size < 0) {
+                                rollback();
+                            }
+
+                            if (digest != null && null == memory_hash) {
+                                final var stream_hash = HexFormat.of().formatHex(digest.digest());
+
+                                // refer to the chunks of identical data instead
+                                // of keeping another copy
+                                match = executeGetFirstInt(getContentHashMatch, s -> s.setString("hash", stream_hash));
+                                if (match != -1 && match != id) {
+                                    executeUpdate(deleteContentChunk, s -> s.setInt("contentId", id));
+                                }
+                                hash = stream_hash;
+                            } else {
+                                hash = memory_hash;
+                            }
+                        }
+
+                        if (hash != null) {
+                            final var owner = match != -1 ? match : id;
+                            executeUpdate(storeContentHash, s -> s
+                                .setInt("contentId", id)
+                                .setInt("ownerId", owner)
+                                .setString("hash", hash));
                         }
 
                         if (executeUpdate(storeContentInfo, s ->
@@ -227,75 +538,101 @@ public abstract class DatabaseRawStore extends DbQueryManager implements Content
         }
     }
 
-    protected int storeChunks(Insert storeContentChunk, final int id, InputStream data)
+    // the stream is reset afterwards, it's thus still stored from the start
+    private static String hashBytes(ByteArrayInputStream bytes, MessageDigest digest)
     throws IOException {
-        class Scope {
-            int size = 0;
-            int length = -1;
-            int ordinal = 0;
-            byte[] buffer = null;
+        bytes.mark(0);
+        try (var hashed = new DigestOutputStream(OutputStream.nullOutputStream(), digest)) {
+            bytes.transferTo(hashed);
         }
-        final var scope = new Scope();
-
-        if (data != null) {
-            scope.buffer = new byte[65535];
-            while ((scope.length = data.read(scope.buffer)) != -1) {
-                scope.size += scope.length;
-
-                if (executeUpdate(storeContentChunk, s ->
-                    s.setInt("contentId", id)
-                        .setInt("ordinal", scope.ordinal)
-                        .setBinaryStream("chunk", new ByteArrayInputStream(scope.buffer), scope.length)) <= 0) {
-                    return -1;
-                }
+        bytes.reset();
 
-                scope.ordinal++;
-            }
-        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
 
-        return scope.size;
+    protected int storeChunks(Insert storeContentChunk, final int id, InputStream data)
+    throws IOException {
+        return storeChunkBatches(storeContentChunk, id, data, true);
     }
 
     protected int storeChunksNoStream(Insert storeContentChunk, final int id, InputStream data)
     throws IOException {
-        class Scope {
-            int size = 0;
-            int length = -1;
-            int ordinal = 0;
-            byte[] buffer = null;
-            byte[] buffer_swp = null;
+        return storeChunkBatches(storeContentChunk, id, data, false);
+    }
+
+    private int storeChunkBatches(final Insert storeContentChunk, final int id, final InputStream data, final boolean stream)
+    throws IOException {
+        if (null == data) {
+            return 0;
         }
-        final var scope = new Scope();
-
-        if (data != null) {
-            scope.buffer = new byte[65535];
-            while ((scope.length = data.read(scope.buffer)) != -1) {
-                scope.size += scope.length;
-
-                if (scope.length < scope.buffer.length) {
-                    var new_buffer = new byte[scope.length];
-                    System.arraycopy(scope.buffer, 0, new_buffer, 0, scope.length);
-                    scope.buffer_swp = scope.buffer;
-                    scope.buffer = new_buffer;
-                }
 
-                if (executeUpdate(storeContentChunk, s ->
-                    s.setInt("contentId", id)
-                        .setInt("ordinal", scope.ordinal)
-                        .setBytes("chunk", scope.buffer)) <= 0) {
-                    return -1;
-                }
+        // each chunk of a batch needs its own buffer, since drivers are
+        // allowed to only read the parameters when the batch is executed
+        final var buffers = new byte[chunkBatchSize_][];
+        final var lengths = new int[chunkBatchSize_];
+        try {
+            return reserveConnection(new DbConnectionUser() {
+                public Integer useConnection(DbConnection connection) {
+                    try (var statement = connection.getPreparedStatement(storeContentChunk)) {
+                        var size = 0;
+                        var ordinal = 0;
+                        var finished = false;
+                        while (!finished) {
+                            // fill up the buffers of the next batch
+                            var count = 0;
+                            while (count < buffers.length) {
+                                if (null == buffers[count]) {
+                                    buffers[count] = chunkBuffers_.acquire();
+                                }
+                                var length = data.readNBytes(buffers[count], 0, buffers[count].length);
+                                if (length <= 0) {
+                                    finished = true;
+                                    break;
+                                }
+                                lengths[count++] = length;
+                                size += length;
+                            }
+
+                            if (0 == count) {
+                                break;
+                            }
+
+                            for (var i = 0; i < count; i++) {
+                                statement
+                                    .setInt("contentId", id)
+                                    .setInt("ordinal", ordinal++);
+                                if (stream) {
+                                    statement.setBinaryStream("chunk", new ByteArrayInputStream(buffers[i]), lengths[i]);
+                                } else if (lengths[i] < buffers[i].length) {
+                                    // only the last chunk can be smaller, the
+                                    // bytes have to be provided as a whole array
+                                    statement.setBytes("chunk", Arrays.copyOf(buffers[i], lengths[i]));
+                                } else {
+                                    statement.setBytes("chunk", buffers[i]);
+                                }
+                                statement.addBatch();
+                            }
+
+                            for (var result : statement.executeBatch()) {
+                                if (0 == result || Statement.EXECUTE_FAILED == result) {
+                                    return -1;
+                                }
+                            }
+                        }
 
-                if (scope.buffer_swp != null) {
-                    scope.buffer = scope.buffer_swp;
-                    scope.buffer_swp = null;
+                        return size;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
                 }
-
-                scope.ordinal++;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            for (var buffer : buffers) {
+                chunkBuffers_.release(buffer);
             }
         }
-
-        return scope.size;
     }
 
     protected void _useContentData(Select retrieveContentChunks, final int id, ContentDataUserWithoutResult user)
@@ -414,21 +751,92 @@ public abstract class DatabaseRawStore extends DbQueryManager implements Content
         }
     }
 
+    protected boolean _outputContentDataRange(final Select retrieveContentChunks, final int id, final ByteRange range, final OutputStream os)
+    throws ContentManagerException {
+        if (id < 0) throw new IllegalArgumentException("id must be positive");
+        if (null == range) throw new IllegalArgumentException("range can't be null");
+        if (null == os) throw new IllegalArgumentException("os can't be null");
+
+        assert retrieveContentChunks != null;
+
+        try {
+            // the chunks are read from the start since their sizes aren't
+            // known in advance, content that was stored from a stream with
+            // partial reads has chunks that are smaller than the chunk size
+            Boolean result = executeQuery(retrieveContentChunks, new DbPreparedStatementHandler<>() {
+                public DbPreparedStatement getPreparedStatement(Query query, DbConnection connection) {
+                    return getStreamPreparedStatement(query, connection);
+                }
+
+                public void setParameters(DbPreparedStatement statement) {
+                    statement
+                        .setInt("contentId", id);
+                }
+
+                public Boolean concludeResults(DbResultSet resultSet)
+                throws SQLException {
+                    if (!resultSet.next()) {
+                        return false;
+                    }
+
+                    var position = 0L;
+                    try {
+                        do {
+                            var chunk = resultSet.getBytes("chunk");
+                            var chunk_end = position + chunk.length;
+                            if (chunk_end > range.first()) {
+                                var from = (int) Math.max(0, range.first() - position);
+                                var to = (int) Math.min(chunk.length, range.last() + 1 - position);
+                                os.write(chunk, from, to - from);
+                            }
+
+                            position = chunk_end;
+                        }
+                        while (position <= range.last() && resultSet.next());
+                    } catch (IOException e) {
+                        // don't do anything, the client has probably disconnected
+                        return true;
+                    }
+
+                    if (position <= range.last()) {
+                        throw new SQLException("The chunks of content " + id + " don't contain the bytes " + range.first() + "-" + range.last() + ".");
+                    }
+
+                    return true;
+                }
+            });
+
+            return result != null && result;
+        } catch (DatabaseException e) {
+            throw new UseContentDataErrorException(id, e);
+        }
+    }
+
     protected void serveChunks(DbResultSet resultset, OutputStream os, int size)
     throws SQLException {
-        var buffer = new byte[512];
-        do {
-            var is = resultset.getBinaryStream("chunk");
-            var buffered_raw_is = new BufferedInputStream(is, 512);
-            var buffer_size = 0;
-            try {
-                while ((buffer_size = buffered_raw_is.read(buffer)) != -1) {
-                    os.write(buffer, 0, buffer_size);
+        var buffer = chunkBuffers_.acquire();
+        try {
+            do {
+                var is = resultset.getBinaryStream("chunk");
+                if (null == is) {
+                    continue;
+                }
+
+                // move each chunk to the output with a single write
+                var length = is.readNBytes(buffer, 0, buffer.length);
+                os.write(buffer, 0, length);
+
+                // chunks that were stored with a larger size are
+                // streamed further
+                if (length == buffer.length) {
+                    is.transferTo(os);
                 }
-            } catch (IOException e) {
-                // don't do anything, the client has probably disconnected
             }
+            while (resultset.next());
+        } catch (IOException e) {
+            // don't do anything, the client has probably disconnected
+        } finally {
+            chunkBuffers_.release(buffer);
         }
-        while (resultset.next());
     }
 }
@@ -75,7 +75,8 @@ public abstract class DatabaseTextStore extends DatabaseContentStore {
             typed_data = null;
         } else {
             Formatter formatter = null;
-            if (!Convert.toBoolean(content.getAttribute("unformatted"), false)) {
+            if (!content.isFormatted() &&
+                !Convert.toBoolean(content.getAttribute("unformatted"), false)) {
                 formatter = getFormatter(content.getMimeType(), content.isFragment());
             }
 
@@ -0,0 +1,470 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.cmf.dam.contentstores;
+
+import rife.cmf.Content;
+import rife.cmf.ContentInfo;
+import rife.cmf.MimeType;
+import rife.cmf.dam.ByteRange;
+import rife.cmf.dam.ContentDataUser;
+import rife.cmf.dam.ContentDataUserWithoutResult;
+import rife.cmf.dam.ContentStore;
+import rife.cmf.dam.contentstores.exceptions.*;
+import rife.cmf.dam.exceptions.ContentManagerException;
+import rife.cmf.format.Formatter;
+import rife.cmf.format.exceptions.FormatException;
+import rife.cmf.transform.ContentTransformer;
+import rife.config.RifeConfig;
+import rife.engine.Context;
+import rife.engine.Route;
+import rife.tools.Convert;
+import rife.tools.FileUtils;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Content store that keeps the content data in files instead of in the
+ * database.
+ * <p>The files are content-addressed: they are named after the SHA-256 hash
+ * of their data, identical data is thus only stored once, no matter how many
+ * content ids refer to it. Every content id has a small reference file that
+ * contains the hash of its data, the data file is deleted when the last
+ * content id that refers to it is deleted.
+ * <p>Only the content data is stored here, the content info and metadata
+ * remain in the database of the content manager. Data is served straight
+ * from the files through {@link FileChannel#transferTo}, which avoids
+ * copying it through the heap when the output supports it.
+ * <p>The store is registered with
+ * {@link rife.cmf.dam.contentmanagers.DatabaseContent#addStore}, after
+ * which it handles all the content with the mime types it supports.
+ * <p>Changes to the references are guarded by a lock file in the
+ * directory, several stores in the same JVM or in different processes can
+ * thus safely share the same directory.
+ *
+ * @author Geert Bevin (gbevin[remove] at uwyn dot com)
+ * @since 1.9.2
+ */
+public class FileRawStore implements ContentStore {
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    // file locks are held by the whole JVM, the stores that share a
+    // directory within the JVM thus also need to share a monitor
+    private static final Map<Path, Object> DIRECTORY_MONITORS = new ConcurrentHashMap<>();
+
+    private final Path directory_;
+    private final Path dataDirectory_;
+    private final Path idsDirectory_;
+    private final Path refsDirectory_;
+    private final Path tmpDirectory_;
+    private final Path lockFile_;
+    private final Object monitor_;
+    private final List<MimeType> mimeTypes_ = new ArrayList<>();
+
+    /**
+     * Creates a new file raw store.
+     *
+     * @param directory the directory in which the files will be stored
+     * @since 1.9.2
+     */
+    public FileRawStore(File directory) {
+        if (null == directory) throw new IllegalArgumentException("directory can't be null");
+
+        directory_ = directory.toPath();
+        dataDirectory_ = directory_.resolve("data");
+        idsDirectory_ = directory_.resolve("ids");
+        refsDirectory_ = directory_.resolve("refs");
+        tmpDirectory_ = directory_.resolve("tmp");
+        lockFile_ = directory_.resolve("lock");
+        monitor_ = DIRECTORY_MONITORS.computeIfAbsent(directory_.toAbsolutePath().normalize(), k -> new Object());
+
+        addMimeType(MimeType.RAW);
+    }
+
+    /**
+     * Retrieves the directory in which the files are stored.
+     *
+     * @return this store's directory
+     * @since 1.9.2
+     */
+    public File getDirectory() {
+        return directory_.toFile();
+    }
+
+    protected void addMimeType(MimeType mimeType) {
+        mimeTypes_.add(mimeType);
+    }
+
+    public Collection<MimeType> getSupportedMimeTypes() {
+        return mimeTypes_;
+    }
+
+    public String getContentType(ContentInfo contentInfo) {
+        var mimeType = MimeType.getMimeType(contentInfo.getMimeType());
+        if (!getSupportedMimeTypes().contains(mimeType)) {
+            return null;
+        }
+
+        var attributes = contentInfo.getAttributes();
+        if (attributes != null) {
+            if (attributes.containsKey("content-type")) {
+                return attributes.get("content-type");
+            }
+        }
+        if (contentInfo.hasName()) {
+            return RifeConfig.Mime.getMimeType(FileUtils.getExtension(contentInfo.getName()));
+        }
+
+        return null;
+    }
+
+    public String getContentForHtml(int id, ContentInfo info, Context context, Route route)
+    throws ContentManagerException {
+        return "";
+    }
+
+    public boolean install()
+    throws ContentManagerException {
+        try {
+            Files.createDirectories(dataDirectory_);
+            Files.createDirectories(idsDirectory_);
+            Files.createDirectories(refsDirectory_);
+            Files.createDirectories(tmpDirectory_);
+        } catch (IOException e) {
+            throw new InstallContentStoreErrorException(e);
+        }
+
+        return true;
+    }
+
+    public boolean remove()
+    throws ContentManagerException {
+        if (!Files.exists(directory_)) {
+            return true;
+        }
+
+        try (var paths = Files.walk(directory_)) {
+            for (var path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        } catch (IOException e) {
+            throw new RemoveContentStoreErrorException(e);
+        }
+
+        return true;
+    }
+
+    public boolean storeContentData(int id, Content content, ContentTransformer transformer)
+    throws ContentManagerException {
+        if (id < 0) throw new IllegalArgumentException("id must be positive");
+        if (content != null &&
+            content.getData() != null &&
+            !(content.getData() instanceof InputStream) &&
+            !(content.getData() instanceof byte[]))
+            throw new IllegalArgumentException("the content data must be of type InputStream or byte[]");
+
+        final InputStream typed_data;
+
+        if (null == content ||
+            null == content.getData()) {
+            typed_data = null;
+        } else {
+            if (content.getData() instanceof byte[]) {
+                var cloned_content = content.clone();
+                cloned_content.setData(new ByteArrayInputStream((byte[]) content.getData()));
+                cloned_content.setCachedLoadedData(null);
+                content = cloned_content;
+            }
+
+            Formatter formatter = null;
+            if (!content.isFormatted() &&
+                !Convert.toBoolean(content.getAttribute("unformatted"), false)) {
+                formatter = getFormatter(content.getMimeType(), content.isFragment());
+            }
+
+            if (formatter != null) {
+                try {
+                    typed_data = (InputStream) formatter.format(content, transformer);
+                } catch (FormatException e) {
+                    throw new StoreContentDataErrorException(id, e);
+                }
+            } else {
+                typed_data = (InputStream) content.getData();
+            }
+        }
+
+        Path tmp = null;
+        try {
+            // write the data to a temporary file while hashing it
+            tmp = Files.createTempFile(tmpDirectory_, "content", ".tmp");
+            var digest = MessageDigest.getInstance(HASH_ALGORITHM);
+            try (var out = new DigestOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)), digest)) {
+                if (typed_data != null) {
+                    typed_data.transferTo(out);
+                }
+            }
+            var hash = HexFormat.of().formatHex(digest.digest());
+            var data_tmp = tmp;
+
+            locked(() -> {
+                // only keep the file when the same data isn't stored yet
+                var data = getDataPath(hash);
+                if (Files.exists(data)) {
+                    Files.delete(data_tmp);
+                } else {
+                    Files.createDirectories(data.getParent());
+                    Files.move(data_tmp, data, StandardCopyOption.ATOMIC_MOVE);
+                }
+
+                // release the data that this id referred to before
+                var previous = readHash(id);
+                if (previous != null && !previous.equals(hash)) {
+                    releaseReference(previous, id);
+                }
+
+                var references = refsDirectory_.resolve(hash);
+                Files.createDirectories(references);
+                var reference = references.resolve(String.valueOf(id));
+                if (!Files.exists(reference)) {
+                    Files.createFile(reference);
+                }
+
+                var id_tmp = Files.createTempFile(tmpDirectory_, "id", ".tmp");
+                Files.writeString(id_tmp, hash, StandardCharsets.US_ASCII);
+                Files.move(id_tmp, getIdPath(id), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                return null;
+            });
+
+            return true;
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new StoreContentDataErrorException(id, e);
+        } finally {
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException e) {
+                    // the file will be cleaned up with the store
+                }
+            }
+        }
+    }
+
+    public boolean deleteContentData(int id)
+    throws ContentManagerException {
+        if (id < 0) throw new IllegalArgumentException("id must be positive");
+
+        try {
+            return locked(() -> {
+                var hash = readHash(id);
+                if (null == hash) {
+                    return false;
+                }
+
+                Files.delete(getIdPath(id));
+                releaseReference(hash, id);
+                return true;
+            });
+        } catch (IOException e) {
+            throw new DeleteContentDataErrorException(id, e);
+        }
+    }
+
+    public void useContentData(int id, ContentDataUserWithoutResult user)
+    throws ContentManagerException {
+        if (null == user) throw new IllegalArgumentException("user can't be null");
+
+        useContentDataResult(id, contentData -> {
+            user.useContentData(contentData);
+            return null;
+        });
+    }
+
+    public <ResultType> ResultType useContentDataResult(int id, ContentDataUser<ResultType> user)
+    throws ContentManagerException {
+        if (id < 0) throw new IllegalArgumentException("id must be positive");
+        if (null == user) throw new IllegalArgumentException("user can't be null");
+
+        try {
+            var data = getDataPath(id);
+            if (null == data) {
+                return user.useContentData(null);
+            }
+
+            try (var is = new BufferedInputStream(Files.newInputStream(data))) {
+                return user.useContentData(is);
+            }
+        } catch (IOException e) {
+            throw new UseContentDataErrorException(id, e);
+        }
+    }
+
+    public boolean hasContentData(int id)
+    throws ContentManagerException {
+        if (id < 0) throw new IllegalArgumentException("id must be positive");
+
+        return getSize(id) > 0;
+    }
+
+    public int getSize(int id)
+    throws ContentManagerException {
+        if (id < 0) throw new IllegalArgumentException("id must be positive");
+
+        try {
+            var data = getDataPath(id);
+            if (null == data) {
+                return -1;
+            }
+
+            return (int) Math.min(Integer.MAX_VALUE, Files.size(data));
+        } catch (NoSuchFileException e) {
+            return -1;
+        } catch (IOException e) {
+            throw new RetrieveSizeErrorException(id, e);
+        }
+    }
+
+    public void serveContentData(Context context, int id)
+    throws ContentManagerException {
+        if (null == context) throw new IllegalArgumentException("context can't be null");
+
+        if (id < 0) {
+            context.defer();
+            return;
+        }
+
+        final FileChannel channel;
+        try {
+            var data = getDataPath(id);
+            if (null == data) {
+                context.defer();
+                return;
+            }
+            channel = FileChannel.open(data, StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            context.defer();
+            return;
+        } catch (IOException e) {
+            throw new UseContentDataErrorException(id, e);
+        }
+
+        try (channel) {
+            var size = channel.size();
+            context.setContentLength((int) size);
+
+            var os = context.outputStream();
+            transfer(channel, 0, size, os);
+            os.flush();
+        } catch (IOException e) {
+            // don't do anything, the client has probably disconnected
+        }
+    }
+
+    public boolean supportsByteRanges() {
+        return true;
+    }
+
+    public boolean outputContentDataRange(int id, ByteRange range, OutputStream os)
+    throws ContentManagerException {
+        if (id < 0) throw new IllegalArgumentException("id must be positive");
+        if (null == range) throw new IllegalArgumentException("range can't be null");
+        if (null == os) throw new IllegalArgumentException("os can't be null");
+
+        final FileChannel channel;
+        try {
+            var data = getDataPath(id);
+            if (null == data) {
+                return false;
+            }
+            channel = FileChannel.open(data, StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException e) {
+            throw new UseContentDataErrorException(id, e);
+        }
+
+        try (channel) {
+            transfer(channel, range.first(), range.length(), os);
+        } catch (IOException e) {
+            // don't do anything, the client has probably disconnected
+        }
+
+        return true;
+    }
+
+    private static void transfer(FileChannel channel, long position, long count, OutputStream os)
+    throws IOException {
+        var target = Channels.newChannel(os);
+        while (count > 0) {
+            var transferred = channel.transferTo(position, count, target);
+            if (transferred <= 0) {
+                break;
+            }
+            position += transferred;
+            count -= transferred;
+        }
+    }
+
+    private interface LockedOperation<T> {
+        T run()
+        throws IOException;
+    }
+
+    private <T> T locked(LockedOperation<T> operation)
+    throws IOException {
+        synchronized (monitor_) {
+            try (var channel = FileChannel.open(lockFile_, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 var lock = channel.lock()) {
+                return operation.run();
+            }
+        }
+    }
+
+    private Path getIdPath(int id) {
+        return idsDirectory_.resolve(String.valueOf(id));
+    }
+
+    private Path getDataPath(String hash) {
+        return dataDirectory_.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private Path getDataPath(int id)
+    throws IOException {
+        var hash = readHash(id);
+        if (null == hash) {
+            return null;
+        }
+        return getDataPath(hash);
+    }
+
+    private String readHash(int id)
+    throws IOException {
+        try {
+            return Files.readString(getIdPath(id), StandardCharsets.US_ASCII);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private void releaseReference(String hash, int id)
+    throws IOException {
+        var references = refsDirectory_.resolve(hash);
+        Files.deleteIfExists(references.resolve(String.valueOf(id)));
+        try {
+            Files.deleteIfExists(references);
+        } catch (DirectoryNotEmptyException e) {
+            // other content ids still refer to the data
+            return;
+        }
+        Files.deleteIfExists(getDataPath(hash));
+    }
+}
@@ -12,6 +12,7 @@ import rife.database.queries.Select;
 import java.io.IOException;
 import java.io.InputStream;
 import java.sql.SQLException;
+import java.util.Objects;
 
 public class RawContentStream extends InputStream {
     protected DbPreparedStatement statement_;
@@ -46,7 +47,7 @@ public class RawContentStream extends InputStream {
                 index_ = 0;
             }
 
-            result = buffer_[index_++];
+            result = buffer_[index_++] & 0xff;
 
             if (index_ >= buffer_.length) {
                 buffer_ = null;
@@ -59,6 +60,43 @@ public class RawContentStream extends InputStream {
         return result;
     }
 
+    public int read(byte[] b, int off, int len)
+    throws IOException {
+        if (null == resultSet_) {
+            throw new IOException("Trying to read from a closed raw content stream.");
+        }
+
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (0 == len) {
+            return 0;
+        }
+
+        try {
+            if (null == buffer_) {
+                if (!hasRow_) {
+                    return -1;
+                }
+
+                buffer_ = resultSet_.getBytes("chunk");
+                index_ = 0;
+            }
+
+            // copy from the current chunk at once instead of byte per byte
+            var count = Math.min(len, buffer_.length - index_);
+            System.arraycopy(buffer_, index_, b, off, count);
+            index_ += count;
+
+            if (index_ >= buffer_.length) {
+                buffer_ = null;
+                hasRow_ = resultSet_.next();
+            }
+
+            return count;
+        } catch (SQLException e) {
+            throw new IOException("Unexpected error while reading the next bytes.", e);
+        }
+    }
+
     public void close()
     throws IOException {
         if (null == statement_) {
@@ -5,6 +5,7 @@
 package rife.cmf.dam.contentstores.imagestoredrivers;
 
 import rife.cmf.Content;
+import rife.cmf.dam.ByteRange;
 import rife.cmf.dam.ContentDataUser;
 import rife.cmf.dam.ContentDataUserWithoutResult;
 import rife.cmf.dam.contentstores.DatabaseImageStore;
@@ -15,6 +16,7 @@ import rife.database.Datasource;
 import rife.database.queries.*;
 import rife.engine.Context;
 
+import java.io.OutputStream;
 import java.sql.Blob;
 
 public class generic extends DatabaseImageStore {
@@ -112,4 +114,9 @@ public class generic extends DatabaseImageStore {
     throws ContentManagerException {
         _serveContentData(retrieveContent_, context, id);
     }
+
+    public boolean outputContentDataRange(int id, ByteRange range, OutputStream os)
+    throws ContentManagerException {
+        return _outputContentDataRange(retrieveContent_, id, range, os);
+    }
 }
@@ -5,6 +5,7 @@
 package rife.cmf.dam.contentstores.rawstoredrivers;
 
 import rife.cmf.Content;
+import rife.cmf.dam.ByteRange;
 import rife.cmf.dam.ContentDataUser;
 import rife.cmf.dam.ContentDataUserWithoutResult;
 import rife.cmf.dam.contentstores.DatabaseRawStore;
@@ -15,6 +16,7 @@ import rife.database.Datasource;
 import rife.database.queries.*;
 import rife.engine.Context;
 
+import java.io.OutputStream;
 import java.sql.Blob;
 
 public class generic extends DatabaseRawStore {
@@ -29,6 +31,15 @@ public class generic extends DatabaseRawStore {
     protected Insert storeContentChunk_;
     protected Delete deleteContentChunk_;
     protected Select retrieveContentChunks_;
+    protected CreateTable createTableContentHash_;
+    protected DropTable dropTableContentHash_;
+    protected Insert storeContentHash_;
+    protected Select getContentHashMatch_;
+    protected Select getContentHashOwner_;
+    protected Select getContentHashReferrer_;
+    protected Update moveContentChunks_;
+    protected Update moveContentHashOwner_;
+    protected Delete deleteContentHash_;
 
     public generic(Datasource datasource) {
         super(datasource);
@@ -89,6 +100,59 @@ public class generic extends DatabaseRawStore {
             .field("chunk")
             .whereParameter("contentId", "=")
             .orderBy("ordinal");
+
+        var table_content_hash = getTableContentHash();
+
+        createTableContentHash_ = new CreateTable(getDatasource())
+            .table(table_content_hash)
+            .column("contentId", int.class, CreateTable.NOTNULL)
+            .column("ownerId", int.class, CreateTable.NOTNULL)
+            .column("hash", String.class, 64, CreateTable.NOTNULL)
+            .primaryKey(("PK_" + table_content_hash).toUpperCase(), "contentId")
+            .foreignKey(("FK_" + table_content_hash).toUpperCase(), RifeConfig.cmf().getTableContentInfo(), "contentId", "contentId");
+
+        dropTableContentHash_ = new DropTable(getDatasource())
+            .table(table_content_hash);
+
+        storeContentHash_ = new Insert(getDatasource())
+            .into(table_content_hash)
+            .fieldParameter("contentId")
+            .fieldParameter("ownerId")
+            .fieldParameter("hash");
+
+        getContentHashMatch_ = new Select(getDatasource())
+            .from(table_content_hash)
+            .field("contentId")
+            .whereParameter("hash", "=")
+            .whereAnd("contentId = ownerId")
+            .limit(1);
+
+        getContentHashOwner_ = new Select(getDatasource())
+            .from(table_content_hash)
+            .field("ownerId")
+            .whereParameter("contentId", "=");
+
+        getContentHashReferrer_ = new Select(getDatasource())
+            .from(table_content_hash)
+            .field("contentId")
+            .whereParameter("ownerId", "=")
+            .whereParameterAnd("contentId", "!=")
+            .orderBy("contentId")
+            .limit(1);
+
+        moveContentChunks_ = new Update(getDatasource())
+            .table(RifeConfig.cmf().getTableContentStoreRawChunk())
+            .fieldParameter("contentId", "newContentId")
+            .whereParameter("contentId", "=");
+
+        moveContentHashOwner_ = new Update(getDatasource())
+            .table(table_content_hash)
+            .fieldParameter("ownerId", "newOwnerId")
+            .whereParameter("ownerId", "=");
+
+        deleteContentHash_ = new Delete(getDatasource())
+            .from(table_content_hash)
+            .whereParameter("contentId", "=");
     }
 
     public boolean install()
@@ -96,29 +160,34 @@ public class generic extends DatabaseRawStore {
         return _install(createTableContentInfo_, createTableContentChunk_);
     }
 
+    public boolean installDeduplication()
+    throws ContentManagerException {
+        return _installDeduplication(createTableContentHash_);
+    }
+
     public boolean remove()
     throws ContentManagerException {
-        return _remove(dropTableContentInfo_, dropTableContentChunk_);
+        return _remove(dropTableContentInfo_, dropTableContentChunk_, dropTableContentHash_);
     }
 
     public boolean storeContentData(int id, Content content, ContentTransformer transformer)
     throws ContentManagerException {
-        return _storeContentData(storeContentInfo_, storeContentChunk_, id, content, transformer);
+        return _storeContentData(storeContentInfo_, storeContentChunk_, getContentHashMatch_, storeContentHash_, deleteContentChunk_, id, content, transformer);
     }
 
     public boolean deleteContentData(int id)
     throws ContentManagerException {
-        return _deleteContentData(deleteContentInfo_, deleteContentChunk_, id);
+        return _deleteContentData(deleteContentInfo_, deleteContentChunk_, getContentHashOwner_, getContentHashReferrer_, moveContentChunks_, moveContentHashOwner_, deleteContentHash_, id);
     }
 
     public void useContentData(int id, ContentDataUserWithoutResult user)
     throws ContentManagerException {
-        _useContentData(retrieveContentChunks_, id, user);
+        _useContentData(retrieveContentChunks_, _getDataId(getContentHashOwner_, id), user);
     }
 
     public <ResultType> ResultType useContentDataResult(int id, ContentDataUser<ResultType> user)
     throws ContentManagerException {
-        return _useContentDataResult(retrieveContentChunks_, id, user);
+        return _useContentDataResult(retrieveContentChunks_, _getDataId(getContentHashOwner_, id), user);
     }
 
     public int getSize(int id)
@@ -133,6 +202,11 @@ public class generic extends DatabaseRawStore {
 
     public void serveContentData(Context context, int id)
     throws ContentManagerException {
-        _serveContentData(retrieveContentChunks_, context, id);
+        _serveContentData(retrieveContentChunks_, context, _getDataId(getContentHashOwner_, id));
+    }
+
+    public boolean outputContentDataRange(int id, ByteRange range, OutputStream os)
+    throws ContentManagerException {
+        return _outputContentDataRange(retrieveContentChunks_, _getDataId(getContentHashOwner_, id), range, os);
     }
 }
@@ -4,6 +4,7 @@
  */
 package rife.cmf.dam.contentstores.rawstoredrivers;
 
+import rife.cmf.dam.ByteRange;
 import rife.cmf.dam.ContentDataUser;
 import rife.cmf.dam.ContentDataUserWithoutResult;
 import rife.cmf.dam.exceptions.ContentManagerException;
@@ -11,6 +12,8 @@ import rife.database.Datasource;
 import rife.database.queries.Select;
 import rife.engine.Context;
 
+import java.io.OutputStream;
+
 public class org_postgresql_Driver extends generic {
     public org_postgresql_Driver(Datasource datasource) {
         super(datasource);
@@ -30,4 +33,9 @@ public class org_postgresql_Driver extends generic {
     throws ContentManagerException {
         inTransaction(() -> super._serveContentData(retrieveContentChunks, context, id));
     }
+
+    protected boolean _outputContentDataRange(final Select retrieveContentChunks, final int id, final ByteRange range, final OutputStream os)
+    throws ContentManagerException {
+        return inTransaction(() -> super._outputContentDataRange(retrieveContentChunks, id, range, os));
+    }
 }
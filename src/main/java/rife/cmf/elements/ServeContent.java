@@ -4,7 +4,7 @@
  */
 package rife.cmf.elements;
 
-import rife.cmf.dam.ContentManager;
+import rife.cmf.dam.ImageVariantCache;
 import rife.cmf.dam.contentmanagers.DatabaseContentFactory;
 import rife.cmf.dam.exceptions.ContentManagerException;
 import rife.database.Datasource;
@@ -17,14 +17,36 @@ import java.nio.charset.StandardCharsets;
 import java.util.logging.Logger;
 
 public class ServeContent implements Element {
+    /**
+     * The name of the parameter with the requested width of an image variant.
+     *
+     * @since 1.9.2
+     */
+    public static final String PARAMETER_WIDTH = "width";
+    /**
+     * The name of the parameter with the requested height of an image variant.
+     *
+     * @since 1.9.2
+     */
+    public static final String PARAMETER_HEIGHT = "height";
+    /**
+     * The name of the parameter that indicates whether an image variant is
+     * intended for hidpi displays.
+     *
+     * @since 1.9.2
+     */
+    public static final String PARAMETER_HIDPI = "hidpi";
+
     private final Datasource datasource_;
     private final String repositoryName_;
+    private final ImageVariantCache imageVariants_;
 
     public ServeContent(Datasource datasource) {
         if (null == datasource) throw new IllegalArgumentException("datasource can't be null");
 
         datasource_ = datasource;
         repositoryName_ = null;
+        imageVariants_ = null;
     }
 
     public ServeContent(Datasource datasource, String repositoryName) {
@@ -32,12 +54,38 @@ public class ServeContent implements Element {
 
         datasource_ = datasource;
         repositoryName_ = repositoryName;
+        imageVariants_ = null;
+    }
+
+    /**
+     * Creates a new element that serves content and resized variants of
+     * image content.
+     * <p>When the request contains a {@code width} or {@code height}
+     * parameter, a variant of image content with those dimensions is
+     * served. The {@code hidpi} parameter indicates that the variant should
+     * have twice the requested number of pixels. The variants are generated
+     * once and stored in the provided cache, requests for pixel dimensions
+     * that the cache doesn't allow are rejected.
+     *
+     * @param datasource     the datasource of the content
+     * @param repositoryName the name of the content repository; or
+     *                       {@code null} for the default repository
+     * @param imageVariants  the cache in which image variants are stored
+     * @since 1.9.2
+     */
+    public ServeContent(Datasource datasource, String repositoryName, ImageVariantCache imageVariants) {
+        if (null == datasource) throw new IllegalArgumentException("datasource can't be null");
+        if (null == imageVariants) throw new IllegalArgumentException("imageVariants can't be null");
+
+        datasource_ = datasource;
+        repositoryName_ = repositoryName;
+        imageVariants_ = imageVariants;
     }
 
     public void process(Context c)
     throws Exception {
         // retrieve and output the content that corresponds to the path info
-        ContentManager manager = DatabaseContentFactory.instance(datasource_);
+        var manager = DatabaseContentFactory.instance(datasource_);
 
         // get the content path
         String content_path;
@@ -64,7 +112,15 @@ public class ServeContent implements Element {
             // serve the content for the path, if the path is valid
             if (content_path != null &&
                 !content_path.equals("/")) {
-                manager.serveContentData(c, content_path);
+                if (imageVariants_ != null &&
+                    (c.parameter(PARAMETER_WIDTH) != null || c.parameter(PARAMETER_HEIGHT) != null)) {
+                    manager.serveImageVariant(c, content_path, imageVariants_,
+                        c.parameterInt(PARAMETER_WIDTH, -1),
+                        c.parameterInt(PARAMETER_HEIGHT, -1),
+                        c.parameterBoolean(PARAMETER_HIDPI, false));
+                } else {
+                    manager.serveContentData(c, content_path);
+                }
                 return;
             }
         } catch (ContentManagerException e) {
@@ -11,6 +11,7 @@ import rife.cmf.loader.ImageContentLoader;
 import rife.cmf.loader.LoadedContent;
 import rife.cmf.transform.ContentTransformer;
 import rife.tools.Convert;
+import rife.tools.ExceptionUtils;
 import rife.tools.exceptions.ConversionException;
 
 import javax.imageio.IIOImage;
@@ -20,13 +21,20 @@ import javax.imageio.ImageWriter;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.HashSet;
 import java.util.Set;
 
 /**
  * Formats raw {@code Content} data as an image.
+ * <p>The data can be provided as a byte array or as an input stream. When
+ * a large image is scaled down, only every n-th pixel is decoded, so that
+ * the full resolution image never has to be kept in memory. Input streams
+ * can only be decoded by the image readers of {@link ImageIO} and are
+ * always re-encoded, even when they already have the requested format.
  *
  * <p>The following content attributes are supported:
  * <table>
@@ -47,6 +55,14 @@ import java.util.Set;
  * &quot;height&quot; attributes take precedence if set, and this attribute will be ignored.
  * </td>
  * </tr>
+ * <tr>
+ * <td>{@code filter}</td>
+ * <td>Scales the image with an {@link ImageScaler} that uses all available
+ * processors, with either the &quot;bilinear&quot; or the &quot;lanczos&quot;
+ * filter. Without this attribute, the image is scaled progressively with
+ * {@link Graphics2D}.
+ * </td>
+ * </tr>
  * </table>
  *
  * @author Geert Bevin (gbevin[remove] at uwyn dot com)
@@ -59,6 +75,7 @@ public class ImageFormatter implements Formatter<byte[], Image> {
         public static final String HEIGHT = "height";
         public static final String LONGEST_EDGE_LENGTH = "longestEdgeLength";
         public static final String HIDPI = "hidpi";
+        public static final String FILTER = "filter";
     }
 
     public static final class CmfProperty {
@@ -67,17 +84,27 @@ public class ImageFormatter implements Formatter<byte[], Image> {
         public static final String HIDPI = "cmf:hidpi";
     }
 
+    private static final long SUBSAMPLING_MIN_PIXELS = 4_000_000L;
+
+    private static final ImageScaler BILINEAR_SCALER = new ImageScaler(ImageScaler.Filter.BILINEAR);
+    private static final ImageScaler LANCZOS_SCALER = new ImageScaler(ImageScaler.Filter.LANCZOS);
+
     public byte[] format(Content content, ContentTransformer<Image> transformer)
     throws FormatException {
-        byte[] content_bytes;
-        // we only support byte arrays as input
-        if (!(content.getData() instanceof byte[] bytes)) {
+        byte[] content_bytes = null;
+        InputStream content_stream = null;
+        // we only support byte arrays and input streams as input
+        if (content.getData() instanceof byte[] bytes) {
+            content_bytes = bytes;
+        } else if (content.getData() instanceof InputStream stream) {
+            content_stream = stream;
+        } else {
             throw new InvalidContentDataTypeException(this, content.getMimeType(), byte[].class, content.getData().getClass());
         }
-        content_bytes = bytes;
 
         LoadedContent<Image> loaded = null;
         Image data = null;
+        Dimension original = null;
 
         // check if the content contains a cached value of the loaded data
         if (content.hasCachedLoadedData()) {
@@ -90,27 +117,12 @@ public class ImageFormatter implements Formatter<byte[], Image> {
             }
         }
 
-        if (null == data) {
-            // get an image
-            Set<String> errors = new HashSet<>();
-            loaded = new ImageContentLoader().load(content_bytes, false, errors);
-            if (null == loaded) {
-                throw new UnreadableDataFormatException(content.getMimeType(), errors);
-            }
-
-            data = loaded.data();
-        }
-
-        boolean was_transformed = false;
-
-        // determine image type
-        var image_type = BufferedImage.TYPE_INT_ARGB;
-        if (content.getMimeType() == MimeType.IMAGE_JPEG) {
-            image_type = BufferedImage.TYPE_INT_RGB;
-        }
-
-        // perform additional conversions according to the provided attributes
+        // retrieve the conversions that are requested by the attributes
         boolean hidpi = true;
+        var width = -1;
+        var height = -1;
+        var longest_edge_length = -1;
+        ImageScaler.Filter filter = null;
         if (content.hasAttributes()) {
             if (content.hasAttribute(ContentAttribute.HIDPI)) {
                 try {
@@ -120,84 +132,68 @@ public class ImageFormatter implements Formatter<byte[], Image> {
                 }
             }
 
-            var width = -1;
-            var height = -1;
             if (content.hasAttribute(ContentAttribute.WIDTH) ||
                 content.hasAttribute(ContentAttribute.HEIGHT)) {
-                var width_value = content.getAttribute(ContentAttribute.WIDTH);
-                var height_value = content.getAttribute(ContentAttribute.HEIGHT);
-                // retrieve the width and the height values
-                if (width_value != null) {
-                    try {
-                        width = Integer.parseInt(width_value);
-                    } catch (NumberFormatException e) {
-                        throw new FormatException(e);
-                    }
-                }
-                if (height_value != null) {
-                    try {
-                        height = Integer.parseInt(height_value);
-                    } catch (NumberFormatException e) {
-                        throw new FormatException(e);
-                    }
-                }
+                width = parseDimension(content.getAttribute(ContentAttribute.WIDTH));
+                height = parseDimension(content.getAttribute(ContentAttribute.HEIGHT));
             } else if (content.hasAttribute(ContentAttribute.LONGEST_EDGE_LENGTH)) {
-                // retrieve the attributes
-                var lel_value = content.getAttribute(ContentAttribute.LONGEST_EDGE_LENGTH);
-                var lel = -1;
-                if (lel_value != null) {
-                    try {
-                        lel = Integer.parseInt(lel_value);
-                    } catch (NumberFormatException e) {
-                        throw new FormatException(e);
-                    }
-                }
+                longest_edge_length = parseDimension(content.getAttribute(ContentAttribute.LONGEST_EDGE_LENGTH));
+            }
 
-                if (lel >= 0) {
-                    var orig_width = data.getWidth(null);
-                    var orig_height = data.getHeight(null);
+            if (content.hasAttribute(ContentAttribute.FILTER)) {
+                filter = parseFilter(content.getAttribute(ContentAttribute.FILTER));
+            }
+        }
 
-                    // If the width is the longer side, set it to the lEL.
-                    if (orig_width >= orig_height) {
-                        if (lel >= 0) {
-                            width = lel;
-                        }
-                    } else {
-                        if (lel >= 0) {
-                            height = lel;
-                        }
-                    }
+        if (null == data) {
+            Set<String> errors = new HashSet<>();
+
+            // decode the image straight to about the requested size when
+            // possible, this avoids holding the full resolution image in memory
+            if (content_stream != null ||
+                width >= 0 || height >= 0 || longest_edge_length >= 0) {
+                var decoded = decodeSubsampled(content_bytes != null ? content_bytes : content_stream, width, height, longest_edge_length, errors);
+                if (decoded != null) {
+                    loaded = decoded.loaded();
+                    original = decoded.original();
                 }
             }
 
-            if (width >= 0 || height >= 0) {
-                var orig_width = data.getWidth(null);
-                var orig_height = data.getHeight(null);
-
-                // ensure that the aspect is preserved at all times
-                if (width >= 0 && height >= 0) {
-                    var width_ratio = ((double) orig_width) / width;
-                    var height_ratio = ((double) orig_height) / height;
-                    if (width_ratio > height_ratio) {
-                        height = -1;
-                    } else if (width_ratio < height_ratio) {
-                        width = -1;
-                    }
-                }
-                if (height == -1) {
-                    height = (int) (((double) (orig_height * width) / orig_width) + 0.5);
-                }
-                if (width == -1) {
-                    width = (int) ((((double) orig_width * height) / orig_height) + 0.5);
-                }
+            // fall back to the regular content loader, which supports more
+            // image libraries
+            if (null == loaded && content_bytes != null) {
+                loaded = new ImageContentLoader().load(content_bytes, false, errors);
+            }
 
-                // only rescale when the dimensions are actually different
-                if ((width >= 0 && width != orig_width) ||
-                    (height >= 0 && height != orig_height)) {
-                    data = progressiveScaling(data, Math.max(width, height), image_type);
-                    was_transformed = true;
-                }
+            if (null == loaded || null == loaded.data()) {
+                throw new UnreadableDataFormatException(content.getMimeType(), errors);
+            }
+
+            data = loaded.data();
+        }
+
+        if (null == original) {
+            original = new Dimension(data.getWidth(null), data.getHeight(null));
+        }
+
+        boolean was_transformed = false;
+
+        // determine image type
+        var image_type = BufferedImage.TYPE_INT_ARGB;
+        if (content.getMimeType() == MimeType.IMAGE_JPEG) {
+            image_type = BufferedImage.TYPE_INT_RGB;
+        }
+
+        // only rescale when the dimensions are actually different
+        var size = getScaledSize(original.width, original.height, width, height, longest_edge_length);
+        if (size != null &&
+            (size.width != data.getWidth(null) || size.height != data.getHeight(null))) {
+            if (filter != null) {
+                data = getScaler(filter).scale(data, size.width, size.height, image_type);
+            } else {
+                data = progressiveScaling(data, Math.max(size.width, size.height), image_type);
             }
+            was_transformed = true;
         }
 
         // transform the content, if needed
@@ -208,7 +204,7 @@ public class ImageFormatter implements Formatter<byte[], Image> {
 
         // if no transformation was applied to the data and the provided data already
         // has the requested mime-type, simply pass the data on
-        if (!was_transformed && loaded != null && loaded.originalMimeType() == content.getMimeType()) {
+        if (!was_transformed && content_bytes != null && loaded != null && loaded.originalMimeType() == content.getMimeType()) {
             return content_bytes;
         }
 
@@ -262,7 +258,130 @@ public class ImageFormatter implements Formatter<byte[], Image> {
         return bytes_out.toByteArray();
     }
 
-    private static BufferedImage progressiveScaling(Image before, double longestSideLength, int imageType) {
+    private static int parseDimension(String value)
+    throws FormatException {
+        if (null == value) {
+            return -1;
+        }
+
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new FormatException(e);
+        }
+    }
+
+    private static ImageScaler.Filter parseFilter(String value)
+    throws FormatException {
+        if (null == value) {
+            return null;
+        }
+
+        try {
+            return ImageScaler.Filter.valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new FormatException(e);
+        }
+    }
+
+    private static ImageScaler getScaler(ImageScaler.Filter filter) {
+        return switch (filter) {
+            case BILINEAR -> BILINEAR_SCALER;
+            case LANCZOS -> LANCZOS_SCALER;
+        };
+    }
+
+    private static Dimension getScaledSize(int originalWidth, int originalHeight, int width, int height, int longestEdgeLength) {
+        // the longest edge length is applied to the longer side
+        if (longestEdgeLength >= 0) {
+            if (originalWidth >= originalHeight) {
+                width = longestEdgeLength;
+            } else {
+                height = longestEdgeLength;
+            }
+        }
+
+        if (width < 0 && height < 0) {
+            return null;
+        }
+
+        // ensure that the aspect is preserved at all times
+        if (width >= 0 && height >= 0) {
+            var width_ratio = ((double) originalWidth) / width;
+            var height_ratio = ((double) originalHeight) / height;
+            if (width_ratio > height_ratio) {
+                height = -1;
+            } else if (width_ratio < height_ratio) {
+                width = -1;
+            }
+        }
+        if (height == -1) {
+            height = (int) (((double) (originalHeight * width) / originalWidth) + 0.5);
+        }
+        if (width == -1) {
+            width = (int) ((((double) originalWidth * height) / originalHeight) + 0.5);
+        }
+
+        return new Dimension(width, height);
+    }
+
+    private record Decoded(LoadedContent<Image> loaded, Dimension original) {
+    }
+
+    private static Decoded decodeSubsampled(Object input, int width, int height, int longestEdgeLength, Set<String> errors) {
+        // ImageIO has no image input stream provider for byte arrays
+        try (var stream = ImageIO.createImageInputStream(input instanceof byte[] bytes ? new ByteArrayInputStream(bytes) : input)) {
+            if (null == stream) {
+                return null;
+            }
+
+            var readers = ImageIO.getImageReaders(stream);
+            if (!readers.hasNext()) {
+                return null;
+            }
+
+            var reader = readers.next();
+            try {
+                // detect if any of the reader mimetypes corresponds to a CMF supported one
+                MimeType mime_type = null;
+                var reader_mime_types = reader.getOriginatingProvider().getMIMETypes();
+                if (reader_mime_types != null) {
+                    for (var reader_mime : reader_mime_types) {
+                        mime_type = MimeType.getMimeType(reader_mime);
+                        if (mime_type != null) {
+                            break;
+                        }
+                    }
+                }
+
+                // the dimensions are read from the header, before any pixels are decoded
+                reader.setInput(stream, true, true);
+                var original = new Dimension(reader.getWidth(0), reader.getHeight(0));
+
+                // only skip pixels of large images, and only down to twice
+                // the requested size, the final scaling then still smooths
+                // out the subsampling
+                var param = reader.getDefaultReadParam();
+                var size = getScaledSize(original.width, original.height, width, height, longestEdgeLength);
+                if (size != null &&
+                    (long) original.width * original.height > SUBSAMPLING_MIN_PIXELS) {
+                    var subsampling = Math.min(original.width / Math.max(1, size.width * 2), original.height / Math.max(1, size.height * 2));
+                    if (subsampling > 1) {
+                        param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                    }
+                }
+
+                return new Decoded(new LoadedContent<>(mime_type, reader.read(0, param)), original);
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException | RuntimeException e) {
+            errors.add(ExceptionUtils.getExceptionStackTrace(e));
+            return null;
+        }
+    }
+
+    static BufferedImage progressiveScaling(Image before, double longestSideLength, int imageType) {
         if (before == null) {
             return null;
         }
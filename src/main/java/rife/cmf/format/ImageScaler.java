@@ -0,0 +1,400 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.cmf.format;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Resamples images to another size in a single pass, spreading the work
+ * over the threads of a fork/join pool.
+ * <p>The image is scaled separately in both directions: first every row is
+ * resampled to the new width, after which every column is resampled to the
+ * new height. Both passes are split up in tiles of rows that are processed
+ * in parallel. When an image is scaled down, the filter is widened so that
+ * all the source pixels contribute to the result, which makes the repeated
+ * halving that's needed with {@link Graphics2D} drawing unnecessary.
+ * <p>The buffers that hold the rows and the intermediate result of the
+ * first pass are kept around per thread and reused for later images.
+ *
+ * @author Geert Bevin (gbevin[remove] at uwyn dot com)
+ * @see ImageFormatter
+ * @since 1.9.2
+ */
+public class ImageScaler {
+    /**
+     * The filters that can be used to resample images.
+     *
+     * @since 1.9.2
+     */
+    public enum Filter {
+        /**
+         * Linear interpolation between the two nearest pixels, fast with
+         * slightly soft results.
+         */
+        BILINEAR(1.0) {
+            double weight(double x) {
+                x = Math.abs(x);
+                if (x < 1.0) {
+                    return 1.0 - x;
+                }
+                return 0.0;
+            }
+        },
+        /**
+         * Lanczos windowed sinc over three pixels in each direction, slower
+         * with sharp results.
+         */
+        LANCZOS(3.0) {
+            double weight(double x) {
+                x = Math.abs(x);
+                if (x < 1e-8) {
+                    return 1.0;
+                }
+                if (x < 3.0) {
+                    var pi_x = Math.PI * x;
+                    return 3.0 * Math.sin(pi_x) * Math.sin(pi_x / 3.0) / (pi_x * pi_x);
+                }
+                return 0.0;
+            }
+        };
+
+        private final double support_;
+
+        Filter(double support) {
+            support_ = support;
+        }
+
+        abstract double weight(double x);
+    }
+
+    private static final int TILE_ROWS = 32;
+
+    private static final ThreadLocal<SoftReference<int[]>> ROWS_BUFFER = new ThreadLocal<>();
+    private static final ThreadLocal<SoftReference<int[]>> INTERMEDIATE_BUFFER = new ThreadLocal<>();
+    private static final ThreadLocal<SoftReference<float[]>> SUMS_BUFFER = new ThreadLocal<>();
+
+    private final Filter filter_;
+    private final ForkJoinPool pool_;
+
+    /**
+     * Creates a new scaler that uses the common fork/join pool.
+     *
+     * @param filter the filter that will be used to resample the images
+     * @since 1.9.2
+     */
+    public ImageScaler(Filter filter) {
+        this(filter, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a new scaler.
+     *
+     * @param filter the filter that will be used to resample the images
+     * @param pool   the pool whose threads will resample the images
+     * @since 1.9.2
+     */
+    public ImageScaler(Filter filter, ForkJoinPool pool) {
+        if (null == filter) throw new IllegalArgumentException("filter can't be null");
+        if (null == pool) throw new IllegalArgumentException("pool can't be null");
+
+        filter_ = filter;
+        pool_ = pool;
+    }
+
+    /**
+     * Retrieves the filter that is used to resample the images.
+     *
+     * @return this scaler's filter
+     * @since 1.9.2
+     */
+    public Filter getFilter() {
+        return filter_;
+    }
+
+    /**
+     * Scales an image to a new size.
+     *
+     * @param image     the image that has to be scaled
+     * @param width     the width of the scaled image
+     * @param height    the height of the scaled image
+     * @param imageType the type of the scaled image, either
+     *                  {@link BufferedImage#TYPE_INT_ARGB} or {@link BufferedImage#TYPE_INT_RGB}
+     * @return the scaled image
+     * @since 1.9.2
+     */
+    public BufferedImage scale(Image image, int width, int height, int imageType) {
+        if (null == image) throw new IllegalArgumentException("image can't be null");
+        if (width < 1) throw new IllegalArgumentException("width should be at least 1");
+        if (height < 1) throw new IllegalArgumentException("height should be at least 1");
+        if (imageType != BufferedImage.TYPE_INT_ARGB &&
+            imageType != BufferedImage.TYPE_INT_RGB) throw new IllegalArgumentException("imageType should be TYPE_INT_ARGB or TYPE_INT_RGB");
+
+        var source = toBufferedImage(image);
+        var source_width = source.getWidth();
+        var source_height = source.getHeight();
+
+        var horizontal = new Contributions(source_width, width, filter_);
+        var vertical = new Contributions(source_height, height, filter_);
+
+        // the first pass resamples every row of the source to the new width,
+        // the intermediate buffer is taken from the thread while it's in use
+        // since a waiting fork/join thread can start scaling another image
+        var intermediate = obtainBuffer(INTERMEDIATE_BUFFER, width * source_height);
+        INTERMEDIATE_BUFFER.remove();
+        pool_.invoke(new Tiles(0, source_height) {
+            void process(int firstRow, int lastRow) {
+                var rows = lastRow - firstRow;
+                var buffer = obtainBuffer(ROWS_BUFFER, rows * source_width);
+                readRows(source, firstRow, rows, buffer);
+                for (var row = 0; row < rows; row++) {
+                    resampleRow(buffer, row * source_width, intermediate, (firstRow + row) * width, horizontal);
+                }
+            }
+        });
+
+        // the second pass resamples every column to the new height,
+        // straight into the pixels of the result
+        var result = new BufferedImage(width, height, imageType);
+        var pixels = ((DataBufferInt) result.getRaster().getDataBuffer()).getData();
+        pool_.invoke(new Tiles(0, height) {
+            void process(int firstRow, int lastRow) {
+                var sums = obtainSums(width * 4);
+                for (var row = firstRow; row < lastRow; row++) {
+                    resampleColumns(intermediate, width, pixels, row, vertical, sums);
+                }
+            }
+        });
+        INTERMEDIATE_BUFFER.set(new SoftReference<>(intermediate));
+
+        return result;
+    }
+
+    private static BufferedImage toBufferedImage(Image image) {
+        if (image instanceof BufferedImage buffered) {
+            return buffered;
+        }
+
+        var buffered = new BufferedImage(image.getWidth(null), image.getHeight(null), BufferedImage.TYPE_INT_ARGB);
+        var g2 = buffered.createGraphics();
+        g2.setComposite(AlphaComposite.Src);
+        g2.drawImage(image, 0, 0, null);
+        g2.dispose();
+        return buffered;
+    }
+
+    private static void readRows(BufferedImage source, int firstRow, int rows, int[] buffer) {
+        var width = source.getWidth();
+
+        // copy the pixels of integer images straight from their data buffer,
+        // converting each pixel through the color model is a lot slower
+        var raster = source.getRaster();
+        if ((source.getType() == BufferedImage.TYPE_INT_ARGB || source.getType() == BufferedImage.TYPE_INT_RGB) &&
+            raster.getParent() == null &&
+            raster.getDataBuffer() instanceof DataBufferInt data_buffer) {
+            var data = data_buffer.getData();
+            var offset = data_buffer.getOffset() + firstRow * width;
+            var length = rows * width;
+            System.arraycopy(data, offset, buffer, 0, length);
+            if (source.getType() == BufferedImage.TYPE_INT_RGB) {
+                for (var i = 0; i < length; i++) {
+                    buffer[i] |= 0xff000000;
+                }
+            }
+            return;
+        }
+
+        source.getRGB(0, firstRow, width, rows, buffer, 0, width);
+    }
+
+    private static int[] obtainBuffer(ThreadLocal<SoftReference<int[]>> holder, int size) {
+        var reference = holder.get();
+        var buffer = reference == null ? null : reference.get();
+        if (null == buffer || buffer.length < size) {
+            buffer = new int[size];
+            holder.set(new SoftReference<>(buffer));
+        }
+        return buffer;
+    }
+
+    private static float[] obtainSums(int size) {
+        var reference = SUMS_BUFFER.get();
+        var sums = reference == null ? null : reference.get();
+        if (null == sums || sums.length < size) {
+            sums = new float[size];
+            SUMS_BUFFER.set(new SoftReference<>(sums));
+        }
+        return sums;
+    }
+
+    private static void resampleRow(int[] source, int sourceOffset, int[] target, int targetOffset, Contributions contributions) {
+        for (var x = 0; x < contributions.count_.length; x++) {
+            var start = contributions.start_[x];
+            var weights_offset = x * contributions.stride_;
+            float a = 0, r = 0, g = 0, b = 0;
+            for (var i = 0; i < contributions.count_[x]; i++) {
+                var pixel = source[sourceOffset + start + i];
+                var weight = contributions.weights_[weights_offset + i];
+
+                // the colors are weighed with their alpha, to prevent
+                // transparent pixels from bleeding their color
+                var alpha_weight = (pixel >>> 24) * weight;
+                a += alpha_weight;
+                alpha_weight /= 255f;
+                r += ((pixel >> 16) & 0xff) * alpha_weight;
+                g += ((pixel >> 8) & 0xff) * alpha_weight;
+                b += (pixel & 0xff) * alpha_weight;
+            }
+            target[targetOffset + x] = pack(a, r, g, b);
+        }
+    }
+
+    private static void resampleColumns(int[] source, int width, int[] target, int row, Contributions contributions, float[] sums) {
+        var start = contributions.start_[row];
+        var count = contributions.count_[row];
+        var weights_offset = row * contributions.stride_;
+
+        // accumulate complete source rows, so that the memory is read sequentially
+        Arrays.fill(sums, 0, width * 4, 0f);
+        for (var i = 0; i < count; i++) {
+            var weight = contributions.weights_[weights_offset + i];
+            var source_offset = (start + i) * width;
+            for (int x = 0, s = 0; x < width; x++, s += 4) {
+                var pixel = source[source_offset + x];
+                sums[s] += (pixel >>> 24) * weight;
+                sums[s + 1] += ((pixel >> 16) & 0xff) * weight;
+                sums[s + 2] += ((pixel >> 8) & 0xff) * weight;
+                sums[s + 3] += (pixel & 0xff) * weight;
+            }
+        }
+
+        var target_offset = row * width;
+        for (int x = 0, s = 0; x < width; x++, s += 4) {
+            target[target_offset + x] = unpremultiply(pack(sums[s], sums[s + 1], sums[s + 2], sums[s + 3]));
+        }
+    }
+
+    private static int pack(float a, float r, float g, float b) {
+        var alpha = clamp(a, 255);
+        return alpha << 24 |
+               clamp(r, alpha) << 16 |
+               clamp(g, alpha) << 8 |
+               clamp(b, alpha);
+    }
+
+    private static int clamp(float value, int maximum) {
+        var rounded = Math.round(value);
+        if (rounded < 0) {
+            return 0;
+        }
+        return Math.min(rounded, maximum);
+    }
+
+    private static int unpremultiply(int pixel) {
+        var alpha = pixel >>> 24;
+        if (0 == alpha) {
+            return 0;
+        }
+        if (255 == alpha) {
+            return pixel;
+        }
+        var r = (((pixel >> 16) & 0xff) * 255 + alpha / 2) / alpha;
+        var g = (((pixel >> 8) & 0xff) * 255 + alpha / 2) / alpha;
+        var b = ((pixel & 0xff) * 255 + alpha / 2) / alpha;
+        return alpha << 24 | r << 16 | g << 8 | b;
+    }
+
+    /**
+     * The source pixels that contribute to each target pixel in one
+     * direction, together with their normalized weights.
+     */
+    private static class Contributions {
+        private final int[] start_;
+        private final int[] count_;
+        private final float[] weights_;
+        private final int stride_;
+
+        Contributions(int sourceSize, int targetSize, Filter filter) {
+            var scale = (double) targetSize / sourceSize;
+
+            // widen the filter when scaling down, so that every source
+            // pixel contributes to the result
+            var filter_scale = Math.max(1.0, 1.0 / scale);
+            var support = filter.support_ * filter_scale;
+
+            start_ = new int[targetSize];
+            count_ = new int[targetSize];
+            stride_ = (int) Math.ceil(support * 2) + 1;
+            weights_ = new float[targetSize * stride_];
+
+            for (var i = 0; i < targetSize; i++) {
+                var center = (i + 0.5) / scale - 0.5;
+                var first = Math.max(0, (int) Math.floor(center - support));
+                var last = Math.min(sourceSize - 1, (int) Math.ceil(center + support));
+                var count = Math.min(stride_, last - first + 1);
+
+                var total = 0.0;
+                for (var j = 0; j < count; j++) {
+                    var weight = filter.weight((first + j - center) / filter_scale);
+                    weights_[i * stride_ + j] = (float) weight;
+                    total += weight;
+                }
+
+                // normalize the weights, pixels at the edges have fewer neighbours
+                if (total != 0.0) {
+                    for (var j = 0; j < count; j++) {
+                        weights_[i * stride_ + j] /= (float) total;
+                    }
+                } else {
+                    weights_[i * stride_] = 1f;
+                    count = 1;
+                    first = Math.min(sourceSize - 1, Math.max(0, (int) Math.round(center)));
+                }
+
+                start_[i] = first;
+                count_[i] = count;
+            }
+        }
+    }
+
+    /**
+     * Splits a range of rows in tiles that are processed in parallel.
+     */
+    private abstract static class Tiles extends RecursiveAction {
+        private final int firstRow_;
+        private final int lastRow_;
+
+        Tiles(int firstRow, int lastRow) {
+            firstRow_ = firstRow;
+            lastRow_ = lastRow;
+        }
+
+        abstract void process(int firstRow, int lastRow);
+
+        protected void compute() {
+            if (lastRow_ - firstRow_ <= TILE_ROWS) {
+                process(firstRow_, lastRow_);
+                return;
+            }
+
+            var middle = (firstRow_ + lastRow_) >>> 1;
+            var outer = this;
+            invokeAll(new Tiles(firstRow_, middle) {
+                void process(int firstRow, int lastRow) {
+                    outer.process(firstRow, lastRow);
+                }
+            }, new Tiles(middle, lastRow_) {
+                void process(int firstRow, int lastRow) {
+                    outer.process(firstRow, lastRow);
+                }
+            });
+        }
+    }
+}
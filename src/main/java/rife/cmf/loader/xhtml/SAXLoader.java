@@ -22,14 +22,50 @@ import rife.xml.exceptions.XmlErrorException;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
-import java.io.IOException;
-import java.io.Reader;
-import java.io.StringReader;
+import java.io.*;
+import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Loads and validates xhtml content with a SAX parser.
+ * <p>The parser factory is looked up only once and each thread reuses its
+ * own validating parser. The xhtml DTDs and entity files of the catalog
+ * are resolved from the classpath the first time they're needed and are
+ * then served from memory, other entities are never cached.
+ *
+ * @author Geert Bevin (gbevin[remove] at uwyn dot com)
+ * @since 1.0
+ */
 public class SAXLoader extends XhtmlContentLoaderBackend {
+    private static final Map<String, String> CATALOG = Map.of(
+        "http://www.w3.org/TR/xhtml1/DTD/xhtml1-transitional.dtd", "/dtd/cmf/xhtml1-transitional.dtd",
+        "http://www.w3.org/TR/xhtml1/DTD/xhtml1-strict.dtd", "/dtd/cmf/xhtml1-strict.dtd",
+        "http://www.w3.org/TR/xhtml1/DTD/xhtml1-frameset.dtd", "/dtd/cmf/xhtml1-frameset.dtd",
+        "http://www.w3.org/TR/xhtml1/DTD/xhtml-lat1.ent", "/dtd/cmf/xhtml-lat1.ent",
+        "http://www.w3.org/TR/xhtml1/DTD/xhtml-symbol.ent", "/dtd/cmf/xhtml-symbol.ent",
+        "http://www.w3.org/TR/xhtml1/DTD/xhtml-special.ent", "/dtd/cmf/xhtml-special.ent");
+    private static final XmlEntityResolver ENTITY_RESOLVER = new XmlEntityResolver(ResourceFinderClasspath.instance())
+        .restrictToCatalog(true);
+    // only the entities of the catalog are cached, any other system ID in
+    // the parsed content is resolved each time
+    private static final Map<String, CachedEntity> ENTITY_CACHE = new ConcurrentHashMap<>(CATALOG.size());
+
+    private static final SAXParserFactory PARSER_FACTORY;
+    private static final ThreadLocal<SAXParser> PARSER = new ThreadLocal<>();
+
+    static {
+        for (var entry : CATALOG.entrySet()) {
+            ENTITY_RESOLVER.addToCatalog(entry.getKey(), entry.getValue());
+        }
+
+        PARSER_FACTORY = SAXParserFactory.newInstance();
+        PARSER_FACTORY.setValidating(true);
+    }
+
     public LoadedContent<String> loadFromString(String data, boolean fragment, Set<String> errors)
     throws ContentManagerException {
         return new LoaderDelegate().load(data, fragment, errors);
@@ -39,19 +75,118 @@ public class SAXLoader extends XhtmlContentLoaderBackend {
         return true;
     }
 
+    private static SAXParser obtainParser() {
+        // the parser is taken from the thread while it's in use, this
+        // keeps nested loads from sharing it
+        var parser = PARSER.get();
+        if (parser != null) {
+            PARSER.remove();
+            return parser;
+        }
+
+        try {
+            synchronized (PARSER_FACTORY) {
+                return PARSER_FACTORY.newSAXParser();
+            }
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new XmlErrorException(e);
+        }
+    }
+
+    private static void releaseParser(SAXParser parser) {
+        // parsers that can't be reset are simply discarded
+        try {
+            parser.reset();
+        } catch (UnsupportedOperationException e) {
+            return;
+        }
+        PARSER.set(parser);
+    }
+
+    private static InputSource resolveCachedEntity(String publicId, String systemId)
+    throws IOException {
+        if (null == systemId || !CATALOG.containsKey(systemId)) {
+            synchronized (ENTITY_RESOLVER) {
+                return ENTITY_RESOLVER.resolveEntity(publicId, systemId);
+            }
+        }
+
+        var entity = ENTITY_CACHE.get(systemId);
+        if (null == entity) {
+            InputSource source;
+            synchronized (ENTITY_RESOLVER) {
+                source = ENTITY_RESOLVER.resolveEntity(publicId, systemId);
+            }
+            if (null == source) {
+                return null;
+            }
+
+            entity = CachedEntity.read(source, systemId);
+            if (null == entity) {
+                return source;
+            }
+            ENTITY_CACHE.putIfAbsent(systemId, entity);
+        }
+
+        return entity.createInputSource();
+    }
+
+    /**
+     * The data of a resolved entity, the system ID of the original input
+     * source is kept so that relative references inside it resolve the
+     * same way.
+     */
+    private record CachedEntity(String publicId, String systemId, String encoding, byte[] bytes, String characters) {
+        static CachedEntity read(InputSource source, String requestedSystemId)
+        throws IOException {
+            var system_id = source.getSystemId() != null ? source.getSystemId() : requestedSystemId;
+
+            if (source.getByteStream() != null) {
+                try (var stream = source.getByteStream()) {
+                    return new CachedEntity(source.getPublicId(), system_id, source.getEncoding(), stream.readAllBytes(), null);
+                }
+            }
+
+            if (source.getCharacterStream() != null) {
+                try (var reader = source.getCharacterStream()) {
+                    var writer = new StringWriter();
+                    reader.transferTo(writer);
+                    return new CachedEntity(source.getPublicId(), system_id, null, null, writer.toString());
+                }
+            }
+
+            if (source.getSystemId() != null) {
+                try (var stream = URI.create(source.getSystemId()).toURL().openStream()) {
+                    return new CachedEntity(source.getPublicId(), system_id, source.getEncoding(), stream.readAllBytes(), null);
+                } catch (IllegalArgumentException e) {
+                    // leave system IDs that aren't absolute URLs to the parser
+                    return null;
+                }
+            }
+
+            return null;
+        }
+
+        InputSource createInputSource() {
+            InputSource source;
+            if (bytes != null) {
+                source = new InputSource(new ByteArrayInputStream(bytes));
+                source.setEncoding(encoding);
+            } else {
+                source = new InputSource(new StringReader(characters));
+            }
+            source.setPublicId(publicId);
+            source.setSystemId(systemId);
+            return source;
+        }
+    }
+
     private static class LoaderDelegate extends DefaultHandler {
         private final XmlErrorRedirector errorRedirector_ = new LoggingErrorRedirector();
-        private final XmlEntityResolver entityResolver_ = new XmlEntityResolver(ResourceFinderClasspath.instance())
-            .addToCatalog("http://www.w3.org/TR/xhtml1/DTD/xhtml1-transitional.dtd", "/dtd/cmf/xhtml1-transitional.dtd")
-            .addToCatalog("http://www.w3.org/TR/xhtml1/DTD/xhtml1-strict.dtd", "/dtd/cmf/xhtml1-strict.dtd")
-            .addToCatalog("http://www.w3.org/TR/xhtml1/DTD/xhtml1-frameset.dtd", "/dtd/cmf/xhtml1-frameset.dtd")
-            .addToCatalog("http://www.w3.org/TR/xhtml1/DTD/xhtml-lat1.ent", "/dtd/cmf/xhtml-lat1.ent")
-            .addToCatalog("http://www.w3.org/TR/xhtml1/DTD/xhtml-symbol.ent", "/dtd/cmf/xhtml-symbol.ent")
-            .addToCatalog("http://www.w3.org/TR/xhtml1/DTD/xhtml-special.ent", "/dtd/cmf/xhtml-special.ent")
-            .restrictToCatalog(true);
-
-        public InputSource resolveEntity(String publicId, String systemId) {
-            return entityResolver_.resolveEntity(publicId, systemId);
+
+        public InputSource resolveEntity(String publicId, String systemId)
+        throws IOException {
+            return resolveCachedEntity(publicId, systemId);
         }
 
         public void warning(SAXParseException e) {
@@ -82,20 +217,7 @@ public class SAXLoader extends XhtmlContentLoaderBackend {
             try {
                 var inputsource = new InputSource(reader);
 
-                SAXParser parser = null;
-
-                try {
-                    parser = SAXParserFactory.newInstance().newSAXParser();
-                } catch (ParserConfigurationException | SAXException e) {
-                    throw new XmlErrorException(e);
-                }
-
-                try {
-                    parser.getXMLReader().setFeature("http://xml.org/sax/features/validation", true);
-                } catch (SAXException e) {
-                    throw new XmlErrorException("The parser '" + parser.getClass().getName() + "' doesn't support validation.", e);
-                }
-
+                var parser = obtainParser();
                 try {
                     parser.parse(inputsource, this);
                 } catch (SAXParseException e) {
@@ -112,6 +234,8 @@ public class SAXLoader extends XhtmlContentLoaderBackend {
                     }
                 } catch (IOException e) {
                     throw new XmlErrorException(e);
+                } finally {
+                    releaseParser(parser);
                 }
 
                 if (errors != null) {
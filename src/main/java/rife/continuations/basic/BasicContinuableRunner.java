@@ -7,7 +7,10 @@ package rife.continuations.basic;
 import rife.continuations.*;
 import rife.continuations.exceptions.*;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.UndeclaredThrowableException;
 
 /**
  * Basic implementation of a 'continuable runner' that will execute the
@@ -26,6 +29,19 @@ public class BasicContinuableRunner {
     private final Class[] entryMethodArgumentTypes_;
     private final ContinuationManager manager_;
     private final ThreadLocal<Object> currentContinuable_ = new ThreadLocal<>();
+    private final ClassValue<MethodHandle> entryMethodHandles_ = new ClassValue<>() {
+        protected MethodHandle computeValue(Class<?> type) {
+            try {
+                var method = type.getMethod(configInstrument_.getEntryMethodName(), entryMethodArgumentTypes_);
+                method.setAccessible(true);
+                return MethodHandles.lookup().unreflect(method);
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                // failed lookups are not cached, the exception is unwrapped
+                // by getEntryMethodHandle
+                throw new UndeclaredThrowableException(e);
+            }
+        }
+    };
 
     private volatile CallTargetRetriever callTargetRetriever_ = new ClassCallTargetRetriever();
     private volatile boolean cloneContinuations_ = true;
@@ -317,9 +333,36 @@ public class BasicContinuableRunner {
     throws Throwable {
         // lookup the method that will be used to execute the entrance of the continuable object
         beforeExecuteEntryMethodHook(object);
-        var method = object.getClass().getMethod(configInstrument_.getEntryMethodName(), entryMethodArgumentTypes_);
-        method.setAccessible(true);
-        method.invoke(object, (Object[]) null);
+        getEntryMethodHandle(object.getClass()).invoke(object);
+    }
+
+    /**
+     * Retrieves a method handle for the entry method of a continuable class.
+     * <p>The method is looked up only once for each class, the handle is
+     * cached by this runner for all later executions.
+     *
+     * @param klass the continuable class
+     * @return the method handle of the entry method, it takes the
+     * continuable instance as its first argument, followed by the entry
+     * method arguments
+     * @throws NoSuchMethodException  when the entry method couldn't be found
+     * @throws IllegalAccessException when the entry method couldn't be accessed
+     * @see #getEntryMethodArgumentTypes
+     * @since 1.9.2
+     */
+    public MethodHandle getEntryMethodHandle(Class<?> klass)
+    throws NoSuchMethodException, IllegalAccessException {
+        try {
+            return entryMethodHandles_.get(klass);
+        } catch (UndeclaredThrowableException e) {
+            if (e.getUndeclaredThrowable() instanceof NoSuchMethodException no_such_method) {
+                throw no_such_method;
+            }
+            if (e.getUndeclaredThrowable() instanceof IllegalAccessException illegal_access) {
+                throw illegal_access;
+            }
+            throw e;
+        }
     }
 
     /**
@@ -39,11 +39,32 @@ public class Context {
     public static final double DEFAULT_DOUBLE = 0.0d;
     public static final float DEFAULT_FLOAT = 0.0f;
 
+    /**
+     * Status code (206) indicating that the server has fulfilled the partial GET request for the resource.
+     *
+     * @since 1.9.2
+     */
+    public static final int SC_PARTIAL_CONTENT = 206;
+
     /**
      * Status code (304) indicating that a conditional GET operation found that the resource was available and not modified.
      */
     public static final int SC_NOT_MODIFIED = 304;
 
+    /**
+     * Status code (400) indicating that the request sent by the client was syntactically incorrect.
+     *
+     * @since 1.9.2
+     */
+    public static final int SC_BAD_REQUEST = 400;
+
+    /**
+     * Status code (416) indicating that the server cannot serve the requested byte range.
+     *
+     * @since 1.9.2
+     */
+    public static final int SC_REQUESTED_RANGE_NOT_SATISFIABLE = 416;
+
 
     /**
      * Status code (500) indicating an error inside the HTTP server which prevented it from fulfilling the request.
@@ -10,17 +10,23 @@ import rife.engine.Element;
 import rife.feed.Entry;
 import rife.feed.EntryProcessor;
 import rife.feed.EntryProvider;
+import rife.feed.Feed;
 import rife.template.Template;
 import rife.template.TemplateFactory;
 import rife.tools.ObjectUtils;
 
 import java.text.DateFormat;
+import java.util.UUID;
 
 import static rife.tools.StringUtils.encodeXml;
 
 /**
  * An <code>Element</code> that uses an <code>EntryProvider</code> to print
  * out a feed.
+ * <p>By default, the complete feed is built in memory before it's printed.
+ * For feeds with a lot of entries, the provider can be set to
+ * {@link #streaming(boolean) streaming}, each entry is then written to the
+ * response as soon as the <code>EntryProvider</code> sets it.
  *
  * @author Geert Bevin (gbevin[remove] at uwyn dot com)
  * @see rife.engine.Element
@@ -30,10 +36,16 @@ import static rife.tools.StringUtils.encodeXml;
  * @since 1.8.0
  */
 public class FeedProvider implements Element, EntryProcessor {
+    private static final int STREAMING_FLUSH_INTERVAL = 100;
+
     private final EntryProvider provider_;
     private final Template feedTemplate_;
     private final DateFormat dateFormat_;
     private boolean addedMediaNamespace_ = false;
+    private boolean streaming_ = false;
+
+    private Context streamingContext_ = null;
+    private int streamedEntries_ = 0;
 
     public enum FeedType {
         RSS_2_0,
@@ -60,44 +72,145 @@ public class FeedProvider implements Element, EntryProcessor {
         provider_ = provider;
     }
 
+    /**
+     * Indicates whether the feed should be streamed.
+     * <p>A streamed feed writes the start of the feed to the response, then
+     * every entry as soon as it's set, and finally the end of the feed.
+     * The memory use then doesn't grow with the number of entries. The
+     * response text buffer is disabled for this and the response is flushed
+     * regularly while the entries are written.
+     * <p>Since the start of the feed is written before any entry is known,
+     * the feed descriptor is retrieved before the entries are provided,
+     * and the media namespace is always declared by the XML feeds.
+     *
+     * @param streaming {@code true} if the feed should be streamed; or
+     *                  {@code false} if it should be built in memory
+     * @return this feed provider
+     * @see #setStreaming(boolean)
+     * @see #isStreaming()
+     * @since 1.9.2
+     */
+    public FeedProvider streaming(boolean streaming) {
+        setStreaming(streaming);
+
+        return this;
+    }
+
+    /**
+     * Indicates whether the feed should be streamed.
+     *
+     * @param streaming {@code true} if the feed should be streamed; or
+     *                  {@code false} if it should be built in memory
+     * @see #streaming(boolean)
+     * @see #isStreaming()
+     * @since 1.9.2
+     */
+    public void setStreaming(boolean streaming) {
+        streaming_ = streaming;
+    }
+
+    /**
+     * Retrieves whether the feed is streamed.
+     *
+     * @return {@code true} if the feed is streamed; or
+     * <p>{@code false} if it's built in memory
+     * @see #streaming(boolean)
+     * @see #setStreaming(boolean)
+     * @since 1.9.2
+     */
+    public boolean isStreaming() {
+        return streaming_;
+    }
+
     public void process(Context c) {
+        if (streaming_ && provider_ != null) {
+            processStreaming(c);
+            return;
+        }
+
         if (provider_ != null) {
             provider_.provideEntries(c, this);
 
-            var feed = provider_.getFeedDescriptor(c);
-            feedTemplate_.setBean(feed, "feed_");
-            if (feedTemplate_.hasValueId("feed_link_self")) {
-                feedTemplate_.setValueEncoded("feed_link_self", c.urlFor(c.route()));
-            }
+            setFeed(c, provider_.getFeedDescriptor(c));
+        }
 
-            if (feedTemplate_.hasValueId("feed_category_section") &&
-                feed.getCategories() != null &&
-                !feed.getCategories().isEmpty()) {
-                for (var category : feed.getCategories()) {
-                    feedTemplate_.setValueEncoded("feed_category", category);
-                    feedTemplate_.appendBlock("feed_category_section", "feed_category");
-                }
-            }
+        c.print(feedTemplate_);
+    }
+
+    private void processStreaming(Context c) {
+        setFeed(c, provider_.getFeedDescriptor(c));
+        if (!addedMediaNamespace_ && feedTemplate_.hasBlock("media_namespace")) {
+            feedTemplate_.appendBlock("namespaces", "media_namespace");
+            addedMediaNamespace_ = true;
+        }
+
+        // render the feed around a marker to obtain the text that comes
+        // before and after the entries
+        var marker = UUID.randomUUID().toString();
+        feedTemplate_.setValue("entries", marker);
+        var feed = feedTemplate_.getContent();
+        var marker_index = feed.indexOf(marker);
 
-            if (feedTemplate_.hasValueId("feed_publishedDate")) {
-                feedTemplate_.setValue("feed_publishedDate", dateFormat_.format(feed.getPublishedDate()));
+        if (!c.response().isContentTypeSet()) {
+            var content_type = feedTemplate_.getDefaultContentType();
+            if (null == content_type) {
+                content_type = RifeConfig.engine().getDefaultContentType();
             }
+            c.setContentType(content_type);
+        }
+        c.enableTextBuffer(false);
 
-            if (feed.getNamespaces() != null) {
-                for (var entry : feed.getNamespaces().entrySet()) {
-                    feedTemplate_.setValue("namespace_key", encodeXml(entry.getKey()));
-                    feedTemplate_.setValue("namespace_url", encodeXml(entry.getValue()));
+        c.print(feed.substring(0, marker_index));
+        c.flush();
 
-                    feedTemplate_.appendBlock("namespaces", "namespace");
-                }
+        streamingContext_ = c;
+        streamedEntries_ = 0;
+        try {
+            provider_.provideEntries(c, this);
+        } finally {
+            streamingContext_ = null;
+        }
+
+        c.print(feed.substring(marker_index + marker.length()));
+        c.flush();
+    }
+
+    private void setFeed(Context c, Feed feed) {
+        feedTemplate_.setBean(feed, "feed_");
+        if (feedTemplate_.hasValueId("feed_link_self")) {
+            feedTemplate_.setValueEncoded("feed_link_self", c.urlFor(c.route()));
+        }
+
+        if (feedTemplate_.hasValueId("feed_category_section") &&
+            feed.getCategories() != null &&
+            !feed.getCategories().isEmpty()) {
+            for (var category : feed.getCategories()) {
+                feedTemplate_.setValueEncoded("feed_category", category);
+                feedTemplate_.appendBlock("feed_category_section", "feed_category");
             }
         }
 
-        c.print(feedTemplate_);
+        if (feedTemplate_.hasValueId("feed_publishedDate")) {
+            feedTemplate_.setValue("feed_publishedDate", dateFormat_.format(feed.getPublishedDate()));
+        }
+
+        if (feed.getNamespaces() != null) {
+            for (var entry : feed.getNamespaces().entrySet()) {
+                feedTemplate_.setValue("namespace_key", encodeXml(entry.getKey()));
+                feedTemplate_.setValue("namespace_url", encodeXml(entry.getValue()));
+
+                feedTemplate_.appendBlock("namespaces", "namespace");
+            }
+        }
     }
 
     public void setEntry(Entry entry) {
-        if (!feedTemplate_.getValue("entries").isEmpty()) {
+        var streaming_context = streamingContext_;
+        if (streaming_context != null) {
+            if (streamedEntries_ > 0) {
+                streaming_context.print(feedTemplate_.getBlock("entry_separator"));
+            }
+        } else if (!feedTemplate_.getValue("entries").isEmpty()) {
             feedTemplate_.appendBlock("entries", "entry_separator");
         }
 
@@ -139,6 +252,13 @@ public class FeedProvider implements Element, EntryProcessor {
             }
         }
 
-        feedTemplate_.appendBlock("entries", "entry");
+        if (streaming_context != null) {
+            streaming_context.print(feedTemplate_.getBlock("entry"));
+            if (++streamedEntries_ % STREAMING_FLUSH_INTERVAL == 0) {
+                streaming_context.flush();
+            }
+        } else {
+            feedTemplate_.appendBlock("entries", "entry");
+        }
     }
 }
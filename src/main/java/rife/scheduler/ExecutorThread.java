@@ -20,16 +20,40 @@ class ExecutorThread implements Runnable {
         assert task_ != null;
 
         var successful_execution = false;
-        var manager = executor_.getScheduler().getTaskManager();
+        var scheduler = executor_.getScheduler();
+        var manager = scheduler.getTaskManager();
 
+        var lateness = 0L;
+        if (task_.getPlanned() > 0) {
+            lateness = System.currentTimeMillis() - task_.getPlanned();
+        }
+        final var task_lateness = lateness;
+        scheduler.notifyListeners(listener -> listener.taskStarted(task_, task_lateness));
+
+        var start = System.nanoTime();
+        Throwable failure = null;
         try {
             manager.activateTask(task_.getId());
             successful_execution = executor_.executeTask(task_);
         } catch (TaskManagerException ignored) {
+        } catch (Throwable e) {
+            failure = e;
+            throw e;
         } finally {
+            final var duration = System.nanoTime() - start;
+            final var task_failure = failure;
+            final var task_successful = successful_execution;
+            if (task_failure != null) {
+                scheduler.notifyListeners(listener -> listener.taskFailed(task_, task_failure, duration));
+            } else {
+                scheduler.notifyListeners(listener -> listener.taskExecuted(task_, task_successful, duration));
+            }
+
             try {
                 if (!successful_execution) {
-                    manager.rescheduleTask(task_, executor_.getRescheduleDelay(), null);
+                    var delay = executor_.getRescheduleDelay();
+                    manager.rescheduleTask(task_, delay, null);
+                    scheduler.notifyListeners(listener -> listener.taskRescheduled(task_, delay));
                 }
                 manager.concludeTask(task_);
             } catch (TaskManagerException e) {
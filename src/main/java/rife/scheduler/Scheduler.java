@@ -8,8 +8,12 @@ import rife.config.RifeConfig;
 import rife.scheduler.exceptions.*;
 import rife.scheduler.schedulermanagers.DatabaseScheduling;
 import rife.scheduler.schedulermanagers.MemoryScheduling;
+import rife.tools.ExceptionUtils;
 
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
 
 /**
  * The {@code Scheduler} class performs the actual task scheduling and dispatch to
@@ -32,6 +36,7 @@ public class Scheduler implements Runnable {
     private TaskOptionManager taskOptionManager_ = null;
     private int sleepTime_ = DEFAULT_SLEEP_TIME;
     private final HashMap<Object, Executor> executors_;
+    private final Set<SchedulerListener> listeners_ = new CopyOnWriteArraySet<>();
 
     /**
      * Creates a new scheduler instance for the provided task manager and task option manager.
@@ -193,6 +198,48 @@ public class Scheduler implements Runnable {
         return Collections.unmodifiableCollection(executors_.values());
     }
 
+    /**
+     * Adds a new scheduler listener.
+     *
+     * @param listener the scheduler listener that will be added
+     * @see #removeListener
+     * @see SchedulerMetrics
+     * @since 1.9.2
+     */
+    public void addListener(SchedulerListener listener) {
+        if (null == listener) {
+            return;
+        }
+
+        listeners_.add(listener);
+    }
+
+    /**
+     * Removes a scheduler listener.
+     *
+     * @param listener the scheduler listener that will be removed
+     * @see #addListener
+     * @since 1.9.2
+     */
+    public void removeListener(SchedulerListener listener) {
+        if (null == listener) {
+            return;
+        }
+
+        listeners_.remove(listener);
+    }
+
+    void notifyListeners(Consumer<SchedulerListener> notification) {
+        for (var listener : listeners_) {
+            try {
+                notification.accept(listener);
+            } catch (RuntimeException e) {
+                // a misbehaving listener should never interrupt the scheduling
+                Logger.getLogger("rife.scheduler").warning(ExceptionUtils.getExceptionStackTrace(e));
+            }
+        }
+    }
+
     /**
      * Set the time the schedule should sleep in between evaluating which tasks
      * to execute.
@@ -300,8 +347,21 @@ public class Scheduler implements Runnable {
         assert taskManager_ != null;
 
         try {
+            var start = System.nanoTime();
+            var tasks = taskManager_.getTasksToProcess();
+            var duration = System.nanoTime() - start;
+            notifyListeners(listener -> listener.tasksRetrieved(this, tasks, duration));
+
+            if (!tasks.isEmpty() && taskOptionManager_ != null) {
+                try {
+                    taskOptionManager_.loadTaskOptions(tasks);
+                } catch (TaskOptionManagerException ignored) {
+                    // the task options will be retrieved individually instead
+                }
+            }
+
             Executor executor = null;
-            for (var task : taskManager_.getTasksToProcess()) {
+            for (var task : tasks) {
                 if (task.getPlanned() == 0 && task.getFrequency() != null) {
                     // if no explicit planned date was set and a task frequency was set,
                     // only process the task the first time the frequency determines that it should
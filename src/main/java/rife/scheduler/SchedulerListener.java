@@ -0,0 +1,79 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.scheduler;
+
+import java.util.Collection;
+
+/**
+ * This interface allows classes to register themselves to receive
+ * notifications about the activity of a {@link Scheduler}.
+ * <p>
+ * Scheduler listeners have to be registered through
+ * {@link Scheduler#addListener}. All the methods are optional and
+ * are called from the scheduler and executor threads, implementations
+ * should thus be thread-safe and return quickly.
+ *
+ * @author Geert Bevin (gbevin[remove] at uwyn dot com)
+ * @see SchedulerMetrics
+ * @since 1.9.2
+ */
+public interface SchedulerListener {
+    /**
+     * Called after the scheduler retrieved the tasks that need to be
+     * processed.
+     *
+     * @param scheduler      the scheduler that retrieved the tasks
+     * @param tasks          the tasks that will be processed
+     * @param durationNanos  the time that was spent retrieving the tasks, in nanoseconds
+     * @since 1.9.2
+     */
+    default void tasksRetrieved(Scheduler scheduler, Collection<Task> tasks, long durationNanos) {
+    }
+
+    /**
+     * Called when the execution of a task starts.
+     *
+     * @param task     the task that starts executing
+     * @param lateness the time in milliseconds between the planned time
+     *                 of the task and the actual start of the execution
+     * @since 1.9.2
+     */
+    default void taskStarted(Task task, long lateness) {
+    }
+
+    /**
+     * Called when the executor returned from the execution of a task.
+     *
+     * @param task          the task that was executed
+     * @param successful    {@code true} if the executor reported success; or
+     *                      {@code false} if the task will be rescheduled
+     * @param durationNanos the duration of the execution, in nanoseconds
+     * @since 1.9.2
+     */
+    default void taskExecuted(Task task, boolean successful, long durationNanos) {
+    }
+
+    /**
+     * Called when the executor threw an exception during the execution of a task.
+     *
+     * @param task          the task that failed
+     * @param exception     the exception that was thrown
+     * @param durationNanos the duration of the execution, in nanoseconds
+     * @since 1.9.2
+     */
+    default void taskFailed(Task task, Throwable exception, long durationNanos) {
+    }
+
+    /**
+     * Called when a task was rescheduled after an unsuccessful execution.
+     *
+     * @param task  the task that was rescheduled
+     * @param delay the delay in milliseconds after which the task will be
+     *              executed again
+     * @since 1.9.2
+     */
+    default void taskRescheduled(Task task, long delay) {
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.scheduler;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Scheduler listener that collects throughput and latency metrics for
+ * each task type.
+ * <p>
+ * This makes it possible to size executors and to detect when a scheduler
+ * lags behind, for instance:
+ * <pre>
+ * var metrics = new SchedulerMetrics();
+ * scheduler.addListener(metrics);
+ * // ...
+ * var upload = metrics.getTaskTypeMetrics("upload");
+ * upload.getAverageLateness();
+ * upload.getDurationHistogram();
+ * </pre>
+ *
+ * @author Geert Bevin (gbevin[remove] at uwyn dot com)
+ * @since 1.9.2
+ */
+public class SchedulerMetrics implements SchedulerListener {
+    private final Map<String, TaskTypeMetrics> taskTypes_ = new ConcurrentHashMap<>();
+    private final LongAdder retrievals_ = new LongAdder();
+    private final LongAdder totalRetrievalNanos_ = new LongAdder();
+    private final AtomicLong lastRetrievalNanos_ = new AtomicLong();
+    private final AtomicLong maximumRetrievalNanos_ = new AtomicLong();
+
+    public void tasksRetrieved(Scheduler scheduler, Collection<Task> tasks, long durationNanos) {
+        retrievals_.increment();
+        totalRetrievalNanos_.add(durationNanos);
+        lastRetrievalNanos_.set(durationNanos);
+        maximumRetrievalNanos_.accumulateAndGet(durationNanos, Math::max);
+
+        var pending = new HashMap<String, Long>();
+        for (var task : tasks) {
+            pending.merge(task.getType(), 1L, Long::sum);
+        }
+        for (var metrics : taskTypes_.values()) {
+            if (!pending.containsKey(metrics.getType())) {
+                metrics.pending(0);
+            }
+        }
+        for (var entry : pending.entrySet()) {
+            obtainTaskTypeMetrics(entry.getKey()).pending(entry.getValue());
+        }
+    }
+
+    public void taskStarted(Task task, long lateness) {
+        obtainTaskTypeMetrics(task.getType()).started(lateness);
+    }
+
+    public void taskExecuted(Task task, boolean successful, long durationNanos) {
+        obtainTaskTypeMetrics(task.getType()).executed(successful, durationNanos);
+    }
+
+    public void taskFailed(Task task, Throwable exception, long durationNanos) {
+        obtainTaskTypeMetrics(task.getType()).failed(durationNanos);
+    }
+
+    public void taskRescheduled(Task task, long delay) {
+        obtainTaskTypeMetrics(task.getType()).rescheduled();
+    }
+
+    private TaskTypeMetrics obtainTaskTypeMetrics(String type) {
+        return taskTypes_.computeIfAbsent(type, TaskTypeMetrics::new);
+    }
+
+    /**
+     * Retrieves the task types for which metrics have been collected.
+     *
+     * @return the collected task types
+     * @since 1.9.2
+     */
+    public Set<String> getTaskTypes() {
+        return Collections.unmodifiableSet(taskTypes_.keySet());
+    }
+
+    /**
+     * Retrieves the metrics of a particular task type.
+     *
+     * @param type the task type to retrieve the metrics for
+     * @return the task type metrics; or
+     * {@code null} if no metrics have been collected for this task type
+     * @since 1.9.2
+     */
+    public TaskTypeMetrics getTaskTypeMetrics(String type) {
+        if (null == type) throw new IllegalArgumentException("type can't be null.");
+
+        return taskTypes_.get(type);
+    }
+
+    /**
+     * Retrieves the number of times the scheduler retrieved the tasks to process.
+     *
+     * @return the number of task retrievals
+     * @since 1.9.2
+     */
+    public long getRetrievalCount() {
+        return retrievals_.sum();
+    }
+
+    /**
+     * Retrieves the average time that was spent retrieving the tasks to process.
+     *
+     * @return the average retrieval duration in milliseconds
+     * @since 1.9.2
+     */
+    public double getAverageRetrievalDuration() {
+        var retrievals = retrievals_.sum();
+        if (0 == retrievals) {
+            return 0;
+        }
+        return totalRetrievalNanos_.sum() / 1000000.0 / retrievals;
+    }
+
+    /**
+     * Retrieves the time that was spent the last time the tasks to process
+     * were retrieved.
+     *
+     * @return the last retrieval duration in milliseconds
+     * @since 1.9.2
+     */
+    public double getLastRetrievalDuration() {
+        return lastRetrievalNanos_.get() / 1000000.0;
+    }
+
+    /**
+     * Retrieves the longest time that was spent retrieving the tasks to process.
+     *
+     * @return the maximum retrieval duration in milliseconds
+     * @since 1.9.2
+     */
+    public double getMaximumRetrievalDuration() {
+        return maximumRetrievalNanos_.get() / 1000000.0;
+    }
+}
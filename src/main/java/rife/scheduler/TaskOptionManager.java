@@ -115,4 +115,21 @@ public interface TaskOptionManager {
      */
     boolean removeTaskOption(int taskId, String name)
     throws TaskOptionManagerException;
+
+    /**
+     * Loads all the task options of a collection of tasks at once.
+     * <p>
+     * This is called by the scheduler for the tasks that it's about to
+     * process, allowing task option managers to retrieve the options of
+     * all these tasks together instead of one by one during task execution.
+     * <p>
+     * By default, this doesn't do anything.
+     *
+     * @param tasks the tasks whose options should be loaded
+     * @throws TaskOptionManagerException when an error occurred during the task options loading
+     * @since 1.9.2
+     */
+    default void loadTaskOptions(Collection<Task> tasks)
+    throws TaskOptionManagerException {
+    }
 }
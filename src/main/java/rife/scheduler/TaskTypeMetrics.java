@@ -0,0 +1,239 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.scheduler;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contains the metrics that a {@link SchedulerMetrics} instance collected
+ * for a single task type.
+ * <p>
+ * All the values are updated live and can be read at any time.
+ *
+ * @author Geert Bevin (gbevin[remove] at uwyn dot com)
+ * @since 1.9.2
+ */
+public class TaskTypeMetrics {
+    /**
+     * The upper bounds in milliseconds of the execution duration histogram
+     * buckets, the last bucket contains all the longer durations.
+     *
+     * @since 1.9.2
+     */
+    public static final long[] DURATION_BUCKETS = {1, 5, 10, 50, 100, 500, 1000, 5000, 10000, 60000};
+
+    private final String type_;
+    private final LongAdder started_ = new LongAdder();
+    private final LongAdder successful_ = new LongAdder();
+    private final LongAdder unsuccessful_ = new LongAdder();
+    private final LongAdder failed_ = new LongAdder();
+    private final LongAdder rescheduled_ = new LongAdder();
+    private final AtomicLong running_ = new AtomicLong();
+    private final AtomicLong pending_ = new AtomicLong();
+    private final LongAdder totalLateness_ = new LongAdder();
+    private final AtomicLong maximumLateness_ = new AtomicLong();
+    private final LongAdder totalDurationNanos_ = new LongAdder();
+    private final AtomicLong maximumDurationNanos_ = new AtomicLong();
+    private final AtomicLongArray durationHistogram_ = new AtomicLongArray(DURATION_BUCKETS.length + 1);
+
+    TaskTypeMetrics(String type) {
+        type_ = type;
+    }
+
+    void started(long lateness) {
+        started_.increment();
+        running_.incrementAndGet();
+        lateness = Math.max(0, lateness);
+        totalLateness_.add(lateness);
+        maximumLateness_.accumulateAndGet(lateness, Math::max);
+    }
+
+    void finished(long durationNanos) {
+        running_.decrementAndGet();
+        totalDurationNanos_.add(durationNanos);
+        maximumDurationNanos_.accumulateAndGet(durationNanos, Math::max);
+
+        var duration_millis = durationNanos / 1000000L;
+        var bucket = 0;
+        while (bucket < DURATION_BUCKETS.length && duration_millis > DURATION_BUCKETS[bucket]) {
+            bucket++;
+        }
+        durationHistogram_.incrementAndGet(bucket);
+    }
+
+    void executed(boolean successful, long durationNanos) {
+        finished(durationNanos);
+        if (successful) {
+            successful_.increment();
+        } else {
+            unsuccessful_.increment();
+        }
+    }
+
+    void failed(long durationNanos) {
+        finished(durationNanos);
+        failed_.increment();
+    }
+
+    void rescheduled() {
+        rescheduled_.increment();
+    }
+
+    void pending(long count) {
+        pending_.set(count);
+    }
+
+    /**
+     * Retrieves the task type of these metrics.
+     *
+     * @return the task type
+     * @since 1.9.2
+     */
+    public String getType() {
+        return type_;
+    }
+
+    /**
+     * Retrieves the number of task executions that were started.
+     *
+     * @return the number of started executions
+     * @since 1.9.2
+     */
+    public long getStartedCount() {
+        return started_.sum();
+    }
+
+    /**
+     * Retrieves the number of task executions that reported success.
+     *
+     * @return the number of successful executions
+     * @since 1.9.2
+     */
+    public long getSuccessfulCount() {
+        return successful_.sum();
+    }
+
+    /**
+     * Retrieves the number of task executions that returned {@code false}.
+     *
+     * @return the number of unsuccessful executions
+     * @since 1.9.2
+     */
+    public long getUnsuccessfulCount() {
+        return unsuccessful_.sum();
+    }
+
+    /**
+     * Retrieves the number of task executions that threw an exception.
+     *
+     * @return the number of failed executions
+     * @since 1.9.2
+     */
+    public long getFailedCount() {
+        return failed_.sum();
+    }
+
+    /**
+     * Retrieves the number of times tasks were rescheduled after an
+     * unsuccessful or failed execution.
+     *
+     * @return the number of reschedules
+     * @since 1.9.2
+     */
+    public long getRescheduledCount() {
+        return rescheduled_.sum();
+    }
+
+    /**
+     * Retrieves the number of tasks that are currently executing.
+     *
+     * @return the number of running executions
+     * @since 1.9.2
+     */
+    public long getRunningCount() {
+        return running_.get();
+    }
+
+    /**
+     * Retrieves the number of tasks that were due to be processed the last
+     * time the scheduler retrieved its tasks.
+     *
+     * @return the queue depth of the last scheduler step
+     * @since 1.9.2
+     */
+    public long getPendingCount() {
+        return pending_.get();
+    }
+
+    /**
+     * Retrieves the average time in milliseconds between the planned time
+     * of tasks and the start of their execution.
+     *
+     * @return the average lateness in milliseconds
+     * @since 1.9.2
+     */
+    public double getAverageLateness() {
+        var started = started_.sum();
+        if (0 == started) {
+            return 0;
+        }
+        return (double) totalLateness_.sum() / started;
+    }
+
+    /**
+     * Retrieves the longest time in milliseconds between the planned time
+     * of a task and the start of its execution.
+     *
+     * @return the maximum lateness in milliseconds
+     * @since 1.9.2
+     */
+    public long getMaximumLateness() {
+        return maximumLateness_.get();
+    }
+
+    /**
+     * Retrieves the average execution duration of tasks.
+     *
+     * @return the average duration in milliseconds
+     * @since 1.9.2
+     */
+    public double getAverageDuration() {
+        var finished = successful_.sum() + unsuccessful_.sum() + failed_.sum();
+        if (0 == finished) {
+            return 0;
+        }
+        return totalDurationNanos_.sum() / 1000000.0 / finished;
+    }
+
+    /**
+     * Retrieves the longest execution duration of a task.
+     *
+     * @return the maximum duration in milliseconds
+     * @since 1.9.2
+     */
+    public double getMaximumDuration() {
+        return maximumDurationNanos_.get() / 1000000.0;
+    }
+
+    /**
+     * Retrieves the histogram of the execution durations.
+     * <p>
+     * Each entry contains the number of executions with a duration up to the
+     * corresponding bound of {@link #DURATION_BUCKETS}, the additional last
+     * entry contains the number of longer executions.
+     *
+     * @return the execution duration histogram
+     * @since 1.9.2
+     */
+    public long[] getDurationHistogram() {
+        var result = new long[durationHistogram_.length()];
+        for (var i = 0; i < result.length; i++) {
+            result[i] = durationHistogram_.get(i);
+        }
+        return result;
+    }
+}
@@ -6,6 +6,9 @@ package rife.scheduler.schedulermanagers;
 
 import rife.database.Datasource;
 import rife.database.DbQueryManager;
+import rife.database.exceptions.DatabaseException;
+import rife.database.queries.CreateTable;
+import rife.database.queries.DropTable;
 import rife.scheduler.Scheduler;
 import rife.scheduler.SchedulerFactory;
 import rife.scheduler.exceptions.SchedulerException;
@@ -15,6 +18,8 @@ import rife.scheduler.schedulermanagers.exceptions.RemoveSchedulerErrorException
 import rife.scheduler.taskmanagers.DatabaseTasksFactory;
 import rife.scheduler.taskoptionmanagers.DatabaseTaskOptionsFactory;
 
+import java.util.Collection;
+
 public abstract class DatabaseScheduling extends DbQueryManager implements SchedulerFactory {
     protected DatabaseScheduling(Datasource datasource) {
         super(datasource);
@@ -24,12 +29,60 @@ public abstract class DatabaseScheduling extends DbQueryManager implements Sched
         return new Scheduler(DatabaseTasksFactory.instance(getDatasource()), DatabaseTaskOptionsFactory.instance(getDatasource()));
     }
 
+    /**
+     * Creates a scheduler that only processes the tasks of the partitions
+     * that are claimed by a particular node.
+     * <p>
+     * Tasks are distributed over a fixed number of partitions according to
+     * their unique ID. Each scheduler node claims a fair share of these
+     * partitions through leases that are stored in the database and renewed
+     * at every scheduling step. When nodes join or leave, the partitions are
+     * rebalanced automatically over the active nodes.
+     * <p>
+     * All the nodes that share the same database need to use the same number
+     * of partitions and a unique node ID.
+     *
+     * @param nodeId         the unique ID of this scheduler node
+     * @param partitionCount the total number of partitions
+     * @return the partitioned scheduler
+     * @see PartitionedTasks
+     * @since 1.9.2
+     */
+    public Scheduler createPartitionedScheduler(String nodeId, int partitionCount) {
+        return new Scheduler(new PartitionedTasks(this, DatabaseTasksFactory.instance(getDatasource()), nodeId, partitionCount), DatabaseTaskOptionsFactory.instance(getDatasource()));
+    }
+
     public abstract boolean install()
     throws SchedulerManagerException;
 
     public abstract boolean remove()
     throws SchedulerManagerException;
 
+    /**
+     * Renews the partition leases of a node and claims or releases partitions
+     * so that the node holds its fair share amongst all the active nodes.
+     *
+     * @param nodeId         the unique ID of the node
+     * @param partitionCount the total number of partitions
+     * @param leaseDuration  the duration in milliseconds of the leases
+     * @return the partitions that are currently held by the node
+     * @throws SchedulerManagerException when an error occurred while claiming the partitions
+     * @since 1.9.2
+     */
+    public abstract Collection<Integer> claimPartitions(String nodeId, int partitionCount, long leaseDuration)
+    throws SchedulerManagerException;
+
+    /**
+     * Releases all the partitions that are held by a node, making them
+     * immediately available to the other nodes.
+     *
+     * @param nodeId the unique ID of the node
+     * @throws SchedulerManagerException when an error occurred while releasing the partitions
+     * @since 1.9.2
+     */
+    public abstract void releasePartitions(String nodeId)
+    throws SchedulerManagerException;
+
     protected boolean install_()
     throws SchedulerManagerException {
         try {
@@ -45,6 +98,38 @@ public abstract class DatabaseScheduling extends DbQueryManager implements Sched
         return true;
     }
 
+    protected boolean install_(CreateTable createTableNode, CreateTable createTablePartition)
+    throws SchedulerManagerException {
+        assert createTableNode != null;
+        assert createTablePartition != null;
+
+        install_();
+
+        try {
+            executeUpdate(createTableNode);
+            executeUpdate(createTablePartition);
+        } catch (DatabaseException e) {
+            throw new InstallSchedulerErrorException(e);
+        }
+
+        return true;
+    }
+
+    protected boolean remove_(DropTable dropTableNode, DropTable dropTablePartition)
+    throws SchedulerManagerException {
+        assert dropTableNode != null;
+        assert dropTablePartition != null;
+
+        try {
+            executeUpdate(dropTablePartition);
+            executeUpdate(dropTableNode);
+        } catch (DatabaseException e) {
+            throw new RemoveSchedulerErrorException(e);
+        }
+
+        return remove_();
+    }
+
     protected boolean remove_()
     throws SchedulerManagerException {
         try {
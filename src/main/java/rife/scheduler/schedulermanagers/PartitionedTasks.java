@@ -0,0 +1,192 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.scheduler.schedulermanagers;
+
+import rife.scheduler.*;
+import rife.scheduler.exceptions.SchedulerManagerException;
+import rife.scheduler.exceptions.TaskManagerException;
+import rife.scheduler.taskmanagers.DatabaseTasks;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Task manager that restricts the tasks that are processed by a scheduler
+ * to the partitions that its node claimed through {@link DatabaseScheduling}.
+ * <p>
+ * All the other operations are delegated to the regular database task
+ * manager, tasks can thus be added and managed from any node.
+ * <p>
+ * Instances of this class are obtained through
+ * {@link DatabaseScheduling#createPartitionedScheduler}.
+ *
+ * @author Geert Bevin (gbevin[remove] at uwyn dot com)
+ * @since 1.9.2
+ */
+public class PartitionedTasks implements TaskManager {
+    public static final long DEFAULT_LEASE_DURATION = 3L * Scheduler.DEFAULT_SLEEP_TIME;
+
+    private final DatabaseScheduling scheduling_;
+    private final DatabaseTasks tasks_;
+    private final String nodeId_;
+    private final int partitionCount_;
+    private long leaseDuration_ = DEFAULT_LEASE_DURATION;
+    private volatile Collection<Integer> partitions_ = List.of();
+
+    PartitionedTasks(DatabaseScheduling scheduling, DatabaseTasks tasks, String nodeId, int partitionCount) {
+        if (null == nodeId) throw new IllegalArgumentException("nodeId can't be null.");
+        if (nodeId.isEmpty()) throw new IllegalArgumentException("nodeId can't be empty.");
+        if (partitionCount <= 0) throw new IllegalArgumentException("partitionCount has to be bigger than 0.");
+
+        scheduling_ = scheduling;
+        tasks_ = tasks;
+        nodeId_ = nodeId;
+        partitionCount_ = partitionCount;
+    }
+
+    /**
+     * Retrieves the unique ID of the node of this task manager.
+     *
+     * @return this node's ID
+     * @since 1.9.2
+     */
+    public String getNodeId() {
+        return nodeId_;
+    }
+
+    /**
+     * Retrieves the total number of partitions.
+     *
+     * @return the number of partitions
+     * @since 1.9.2
+     */
+    public int getPartitionCount() {
+        return partitionCount_;
+    }
+
+    /**
+     * Sets the duration of the partition leases.
+     * <p>
+     * Leases are renewed every time the scheduler retrieves the tasks to
+     * process, this duration thus has to be comfortably longer than the
+     * sleep time of the scheduler. The partitions of a node that stops
+     * renewing its leases become available to the other nodes when the
+     * leases expire.
+     * <p>
+     * This defaults to three times the default scheduler sleep time.
+     *
+     * @param leaseDuration the lease duration in milliseconds
+     * @since 1.9.2
+     */
+    public void setLeaseDuration(long leaseDuration) {
+        if (leaseDuration <= 0) throw new IllegalArgumentException("leaseDuration has to be bigger than 0.");
+
+        leaseDuration_ = leaseDuration;
+    }
+
+    /**
+     * Retrieves the duration of the partition leases.
+     *
+     * @return the lease duration in milliseconds
+     * @since 1.9.2
+     */
+    public long getLeaseDuration() {
+        return leaseDuration_;
+    }
+
+    /**
+     * Retrieves the partitions that this node held the last time the tasks
+     * to process were retrieved.
+     *
+     * @return the partitions of this node
+     * @since 1.9.2
+     */
+    public Collection<Integer> getPartitions() {
+        return partitions_;
+    }
+
+    /**
+     * Releases all the partitions of this node, this should be called after
+     * stopping the scheduler to let the other nodes take over immediately.
+     *
+     * @throws SchedulerManagerException when an error occurred while releasing the partitions
+     * @since 1.9.2
+     */
+    public void releasePartitions()
+    throws SchedulerManagerException {
+        partitions_ = List.of();
+        scheduling_.releasePartitions(nodeId_);
+    }
+
+    public void setScheduler(Scheduler scheduler) {
+        tasks_.setScheduler(scheduler);
+    }
+
+    public Scheduler getScheduler() {
+        return tasks_.getScheduler();
+    }
+
+    public int addTask(Task task)
+    throws TaskManagerException {
+        return tasks_.addTask(task);
+    }
+
+    public boolean updateTask(Task task)
+    throws TaskManagerException {
+        return tasks_.updateTask(task);
+    }
+
+    public Task getTask(int id)
+    throws TaskManagerException {
+        return tasks_.getTask(id);
+    }
+
+    public boolean removeTask(int id)
+    throws TaskManagerException {
+        return tasks_.removeTask(id);
+    }
+
+    public Collection<Task> getAllTasks()
+    throws TaskManagerException {
+        return tasks_.getAllTasks();
+    }
+
+    public Collection<Task> getTasksToProcess()
+    throws TaskManagerException {
+        partitions_ = scheduling_.claimPartitions(nodeId_, partitionCount_, leaseDuration_);
+
+        if (partitions_.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        return tasks_.getTasksToProcess(partitions_, partitionCount_);
+    }
+
+    public Collection<Task> getScheduledTasks()
+    throws TaskManagerException {
+        return tasks_.getScheduledTasks();
+    }
+
+    public boolean rescheduleTask(Task task, long planned, Frequency frequency)
+    throws TaskManagerException {
+        return tasks_.rescheduleTask(task, planned, frequency);
+    }
+
+    public boolean activateTask(int id)
+    throws TaskManagerException {
+        return tasks_.activateTask(id);
+    }
+
+    public boolean deactivateTask(int id)
+    throws TaskManagerException {
+        return tasks_.deactivateTask(id);
+    }
+
+    public boolean concludeTask(Task task)
+    throws TaskManagerException {
+        return tasks_.concludeTask(task);
+    }
+}
@@ -4,22 +4,260 @@
  */
 package rife.scheduler.schedulermanagers.databasedrivers;
 
+import rife.config.RifeConfig;
 import rife.database.Datasource;
+import rife.database.DbRowProcessor;
+import rife.database.exceptions.DatabaseException;
+import rife.database.queries.*;
 import rife.scheduler.exceptions.SchedulerManagerException;
 import rife.scheduler.schedulermanagers.DatabaseScheduling;
+import rife.scheduler.schedulermanagers.exceptions.ClaimPartitionsErrorException;
+import rife.scheduler.schedulermanagers.exceptions.ReleasePartitionsErrorException;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.*;
 
 public class generic extends DatabaseScheduling {
+    protected CreateTable createTableNode_ = null;
+    protected CreateTable createTablePartition_ = null;
+    protected DropTable dropTableNode_ = null;
+    protected DropTable dropTablePartition_ = null;
+    protected Update renewNode_ = null;
+    protected Insert addNode_ = null;
+    protected Delete removeNode_ = null;
+    protected Delete removeExpiredNodes_ = null;
+    protected Select getNodes_ = null;
+    protected Select getPartitions_ = null;
+    protected Insert addPartition_ = null;
+    protected Update renewPartitions_ = null;
+    protected Update claimPartition_ = null;
+    protected Update releasePartition_ = null;
+    protected Update releasePartitions_ = null;
+
     public generic(Datasource datasource) {
         super(datasource);
+
+        createTableNode_ = new CreateTable(getDatasource())
+            .table(RifeConfig.scheduler().getTableTask() + "Node")
+            .column("nodeId", String.class, 255, CreateTable.NOTNULL)
+            .column("expiration", long.class, CreateTable.NOTNULL)
+            .primaryKey(RifeConfig.scheduler().getTableTask().toUpperCase() + "NODE_PK", "nodeId");
+
+        createTablePartition_ = new CreateTable(getDatasource())
+            .table(RifeConfig.scheduler().getTableTask() + "Partition")
+            .column("partitionId", int.class, CreateTable.NOTNULL)
+            .column("nodeId", String.class, 255, CreateTable.NULL)
+            .column("expiration", long.class, CreateTable.NOTNULL)
+            .primaryKey(RifeConfig.scheduler().getTableTask().toUpperCase() + "PARTITION_PK", "partitionId");
+
+        dropTableNode_ = new DropTable(getDatasource())
+            .table(createTableNode_.getTable());
+
+        dropTablePartition_ = new DropTable(getDatasource())
+            .table(createTablePartition_.getTable());
+
+        renewNode_ = new Update(getDatasource())
+            .table(createTableNode_.getTable())
+            .fieldParameter("expiration")
+            .whereParameter("nodeId", "=");
+
+        addNode_ = new Insert(getDatasource())
+            .into(createTableNode_.getTable())
+            .fieldParameter("nodeId")
+            .fieldParameter("expiration");
+
+        removeNode_ = new Delete(getDatasource())
+            .from(createTableNode_.getTable())
+            .whereParameter("nodeId", "=");
+
+        removeExpiredNodes_ = new Delete(getDatasource())
+            .from(createTableNode_.getTable())
+            .whereParameter("expiration", "<");
+
+        getNodes_ = new Select(getDatasource())
+            .from(createTableNode_.getTable())
+            .field("nodeId")
+            .orderBy("nodeId");
+
+        getPartitions_ = new Select(getDatasource())
+            .from(createTablePartition_.getTable())
+            .orderBy("partitionId");
+
+        addPartition_ = new Insert(getDatasource())
+            .into(createTablePartition_.getTable())
+            .fieldParameter("partitionId")
+            .fieldParameter("expiration");
+
+        renewPartitions_ = new Update(getDatasource())
+            .table(createTablePartition_.getTable())
+            .fieldParameter("expiration")
+            .whereParameter("nodeId", "=")
+            .whereParameterAnd("expiration", "now", ">=");
+
+        claimPartition_ = new Update(getDatasource())
+            .table(createTablePartition_.getTable())
+            .fieldParameter("nodeId")
+            .fieldParameter("expiration")
+            .whereParameter("partitionId", "=")
+            .whereParameterAnd("expiration", "now", "<");
+
+        releasePartition_ = new Update(getDatasource())
+            .table(createTablePartition_.getTable())
+            .fieldParameter("nodeId")
+            .fieldParameter("expiration")
+            .whereParameter("partitionId", "=")
+            .whereParameterAnd("nodeId", "owner", "=");
+
+        releasePartitions_ = new Update(getDatasource())
+            .table(createTablePartition_.getTable())
+            .fieldParameter("nodeId")
+            .fieldParameter("expiration")
+            .whereParameter("nodeId", "owner", "=");
     }
 
     public boolean install()
     throws SchedulerManagerException {
-        return install_();
+        return install_(createTableNode_, createTablePartition_);
     }
 
     public boolean remove()
     throws SchedulerManagerException {
-        return remove_();
+        return remove_(dropTableNode_, dropTablePartition_);
+    }
+
+    public Collection<Integer> claimPartitions(final String nodeId, final int partitionCount, final long leaseDuration)
+    throws SchedulerManagerException {
+        if (null == nodeId) throw new IllegalArgumentException("nodeId can't be null.");
+        if (nodeId.isEmpty()) throw new IllegalArgumentException("nodeId can't be empty.");
+        if (partitionCount <= 0) throw new IllegalArgumentException("partitionCount has to be bigger than 0.");
+        if (leaseDuration <= 0) throw new IllegalArgumentException("leaseDuration has to be bigger than 0.");
+
+        try {
+            final var now = System.currentTimeMillis();
+            final var expiration = now + leaseDuration;
+
+            // announce this node and forget about the nodes that stopped doing so
+            if (0 == executeUpdate(renewNode_, s -> s
+                .setString("nodeId", nodeId)
+                .setLong("expiration", expiration))) {
+                executeUpdate(addNode_, s -> s
+                    .setString("nodeId", nodeId)
+                    .setLong("expiration", expiration));
+            }
+            executeUpdate(removeExpiredNodes_, s -> s.setLong("expiration", now));
+
+            var nodes = new ArrayList<String>();
+            executeFetchAll(getNodes_, new DbRowProcessor() {
+                public boolean processRow(ResultSet resultSet)
+                throws SQLException {
+                    nodes.add(resultSet.getString("nodeId"));
+                    return true;
+                }
+            });
+            if (!nodes.contains(nodeId)) {
+                nodes.add(nodeId);
+            }
+
+            // renew the leases that this node still holds
+            executeUpdate(renewPartitions_, s -> s
+                .setString("nodeId", nodeId)
+                .setLong("expiration", expiration)
+                .setLong("now", now));
+
+            var owned = new TreeSet<Integer>();
+            var available = new ArrayList<Integer>();
+            var existing = new HashSet<Integer>();
+            executeFetchAll(getPartitions_, new DbRowProcessor() {
+                public boolean processRow(ResultSet resultSet)
+                throws SQLException {
+                    var partition_id = resultSet.getInt("partitionId");
+                    if (partition_id >= partitionCount) {
+                        return true;
+                    }
+
+                    existing.add(partition_id);
+                    if (resultSet.getLong("expiration") < now) {
+                        available.add(partition_id);
+                    } else if (nodeId.equals(resultSet.getString("nodeId"))) {
+                        owned.add(partition_id);
+                    }
+                    return true;
+                }
+            });
+
+            // lazily create the partitions that don't exist yet
+            for (var i = 0; i < partitionCount; i++) {
+                if (!existing.contains(i)) {
+                    final var partition_id = i;
+                    try {
+                        executeUpdate(addPartition_, s -> s
+                            .setInt("partitionId", partition_id)
+                            .setLong("expiration", 0L));
+                    } catch (DatabaseException e) {
+                        // another node created it concurrently
+                    }
+                    available.add(partition_id);
+                }
+            }
+
+            // determine the share of this node, the nodes that sort first
+            // receive the remaining partitions
+            var fair_share = partitionCount / nodes.size();
+            if (nodes.indexOf(nodeId) < partitionCount % nodes.size()) {
+                fair_share += 1;
+            }
+
+            // release the partitions that exceed the share of this node so
+            // that nodes that joined can pick them up
+            while (owned.size() > fair_share) {
+                final var partition_id = owned.pollLast();
+                executeUpdate(releasePartition_, s -> s
+                    .setNull("nodeId", Types.VARCHAR)
+                    .setLong("expiration", 0L)
+                    .setInt("partitionId", partition_id)
+                    .setString("owner", nodeId));
+            }
+
+            // claim free partitions until the share of this node is reached,
+            // spreading the starting point to reduce contention between nodes
+            if (owned.size() < fair_share && !available.isEmpty()) {
+                Collections.rotate(available, Math.abs(nodeId.hashCode() % available.size()));
+                for (var partition_id : available) {
+                    if (owned.size() >= fair_share) {
+                        break;
+                    }
+
+                    if (executeUpdate(claimPartition_, s -> s
+                        .setString("nodeId", nodeId)
+                        .setLong("expiration", expiration)
+                        .setInt("partitionId", partition_id)
+                        .setLong("now", now)) > 0) {
+                        owned.add(partition_id);
+                    }
+                }
+            }
+
+            return Collections.unmodifiableSet(owned);
+        } catch (DatabaseException e) {
+            throw new ClaimPartitionsErrorException(nodeId, e);
+        }
+    }
+
+    public void releasePartitions(final String nodeId)
+    throws SchedulerManagerException {
+        if (null == nodeId) throw new IllegalArgumentException("nodeId can't be null.");
+        if (nodeId.isEmpty()) throw new IllegalArgumentException("nodeId can't be empty.");
+
+        try {
+            executeUpdate(releasePartitions_, s -> s
+                .setNull("nodeId", Types.VARCHAR)
+                .setLong("expiration", 0L)
+                .setString("owner", nodeId));
+            executeUpdate(removeNode_, s -> s.setString("nodeId", nodeId));
+        } catch (DatabaseException e) {
+            throw new ReleasePartitionsErrorException(nodeId, e);
+        }
     }
 }
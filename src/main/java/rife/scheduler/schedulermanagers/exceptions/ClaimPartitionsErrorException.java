@@ -0,0 +1,29 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.scheduler.schedulermanagers.exceptions;
+
+import rife.scheduler.exceptions.SchedulerManagerException;
+
+import java.io.Serial;
+
+public class ClaimPartitionsErrorException extends SchedulerManagerException {
+    @Serial private static final long serialVersionUID = 4179336523541852718L;
+
+    private final String nodeId_;
+
+    public ClaimPartitionsErrorException(String nodeId) {
+        this(nodeId, null);
+    }
+
+    public ClaimPartitionsErrorException(String nodeId, Throwable cause) {
+        super("Can't claim the task partitions for node '" + nodeId + "'.", cause);
+
+        nodeId_ = nodeId;
+    }
+
+    public String getNodeId() {
+        return nodeId_;
+    }
+}
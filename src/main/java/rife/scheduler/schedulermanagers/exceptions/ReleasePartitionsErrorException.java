@@ -0,0 +1,29 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.scheduler.schedulermanagers.exceptions;
+
+import rife.scheduler.exceptions.SchedulerManagerException;
+
+import java.io.Serial;
+
+public class ReleasePartitionsErrorException extends SchedulerManagerException {
+    @Serial private static final long serialVersionUID = -1753961232486113670L;
+
+    private final String nodeId_;
+
+    public ReleasePartitionsErrorException(String nodeId) {
+        this(nodeId, null);
+    }
+
+    public ReleasePartitionsErrorException(String nodeId, Throwable cause) {
+        super("Can't release the task partitions of node '" + nodeId + "'.", cause);
+
+        nodeId_ = nodeId;
+    }
+
+    public String getNodeId() {
+        return nodeId_;
+    }
+}
@@ -26,6 +26,7 @@ import java.util.Collections;
 
 public abstract class DatabaseTasks extends DbQueryManager implements TaskManager {
     private Scheduler scheduler_ = null;
+    private final TaskStateBatch batch_ = new TaskStateBatch(this);
 
     protected DatabaseTasks(Datasource datasource) {
         super(datasource);
@@ -39,12 +40,110 @@ public abstract class DatabaseTasks extends DbQueryManager implements TaskManage
         return scheduler_;
     }
 
+    /**
+     * Sets the interval in milliseconds at which task state transitions
+     * are written to the database.
+     * <p>
+     * By default, this is {@code 0} and every activation, deactivation,
+     * rescheduling and conclusion of a task is immediately executed as a
+     * separate statement.
+     * <p>
+     * With an interval bigger than {@code 0}, these transitions are collected
+     * from all the executor threads, coalesced per task, and written as JDBC
+     * batches when the interval expires. All the other methods of this task
+     * manager first write the pending transitions, other processes that use
+     * the same database will however only see them after the flush.
+     * <p>
+     * Since batched transitions are only written later, the methods that
+     * collect them can't tell whether the task exists. While batching is
+     * enabled, {@code activateTask}, {@code deactivateTask},
+     * {@code rescheduleTask} and {@code concludeTask} thus always return
+     * {@code true}, also for unknown task IDs. The transitions of unknown
+     * tasks simply don't change anything when the batch is written.
+     *
+     * @param interval the batch flush interval in milliseconds; or
+     *                 {@code 0} to disable batching
+     * @throws TaskManagerException when the pending transitions couldn't be
+     *                              written while disabling batching
+     * @since 1.9.2
+     */
+    public void setBatchInterval(long interval)
+    throws TaskManagerException {
+        if (interval < 0) throw new IllegalArgumentException("interval can't be negative.");
+
+        batch_.setInterval(interval);
+        if (0 == interval) {
+            flushBatch();
+        }
+    }
+
+    /**
+     * Retrieves the interval at which task state transitions are written to
+     * the database.
+     *
+     * @return the batch flush interval in milliseconds; or
+     * {@code 0} if batching is disabled
+     * @see #setBatchInterval
+     * @since 1.9.2
+     */
+    public long getBatchInterval() {
+        return batch_.getInterval();
+    }
+
+    /**
+     * Immediately writes all the pending task state transitions to the
+     * database.
+     *
+     * @throws TaskManagerException when an error occurred while writing the
+     *                              transitions
+     * @see #setBatchInterval
+     * @since 1.9.2
+     */
+    public void flushBatch()
+    throws TaskManagerException {
+        try {
+            batch_.flush();
+        } catch (DatabaseException e) {
+            throw new FlushTaskBatchErrorException(e);
+        }
+    }
+
+    /**
+     * Provides the queries that are used to write batched task state
+     * transitions, this should be called by the database drivers.
+     *
+     * @param updateTask     the query that updates a complete task
+     * @param removeTask     the query that removes a task
+     * @param activateTask   the query that marks a task as busy
+     * @param deactivateTask the query that marks a task as not busy
+     * @since 1.9.2
+     */
+    protected void setBatchQueries(Update updateTask, Delete removeTask, Update activateTask, Update deactivateTask) {
+        batch_.setQueries(updateTask, removeTask, activateTask, deactivateTask);
+    }
+
     public abstract boolean install()
     throws TaskManagerException;
 
     public abstract boolean remove()
     throws TaskManagerException;
 
+    /**
+     * Retrieves the tasks that are not busy and that should be processed
+     * next, limited to a set of partitions.
+     * <p>
+     * The partition of a task is determined by its unique ID modulo the
+     * number of partitions.
+     *
+     * @param partitions     the partitions to retrieve the tasks for
+     * @param partitionCount the total number of partitions
+     * @return a collection of the tasks of these partitions that need to be processed
+     * @throws TaskManagerException when an error occurred during the collection of the tasks
+     * @since 1.9.2
+     */
+    public abstract Collection<Task> getTasksToProcess(Collection<Integer> partitions, int partitionCount)
+    throws TaskManagerException;
+
     protected boolean install_(final CreateSequence createSequenceTask, final CreateTable createTableTask)
     throws TaskManagerException {
         assert createSequenceTask != null;
@@ -118,6 +217,8 @@ public abstract class DatabaseTasks extends DbQueryManager implements TaskManage
 
         if (null == task) throw new IllegalArgumentException("task can't be null.");
 
+        flushBatch();
+
         var result = false;
 
         try {
@@ -139,6 +240,8 @@ public abstract class DatabaseTasks extends DbQueryManager implements TaskManage
 
         if (id < 0) throw new IllegalArgumentException("the task id can't be negative.");
 
+        flushBatch();
+
         Task task = null;
 
         try {
@@ -155,6 +258,8 @@ public abstract class DatabaseTasks extends DbQueryManager implements TaskManage
     throws TaskManagerException {
         assert getAllTasks != null;
 
+        flushBatch();
+
         var tasks = new ArrayList<Task>();
         processTask.setCollection(tasks);
 
@@ -173,6 +278,8 @@ public abstract class DatabaseTasks extends DbQueryManager implements TaskManage
     throws TaskManagerException {
         assert getTasksToProcess != null;
 
+        flushBatch();
+
         var tasks_to_process = new ArrayList<Task>();
         processTask.setCollection(tasks_to_process);
 
@@ -187,8 +294,37 @@ public abstract class DatabaseTasks extends DbQueryManager implements TaskManage
         return Collections.unmodifiableCollection(tasks_to_process);
     }
 
+    protected Collection<Task> getTasksToProcess_(Select getTasksToProcess, ProcessTask processTask, Collection<Integer> partitions, int partitionCount)
+    throws TaskManagerException {
+        assert getTasksToProcess != null;
+
+        if (null == partitions) throw new IllegalArgumentException("partitions can't be null.");
+        if (partitionCount <= 0) throw new IllegalArgumentException("partitionCount has to be bigger than 0.");
+
+        if (partitions.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        var partitions_condition = new StringBuilder("MOD(id, ").append(partitionCount).append(") IN (");
+        var first = true;
+        for (var partition : partitions) {
+            if (partition < 0 || partition >= partitionCount) throw new IllegalArgumentException("partition '" + partition + "' is out of range.");
+
+            if (!first) {
+                partitions_condition.append(",");
+            }
+            partitions_condition.append(partition);
+            first = false;
+        }
+        partitions_condition.append(")");
+
+        return getTasksToProcess_(getTasksToProcess.clone().whereAnd(partitions_condition.toString()), processTask);
+    }
+
     protected Collection<Task> getScheduledTasks_(Select getScheduledTasks, ProcessTask processTask)
     throws TaskManagerException {
+        flushBatch();
+
         var scheduled_tasks = new ArrayList<Task>();
         processTask.setCollection(scheduled_tasks);
 
@@ -209,6 +345,8 @@ public abstract class DatabaseTasks extends DbQueryManager implements TaskManage
 
         if (id < 0) throw new IllegalArgumentException("the task id can't be negative.");
 
+        flushBatch();
+
         var result = false;
 
         try {
@@ -241,7 +379,12 @@ public abstract class DatabaseTasks extends DbQueryManager implements TaskManage
                 throw new RescheduleTaskErrorException(task.getId(), newPlanned, frequency, e);
             }
         }
-        result = updateTask(task_tmp);
+        if (batch_.isEnabled()) {
+            batch_.update(task_tmp);
+            result = true;
+        } else {
+            result = updateTask(task_tmp);
+        }
 
         assert result;
 
@@ -254,6 +397,12 @@ public abstract class DatabaseTasks extends DbQueryManager implements TaskManage
 
         if (task.getPlanned() <= System.currentTimeMillis()) {
             if (null == task.getFrequency()) {
+                // batched transitions can't report unknown tasks, see setBatchInterval
+                if (batch_.isEnabled()) {
+                    batch_.remove(task.getId());
+                    return true;
+                }
+
                 return removeTask(task.getId());
             }
 
@@ -278,6 +427,12 @@ public abstract class DatabaseTasks extends DbQueryManager implements TaskManage
 
         if (id < 0) throw new IllegalArgumentException("the task id can't be negative.");
 
+        // batched transitions can't report unknown tasks, see setBatchInterval
+        if (batch_.isEnabled()) {
+            batch_.activate(id);
+            return true;
+        }
+
         var result = false;
 
         try {
@@ -297,6 +452,12 @@ public abstract class DatabaseTasks extends DbQueryManager implements TaskManage
 
         if (id < 0) throw new IllegalArgumentException("the task id can't be negative.");
 
+        // batched transitions can't report unknown tasks, see setBatchInterval
+        if (batch_.isEnabled()) {
+            batch_.deactivate(id);
+            return true;
+        }
+
         var result = false;
 
         try {
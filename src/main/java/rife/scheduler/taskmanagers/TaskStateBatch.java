@@ -0,0 +1,184 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.scheduler.taskmanagers;
+
+import rife.database.DbConnection;
+import rife.database.DbConnectionUser;
+import rife.database.DbPreparedStatement;
+import rife.database.exceptions.DatabaseException;
+import rife.database.queries.Delete;
+import rife.database.queries.Query;
+import rife.database.queries.Update;
+import rife.scheduler.Task;
+import rife.tools.BackgroundBatch;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.logging.Logger;
+
+/**
+ * Collects the task state transitions of a {@link DatabaseTasks} instance
+ * and writes them to the database as JDBC batches.
+ * <p>
+ * Transitions are coalesced per task ID, only the final state of each
+ * task is written when the batch is flushed.
+ *
+ * @author Geert Bevin (gbevin[remove] at uwyn dot com)
+ * @since 1.9.2
+ */
+class TaskStateBatch extends BackgroundBatch<Map<Integer, TaskStateBatch.Transition>> {
+    private final DatabaseTasks manager_;
+
+    private Update updateTask_ = null;
+    private Delete removeTask_ = null;
+    private Update activateTask_ = null;
+    private Update deactivateTask_ = null;
+
+    TaskStateBatch(DatabaseTasks manager) {
+        super("SCHEDULER_TASK_BATCH", Logger.getLogger("rife.scheduler"), 0, Integer.MAX_VALUE);
+        manager_ = manager;
+    }
+
+    void setQueries(Update updateTask, Delete removeTask, Update activateTask, Update deactivateTask) {
+        updateTask_ = updateTask;
+        removeTask_ = removeTask;
+        activateTask_ = activateTask;
+        deactivateTask_ = deactivateTask;
+    }
+
+    boolean hasQueries() {
+        return updateTask_ != null &&
+               removeTask_ != null &&
+               activateTask_ != null &&
+               deactivateTask_ != null;
+    }
+
+    boolean isEnabled() {
+        return getInterval() > 0 && hasQueries();
+    }
+
+    void activate(int id) {
+        enqueue(id, new Transition().busy(true));
+    }
+
+    void deactivate(int id) {
+        enqueue(id, new Transition().busy(false));
+    }
+
+    void update(Task task) {
+        enqueue(task.getId(), new Transition().task(task));
+    }
+
+    void remove(int id) {
+        enqueue(id, new Transition().remove());
+    }
+
+    private void enqueue(int id, Transition transition) {
+        add(pending -> merge(pending, id, transition));
+    }
+
+    private static void merge(Map<Integer, Transition> transitions, int id, Transition transition) {
+        var existing = transitions.get(id);
+        if (existing != null) {
+            existing.apply(transition);
+        } else {
+            transitions.put(id, transition);
+        }
+    }
+
+    protected Map<Integer, Transition> createBatch() {
+        return new LinkedHashMap<>();
+    }
+
+    protected Map<Integer, Transition> requeue(Map<Integer, Transition> failed, Map<Integer, Transition> pending) {
+        for (var entry : pending.entrySet()) {
+            merge(failed, entry.getKey(), entry.getValue());
+        }
+        return failed;
+    }
+
+    protected void write(Map<Integer, Transition> batch)
+    throws DatabaseException {
+        var removals = new ArrayList<Integer>();
+        var updates = new ArrayList<Task>();
+        var activations = new ArrayList<Integer>();
+        var deactivations = new ArrayList<Integer>();
+        for (var entry : batch.entrySet()) {
+            var transition = entry.getValue();
+            if (transition.remove_) {
+                removals.add(entry.getKey());
+            } else if (transition.task_ != null) {
+                if (transition.busy_ != null) {
+                    transition.task_.setBusy(transition.busy_);
+                }
+                updates.add(transition.task_);
+            } else if (Boolean.TRUE.equals(transition.busy_)) {
+                activations.add(entry.getKey());
+            } else if (Boolean.FALSE.equals(transition.busy_)) {
+                deactivations.add(entry.getKey());
+            }
+        }
+
+        manager_.inTransaction(() -> manager_.reserveConnection(new DbConnectionUser() {
+            public Object useConnection(DbConnection connection) {
+                executeBatch(connection, removeTask_, removals, (s, id) -> s.setInt("id", id));
+                executeBatch(connection, updateTask_, updates, DbPreparedStatement::setBean);
+                executeBatch(connection, activateTask_, activations, (s, id) -> s.setInt("id", id));
+                executeBatch(connection, deactivateTask_, deactivations, (s, id) -> s.setInt("id", id));
+                return true;
+            }
+        }));
+    }
+
+    private static <T> void executeBatch(DbConnection connection, Query query, Collection<T> items, BiConsumer<DbPreparedStatement, T> parameters) {
+        if (items.isEmpty()) {
+            return;
+        }
+
+        try (var statement = connection.getPreparedStatement(query)) {
+            for (var item : items) {
+                parameters.accept(statement, item);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    static class Transition {
+        private Task task_ = null;
+        private Boolean busy_ = null;
+        private boolean remove_ = false;
+
+        Transition busy(boolean busy) {
+            busy_ = busy;
+            return this;
+        }
+
+        Transition task(Task task) {
+            task_ = task;
+            busy_ = null;
+            return this;
+        }
+
+        Transition remove() {
+            remove_ = true;
+            return this;
+        }
+
+        void apply(Transition other) {
+            if (other.remove_) {
+                remove_ = true;
+                task_ = null;
+                busy_ = null;
+            } else if (other.task_ != null) {
+                remove_ = false;
+                task_ = other.task_;
+                busy_ = other.busy_;
+            } else if (other.busy_ != null) {
+                busy_ = other.busy_;
+            }
+        }
+    }
+}
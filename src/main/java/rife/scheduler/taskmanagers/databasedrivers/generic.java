@@ -104,6 +104,8 @@ public class generic extends DatabaseTasks {
             .table(createTableTask_.getTable())
             .field("busy", false)
             .whereParameter("id", "=");
+
+        setBatchQueries(updateTask_, removeTask_, activateTask_, deactivateTask_);
     }
 
     public boolean install()
@@ -151,6 +153,11 @@ public class generic extends DatabaseTasks {
         return getTasksToProcess_(getTasksToProcess_, new ProcessTask());
     }
 
+    public Collection<Task> getTasksToProcess(Collection<Integer> partitions, int partitionCount)
+    throws TaskManagerException {
+        return getTasksToProcess_(getTasksToProcess_, new ProcessTask(), partitions, partitionCount);
+    }
+
     public Collection<Task> getScheduledTasks()
     throws TaskManagerException {
         return getScheduledTasks_(getScheduledTasks_, new ProcessTask());
@@ -0,0 +1,22 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.scheduler.taskmanagers.exceptions;
+
+import rife.database.exceptions.DatabaseException;
+import rife.scheduler.exceptions.TaskManagerException;
+
+import java.io.Serial;
+
+public class FlushTaskBatchErrorException extends TaskManagerException {
+    @Serial private static final long serialVersionUID = 6264851930428851721L;
+
+    public FlushTaskBatchErrorException() {
+        this(null);
+    }
+
+    public FlushTaskBatchErrorException(DatabaseException cause) {
+        super("Unable to write the batched task state transitions.", cause);
+    }
+}
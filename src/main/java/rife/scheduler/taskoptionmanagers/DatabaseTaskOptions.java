@@ -11,6 +11,7 @@ import rife.database.DbRowProcessor;
 import rife.database.exceptions.DatabaseException;
 import rife.database.queries.*;
 import rife.scheduler.Scheduler;
+import rife.scheduler.Task;
 import rife.scheduler.TaskOption;
 import rife.scheduler.TaskOptionManager;
 import rife.scheduler.exceptions.TaskOptionManagerException;
@@ -18,13 +19,35 @@ import rife.scheduler.taskoptionmanagers.exceptions.*;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
+import java.util.*;
+import java.util.function.Function;
 
 public abstract class DatabaseTaskOptions extends DbQueryManager implements TaskOptionManager {
+    public static final int DEFAULT_CACHE_SIZE = 1000;
+    /**
+     * The default number of milliseconds that cached task options stay valid.
+     *
+     * @since 1.9.2
+     */
+    public static final long DEFAULT_CACHE_MAX_AGE = 5 * 1000;
+    public static final int LOAD_TASK_OPTIONS_BATCH_SIZE = 500;
+
     private Scheduler scheduler_ = null;
 
+    // the option names and values of the tasks that were loaded with
+    // loadTaskOptions, the presence of a task ID indicates that all the
+    // options of that task are known
+    private final Map<Integer, CachedTaskOptions> cache_ = new LinkedHashMap<>(16, 0.75f, true) {
+        protected boolean removeEldestEntry(Map.Entry<Integer, CachedTaskOptions> eldest) {
+            return size() > DEFAULT_CACHE_SIZE;
+        }
+    };
+    private long cacheGeneration_ = 0;
+    private long cacheMaxAge_ = DEFAULT_CACHE_MAX_AGE;
+
+    private record CachedTaskOptions(long loaded, Map<String, String> options) {
+    }
+
     protected DatabaseTaskOptions(Datasource datasource) {
         super(datasource);
     }
@@ -37,6 +60,43 @@ public abstract class DatabaseTaskOptions extends DbQueryManager implements Task
         return scheduler_;
     }
 
+    /**
+     * Sets the number of milliseconds that cached task options stay valid.
+     * <p>Only the task options that are loaded with {@link #loadTaskOptions}
+     * are cached, which the scheduler does right before it executes its
+     * tasks. Task options that are modified by another process are only
+     * seen after the cached ones expired.
+     *
+     * @param maxAge the maximum age in milliseconds; or
+     *               {@code 0} to not cache task options at all
+     * @see #getCacheMaxAge()
+     * @since 1.9.2
+     */
+    public void setCacheMaxAge(long maxAge) {
+        if (maxAge < 0) throw new IllegalArgumentException("maxAge can't be negative");
+
+        synchronized (cache_) {
+            cacheMaxAge_ = maxAge;
+            if (0 == maxAge) {
+                cacheGeneration_++;
+                cache_.clear();
+            }
+        }
+    }
+
+    /**
+     * Retrieves the number of milliseconds that cached task options stay valid.
+     *
+     * @return the maximum age in milliseconds
+     * @see #setCacheMaxAge(long)
+     * @since 1.9.2
+     */
+    public long getCacheMaxAge() {
+        synchronized (cache_) {
+            return cacheMaxAge_;
+        }
+    }
+
     public abstract boolean install()
     throws TaskOptionManagerException;
 
@@ -51,6 +111,8 @@ public abstract class DatabaseTaskOptions extends DbQueryManager implements Task
             executeUpdate(createTableTaskOption);
         } catch (DatabaseException e) {
             throw new InstallTaskOptionsErrorException(e);
+        } finally {
+            clearCache();
         }
 
         return true;
@@ -64,6 +126,8 @@ public abstract class DatabaseTaskOptions extends DbQueryManager implements Task
             executeUpdate(dropTableTaskOption);
         } catch (DatabaseException e) {
             throw new RemoveTaskOptionsErrorException(e);
+        } finally {
+            clearCache();
         }
 
         return true;
@@ -84,6 +148,8 @@ public abstract class DatabaseTaskOptions extends DbQueryManager implements Task
             result = true;
         } catch (DatabaseException e) {
             throw new AddTaskOptionErrorException(taskoption, e);
+        } finally {
+            invalidateCache(taskoption.getTaskId());
         }
 
         return result;
@@ -103,6 +169,8 @@ public abstract class DatabaseTaskOptions extends DbQueryManager implements Task
             result = true;
         } catch (DatabaseException e) {
             throw new UpdateTaskOptionErrorException(taskoption, e);
+        } finally {
+            invalidateCache(taskoption.getTaskId());
         }
 
         return result;
@@ -116,6 +184,17 @@ public abstract class DatabaseTaskOptions extends DbQueryManager implements Task
         if (null == name) throw new IllegalArgumentException("name can't be null.");
         if (name.isEmpty()) throw new IllegalArgumentException("name can't be empty.");
 
+        synchronized (cache_) {
+            var cached = getCachedTaskOptions(taskId);
+            if (cached != null) {
+                var value = cached.get(name);
+                if (null == value) {
+                    return null;
+                }
+                return new TaskOption().taskId(taskId).name(name).value(value);
+            }
+        }
+
         TaskOption taskoption = null;
 
         try {
@@ -137,6 +216,17 @@ public abstract class DatabaseTaskOptions extends DbQueryManager implements Task
         if (taskId < 0) throw new IllegalArgumentException("taskId can't be negative.");
 
         var task_options = new ArrayList<TaskOption>();
+
+        synchronized (cache_) {
+            var cached = getCachedTaskOptions(taskId);
+            if (cached != null) {
+                for (var entry : cached.entrySet()) {
+                    task_options.add(new TaskOption().taskId(taskId).name(entry.getKey()).value(entry.getValue()));
+                }
+                return Collections.unmodifiableCollection(task_options);
+            }
+        }
+
         processTaskOption.setCollection(task_options);
 
         try {
@@ -150,6 +240,109 @@ public abstract class DatabaseTaskOptions extends DbQueryManager implements Task
         return Collections.unmodifiableCollection(task_options);
     }
 
+    protected void _loadTaskOptions(Function<Collection<Integer>, Select> getTaskOptionsOfTasks, ProcessTaskOption processTaskOption, Collection<Task> tasks)
+    throws TaskOptionManagerException {
+        assert getTaskOptionsOfTasks != null;
+
+        if (null == tasks) throw new IllegalArgumentException("tasks can't be null.");
+
+        var task_ids = new ArrayList<Integer>();
+        for (var task : tasks) {
+            if (task.getId() >= 0) {
+                task_ids.add(task.getId());
+            }
+        }
+
+        // retrieve the options of multiple tasks together, limiting the
+        // number of task IDs that are provided to each query
+        for (var i = 0; i < task_ids.size(); i += LOAD_TASK_OPTIONS_BATCH_SIZE) {
+            var batch_ids = task_ids.subList(i, Math.min(i + LOAD_TASK_OPTIONS_BATCH_SIZE, task_ids.size()));
+            var task_options = new ArrayList<TaskOption>();
+            processTaskOption.setCollection(task_options);
+
+            long generation;
+            synchronized (cache_) {
+                generation = cacheGeneration_;
+            }
+
+            try {
+                executeFetchAll(getTaskOptionsOfTasks.apply(batch_ids), processTaskOption);
+            } catch (DatabaseException e) {
+                throw new LoadTaskOptionsErrorException(e);
+            }
+
+            cacheTaskOptions(generation, batch_ids, task_options);
+        }
+    }
+
+    private Map<String, String> getCachedTaskOptions(int taskId) {
+        assert Thread.holdsLock(cache_);
+
+        var cached = cache_.get(taskId);
+        if (null == cached) {
+            return null;
+        }
+
+        // expired options are retrieved again to pick up changes from other processes
+        if (System.currentTimeMillis() - cached.loaded() >= cacheMaxAge_) {
+            cache_.remove(taskId);
+            return null;
+        }
+
+        return cached.options();
+    }
+
+    private void cacheTaskOptions(long generation, Collection<Integer> taskIds, Collection<TaskOption> taskOptions) {
+        synchronized (cache_) {
+            // don't cache options that might have been modified while they were being retrieved
+            if (generation != cacheGeneration_ ||
+                0 == cacheMaxAge_) {
+                return;
+            }
+
+            var loaded = System.currentTimeMillis();
+            var options_per_task = new HashMap<Integer, Map<String, String>>();
+            for (var task_id : taskIds) {
+                var options = new LinkedHashMap<String, String>();
+                options_per_task.put(task_id, options);
+                cache_.put(task_id, new CachedTaskOptions(loaded, options));
+            }
+            for (var task_option : taskOptions) {
+                var options = options_per_task.get(task_option.getTaskId());
+                if (options != null) {
+                    options.put(task_option.getName(), task_option.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the cached task options of a particular task, this should be
+     * called when task options are modified outside this manager.
+     *
+     * @param taskId the unique ID of the task whose options should be removed
+     *               from the cache
+     * @since 1.9.2
+     */
+    public void invalidateCache(int taskId) {
+        synchronized (cache_) {
+            cacheGeneration_++;
+            cache_.remove(taskId);
+        }
+    }
+
+    /**
+     * Removes all the cached task options.
+     *
+     * @since 1.9.2
+     */
+    public void clearCache() {
+        synchronized (cache_) {
+            cacheGeneration_++;
+            cache_.clear();
+        }
+    }
+
     protected boolean _removeTaskOption(Delete removeTaskOption, TaskOption taskoption)
     throws TaskOptionManagerException {
         if (null == taskoption) throw new IllegalArgumentException("taskOption can't be null.");
@@ -175,6 +368,8 @@ public abstract class DatabaseTaskOptions extends DbQueryManager implements Task
             }
         } catch (DatabaseException e) {
             throw new RemoveTaskOptionErrorException(taskId, name, e);
+        } finally {
+            invalidateCache(taskId);
         }
 
         return result;
@@ -9,6 +9,7 @@ import rife.database.Datasource;
 import rife.database.DbPreparedStatement;
 import rife.database.DbPreparedStatementHandler;
 import rife.database.queries.*;
+import rife.scheduler.Task;
 import rife.scheduler.TaskOption;
 import rife.scheduler.exceptions.TaskOptionManagerException;
 import rife.scheduler.taskoptionmanagers.DatabaseTaskOptions;
@@ -16,6 +17,7 @@ import rife.scheduler.taskoptionmanagers.exceptions.DuplicateTaskOptionException
 import rife.scheduler.taskoptionmanagers.exceptions.InexistentTaskIdException;
 
 import java.util.Collection;
+import java.util.stream.Collectors;
 
 public class generic extends DatabaseTaskOptions {
     protected CreateTable createTableTaskOption_ = null;
@@ -139,6 +141,13 @@ public class generic extends DatabaseTaskOptions {
         return _getTaskOptions(getTaskOptions_, new ProcessTaskOption(), taskId);
     }
 
+    public void loadTaskOptions(Collection<Task> tasks)
+    throws TaskOptionManagerException {
+        _loadTaskOptions(task_ids -> new Select(getDatasource())
+            .from(createTableTaskOption_.getTable())
+            .where("task_id IN (" + task_ids.stream().map(String::valueOf).collect(Collectors.joining(",")) + ")"), new ProcessTaskOption(), tasks);
+    }
+
     public boolean removeTaskOption(TaskOption taskOption)
     throws TaskOptionManagerException {
         return _removeTaskOption(removeTaskOption_, taskOption);
@@ -0,0 +1,22 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.scheduler.taskoptionmanagers.exceptions;
+
+import rife.database.exceptions.DatabaseException;
+import rife.scheduler.exceptions.TaskOptionManagerException;
+
+import java.io.Serial;
+
+public class LoadTaskOptionsErrorException extends TaskOptionManagerException {
+    @Serial private static final long serialVersionUID = 2790413568245135274L;
+
+    public LoadTaskOptionsErrorException() {
+        this(null);
+    }
+
+    public LoadTaskOptionsErrorException(DatabaseException cause) {
+        super("Error while loading the taskoptions of multiple tasks.", cause);
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.tools;
+
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Collects items and writes them in batches from a background thread, so
+ * that the cost of writing is shared by all the items of a batch.
+ * <p>A batch is written when the interval expired after its first item was
+ * added, or as soon as it reached the maximum size. When the interval is
+ * {@code 0}, every item is written immediately by the thread that adds it.
+ * <p>Batches are always written in the order in which they were collected.
+ * When writing a batch fails, its items are put back in front of those
+ * that were added in the meantime, so that they're retried with the next
+ * batch after the interval expired again.
+ *
+ * @param <B> the type of the batch that collects the items
+ * @author Geert Bevin (gbevin[remove] at uwyn dot com)
+ * @since 1.9.2
+ */
+public abstract class BackgroundBatch<B> implements Runnable {
+    private final String threadName_;
+    private final Logger logger_;
+    private final Object flushMonitor_ = new Object();
+    private B pending_;
+    private int pendingSize_ = 0;
+    private Thread thread_ = null;
+    private long interval_;
+    private int maxSize_;
+
+    /**
+     * Creates a new background batch.
+     *
+     * @param threadName the name of the background thread
+     * @param logger     the logger that reports the batches that couldn't
+     *                   be written by the background thread
+     * @param interval   the batch interval in milliseconds
+     * @param maxSize    the maximum number of items in a batch
+     * @since 1.9.2
+     */
+    protected BackgroundBatch(String threadName, Logger logger, long interval, int maxSize) {
+        threadName_ = threadName;
+        logger_ = logger;
+        interval_ = interval;
+        maxSize_ = maxSize;
+        pending_ = createBatch();
+    }
+
+    /**
+     * Creates a new empty batch.
+     *
+     * @return the new batch
+     * @since 1.9.2
+     */
+    protected abstract B createBatch();
+
+    /**
+     * Puts the items of a batch that couldn't be written in front of the
+     * items that were added in the meantime.
+     *
+     * @param failed  the batch that couldn't be written
+     * @param pending the batch with the items that were added since
+     * @return the batch that contains all the items
+     * @since 1.9.2
+     */
+    protected abstract B requeue(B failed, B pending);
+
+    /**
+     * Writes a batch.
+     *
+     * @param batch the batch to write
+     * @since 1.9.2
+     */
+    protected abstract void write(B batch);
+
+    public void setInterval(long interval) {
+        synchronized (this) {
+            interval_ = interval;
+            notifyAll();
+        }
+    }
+
+    public long getInterval() {
+        synchronized (this) {
+            return interval_;
+        }
+    }
+
+    public void setMaxSize(int maxSize) {
+        synchronized (this) {
+            maxSize_ = maxSize;
+            notifyAll();
+        }
+    }
+
+    public int getMaxSize() {
+        synchronized (this) {
+            return maxSize_;
+        }
+    }
+
+    /**
+     * Adds an item to the pending batch.
+     *
+     * @param addition adds the item to the pending batch, this is called
+     *                 while the batch is locked
+     * @since 1.9.2
+     */
+    protected void add(Consumer<B> addition) {
+        var immediate = false;
+        synchronized (this) {
+            addition.accept(pending_);
+            pendingSize_++;
+
+            if (interval_ <= 0) {
+                immediate = true;
+            } else {
+                if (pendingSize_ >= maxSize_) {
+                    notifyAll();
+                }
+
+                if (null == thread_) {
+                    thread_ = new Thread(this, threadName_);
+                    thread_.setDaemon(true);
+                    thread_.start();
+                }
+            }
+        }
+
+        if (immediate) {
+            flush();
+        }
+    }
+
+    public void run() {
+        var retry_at = 0L;
+        while (true) {
+            synchronized (this) {
+                try {
+                    // after a failed write the retry waits for the complete
+                    // interval, also when the batch is full, to not spin
+                    var delay = retry_at - System.currentTimeMillis();
+                    while (delay > 0 && interval_ > 0) {
+                        wait(delay);
+                        delay = retry_at - System.currentTimeMillis();
+                    }
+
+                    if (0 == pendingSize_ || interval_ <= 0) {
+                        thread_ = null;
+                        break;
+                    }
+
+                    if (0 == retry_at && pendingSize_ < maxSize_) {
+                        wait(interval_);
+                    }
+                } catch (InterruptedException e) {
+                    thread_ = null;
+                    break;
+                }
+            }
+
+            try {
+                flush();
+                retry_at = 0L;
+            } catch (RuntimeException e) {
+                retry_at = System.currentTimeMillis() + getInterval();
+                logger_.severe(ExceptionUtils.getExceptionStackTrace(e));
+            }
+        }
+
+        // ensure that items that were added after the interval was
+        // disabled are not left behind
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger_.severe(ExceptionUtils.getExceptionStackTrace(e));
+        }
+    }
+
+    /**
+     * Writes the pending batch.
+     *
+     * @since 1.9.2
+     */
+    public void flush() {
+        // the flush monitor ensures that batches are always written in the
+        // order in which they were collected
+        synchronized (flushMonitor_) {
+            B batch;
+            int batch_size;
+            synchronized (this) {
+                if (0 == pendingSize_) {
+                    return;
+                }
+                batch = pending_;
+                batch_size = pendingSize_;
+                pending_ = createBatch();
+                pendingSize_ = 0;
+            }
+
+            try {
+                write(batch);
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    pending_ = requeue(batch, pending_);
+                    pendingSize_ += batch_size;
+                }
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.workflow;
+
+import rife.tools.ExceptionUtils;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Delivers events to an {@link EventListener} through a bounded queue that
+ * is drained on an executor.
+ * <p>At most one thread drains the queue at any time, the listener thus
+ * receives the events one by one and in the order they were dispatched.
+ *
+ * @author Geert Bevin (gbevin[remove] at uwyn dot com)
+ * @since 1.9.2
+ */
+class AsyncListener {
+    private final EventListener listener_;
+    private final int capacity_;
+    private final ListenerQueuePolicy policy_;
+    private final Supplier<Executor> executor_;
+    private final ListenerMetrics metrics_ = new ListenerMetrics();
+
+    private final ArrayDeque<QueuedEvent> queue_ = new ArrayDeque<>();
+    private final Lock lock_ = new ReentrantLock();
+    private final Condition notFull_ = lock_.newCondition();
+    private boolean scheduled_ = false;
+    private volatile Thread drainingThread_ = null;
+
+    AsyncListener(EventListener listener, int capacity, ListenerQueuePolicy policy, Supplier<Executor> executor) {
+        listener_ = listener;
+        capacity_ = capacity;
+        policy_ = policy;
+        executor_ = executor;
+    }
+
+    ListenerMetrics getMetrics() {
+        return metrics_;
+    }
+
+    void dispatch(Event event) {
+        var schedule = false;
+        lock_.lock();
+        try {
+            while (queue_.size() >= capacity_) {
+                if (ListenerQueuePolicy.DROP == policy_ ||
+                    Thread.currentThread() == drainingThread_) {
+                    metrics_.dropped();
+                    return;
+                }
+
+                try {
+                    notFull_.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    metrics_.dropped();
+                    return;
+                }
+            }
+
+            queue_.add(new QueuedEvent(event, System.nanoTime()));
+            metrics_.queued(queue_.size());
+
+            if (!scheduled_) {
+                scheduled_ = true;
+                schedule = true;
+            }
+        } finally {
+            lock_.unlock();
+        }
+
+        if (schedule) {
+            try {
+                executor_.get().execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                lock_.lock();
+                try {
+                    scheduled_ = false;
+                } finally {
+                    lock_.unlock();
+                }
+                Logger.getLogger("rife.workflow").warning(ExceptionUtils.getExceptionStackTrace(e));
+            }
+        }
+    }
+
+    private void drain() {
+        drainingThread_ = Thread.currentThread();
+        var completed = false;
+        try {
+            while (true) {
+                QueuedEvent queued;
+                int remaining;
+                lock_.lock();
+                try {
+                    queued = queue_.poll();
+                    if (null == queued) {
+                        drainingThread_ = null;
+                        scheduled_ = false;
+                        completed = true;
+                        return;
+                    }
+
+                    remaining = queue_.size();
+                    notFull_.signalAll();
+                } finally {
+                    lock_.unlock();
+                }
+
+                var start = System.nanoTime();
+                metrics_.dequeued(remaining, start - queued.queuedNanos());
+                try {
+                    listener_.eventTriggered(queued.event());
+                    metrics_.delivered(System.nanoTime() - start);
+                } catch (RuntimeException e) {
+                    metrics_.failed(System.nanoTime() - start);
+                    Logger.getLogger("rife.workflow").warning(ExceptionUtils.getExceptionStackTrace(e));
+                }
+            }
+        } finally {
+            // an error escaped from the listener, allow a new drain to be
+            // scheduled by the next dispatch
+            if (!completed) {
+                lock_.lock();
+                try {
+                    drainingThread_ = null;
+                    scheduled_ = false;
+                } finally {
+                    lock_.unlock();
+                }
+            }
+        }
+    }
+
+    private record QueuedEvent(Event event, long queuedNanos) {
+    }
+}
@@ -14,6 +14,7 @@ package rife.workflow;
 public class Event {
     private final Object type_;
     private final Object data_;
+    private final Object correlationKey_;
 
     /**
      * Creates a new event.
@@ -23,8 +24,28 @@ public class Event {
      * @since 1.0
      */
     public Event(final Object type, final Object data) {
+        this(type, data, null);
+    }
+
+    /**
+     * Creates a new event that targets the work with a particular
+     * correlation key.
+     * <p>Only the work that is paused for the event type and whose
+     * {@link Work#getCorrelationKey() correlation key} is equal to the one of
+     * the event will be woken up, as well as the work that doesn't have any
+     * correlation key.
+     *
+     * @param type           the type of the event
+     * @param data           the data that has to be sent along with the event
+     * @param correlationKey the correlation key of the work to wake up; or
+     *                       {@code null} to wake up all the work that is
+     *                       paused for the event type
+     * @since 1.9.2
+     */
+    public Event(final Object type, final Object data, final Object correlationKey) {
         type_ = type;
         data_ = data;
+        correlationKey_ = correlationKey;
     }
 
     /**
@@ -46,4 +67,16 @@ public class Event {
     public Object getData() {
         return data_;
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the correlation key of the work that this event targets.
+     *
+     * @return this event's correlation key; or
+     * <p>{@code null} if this event targets all the work that is paused
+     * for its type
+     * @since 1.9.2
+     */
+    public Object getCorrelationKey() {
+        return correlationKey_;
+    }
+}
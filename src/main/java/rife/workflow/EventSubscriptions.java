@@ -0,0 +1,126 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.workflow;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps track of the paused work that is waiting for each event type.
+ * <p>Waiting work is registered with its continuation ID and an optional
+ * correlation key. Claiming waiters atomically removes them, so that each
+ * paused work is only resumed once, without locking all the waiters of an
+ * event type.
+ *
+ * @author Geert Bevin (gbevin[remove] at uwyn dot com)
+ * @since 1.9.2
+ */
+class EventSubscriptions {
+    private static final Object NO_KEY = new Object();
+
+    private final ConcurrentMap<Object, TypeSubscriptions> types_ = new ConcurrentHashMap<>();
+
+    void subscribe(Object type, String id, Object correlationKey) {
+        var key = null == correlationKey ? NO_KEY : correlationKey;
+        var subscriptions = types_.computeIfAbsent(type, t -> new TypeSubscriptions());
+
+        // the waiter is registered before it's indexed by key, a waiter
+        // is thus only considered claimed when its registration is removed
+        subscriptions.waiters_.put(id, key);
+        subscriptions.keyed_.compute(key, (k, ids) -> {
+            if (null == ids) ids = ConcurrentHashMap.newKeySet();
+            ids.add(id);
+            return ids;
+        });
+
+        // the waiter was claimed by a wildcard event in the meantime
+        if (!subscriptions.waiters_.containsKey(id)) {
+            subscriptions.unindex(key, id);
+        }
+    }
+
+    List<String> claim(Object type, Object correlationKey) {
+        var subscriptions = types_.get(type);
+        if (null == subscriptions) {
+            return Collections.emptyList();
+        }
+
+        var claimed = new ArrayList<String>();
+        if (null == correlationKey) {
+            // events without correlation key wake up all the waiters
+            for (var entry : subscriptions.waiters_.entrySet()) {
+                if (subscriptions.waiters_.remove(entry.getKey()) != null) {
+                    claimed.add(entry.getKey());
+                    subscriptions.unindex(entry.getValue(), entry.getKey());
+                }
+            }
+        } else {
+            // events with a correlation key only wake up the waiters with
+            // the same key and those that didn't specify any key
+            subscriptions.claimKeyed(correlationKey, claimed);
+            subscriptions.claimKeyed(NO_KEY, claimed);
+        }
+
+        return claimed;
+    }
+
+    boolean hasWaiters(Object type, Object correlationKey) {
+        var subscriptions = types_.get(type);
+        if (null == subscriptions) {
+            return false;
+        }
+
+        if (null == correlationKey) {
+            return !subscriptions.waiters_.isEmpty();
+        }
+
+        return subscriptions.hasKeyed(correlationKey) || subscriptions.hasKeyed(NO_KEY);
+    }
+
+    static boolean matches(Event event, Object correlationKey) {
+        return null == correlationKey ||
+               null == event.getCorrelationKey() ||
+               correlationKey.equals(event.getCorrelationKey());
+    }
+
+    private static class TypeSubscriptions {
+        private final ConcurrentMap<String, Object> waiters_ = new ConcurrentHashMap<>();
+        private final ConcurrentMap<Object, Set<String>> keyed_ = new ConcurrentHashMap<>();
+
+        private void claimKeyed(Object key, List<String> claimed) {
+            var ids = keyed_.get(key);
+            if (null == ids) {
+                return;
+            }
+
+            for (var id : ids) {
+                if (waiters_.remove(id) != null) {
+                    claimed.add(id);
+                }
+                ids.remove(id);
+            }
+
+            // remove the set of the key when it's empty, since correlation
+            // keys are typically unique
+            keyed_.computeIfPresent(key, (k, existing) -> existing.isEmpty() ? null : existing);
+        }
+
+        private boolean hasKeyed(Object key) {
+            var ids = keyed_.get(key);
+            return ids != null && !ids.isEmpty();
+        }
+
+        private void unindex(Object key, String id) {
+            keyed_.computeIfPresent(key, (k, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+}
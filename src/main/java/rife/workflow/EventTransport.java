@@ -0,0 +1,98 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.workflow;
+
+import rife.workflow.exceptions.TransportException;
+
+/**
+ * Exchanges events between workflows that run on different nodes.
+ * <p>Each node runs its own {@link Workflow} with the same work
+ * definitions. The events that are triggered or informed about on one node
+ * are published through the transport and wake up the work that is paused
+ * for them on the other nodes.
+ * <p>Events that are received from other nodes are handled like informed
+ * events: they only wake up work that is paused for them and are never
+ * queued up. When no work on the triggering node is paused for a triggered
+ * event, the event is offered to the other nodes instead, one after the
+ * other, and it's only queued up on the triggering node when none of them
+ * took it. A triggered event is thus never both queued up and consumed
+ * remotely.
+ *
+ * @rife.apiNote The workflow engine is still in an ALPHA EXPERIMENTAL STAGE and might change.
+ * @author Geert Bevin (gbevin[remove] at uwyn dot com)
+ * @see Workflow#setTransport
+ * @since 1.9.2
+ */
+public interface EventTransport {
+    /**
+     * Receives the events that were published by other nodes.
+     *
+     * @since 1.9.2
+     */
+    @FunctionalInterface
+    interface Receiver {
+        /**
+         * Called when an event of another node was received.
+         *
+         * @param event the received event
+         * @return {@code true} when the event woke up work that was paused
+         * for it; or
+         * <p>{@code false} otherwise
+         * @since 1.9.2
+         */
+        boolean eventReceived(Event event);
+    }
+
+    /**
+     * Starts receiving the events of the other nodes.
+     * <p>Events that are published by this transport itself should never be
+     * passed on to the receiver.
+     *
+     * @param receiver the receiver of the events
+     * @throws TransportException when the transport couldn't be opened
+     * @since 1.9.2
+     */
+    void open(Receiver receiver)
+    throws TransportException;
+
+    /**
+     * Publishes an event to the other nodes.
+     * <p>Delivery is best effort, nodes that can't be reached don't cause
+     * the publication to fail. Nothing is published when the transport
+     * isn't open.
+     *
+     * @param event the event to publish
+     * @throws TransportException when the event couldn't be published
+     * @since 1.9.2
+     */
+    void publish(Event event)
+    throws TransportException;
+
+    /**
+     * Offers an event to the other nodes, one after the other, until one
+     * of them has work that takes it.
+     * <p>A node that can't be reached is skipped. A node that received the
+     * event but didn't answer in time is considered to have taken it, so
+     * that the event is never consumed twice.
+     *
+     * @param event the event to offer
+     * @return {@code true} when another node took the event; or
+     * <p>{@code false} when no other node took it or when the transport
+     * isn't open
+     * @throws TransportException when the event couldn't be offered
+     * @since 1.9.2
+     */
+    boolean offer(Event event)
+    throws TransportException;
+
+    /**
+     * Stops receiving events and releases the resources of the transport.
+     *
+     * @throws TransportException when an error occurred while closing the transport
+     * @since 1.9.2
+     */
+    void close()
+    throws TransportException;
+}
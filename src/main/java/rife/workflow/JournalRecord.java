@@ -0,0 +1,297 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.workflow;
+
+import rife.workflow.exceptions.DecodeJournalRecordErrorException;
+import rife.workflow.exceptions.EncodeJournalRecordErrorException;
+import rife.workflow.exceptions.JournalException;
+
+import java.io.*;
+
+/**
+ * A single entry of a {@link WorkflowJournal}.
+ * <p>Records are immutable and are created by the {@link Workflow} when the
+ * state of its work or its pending events changes. The data of events is
+ * serialized when the record is created, the type, data and correlation key of
+ * journaled events thus have to be {@link Serializable}.
+ *
+ * @rife.apiNote The workflow engine is still in an ALPHA EXPERIMENTAL STAGE and might change.
+ * @author Geert Bevin (gbevin[remove] at uwyn dot com)
+ * @since 1.9.2
+ */
+public final class JournalRecord {
+    /**
+     * The kinds of journal records.
+     *
+     * @since 1.9.2
+     */
+    public enum Kind {
+        /**
+         * New work was started, the ID is the one of the work.
+         */
+        WORK_STARTED,
+        /**
+         * An event was delivered to paused work, the ID is the one of the work.
+         */
+        EVENT_DELIVERED,
+        /**
+         * Work finished executing, the ID is the one of the work.
+         */
+        WORK_FINISHED,
+        /**
+         * A triggered event was queued up since no work was paused for it,
+         * the ID is the one of the event.
+         */
+        EVENT_QUEUED,
+        /**
+         * A queued up event was taken by work, the ID is the one of the event.
+         */
+        EVENT_DEQUEUED
+    }
+
+    private final Kind kind_;
+    private final long id_;
+    private final String workClassName_;
+    private final byte[] event_;
+
+    private JournalRecord(Kind kind, long id, String workClassName, byte[] event) {
+        kind_ = kind;
+        id_ = id;
+        workClassName_ = workClassName;
+        event_ = event;
+    }
+
+    /**
+     * Creates a record for work that was started.
+     *
+     * @param workId        the ID of the work
+     * @param workClassName the name of the work class
+     * @return the new record
+     * @since 1.9.2
+     */
+    public static JournalRecord workStarted(long workId, String workClassName) {
+        if (null == workClassName) throw new IllegalArgumentException("workClassName can't be null.");
+
+        return new JournalRecord(Kind.WORK_STARTED, workId, workClassName, null);
+    }
+
+    /**
+     * Creates a record for an event that was delivered to paused work.
+     *
+     * @param workId the ID of the work
+     * @param event  the event that was delivered
+     * @return the new record
+     * @throws JournalException when the event couldn't be serialized
+     * @since 1.9.2
+     */
+    public static JournalRecord eventDelivered(long workId, Event event)
+    throws JournalException {
+        return eventDelivered(workId, encodeEvent(event));
+    }
+
+    static JournalRecord eventDelivered(long workId, byte[] encodedEvent) {
+        assert encodedEvent != null;
+
+        return new JournalRecord(Kind.EVENT_DELIVERED, workId, null, encodedEvent);
+    }
+
+    /**
+     * Creates a record for work that finished executing.
+     *
+     * @param workId the ID of the work
+     * @return the new record
+     * @since 1.9.2
+     */
+    public static JournalRecord workFinished(long workId) {
+        return new JournalRecord(Kind.WORK_FINISHED, workId, null, null);
+    }
+
+    /**
+     * Creates a record for a triggered event that was queued up.
+     *
+     * @param eventId the ID of the event
+     * @param event   the event that was queued up
+     * @return the new record
+     * @throws JournalException when the event couldn't be serialized
+     * @since 1.9.2
+     */
+    public static JournalRecord eventQueued(long eventId, Event event)
+    throws JournalException {
+        return eventQueued(eventId, encodeEvent(event));
+    }
+
+    static JournalRecord eventQueued(long eventId, byte[] encodedEvent) {
+        assert encodedEvent != null;
+
+        return new JournalRecord(Kind.EVENT_QUEUED, eventId, null, encodedEvent);
+    }
+
+    /**
+     * Creates a record for a queued up event that was taken by work.
+     *
+     * @param eventId the ID of the event
+     * @return the new record
+     * @since 1.9.2
+     */
+    public static JournalRecord eventDequeued(long eventId) {
+        return new JournalRecord(Kind.EVENT_DEQUEUED, eventId, null, null);
+    }
+
+    /**
+     * Retrieves the kind of this record.
+     *
+     * @return this record's kind
+     * @since 1.9.2
+     */
+    public Kind getKind() {
+        return kind_;
+    }
+
+    /**
+     * Retrieves the ID of the work or of the event of this record,
+     * depending on its kind.
+     *
+     * @return this record's ID
+     * @since 1.9.2
+     */
+    public long getId() {
+        return id_;
+    }
+
+    /**
+     * Retrieves the name of the class of the work that was started.
+     *
+     * @return the name of the work class; or
+     * <p>{@code null} if this record isn't about started work
+     * @since 1.9.2
+     */
+    public String getWorkClassName() {
+        return workClassName_;
+    }
+
+    /**
+     * Deserializes the event of this record.
+     *
+     * @return the event; or
+     * <p>{@code null} if this record doesn't contain an event
+     * @throws JournalException when the event couldn't be deserialized
+     * @since 1.9.2
+     */
+    public Event getEvent()
+    throws JournalException {
+        if (null == event_) {
+            return null;
+        }
+
+        try (var in = new ObjectInputStream(new ByteArrayInputStream(event_))) {
+            return new Event(in.readObject(), in.readObject(), in.readObject());
+        } catch (IOException | ClassNotFoundException e) {
+            throw new DecodeJournalRecordErrorException(e);
+        }
+    }
+
+    /**
+     * Writes this record in its compact binary form.
+     *
+     * @param out the output to write to
+     * @throws IOException when an error occurred while writing
+     * @see #read
+     * @since 1.9.2
+     */
+    public void write(DataOutput out)
+    throws IOException {
+        out.writeByte(kind_.ordinal());
+        out.writeLong(id_);
+        switch (kind_) {
+            case WORK_STARTED -> out.writeUTF(workClassName_);
+            case EVENT_DELIVERED, EVENT_QUEUED -> {
+                out.writeInt(event_.length);
+                out.write(event_);
+            }
+        }
+    }
+
+    /**
+     * Reads a record from its compact binary form.
+     *
+     * @param in the input to read from
+     * @return the record that was read
+     * @throws IOException when an error occurred while reading
+     * @see #write
+     * @since 1.9.2
+     */
+    public static JournalRecord read(DataInput in)
+    throws IOException {
+        var kind_index = in.readUnsignedByte();
+        if (kind_index >= Kind.values().length) {
+            throw new StreamCorruptedException("Unknown journal record kind " + kind_index + ".");
+        }
+
+        var kind = Kind.values()[kind_index];
+        var id = in.readLong();
+        String work_class_name = null;
+        byte[] event = null;
+        switch (kind) {
+            case WORK_STARTED -> work_class_name = in.readUTF();
+            case EVENT_DELIVERED, EVENT_QUEUED -> {
+                event = new byte[in.readInt()];
+                in.readFully(event);
+            }
+        }
+        return new JournalRecord(kind, id, work_class_name, event);
+    }
+
+    /**
+     * Converts this record to its compact binary form.
+     *
+     * @return the bytes of this record
+     * @throws JournalException when the record couldn't be converted
+     * @see #fromBytes
+     * @since 1.9.2
+     */
+    public byte[] toBytes()
+    throws JournalException {
+        var bytes = new ByteArrayOutputStream();
+        try (var out = new DataOutputStream(bytes)) {
+            write(out);
+        } catch (IOException e) {
+            throw new EncodeJournalRecordErrorException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Creates a record from its compact binary form.
+     *
+     * @param bytes the bytes of the record
+     * @return the record
+     * @throws JournalException when the record couldn't be created
+     * @see #toBytes
+     * @since 1.9.2
+     */
+    public static JournalRecord fromBytes(byte[] bytes)
+    throws JournalException {
+        try (var in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            return read(in);
+        } catch (IOException e) {
+            throw new DecodeJournalRecordErrorException(e);
+        }
+    }
+
+    static byte[] encodeEvent(Event event)
+    throws JournalException {
+        if (null == event) throw new IllegalArgumentException("event can't be null.");
+
+        var bytes = new ByteArrayOutputStream();
+        try (var out = new ObjectOutputStream(bytes)) {
+            out.writeObject(event.getType());
+            out.writeObject(event.getData());
+            out.writeObject(event.getCorrelationKey());
+        } catch (IOException e) {
+            throw new EncodeJournalRecordErrorException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
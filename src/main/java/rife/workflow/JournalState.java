@@ -0,0 +1,157 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.workflow;
+
+import java.util.*;
+
+/**
+ * The state of a workflow as it was reconstructed from the records of a
+ * {@link WorkflowJournal}.
+ * <p>Only the work that didn't finish and the events that are still queued
+ * up are retained, the records of everything else are discarded. The
+ * remaining records can be retrieved with {@link #getRecords()} to compact
+ * the journal.
+ *
+ * @rife.apiNote The workflow engine is still in an ALPHA EXPERIMENTAL STAGE and might change.
+ * @author Geert Bevin (gbevin[remove] at uwyn dot com)
+ * @since 1.9.2
+ */
+public final class JournalState {
+    private final Map<Long, List<JournalRecord>> work_ = new LinkedHashMap<>();
+    private final Map<Long, JournalRecord> pendingEvents_ = new LinkedHashMap<>();
+    private long lastId_ = 0;
+
+    /**
+     * Creates an empty journal state.
+     *
+     * @since 1.9.2
+     */
+    public JournalState() {
+    }
+
+    /**
+     * Applies a journal record to this state. Records have to be applied
+     * in the order in which they were appended to the journal.
+     *
+     * @param record the record to apply
+     * @return this journal state
+     * @since 1.9.2
+     */
+    public JournalState apply(JournalRecord record) {
+        if (null == record) {
+            return this;
+        }
+
+        lastId_ = Math.max(lastId_, record.getId());
+
+        switch (record.getKind()) {
+            case WORK_STARTED -> {
+                var records = new ArrayList<JournalRecord>();
+                records.add(record);
+                work_.put(record.getId(), records);
+            }
+            case EVENT_DELIVERED -> {
+                var records = work_.get(record.getId());
+                if (records != null) {
+                    records.add(record);
+                }
+            }
+            case WORK_FINISHED -> work_.remove(record.getId());
+            case EVENT_QUEUED -> pendingEvents_.put(record.getId(), record);
+            case EVENT_DEQUEUED -> pendingEvents_.remove(record.getId());
+        }
+
+        return this;
+    }
+
+    /**
+     * Retrieves the highest work or event ID that was used in the journal.
+     *
+     * @return the highest ID
+     * @since 1.9.2
+     */
+    public long getLastId() {
+        return lastId_;
+    }
+
+    /**
+     * Retrieves the IDs of the work that didn't finish, in the order in
+     * which the work was started.
+     *
+     * @return the IDs of the unfinished work
+     * @since 1.9.2
+     */
+    public Collection<Long> getWorkIds() {
+        return Collections.unmodifiableSet(work_.keySet());
+    }
+
+    /**
+     * Retrieves the class name of unfinished work.
+     *
+     * @param workId the ID of the work
+     * @return the name of the work class; or
+     * <p>{@code null} if no unfinished work exists with that ID
+     * @since 1.9.2
+     */
+    public String getWorkClassName(long workId) {
+        var records = work_.get(workId);
+        if (null == records) {
+            return null;
+        }
+        return records.get(0).getWorkClassName();
+    }
+
+    /**
+     * Retrieves the events that were delivered to unfinished work, in the
+     * order in which they were delivered.
+     *
+     * @param workId the ID of the work
+     * @return the delivered events
+     * @since 1.9.2
+     */
+    public List<Event> getDeliveredEvents(long workId) {
+        var records = work_.get(workId);
+        if (null == records) {
+            return Collections.emptyList();
+        }
+
+        var events = new ArrayList<Event>(records.size() - 1);
+        for (var i = 1; i < records.size(); i++) {
+            events.add(records.get(i).getEvent());
+        }
+        return events;
+    }
+
+    /**
+     * Retrieves the events that are still queued up, by event ID and in
+     * the order in which they were triggered.
+     *
+     * @return the pending events
+     * @since 1.9.2
+     */
+    public Map<Long, Event> getPendingEvents() {
+        var events = new LinkedHashMap<Long, Event>();
+        for (var entry : pendingEvents_.entrySet()) {
+            events.put(entry.getKey(), entry.getValue().getEvent());
+        }
+        return events;
+    }
+
+    /**
+     * Retrieves the minimal records that are needed to reconstruct this
+     * state.
+     *
+     * @return the records of this state
+     * @since 1.9.2
+     */
+    public List<JournalRecord> getRecords() {
+        var records = new ArrayList<JournalRecord>();
+        for (var work_records : work_.values()) {
+            records.addAll(work_records);
+        }
+        records.addAll(pendingEvents_.values());
+        return records;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.workflow;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contains the metrics of the event dispatch to an asynchronous
+ * {@link EventListener}.
+ * <p>All the values are updated live and can be read at any time.
+ *
+ * @rife.apiNote The workflow engine is still in an ALPHA EXPERIMENTAL STAGE and might change.
+ * @author Geert Bevin (gbevin[remove] at uwyn dot com)
+ * @see Workflow#getListenerMetrics
+ * @since 1.9.2
+ */
+public class ListenerMetrics {
+    private final LongAdder delivered_ = new LongAdder();
+    private final LongAdder failed_ = new LongAdder();
+    private final LongAdder dropped_ = new LongAdder();
+    private final AtomicLong queued_ = new AtomicLong();
+    private final AtomicLong maximumQueued_ = new AtomicLong();
+    private final LongAdder totalWaitNanos_ = new LongAdder();
+    private final AtomicLong maximumWaitNanos_ = new AtomicLong();
+    private final LongAdder totalDurationNanos_ = new LongAdder();
+    private final AtomicLong maximumDurationNanos_ = new AtomicLong();
+
+    ListenerMetrics() {
+    }
+
+    void queued(long size) {
+        queued_.set(size);
+        maximumQueued_.accumulateAndGet(size, Math::max);
+    }
+
+    void dequeued(long size, long waitNanos) {
+        queued_.set(size);
+        totalWaitNanos_.add(waitNanos);
+        maximumWaitNanos_.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    void delivered(long durationNanos) {
+        delivered_.increment();
+        totalDurationNanos_.add(durationNanos);
+        maximumDurationNanos_.accumulateAndGet(durationNanos, Math::max);
+    }
+
+    void failed(long durationNanos) {
+        delivered(durationNanos);
+        failed_.increment();
+    }
+
+    void dropped() {
+        dropped_.increment();
+    }
+
+    /**
+     * Retrieves the number of events that were delivered to the listener.
+     *
+     * @return the number of delivered events
+     * @since 1.9.2
+     */
+    public long getDeliveredCount() {
+        return delivered_.sum();
+    }
+
+    /**
+     * Retrieves the number of delivered events for which the listener threw
+     * an exception.
+     *
+     * @return the number of failed deliveries
+     * @since 1.9.2
+     */
+    public long getFailedCount() {
+        return failed_.sum();
+    }
+
+    /**
+     * Retrieves the number of events that were dropped because the queue
+     * of the listener was full.
+     *
+     * @return the number of dropped events
+     * @since 1.9.2
+     */
+    public long getDroppedCount() {
+        return dropped_.sum();
+    }
+
+    /**
+     * Retrieves the number of events that are currently waiting in the
+     * queue of the listener.
+     *
+     * @return the current queue size
+     * @since 1.9.2
+     */
+    public long getQueuedCount() {
+        return queued_.get();
+    }
+
+    /**
+     * Retrieves the largest number of events that were waiting in the queue
+     * of the listener at the same time.
+     *
+     * @return the maximum queue size
+     * @since 1.9.2
+     */
+    public long getMaximumQueuedCount() {
+        return maximumQueued_.get();
+    }
+
+    /**
+     * Retrieves the average time that events waited in the queue before
+     * being delivered.
+     *
+     * @return the average wait time in milliseconds
+     * @since 1.9.2
+     */
+    public double getAverageWait() {
+        var delivered = delivered_.sum();
+        if (0 == delivered) {
+            return 0;
+        }
+        return totalWaitNanos_.sum() / 1000000.0 / delivered;
+    }
+
+    /**
+     * Retrieves the longest time that an event waited in the queue before
+     * being delivered.
+     *
+     * @return the maximum wait time in milliseconds
+     * @since 1.9.2
+     */
+    public double getMaximumWait() {
+        return maximumWaitNanos_.get() / 1000000.0;
+    }
+
+    /**
+     * Retrieves the average time the listener took to handle an event.
+     *
+     * @return the average duration in milliseconds
+     * @since 1.9.2
+     */
+    public double getAverageDuration() {
+        var delivered = delivered_.sum();
+        if (0 == delivered) {
+            return 0;
+        }
+        return totalDurationNanos_.sum() / 1000000.0 / delivered;
+    }
+
+    /**
+     * Retrieves the longest time the listener took to handle an event.
+     *
+     * @return the maximum duration in milliseconds
+     * @since 1.9.2
+     */
+    public double getMaximumDuration() {
+        return maximumDurationNanos_.get() / 1000000.0;
+    }
+}
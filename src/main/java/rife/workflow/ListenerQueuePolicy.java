@@ -0,0 +1,29 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.workflow;
+
+/**
+ * Determines what happens when an event is dispatched to an asynchronous
+ * {@link EventListener} whose queue is full.
+ *
+ * @rife.apiNote The workflow engine is still in an ALPHA EXPERIMENTAL STAGE and might change.
+ * @author Geert Bevin (gbevin[remove] at uwyn dot com)
+ * @see Workflow#addListener(EventListener, int, ListenerQueuePolicy)
+ * @since 1.9.2
+ */
+public enum ListenerQueuePolicy {
+    /**
+     * The event isn't delivered to the listener and is counted as dropped
+     * in its {@link ListenerMetrics}.
+     */
+    DROP,
+    /**
+     * The thread that triggers or informs about the event waits until there
+     * is room in the queue of the listener.
+     * <p>Events that the listener itself causes while its queue is full are
+     * dropped, since waiting for itself would never end.
+     */
+    BLOCK
+}
@@ -45,4 +45,22 @@ public interface Work {
         // method call with the appropriate logic
         throw new ContinuationsNotActiveException();
     }
-}
\ No newline at end of file
+
+    /**
+     * Retrieves the correlation key of this work.
+     * <p>When work pauses for an event type, it will only be woken up by
+     * events of that type with the same correlation key, or by events without
+     * a correlation key. Work without a correlation key is woken up by all
+     * the events of the type it's paused for.
+     * <p>The key is retrieved each time the work pauses, it can thus change
+     * during the execution of the work.
+     *
+     * @return the correlation key of this work; or
+     * <p>{@code null} if this work doesn't have a correlation key
+     * @see Event#getCorrelationKey()
+     * @since 1.9.2
+     */
+    default Object getCorrelationKey() {
+        return null;
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.workflow;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Provides the executors that can be used by a {@link Workflow} to run
+ * its work.
+ *
+ * @rife.apiNote The workflow engine is still in an ALPHA EXPERIMENTAL STAGE and might change.
+ * @author Geert Bevin (gbevin[remove] at uwyn dot com)
+ * @since 1.9.2
+ */
+public final class WorkExecutors {
+    private WorkExecutors() {
+        // no-op
+    }
+
+    /**
+     * Creates the default executor for work.
+     * <p>
+     * When the Java runtime supports virtual threads, each work is executed
+     * in its own virtual thread, allowing a large number of works to be
+     * resumed at the same time without creating as many platform threads.
+     * On older runtimes, this falls back to a cached thread pool.
+     *
+     * @return the default work executor
+     * @since 1.9.2
+     */
+    public static ExecutorService createDefault() {
+        try {
+            var method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * Creates the default executor that delivers the events to the
+     * asynchronous event listeners of a workflow.
+     * <p>This executor is never shut down by the workflow. It thus runs
+     * the listeners in virtual threads when the Java runtime supports them,
+     * and otherwise in a cached pool of daemon threads, neither of which
+     * keep the application from exiting.
+     *
+     * @return the default listener executor
+     */
+    static ExecutorService createListenerDefault() {
+        try {
+            var method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return Executors.newCachedThreadPool(new WorkThreadFactory("WORKFLOW_LISTENER-"));
+        }
+    }
+
+    /**
+     * Creates the executor that publishes the events of a workflow through
+     * its transport.
+     * <p>A single daemon thread publishes the events, so that they reach
+     * the other nodes in the order in which they were triggered, without
+     * the callers having to wait for the network.
+     *
+     * @return the transport executor
+     */
+    static ExecutorService createTransportExecutor() {
+        return Executors.newSingleThreadExecutor(new WorkThreadFactory("WORKFLOW_TRANSPORT-"));
+    }
+
+    /**
+     * Creates a bounded executor for work.
+     * <p>
+     * At most {@code maxThreads} works run at the same time and at most
+     * {@code maxQueued} additional works wait for a thread to become
+     * available. When that queue is full, the threads that start work or
+     * that call {@link Workflow#trigger} or {@link Workflow#inform} are
+     * blocked until there's room again, slowing down the producers of
+     * events instead of piling up work.
+     * <p>
+     * Work that is submitted from within running work is never blocked,
+     * since that could prevent the queue from ever draining.
+     *
+     * @param maxThreads the maximum number of threads that run work
+     * @param maxQueued  the maximum number of works that are waiting for a thread
+     * @return the bounded work executor
+     * @since 1.9.2
+     */
+    public static ExecutorService createBounded(int maxThreads, int maxQueued) {
+        if (maxThreads <= 0) throw new IllegalArgumentException("maxThreads has to be bigger than 0.");
+        if (maxQueued < 0) throw new IllegalArgumentException("maxQueued can't be negative.");
+
+        return new BoundedExecutor(maxThreads, maxQueued);
+    }
+
+    private static class BoundedExecutor extends ThreadPoolExecutor {
+        private final Semaphore permits_;
+        private final ThreadLocal<Boolean> runningWork_ = new ThreadLocal<>();
+
+        BoundedExecutor(int maxThreads, int maxQueued) {
+            super(maxThreads, maxThreads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new WorkThreadFactory("WORKFLOW_WORK-"));
+            allowCoreThreadTimeOut(true);
+            permits_ = new Semaphore(maxThreads + maxQueued);
+        }
+
+        public void execute(Runnable command) {
+            if (null == command) throw new NullPointerException();
+
+            // work that is submitted by running work bypasses the permits,
+            // blocking it could otherwise deadlock the whole executor
+            var acquired = false;
+            if (!Boolean.TRUE.equals(runningWork_.get())) {
+                try {
+                    permits_.acquire();
+                    acquired = true;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RejectedExecutionException(e);
+                }
+            }
+
+            final var release = acquired;
+            try {
+                super.execute(() -> {
+                    runningWork_.set(Boolean.TRUE);
+                    try {
+                        command.run();
+                    } finally {
+                        runningWork_.remove();
+                        if (release) {
+                            permits_.release();
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                if (release) {
+                    permits_.release();
+                }
+                throw e;
+            }
+        }
+    }
+
+    private static class WorkThreadFactory implements ThreadFactory {
+        private final String prefix_;
+        private final AtomicInteger counter_ = new AtomicInteger();
+
+        WorkThreadFactory(String prefix) {
+            prefix_ = prefix;
+        }
+
+        public Thread newThread(Runnable runnable) {
+            var thread = new Thread(runnable, prefix_ + counter_.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
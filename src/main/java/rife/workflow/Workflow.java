@@ -10,16 +10,18 @@ import rife.continuations.ContinuationConfigInstrument;
 import rife.continuations.basic.BasicContinuableRunner;
 import rife.continuations.basic.CallTargetRetriever;
 import rife.ioc.HierarchicalProperties;
+import rife.tools.ExceptionUtils;
 import rife.workflow.config.ContinuationInstrument;
+import rife.workflow.exceptions.JournalException;
+import rife.workflow.exceptions.TransportException;
 
-import java.util.HashSet;
-import java.util.Queue;
-import java.util.Set;
+import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
 
 /**
  * Runs work and dispatches events to work that is paused.
@@ -38,26 +40,43 @@ public class Workflow {
     private final HierarchicalProperties properties_;
     private final ExecutorService workExecutor_;
     private final BasicContinuableRunner runner_;
-    private final ConcurrentMap<Object, Set<String>> eventsMapping_;
+    private final EventSubscriptions subscriptions_;
     private final ConcurrentMap<Object, Queue<Event>> pendingEvents_;
     private final Set<EventListener> listeners_;
+    private final ConcurrentMap<EventListener, AsyncListener> asyncListeners_ = new ConcurrentHashMap<>();
+    private volatile ExecutorService listenerExecutor_ = null;
     private final Lock workLock_ = new ReentrantLock();
     private final Condition workFinished_ = workLock_.newCondition();
     private final Condition workPaused_ = workLock_.newCondition();
     private final AtomicLong activeWorkAndPauseCount_ = new AtomicLong();
     private final AtomicLong activePauseCount_ = new AtomicLong();
+    private volatile int resumeBatchSize_ = 1;
+
+    private volatile WorkflowJournal journal_ = null;
+    private final AtomicLong journalIds_ = new AtomicLong();
+    private final ThreadLocal<WorkExecution> currentExecution_ = new ThreadLocal<>();
+    private final ConcurrentMap<String, JournaledWork> pausedWork_ = new ConcurrentHashMap<>();
+    private final Map<Event, Long> pendingEventIds_ = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    private volatile EventTransport transport_ = null;
+    private volatile ExecutorService transportExecutor_ = null;
 
     /**
-     * Creates a new workflow instance with a cached thread pool.
+     * Creates a new workflow instance with the default work executor.
      *
+     * @see WorkExecutors#createDefault()
      * @since 1.0
      */
     public Workflow() {
-        this(Executors.newCachedThreadPool());
+        this(WorkExecutors.createDefault());
     }
 
     /**
      * Creates a new workflow instance with a provided executor.
+     * <p>
+     * Use {@link WorkExecutors#createBounded} to limit the number of works
+     * that can run and wait at the same time, which applies back-pressure
+     * to the threads that trigger or inform about events.
      *
      * @param executor the executor to use for running the work
      * @since 1.0
@@ -67,13 +86,15 @@ public class Workflow {
     }
 
     /**
-     * Creates a new workflow instance with a provided parent properties.
+     * Creates a new workflow instance with a provided parent properties
+     * and the default work executor.
      *
      * @param properties the parent hierarchical properties
+     * @see WorkExecutors#createDefault()
      * @since 1.0
      */
     public Workflow(HierarchicalProperties properties) {
-        this(Executors.newCachedThreadPool(), properties);
+        this(WorkExecutors.createDefault(), properties);
     }
 
     /**
@@ -89,17 +110,13 @@ public class Workflow {
         runner_ = new BasicContinuableRunner(CONFIG_INSTRUMENT, new Class[]{Workflow.class}) {
             public void executeContinuable(Object object)
             throws Throwable {
-                var method = object.getClass().getMethod(
-                    getConfigInstrumentation().getEntryMethodName(),
-                    getEntryMethodArgumentTypes());
-                method.setAccessible(true);
-                method.invoke(object, Workflow.this);
+                getEntryMethodHandle(object.getClass()).invoke(object, Workflow.this);
             }
         };
         runner_.setCloneContinuations(false);
         runner_.setCallTargetRetriever(new EventTypeCallTargetRetriever());
 
-        eventsMapping_ = new ConcurrentHashMap<>();
+        subscriptions_ = new EventSubscriptions();
         pendingEvents_ = new ConcurrentHashMap<>();
         workExecutor_ = executor;
         listeners_ = new CopyOnWriteArraySet<>();
@@ -115,6 +132,141 @@ public class Workflow {
         return properties_;
     }
 
+    /**
+     * Sets the journal that records the state changes of this workflow.
+     * <p>The journal should be set before any work is started, and
+     * {@link #recover()} should be called right after to resume the work
+     * of a previous run.
+     *
+     * @param journal the journal to use; or
+     *                {@code null} to disable journaling
+     * @see WorkflowJournal
+     * @since 1.9.2
+     */
+    public void setJournal(WorkflowJournal journal) {
+        journal_ = journal;
+    }
+
+    /**
+     * Retrieves the journal of this workflow.
+     *
+     * @return this workflow's journal; or
+     * <p>{@code null} if journaling is disabled
+     * @since 1.9.2
+     */
+    public WorkflowJournal getJournal() {
+        return journal_;
+    }
+
+    /**
+     * Sets the transport that exchanges events with the workflows of other
+     * nodes.
+     * <p>The events that are triggered or informed about in this workflow
+     * are published through the transport after they have been handled
+     * locally, and the events of the other nodes are handled as if they were
+     * informed about. The events are published by a background thread, in
+     * the order in which they were triggered or informed about. A transport
+     * that was set before is closed.
+     *
+     * @param transport the transport to use; or
+     *                  {@code null} to only handle events locally
+     * @throws TransportException when the transport couldn't be opened or
+     *                            the previous one couldn't be closed
+     * @see EventTransport
+     * @since 1.9.2
+     */
+    public synchronized void setTransport(EventTransport transport)
+    throws TransportException {
+        var previous = transport_;
+        var previous_executor = transportExecutor_;
+        transport_ = null;
+        transportExecutor_ = null;
+        try {
+            if (previous != null) {
+                previous.close();
+            }
+        } finally {
+            // events that were still waiting to be offered through the closed
+            // transport are handled locally by the executor before it stops
+            if (previous_executor != null) {
+                previous_executor.shutdown();
+            }
+        }
+
+        if (transport != null) {
+            transport.open(event -> handleEvent(event, false));
+            transportExecutor_ = WorkExecutors.createTransportExecutor();
+            transport_ = transport;
+        }
+    }
+
+    /**
+     * Retrieves the transport of this workflow.
+     *
+     * @return this workflow's transport; or
+     * <p>{@code null} if events are only handled locally
+     * @since 1.9.2
+     */
+    public EventTransport getTransport() {
+        return transport_;
+    }
+
+    /**
+     * Recovers the unfinished work and pending events that were recorded in
+     * the journal of this workflow.
+     * <p>The pending events are queued up again and the unfinished work is
+     * executed again from the start. When that work pauses, it receives the
+     * events that it already received before, until it pauses for an event
+     * that it hadn't received yet.
+     * <p>This should be called once, before any work is started or any
+     * event is triggered.
+     *
+     * @return this workflow instance
+     * @throws JournalException when the state couldn't be recovered
+     * @see WorkflowJournal
+     * @since 1.9.2
+     */
+    public Workflow recover()
+    throws JournalException {
+        var journal = journal_;
+        if (null == journal) {
+            return this;
+        }
+
+        var state = journal.recover();
+        journalIds_.accumulateAndGet(state.getLastId(), Math::max);
+
+        for (var entry : state.getPendingEvents().entrySet()) {
+            var event = entry.getValue();
+            pendingEventIds_.put(event, entry.getKey());
+            pendingEvents_.computeIfAbsent(event.getType(), t -> new ConcurrentLinkedQueue<>()).add(event);
+        }
+
+        for (var work_id : state.getWorkIds()) {
+            final Class klass;
+            try {
+                klass = runner_.getClassLoader().loadClass(state.getWorkClassName(work_id));
+            } catch (ClassNotFoundException e) {
+                throw new JournalException("Can't find the class of the work with ID " + work_id + " to recover.", e);
+            }
+
+            var work = new JournaledWork(work_id, state.getDeliveredEvents(work_id));
+            activeWorkAndPauseCount_.incrementAndGet();
+            workExecutor_.submit(() -> {
+                try {
+                    executeWork(work, () -> runner_.start(klass));
+
+                    activeWorkAndPauseCount_.decrementAndGet();
+                    signalWhenAllWorkFinished();
+                } catch (Throwable e) {
+                    throw new RuntimeException(e);
+                }
+            });
+        }
+
+        return this;
+    }
+
     /**
      * Starts the execution of a new work instance.
      *
@@ -123,10 +275,11 @@ public class Workflow {
      * @since 1.0
      */
     public Workflow start(final Class<? extends Work> klass) {
+        final var journaled = journalStart(klass);
         activeWorkAndPauseCount_.incrementAndGet();
         workExecutor_.submit(() -> {
             try {
-                runner_.start(klass);
+                executeWork(journaled, () -> runner_.start(klass));
 
                 activeWorkAndPauseCount_.decrementAndGet();
                 signalWhenAllWorkFinished();
@@ -140,16 +293,20 @@ public class Workflow {
 
     /**
      * Starts the execution of a new work instance.
+     * <p>When the workflow has a journal, only the class of the work is
+     * recorded. Recovered work is thus executed on a new instance that is
+     * created with the default constructor of that class.
      *
      * @param work the work that should be executed
      * @return this workflow instance
      * @since 1.0
      */
     public Workflow start(Work work) {
+        final var journaled = journalStart(work.getClass());
         activeWorkAndPauseCount_.incrementAndGet();
         workExecutor_.submit(() -> {
             try {
-                runner_.start(work);
+                executeWork(journaled, () -> runner_.start(work));
 
                 activeWorkAndPauseCount_.decrementAndGet();
                 signalWhenAllWorkFinished();
@@ -192,6 +349,8 @@ public class Workflow {
      * the event type.
      * <p>If events are informed about and no work is ready to consume them,
      * they will be lost. This is different from events being triggered.
+     * <p>When the workflow uses a bounded executor, this call blocks while
+     * the executor has no room for the work that is resumed.
      *
      * @param event the event
      * @see #trigger(Object)
@@ -200,6 +359,7 @@ public class Workflow {
      */
     public void inform(final Event event) {
         handleEvent(event, false);
+        publishEvent(event);
     }
 
     /**
@@ -233,6 +393,13 @@ public class Workflow {
      * type.
      * <p>If events are triggered, and no work is ready to consume them,
      * they will be queued up until the first available work arrives.
+     * <p>When the workflow has a transport, the event is also published to
+     * the other nodes. There it only wakes up work that is paused for it,
+     * the event is never queued up on those nodes. When no work on this node
+     * is paused for the event, it's first offered to the other nodes and
+     * only queued up here when none of them took it.
+     * <p>When the workflow uses a bounded executor, this call blocks while
+     * the executor has no room for the work that is resumed.
      *
      * @param event the event
      * @see #trigger(Object)
@@ -240,50 +407,159 @@ public class Workflow {
      * @since 1.0
      */
     public void trigger(final Event event) {
-        handleEvent(event, true);
+        if (null == event) return;
+
+        var transport = transport_;
+        var executor = transportExecutor_;
+        if (null == transport || null == executor) {
+            handleEvent(event, true);
+            return;
+        }
+
+        // the event is only queued up here when no work on any node took
+        // it, so that it's never consumed twice
+        if (deliverEvent(event, false)) {
+            publishEvent(event);
+        } else {
+            offerEvent(transport, executor, event);
+        }
+
+        notifyListeners(event);
+        signalWhenAllWorkFinished();
     }
 
-    private void handleEvent(final Event event, boolean schedulePending) {
-        if (null == event) return;
+    private void publishEvent(final Event event) {
+        var transport = transport_;
+        var executor = transportExecutor_;
+        if (null == event || null == transport || null == executor) {
+            return;
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    transport.publish(event);
+                } catch (TransportException e) {
+                    Logger.getLogger("rife.workflow").warning(ExceptionUtils.getExceptionStackTrace(e));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // the transport was replaced in the meantime
+        }
+    }
 
-        // retrieve the continuation IDs of the work that is paused for
-        // the type of the event
-
-        // first obtain the collection for this event's type
-        final Set<String> ids_to_resume = new HashSet<>();
-        eventsMapping_.compute(event.getType(), (eventType, ids) -> {
-            if (ids != null) {
-                synchronized (ids) {
-                    ids_to_resume.addAll(ids);
-                    int delta = -ids.size();
-                    activeWorkAndPauseCount_.addAndGet(delta);
-                    activePauseCount_.addAndGet(delta);
-                    ids.clear();
+    private void offerEvent(final EventTransport transport, final ExecutorService executor, final Event event) {
+        try {
+            executor.execute(() -> {
+                var taken = false;
+                try {
+                    taken = transport.offer(event);
+                } catch (TransportException e) {
+                    Logger.getLogger("rife.workflow").warning(ExceptionUtils.getExceptionStackTrace(e));
                 }
+
+                if (!taken) {
+                    try {
+                        deliverEvent(event, true);
+                    } catch (RuntimeException e) {
+                        Logger.getLogger("rife.workflow").severe(ExceptionUtils.getExceptionStackTrace(e));
+                    }
+                    signalWhenAllWorkFinished();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // the transport was replaced in the meantime
+            deliverEvent(event, true);
+        }
+    }
+
+    private boolean handleEvent(final Event event, boolean schedulePending) {
+        if (null == event) return false;
+
+        var resumed = deliverEvent(event, schedulePending);
+
+        notifyListeners(event);
+        signalWhenAllWorkFinished();
+
+        return resumed;
+    }
+
+    private void notifyListeners(final Event event) {
+        // notify all the event listeners that a new event has been triggered
+        listeners_.forEach(listener -> listener.eventTriggered(event));
+        asyncListeners_.values().forEach(listener -> listener.dispatch(event));
+    }
+
+    // resumes the work that is paused for the event, or queues the event up
+    // when no work is paused for it and it should be scheduled as pending
+    private boolean deliverEvent(final Event event, boolean schedulePending) {
+        // encode the event before any work is claimed, an event that can't
+        // be journaled then doesn't leave claimed work behind that is never
+        // resumed
+        var journal = journal_;
+        byte[] encoded_event = null;
+        if (journal != null &&
+            (schedulePending || subscriptions_.hasWaiters(event.getType(), event.getCorrelationKey()))) {
+            encoded_event = JournalRecord.encodeEvent(event);
+        }
+
+        while (true) {
+            // claim the continuation IDs of the work that is paused for
+            // the type and the correlation key of the event
+            var ids_to_resume = subscriptions_.claim(event.getType(), event.getCorrelationKey());
+            if (!ids_to_resume.isEmpty()) {
+                int delta = -ids_to_resume.size();
+                activeWorkAndPauseCount_.addAndGet(delta);
+                activePauseCount_.addAndGet(delta);
+
+                // resume all the continuations that are paused for the event
+                answer(ids_to_resume, event, journal, encoded_event);
+                return true;
             }
-            return ids;
-        });
 
-        if (ids_to_resume.isEmpty()) {
-            if (schedulePending) {
-                // couldn't find any continuations to resume, add the event as pending
-                pendingEvents_.compute(event.getType(), (eventType, events) -> {
-                    if (events == null) events = new ConcurrentLinkedQueue<>();
-                    events.add(event);
-                    return events;
-                });
+            if (!schedulePending) {
+                return false;
             }
-        } else {
-            // resume all the continuations that are paused for the event type
-            for (var id : ids_to_resume) {
-                answer(id, event);
+
+            // couldn't find any continuations to resume, add the event as pending
+            queuePendingEvent(event, journal, encoded_event);
+
+            // work could have paused for the event while it was being
+            // queued and miss it, in that case the event is handled again
+            if (!subscriptions_.hasWaiters(event.getType(), event.getCorrelationKey()) ||
+                !dequeuePendingEvent(event)) {
+                return false;
             }
         }
+    }
 
-        // notify all the event listeners that a new event has been triggered
-        listeners_.forEach(listener -> listener.eventTriggered(event));
+    /**
+     * Sets the number of paused works that are resumed together by one
+     * executor task when an event wakes up many works at once.
+     * <p>Larger batches reduce the number of tasks that are submitted to the
+     * work executor, but the works of a batch are resumed one after the
+     * other. This defaults to {@code 1}, which resumes every work in its
+     * own task.
+     *
+     * @param size the maximum number of works per resume task
+     * @since 1.9.2
+     */
+    public void setResumeBatchSize(int size) {
+        if (size <= 0) throw new IllegalArgumentException("size has to be bigger than 0.");
 
-        signalWhenAllWorkFinished();
+        resumeBatchSize_ = size;
+    }
+
+    /**
+     * Retrieves the number of paused works that are resumed together by one
+     * executor task.
+     *
+     * @return the maximum number of works per resume task
+     * @see #setResumeBatchSize
+     * @since 1.9.2
+     */
+    public int getResumeBatchSize() {
+        return resumeBatchSize_;
     }
 
     /**
@@ -328,8 +604,11 @@ public class Workflow {
 
     /**
      * Adds a new event listener.
+     * <p>The listener is notified synchronously by the thread that triggers
+     * or informs about an event, before that call returns.
      *
      * @param listener the event listener that will be added
+     * @see #addListener(EventListener, int, ListenerQueuePolicy)
      * @see #removeListener
      * @since 1.0
      */
@@ -353,6 +632,91 @@ public class Workflow {
         }
 
         listeners_.remove(listener);
+        asyncListeners_.remove(listener);
+    }
+
+    /**
+     * Adds a new event listener that is notified asynchronously.
+     * <p>Events are put in a bounded queue that is dedicated to the listener
+     * and that is drained by the listener executor. The listener receives
+     * the events in order and never concurrently, a slow listener doesn't
+     * slow down the threads that trigger or inform about events, unless its
+     * queue fills up and the {@link ListenerQueuePolicy#BLOCK} policy is used.
+     *
+     * @param listener      the event listener that will be added
+     * @param queueCapacity the maximum number of events that can wait to be
+     *                      delivered to the listener
+     * @param policy        what to do when the queue of the listener is full
+     * @see #getListenerMetrics
+     * @see #setListenerExecutor
+     * @see #removeListener
+     * @since 1.9.2
+     */
+    public void addListener(final EventListener listener, int queueCapacity, ListenerQueuePolicy policy) {
+        if (null == listener) {
+            return;
+        }
+        if (queueCapacity <= 0) throw new IllegalArgumentException("queueCapacity has to be bigger than 0.");
+        if (null == policy) throw new IllegalArgumentException("policy can't be null.");
+
+        asyncListeners_.put(listener, new AsyncListener(listener, queueCapacity, policy, this::getListenerExecutor));
+    }
+
+    /**
+     * Retrieves the dispatch metrics of an asynchronous event listener.
+     *
+     * @param listener the event listener
+     * @return the metrics of the listener; or
+     * <p>{@code null} if the listener wasn't added as an asynchronous listener
+     * @see #addListener(EventListener, int, ListenerQueuePolicy)
+     * @since 1.9.2
+     */
+    public ListenerMetrics getListenerMetrics(final EventListener listener) {
+        if (null == listener) {
+            return null;
+        }
+
+        var async_listener = asyncListeners_.get(listener);
+        if (null == async_listener) {
+            return null;
+        }
+        return async_listener.getMetrics();
+    }
+
+    /**
+     * Sets the executor that delivers the events to the asynchronous event
+     * listeners.
+     *
+     * @param executor the executor to use for the asynchronous listeners
+     * @see #addListener(EventListener, int, ListenerQueuePolicy)
+     * @since 1.9.2
+     */
+    public void setListenerExecutor(ExecutorService executor) {
+        listenerExecutor_ = executor;
+    }
+
+    /**
+     * Retrieves the executor that delivers the events to the asynchronous
+     * event listeners.
+     * <p>When no executor was set, a default executor is created the first
+     * time it's needed. Its threads are daemon threads, so it doesn't have
+     * to be shut down for the application to exit.
+     *
+     * @return the executor of the asynchronous listeners
+     * @since 1.9.2
+     */
+    public ExecutorService getListenerExecutor() {
+        var executor = listenerExecutor_;
+        if (null == executor) {
+            synchronized (asyncListeners_) {
+                executor = listenerExecutor_;
+                if (null == executor) {
+                    executor = WorkExecutors.createListenerDefault();
+                    listenerExecutor_ = executor;
+                }
+            }
+        }
+        return executor;
     }
 
     private void signalWhenAllWorkFinished() {
@@ -375,44 +739,196 @@ public class Workflow {
         }
     }
 
-    private void answer(final String id, final Object callAnswer) {
-        if (null == id) return;
-        activeWorkAndPauseCount_.incrementAndGet();
-        workExecutor_.submit(() -> {
-            try {
-                runner_.answer(id, callAnswer);
+    private void answer(final List<String> ids, final Event event, final WorkflowJournal journal, final byte[] encodedEvent) {
+        var batch_size = resumeBatchSize_;
+        var batch = new ArrayList<Resumption>(Math.min(batch_size, ids.size()));
+        for (var id : ids) {
+            var work = pausedWork_.remove(id);
+            if (work != null && journal != null) {
+                try {
+                    if (null == encodedEvent) {
+                        journal.append(JournalRecord.eventDelivered(work.id_, event));
+                    } else {
+                        journal.append(JournalRecord.eventDelivered(work.id_, encodedEvent));
+                    }
+                } catch (JournalException e) {
+                    // the work has already been claimed and has to be resumed
+                    // regardless, otherwise it would never finish
+                    Logger.getLogger("rife.workflow").severe(ExceptionUtils.getExceptionStackTrace(e));
+                }
+            }
 
-                activeWorkAndPauseCount_.decrementAndGet();
-                signalWhenAllWorkFinished();
-            } catch (Throwable e) {
-                throw new RuntimeException(e);
+            batch.add(new Resumption(id, event, work));
+            if (batch.size() == batch_size) {
+                resume(batch);
+                batch = new ArrayList<>(batch_size);
             }
+        }
+
+        if (!batch.isEmpty()) {
+            resume(batch);
+        }
+    }
+
+    private void resume(final List<Resumption> resumptions) {
+        activeWorkAndPauseCount_.addAndGet(resumptions.size());
+        workExecutor_.submit(() -> {
+            for (var resumption : resumptions) {
+                try {
+                    executeWork(resumption.work(), () -> runner_.answer(resumption.id(), resumption.event()));
+                } catch (Throwable e) {
+                    Logger.getLogger("rife.workflow").severe(ExceptionUtils.getExceptionStackTrace(e));
+                } finally {
+                    activeWorkAndPauseCount_.decrementAndGet();
+                }
+            }
+            signalWhenAllWorkFinished();
         });
     }
 
+    private void queuePendingEvent(final Event event, final WorkflowJournal journal, final byte[] encodedEvent) {
+        if (journal != null) {
+            var event_id = journalIds_.incrementAndGet();
+            journal.append(JournalRecord.eventQueued(event_id, encodedEvent));
+            pendingEventIds_.put(event, event_id);
+        }
+
+        pendingEvents_.computeIfAbsent(event.getType(), t -> new ConcurrentLinkedQueue<>()).add(event);
+    }
+
+    private boolean dequeuePendingEvent(final Event event) {
+        var events = pendingEvents_.get(event.getType());
+        if (null == events || !events.remove(event)) {
+            return false;
+        }
+
+        var event_id = pendingEventIds_.remove(event);
+        var journal = journal_;
+        if (event_id != null && journal != null) {
+            journal.append(JournalRecord.eventDequeued(event_id));
+        }
+
+        return true;
+    }
+
+    private Event pollPendingEvent(final Object type, final Object correlationKey) {
+        var events = pendingEvents_.get(type);
+        if (null == events) {
+            return null;
+        }
+
+        for (var event : events) {
+            if (EventSubscriptions.matches(event, correlationKey) &&
+                events.remove(event)) {
+                return event;
+            }
+        }
+
+        return null;
+    }
+
+    private JournaledWork journalStart(Class klass) {
+        var journal = journal_;
+        if (null == journal) {
+            return null;
+        }
+
+        var work = new JournaledWork(journalIds_.incrementAndGet(), Collections.emptyList());
+        journal.append(JournalRecord.workStarted(work.id_, klass.getName()));
+        return work;
+    }
+
+    private void executeWork(JournaledWork work, ContinuableExecution execution)
+    throws Throwable {
+        if (null == work) {
+            execution.execute();
+            return;
+        }
+
+        // keep track of the work that is executed by this thread, so that
+        // its pauses can be associated with it
+        var work_execution = new WorkExecution(work);
+        currentExecution_.set(work_execution);
+        try {
+            execution.execute();
+        } finally {
+            currentExecution_.remove();
+
+            var journal = journal_;
+            if (!work_execution.paused_ && journal != null) {
+                journal.append(JournalRecord.workFinished(work.id_));
+            }
+        }
+    }
+
+    private interface ContinuableExecution {
+        void execute()
+        throws Throwable;
+    }
+
+    private static class JournaledWork {
+        private final long id_;
+        private final Queue<Event> replay_;
+
+        JournaledWork(long id, Collection<Event> replay) {
+            id_ = id;
+            replay_ = new ConcurrentLinkedQueue<>(replay);
+        }
+    }
+
+    private record Resumption(String id, Event event, JournaledWork work) {
+    }
+
+    private static class WorkExecution {
+        private final JournaledWork work_;
+        private boolean paused_ = false;
+
+        WorkExecution(JournaledWork work) {
+            work_ = work;
+        }
+    }
+
     private class EventTypeCallTargetRetriever implements CallTargetRetriever {
         public CloneableContinuable getCallTarget(Object type, CallState state) {
-            // keeps track of the continuation ID for this event type
-            eventsMapping_.compute(type, (eventType, ids) -> {
-                if (ids == null) ids = new HashSet<>();
-                synchronized (ids) {
-                    ids.add(state.getContinuationId());
-                    activeWorkAndPauseCount_.incrementAndGet();
-                    activePauseCount_.incrementAndGet();
+            var execution = currentExecution_.get();
+            if (execution != null) {
+                execution.paused_ = true;
+
+                // recovered work first receives the events it already
+                // received before the journal was recovered
+                var replayed = execution.work_.replay_.poll();
+                if (replayed != null) {
+                    resume(List.of(new Resumption(state.getContinuationId(), replayed, execution.work_)));
+                    return null;
                 }
-                return ids;
-            });
+
+                pausedWork_.put(state.getContinuationId(), execution.work_);
+            }
+
+            Object correlation_key = null;
+            if (runner_.getCurrentContinuable() instanceof Work work) {
+                correlation_key = work.getCorrelationKey();
+            }
+
+            // keeps track of the continuation ID for this event type
+            activeWorkAndPauseCount_.incrementAndGet();
+            activePauseCount_.incrementAndGet();
+            subscriptions_.subscribe(type, state.getContinuationId(), correlation_key);
 
             signalThatWorkIsPaused();
 
             // get the next pending event of this call type and trigger it
-            final var pending_event = new Event[1];
-            pendingEvents_.computeIfPresent(type, (evenType, events) -> {
-                pending_event[0] = events.poll();
-                return events;
-            });
-            if (pending_event[0] != null) {
-                trigger(pending_event[0]);
+            var pending_event = pollPendingEvent(type, correlation_key);
+            if (pending_event != null) {
+                // the event ID is released first, since the event can be
+                // queued up again with a new ID when it's triggered
+                var event_id = pendingEventIds_.remove(pending_event);
+                handleEvent(pending_event, true);
+
+                var journal = journal_;
+                if (event_id != null && journal != null) {
+                    journal.append(JournalRecord.eventDequeued(event_id));
+                }
             }
 
             return null;
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.workflow;
+
+import rife.workflow.exceptions.JournalException;
+
+/**
+ * Persists the state changes of a {@link Workflow} so that its unfinished
+ * work and pending events can be recovered after a restart.
+ * <p>Paused work can't be stored as-is since its continuation only lives
+ * in memory. Instead, the journal records which work was started and which
+ * events were delivered to it. During recovery the work is executed again
+ * from the start and receives the same events when it pauses, which brings
+ * it back to where it was. The work thus has to behave deterministically
+ * for the same events, and any side effects it has before pausing should
+ * be safe to repeat.
+ * <p>Implementations are allowed to batch their writes, records that were
+ * appended are only guaranteed to be durable after {@link #flush()} returned.
+ * <p>A journal belongs to a single workflow. The IDs of the work and of the
+ * events are handed out by the workflow that appends the records, several
+ * processes can thus not share the same journal, each needs its own.
+ *
+ * @rife.apiNote The workflow engine is still in an ALPHA EXPERIMENTAL STAGE and might change.
+ * @author Geert Bevin (gbevin[remove] at uwyn dot com)
+ * @see Workflow#setJournal
+ * @see Workflow#recover
+ * @since 1.9.2
+ */
+public interface WorkflowJournal {
+    /**
+     * Appends a record to the journal.
+     *
+     * @param record the record to append
+     * @throws JournalException when the record couldn't be appended
+     * @since 1.9.2
+     */
+    void append(JournalRecord record)
+    throws JournalException;
+
+    /**
+     * Ensures that all the records that were appended are durably stored.
+     *
+     * @throws JournalException when the records couldn't be stored
+     * @since 1.9.2
+     */
+    void flush()
+    throws JournalException;
+
+    /**
+     * Reads the journal and reconstructs the state of the workflow.
+     * <p>Implementations typically also compact the journal so that it
+     * only contains the records of the recovered state.
+     *
+     * @return the recovered state
+     * @throws JournalException when the state couldn't be recovered
+     * @since 1.9.2
+     */
+    JournalState recover()
+    throws JournalException;
+
+    /**
+     * Flushes the journal and releases its resources.
+     *
+     * @throws JournalException when an error occurred while closing the journal
+     * @since 1.9.2
+     */
+    void close()
+    throws JournalException;
+}
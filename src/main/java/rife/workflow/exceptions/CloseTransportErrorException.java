@@ -0,0 +1,15 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.workflow.exceptions;
+
+import java.io.Serial;
+
+public class CloseTransportErrorException extends TransportException {
+    @Serial private static final long serialVersionUID = -1475208836619352094L;
+
+    public CloseTransportErrorException(Throwable cause) {
+        super("Can't close the workflow event transport.", cause);
+    }
+}
@@ -0,0 +1,15 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.workflow.exceptions;
+
+import java.io.Serial;
+
+public class DecodeEventErrorException extends TransportException {
+    @Serial private static final long serialVersionUID = -2609148375520971486L;
+
+    public DecodeEventErrorException(Throwable cause) {
+        super("Can't decode the workflow event from the transport.", cause);
+    }
+}
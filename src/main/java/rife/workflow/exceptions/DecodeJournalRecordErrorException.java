@@ -0,0 +1,15 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.workflow.exceptions;
+
+import java.io.Serial;
+
+public class DecodeJournalRecordErrorException extends JournalException {
+    @Serial private static final long serialVersionUID = -5127394805312668841L;
+
+    public DecodeJournalRecordErrorException(Throwable cause) {
+        super("Can't decode the workflow journal record.", cause);
+    }
+}
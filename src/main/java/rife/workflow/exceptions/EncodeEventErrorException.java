@@ -0,0 +1,15 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.workflow.exceptions;
+
+import java.io.Serial;
+
+public class EncodeEventErrorException extends TransportException {
+    @Serial private static final long serialVersionUID = 8842165190371025473L;
+
+    public EncodeEventErrorException(Throwable cause) {
+        super("Can't encode the workflow event for the transport.", cause);
+    }
+}
@@ -0,0 +1,15 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.workflow.exceptions;
+
+import java.io.Serial;
+
+public class EncodeJournalRecordErrorException extends JournalException {
+    @Serial private static final long serialVersionUID = 2950481713384027763L;
+
+    public EncodeJournalRecordErrorException(Throwable cause) {
+        super("Can't encode the workflow journal record.", cause);
+    }
+}
@@ -0,0 +1,21 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.workflow.exceptions;
+
+import rife.database.exceptions.DatabaseException;
+
+import java.io.Serial;
+
+public class GetJournalBatchIdErrorException extends JournalException {
+    @Serial private static final long serialVersionUID = 4381729650183375026L;
+
+    public GetJournalBatchIdErrorException() {
+        this(null);
+    }
+
+    public GetJournalBatchIdErrorException(DatabaseException cause) {
+        super("Unable to get a workflow journal batch id.", cause);
+    }
+}
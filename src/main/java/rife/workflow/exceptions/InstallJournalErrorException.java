@@ -0,0 +1,15 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.workflow.exceptions;
+
+import java.io.Serial;
+
+public class InstallJournalErrorException extends JournalException {
+    @Serial private static final long serialVersionUID = -1846290478831540073L;
+
+    public InstallJournalErrorException(Throwable cause) {
+        super("Can't install the workflow journal.", cause);
+    }
+}
@@ -0,0 +1,15 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.workflow.exceptions;
+
+import java.io.Serial;
+
+public class OpenTransportErrorException extends TransportException {
+    @Serial private static final long serialVersionUID = 5160483729154031776L;
+
+    public OpenTransportErrorException(Throwable cause) {
+        super("Can't open the workflow event transport.", cause);
+    }
+}
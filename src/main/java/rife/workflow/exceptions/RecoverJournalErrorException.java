@@ -0,0 +1,15 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.workflow.exceptions;
+
+import java.io.Serial;
+
+public class RecoverJournalErrorException extends JournalException {
+    @Serial private static final long serialVersionUID = 8547130284906352241L;
+
+    public RecoverJournalErrorException(Throwable cause) {
+        super("Can't recover the state from the workflow journal.", cause);
+    }
+}
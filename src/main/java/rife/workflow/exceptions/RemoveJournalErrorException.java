@@ -0,0 +1,15 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.workflow.exceptions;
+
+import java.io.Serial;
+
+public class RemoveJournalErrorException extends JournalException {
+    @Serial private static final long serialVersionUID = 5562184049731256690L;
+
+    public RemoveJournalErrorException(Throwable cause) {
+        super("Can't remove the workflow journal.", cause);
+    }
+}
@@ -0,0 +1,15 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.workflow.exceptions;
+
+import java.io.Serial;
+
+public class WriteJournalErrorException extends JournalException {
+    @Serial private static final long serialVersionUID = -7304859112475931605L;
+
+    public WriteJournalErrorException(Throwable cause) {
+        super("Can't write the records to the workflow journal.", cause);
+    }
+}
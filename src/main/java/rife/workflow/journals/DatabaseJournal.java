@@ -0,0 +1,282 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.workflow.journals;
+
+import rife.database.Datasource;
+import rife.database.DbConnection;
+import rife.database.DbConnectionUser;
+import rife.database.DbQueryManager;
+import rife.database.DbRowProcessor;
+import rife.database.exceptions.DatabaseException;
+import rife.database.queries.*;
+import rife.workflow.JournalRecord;
+import rife.workflow.JournalState;
+import rife.workflow.WorkflowJournal;
+import rife.workflow.exceptions.*;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Workflow journal that stores its records in a database table.
+ * <p>Records are collected and inserted in batches, each batch is written
+ * as a single JDBC batch in one transaction. A crash can thus lose the
+ * records of at most one batch interval, unless {@link #flush()} is called.
+ * <p>Every batch gets a new ID from the database, the records are ordered
+ * by that ID and by their position in the batch.
+ * <p>The table is named {@value #DEFAULT_TABLE} and the batch IDs are
+ * generated by the sequence {@value #DEFAULT_SEQUENCE}, unless the database
+ * driver is created with other names.
+ * <p>Like every journal, the table belongs to a single workflow and can't
+ * be shared by several processes, see {@link WorkflowJournal}.
+ * <p>The table is compacted when the state is recovered, only the records
+ * of the unfinished work and of the pending events are retained.
+ *
+ * @rife.apiNote The workflow engine is still in an ALPHA EXPERIMENTAL STAGE and might change.
+ * @author Geert Bevin (gbevin[remove] at uwyn dot com)
+ * @since 1.9.2
+ */
+public abstract class DatabaseJournal extends DbQueryManager implements WorkflowJournal {
+    public static final long DEFAULT_BATCH_INTERVAL = 50;
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    /**
+     * The default name of the journal table.
+     *
+     * @since 1.9.2
+     */
+    public static final String DEFAULT_TABLE = "WorkflowJournal";
+    /**
+     * The default name of the sequence that generates the batch IDs.
+     *
+     * @since 1.9.2
+     */
+    public static final String DEFAULT_SEQUENCE = "SEQ_WORKFLOWJOURNAL";
+
+    private final JournalBatch batch_ = new JournalBatch(this::writeRecords, DEFAULT_BATCH_INTERVAL, DEFAULT_BATCH_SIZE);
+
+    protected DatabaseJournal(Datasource datasource) {
+        super(datasource);
+    }
+
+    /**
+     * Sets the maximum time that appended records wait before being
+     * written to the database.
+     * <p>Setting this to {@code 0} writes every record immediately.
+     *
+     * @param interval the batch interval in milliseconds
+     * @since 1.9.2
+     */
+    public void setBatchInterval(long interval) {
+        if (interval < 0) throw new IllegalArgumentException("interval can't be negative.");
+
+        batch_.setInterval(interval);
+    }
+
+    /**
+     * Retrieves the batch interval.
+     *
+     * @return the batch interval in milliseconds
+     * @since 1.9.2
+     */
+    public long getBatchInterval() {
+        return batch_.getInterval();
+    }
+
+    /**
+     * Sets the number of records after which a batch is written without
+     * waiting for the batch interval to expire.
+     *
+     * @param size the maximum batch size
+     * @since 1.9.2
+     */
+    public void setBatchSize(int size) {
+        if (size <= 0) throw new IllegalArgumentException("size has to be bigger than 0.");
+
+        batch_.setMaxSize(size);
+    }
+
+    /**
+     * Retrieves the maximum batch size.
+     *
+     * @return the maximum number of records in a batch
+     * @since 1.9.2
+     */
+    public int getBatchSize() {
+        return batch_.getMaxSize();
+    }
+
+    public abstract boolean install()
+    throws JournalException;
+
+    public abstract boolean remove()
+    throws JournalException;
+
+    /**
+     * Writes a batch of records to the database, this is implemented by the
+     * database drivers.
+     *
+     * @param records the records to write
+     * @throws JournalException when the records couldn't be written
+     * @since 1.9.2
+     */
+    protected abstract void writeRecords(List<JournalRecord> records)
+    throws JournalException;
+
+    public void append(JournalRecord record)
+    throws JournalException {
+        if (null == record) throw new IllegalArgumentException("record can't be null.");
+
+        batch_.append(record);
+    }
+
+    public void flush()
+    throws JournalException {
+        batch_.flush();
+    }
+
+    public void close()
+    throws JournalException {
+        flush();
+    }
+
+    protected boolean install_(final CreateSequence createSequenceJournal, final CreateTable createTableJournal)
+    throws JournalException {
+        assert createSequenceJournal != null;
+        assert createTableJournal != null;
+
+        try {
+            executeUpdate(createSequenceJournal);
+            executeUpdate(createTableJournal);
+        } catch (DatabaseException e) {
+            throw new InstallJournalErrorException(e);
+        }
+
+        return true;
+    }
+
+    protected boolean remove_(final DropSequence dropSequenceJournal, final DropTable dropTableJournal)
+    throws JournalException {
+        assert dropSequenceJournal != null;
+        assert dropTableJournal != null;
+
+        try {
+            executeUpdate(dropTableJournal);
+            executeUpdate(dropSequenceJournal);
+        } catch (DatabaseException e) {
+            throw new RemoveJournalErrorException(e);
+        }
+
+        return true;
+    }
+
+    /**
+     * Obtains a new unique ID for a batch of records, this is implemented by
+     * the database drivers.
+     * <p>The IDs are generated by the database and they increase, so that
+     * the batches can be read back in the order they were written.
+     *
+     * @return the new batch ID
+     * @throws JournalException when the ID couldn't be obtained
+     * @since 1.9.2
+     */
+    protected abstract long getNewBatchId()
+    throws JournalException;
+
+    protected long getNewBatchId_(final SequenceValue getNewBatchId)
+    throws JournalException {
+        assert getNewBatchId != null;
+
+        try {
+            var batch_id = executeGetFirstLong(getNewBatchId);
+            if (-1 == batch_id) {
+                throw new GetJournalBatchIdErrorException();
+            }
+            return batch_id;
+        } catch (DatabaseException e) {
+            throw new GetJournalBatchIdErrorException(e);
+        }
+    }
+
+    protected void writeRecords_(final Insert addRecord, final List<JournalRecord> records)
+    throws JournalException {
+        assert addRecord != null;
+
+        if (null == records || records.isEmpty()) {
+            return;
+        }
+
+        // the records of a batch are inserted in a single transaction under a
+        // new batch ID, a batch that failed is thus never partially written
+        // and can safely be retried
+        final var batch_id = getNewBatchId();
+        try {
+            inTransaction(() -> insertRecords(addRecord, batch_id, records));
+        } catch (DatabaseException e) {
+            throw new WriteJournalErrorException(e);
+        }
+    }
+
+    protected JournalState recover_(final Select getRecords, final Delete clearRecords, final Insert addRecord)
+    throws JournalException {
+        assert getRecords != null;
+        assert clearRecords != null;
+        assert addRecord != null;
+
+        flush();
+
+        synchronized (this) {
+            try {
+                final var state = new JournalState();
+                inTransaction(() -> {
+                    final var last_batch_id = new long[]{-1};
+                    executeFetchAll(getRecords, new DbRowProcessor() {
+                        public boolean processRow(ResultSet resultSet)
+                        throws SQLException {
+                            last_batch_id[0] = Math.max(last_batch_id[0], resultSet.getLong("batchId"));
+                            state.apply(JournalRecord.fromBytes(resultSet.getBytes("record")));
+                            return true;
+                        }
+                    });
+
+                    // compact the journal by replacing the batches that were
+                    // read with the records of the recovered state, these
+                    // take the place of the last batch so that records that
+                    // were appended in the meantime still come after them
+                    if (last_batch_id[0] >= 0) {
+                        executeUpdate(clearRecords, s -> s.setLong("batchId", last_batch_id[0]));
+                        var records = state.getRecords();
+                        if (!records.isEmpty()) {
+                            insertRecords(addRecord, last_batch_id[0], records);
+                        }
+                    }
+                });
+
+                return state;
+            } catch (DatabaseException e) {
+                throw new RecoverJournalErrorException(e);
+            }
+        }
+    }
+
+    private void insertRecords(final Insert addRecord, final long batchId, final List<JournalRecord> records) {
+        reserveConnection(new DbConnectionUser() {
+            public Object useConnection(DbConnection connection) {
+                try (var statement = connection.getPreparedStatement(addRecord)) {
+                    var ordinal = 0;
+                    for (var record : records) {
+                        statement
+                            .setLong("batchId", batchId)
+                            .setInt("ordinal", ordinal++)
+                            .setBytes("record", record.toBytes());
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                }
+                return true;
+            }
+        });
+    }
+}
@@ -0,0 +1,19 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.workflow.journals;
+
+import rife.database.Datasource;
+import rife.database.DbQueryManagerCache;
+import rife.database.DbQueryManagerFactory;
+
+public abstract class DatabaseJournalFactory extends DbQueryManagerFactory {
+    private static final String MANAGER_PACKAGE_NAME = DatabaseJournalFactory.class.getPackage().getName() + ".databasedrivers.";
+
+    private static final DbQueryManagerCache cache_ = new DbQueryManagerCache();
+
+    public static DatabaseJournal instance(Datasource datasource) {
+        return (DatabaseJournal) instance(MANAGER_PACKAGE_NAME, cache_, datasource);
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.workflow.journals;
+
+import rife.workflow.JournalRecord;
+import rife.workflow.JournalState;
+import rife.workflow.WorkflowJournal;
+import rife.workflow.exceptions.JournalException;
+import rife.workflow.exceptions.RecoverJournalErrorException;
+import rife.workflow.exceptions.WriteJournalErrorException;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Workflow journal that appends its records to a local file.
+ * <p>Records are collected and written in batches, each batch is forced to
+ * the storage device with a single sync. A crash can thus lose the records
+ * of at most one batch interval, unless {@link #flush()} is called.
+ * <p>A batch that fails to be written is truncated from the file before it's
+ * retried. If even that fails, nothing is written anymore until the journal
+ * is recovered, which ignores a record that was only partially written at
+ * the end of the file.
+ * <p>The file is compacted when the state is recovered, only the records
+ * of the unfinished work and of the pending events are retained.
+ * <p>Like every journal, the file belongs to a single workflow and can't be
+ * shared by several processes, see {@link WorkflowJournal}.
+ *
+ * @rife.apiNote The workflow engine is still in an ALPHA EXPERIMENTAL STAGE and might change.
+ * @author Geert Bevin (gbevin[remove] at uwyn dot com)
+ * @since 1.9.2
+ */
+public class FileJournal implements WorkflowJournal {
+    public static final long DEFAULT_BATCH_INTERVAL = 20;
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    private final Path path_;
+    private final JournalBatch batch_;
+    private FileChannel channel_ = null;
+    private boolean torn_ = false;
+
+    /**
+     * Creates a new file journal.
+     *
+     * @param file the file that contains the journal, it will be created
+     *             if it doesn't exist yet
+     * @since 1.9.2
+     */
+    public FileJournal(File file) {
+        if (null == file) throw new IllegalArgumentException("file can't be null.");
+
+        path_ = file.toPath();
+        batch_ = new JournalBatch(this::writeRecords, DEFAULT_BATCH_INTERVAL, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Retrieves the file of this journal.
+     *
+     * @return this journal's file
+     * @since 1.9.2
+     */
+    public File getFile() {
+        return path_.toFile();
+    }
+
+    /**
+     * Sets the maximum time that appended records wait before being
+     * written to the file.
+     * <p>Setting this to {@code 0} writes and syncs every record
+     * immediately.
+     *
+     * @param interval the batch interval in milliseconds
+     * @since 1.9.2
+     */
+    public void setBatchInterval(long interval) {
+        if (interval < 0) throw new IllegalArgumentException("interval can't be negative.");
+
+        batch_.setInterval(interval);
+    }
+
+    /**
+     * Retrieves the batch interval.
+     *
+     * @return the batch interval in milliseconds
+     * @since 1.9.2
+     */
+    public long getBatchInterval() {
+        return batch_.getInterval();
+    }
+
+    /**
+     * Sets the number of records after which a batch is written without
+     * waiting for the batch interval to expire.
+     *
+     * @param size the maximum batch size
+     * @since 1.9.2
+     */
+    public void setBatchSize(int size) {
+        if (size <= 0) throw new IllegalArgumentException("size has to be bigger than 0.");
+
+        batch_.setMaxSize(size);
+    }
+
+    /**
+     * Retrieves the maximum batch size.
+     *
+     * @return the maximum number of records in a batch
+     * @since 1.9.2
+     */
+    public int getBatchSize() {
+        return batch_.getMaxSize();
+    }
+
+    public void append(JournalRecord record)
+    throws JournalException {
+        if (null == record) throw new IllegalArgumentException("record can't be null.");
+
+        batch_.append(record);
+    }
+
+    public void flush()
+    throws JournalException {
+        batch_.flush();
+    }
+
+    public JournalState recover()
+    throws JournalException {
+        flush();
+
+        synchronized (this) {
+            try {
+                closeChannel();
+
+                var state = new JournalState();
+                if (Files.exists(path_)) {
+                    try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path_)))) {
+                        while (true) {
+                            try {
+                                state.apply(JournalRecord.read(in));
+                            } catch (EOFException e) {
+                                // the end of the journal was reached or the last
+                                // record was only partially written
+                                break;
+                            }
+                        }
+                    }
+                }
+
+                // compact the journal by atomically replacing it
+                var compacted = path_.resolveSibling(path_.getFileName() + ".compact");
+                try (var channel = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    writeFully(channel, encode(state.getRecords()));
+                    channel.force(true);
+                }
+                Files.move(compacted, path_, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                torn_ = false;
+
+                return state;
+            } catch (IOException e) {
+                throw new RecoverJournalErrorException(e);
+            }
+        }
+    }
+
+    public void close()
+    throws JournalException {
+        flush();
+
+        synchronized (this) {
+            try {
+                closeChannel();
+            } catch (IOException e) {
+                throw new WriteJournalErrorException(e);
+            }
+        }
+    }
+
+    private void writeRecords(List<JournalRecord> records)
+    throws JournalException {
+        synchronized (this) {
+            if (torn_) {
+                throw new WriteJournalErrorException(new IOException("The journal file ends with a partially written batch, it has to be recovered first."));
+            }
+
+            var start = -1L;
+            try {
+                if (null == channel_) {
+                    channel_ = FileChannel.open(path_, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                }
+
+                start = channel_.size();
+                writeFully(channel_, encode(records));
+                channel_.force(false);
+            } catch (IOException e) {
+                // remove what was written of the failed batch, so that the
+                // retried batch doesn't end up after a partial or a duplicate one
+                if (start >= 0) {
+                    try {
+                        channel_.truncate(start);
+                        channel_.force(false);
+                    } catch (IOException e2) {
+                        torn_ = true;
+                        e.addSuppressed(e2);
+                    }
+                }
+                throw new WriteJournalErrorException(e);
+            }
+        }
+    }
+
+    private void closeChannel()
+    throws IOException {
+        if (channel_ != null) {
+            try {
+                channel_.close();
+            } finally {
+                channel_ = null;
+            }
+        }
+    }
+
+    private static ByteBuffer encode(List<JournalRecord> records)
+    throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        try (var out = new DataOutputStream(bytes)) {
+            for (var record : records) {
+                record.write(out);
+            }
+        }
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer)
+    throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.workflow.journals;
+
+import rife.tools.BackgroundBatch;
+import rife.workflow.JournalRecord;
+import rife.workflow.exceptions.JournalException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Collects the records that are appended to a journal and writes them
+ * in batches, so that the cost of making them durable is shared by all
+ * the records of a batch.
+ * <p>When the interval is {@code 0}, every record is written immediately.
+ *
+ * @author Geert Bevin (gbevin[remove] at uwyn dot com)
+ * @since 1.9.2
+ */
+class JournalBatch extends BackgroundBatch<List<JournalRecord>> {
+    interface Writer {
+        void write(List<JournalRecord> records)
+        throws JournalException;
+    }
+
+    private final Writer writer_;
+
+    JournalBatch(Writer writer, long interval, int maxSize) {
+        super("WORKFLOW_JOURNAL_BATCH", Logger.getLogger("rife.workflow"), interval, maxSize);
+        writer_ = writer;
+    }
+
+    void append(JournalRecord record)
+    throws JournalException {
+        add(pending -> pending.add(record));
+    }
+
+    protected List<JournalRecord> createBatch() {
+        return new ArrayList<>();
+    }
+
+    protected List<JournalRecord> requeue(List<JournalRecord> failed, List<JournalRecord> pending) {
+        failed.addAll(pending);
+        return failed;
+    }
+
+    protected void write(List<JournalRecord> records)
+    throws JournalException {
+        writer_.write(records);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.workflow.journals.databasedrivers;
+
+import rife.database.Datasource;
+import rife.database.DbConnection;
+import rife.database.DbConnectionUser;
+import rife.database.exceptions.DatabaseException;
+import rife.database.queries.*;
+import rife.workflow.exceptions.GetJournalBatchIdErrorException;
+import rife.workflow.exceptions.InstallJournalErrorException;
+import rife.workflow.exceptions.JournalException;
+import rife.workflow.exceptions.RemoveJournalErrorException;
+
+public class com_mysql_cj_jdbc_Driver extends generic {
+    protected CreateTable createTableJournalBatch_ = null;
+    protected DropTable dropTableJournalBatch_ = null;
+    protected Insert addBatch_ = null;
+    protected Select getInsertedBatchId_ = null;
+    protected Delete removeOlderBatches_ = null;
+
+    public com_mysql_cj_jdbc_Driver(Datasource datasource) {
+        this(datasource, DEFAULT_TABLE, DEFAULT_SEQUENCE);
+    }
+
+    public com_mysql_cj_jdbc_Driver(Datasource datasource, String table, String sequence) {
+        super(datasource, table, sequence);
+
+        // MySQL doesn't support sequences, the batch IDs are generated by
+        // the auto increment column of a separate table instead
+        var table_journal_batch = table + "batch";
+
+        createTableJournalBatch_ = new CreateTable(getDatasource())
+            .table(table_journal_batch)
+            .column("batchId", long.class)
+            .customAttribute("batchId", "AUTO_INCREMENT")
+            .primaryKey(table_journal_batch.toUpperCase() + "_PK", "batchId");
+
+        dropTableJournalBatch_ = new DropTable(getDatasource())
+            .table(createTableJournalBatch_.getTable());
+
+        addBatch_ = new Insert(getDatasource())
+            .into(createTableJournalBatch_.getTable())
+            .fieldParameter("batchId");
+
+        getInsertedBatchId_ = new Select(getDatasource())
+            .field("LAST_INSERT_ID()");
+
+        removeOlderBatches_ = new Delete(getDatasource())
+            .from(createTableJournalBatch_.getTable())
+            .whereParameter("batchId", "<");
+    }
+
+    public boolean install()
+    throws JournalException {
+        try {
+            executeUpdate(createTableJournalBatch_);
+            executeUpdate(createTableJournal_);
+        } catch (DatabaseException e) {
+            throw new InstallJournalErrorException(e);
+        }
+
+        return true;
+    }
+
+    public boolean remove()
+    throws JournalException {
+        try {
+            executeUpdate(dropTableJournal_);
+            executeUpdate(dropTableJournalBatch_);
+        } catch (DatabaseException e) {
+            throw new RemoveJournalErrorException(e);
+        }
+
+        return true;
+    }
+
+    protected long getNewBatchId()
+    throws JournalException {
+        try {
+            return reserveConnection(new DbConnectionUser() {
+                public Long useConnection(DbConnection connection) {
+                    executeUpdate(addBatch_, s -> s.setNull("batchId", java.sql.Types.BIGINT));
+
+                    var batch_id = executeGetFirstLong(getInsertedBatchId_);
+                    if (batch_id <= 0) {
+                        throw new GetJournalBatchIdErrorException();
+                    }
+
+                    // only the last row is needed to keep the auto increment going
+                    executeUpdate(removeOlderBatches_, s -> s.setLong("batchId", batch_id));
+
+                    return batch_id;
+                }
+            });
+        } catch (DatabaseException e) {
+            throw new GetJournalBatchIdErrorException(e);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.workflow.journals.databasedrivers;
+
+import rife.database.Datasource;
+import rife.database.queries.*;
+import rife.workflow.JournalRecord;
+import rife.workflow.JournalState;
+import rife.workflow.exceptions.JournalException;
+import rife.workflow.journals.DatabaseJournal;
+
+import java.sql.Blob;
+import java.util.List;
+
+public class generic extends DatabaseJournal {
+    protected CreateSequence createSequenceJournal_ = null;
+    protected CreateTable createTableJournal_ = null;
+    protected DropSequence dropSequenceJournal_ = null;
+    protected DropTable dropTableJournal_ = null;
+    protected SequenceValue getNewBatchId_ = null;
+    protected Select getRecords_ = null;
+    protected Insert addRecord_ = null;
+    protected Delete clearRecords_ = null;
+
+    public generic(Datasource datasource) {
+        this(datasource, DEFAULT_TABLE, DEFAULT_SEQUENCE);
+    }
+
+    public generic(Datasource datasource, String table, String sequence) {
+        super(datasource);
+
+        if (null == table) throw new IllegalArgumentException("table can't be null.");
+        if (table.isEmpty()) throw new IllegalArgumentException("table can't be empty.");
+        if (null == sequence) throw new IllegalArgumentException("sequence can't be null.");
+        if (sequence.isEmpty()) throw new IllegalArgumentException("sequence can't be empty.");
+
+        createSequenceJournal_ = new CreateSequence(getDatasource())
+            .name(sequence);
+
+        createTableJournal_ = new CreateTable(getDatasource())
+            .table(table)
+            .column("batchId", long.class, CreateTable.NOTNULL)
+            .column("ordinal", int.class, CreateTable.NOTNULL)
+            .column("record", Blob.class, CreateTable.NOTNULL)
+            .primaryKey(table.toUpperCase() + "_PK", new String[]{"batchId", "ordinal"});
+
+        dropSequenceJournal_ = new DropSequence(getDatasource())
+            .name(createSequenceJournal_.getName());
+
+        dropTableJournal_ = new DropTable(getDatasource())
+            .table(createTableJournal_.getTable());
+
+        getNewBatchId_ = new SequenceValue(getDatasource())
+            .name(createSequenceJournal_.getName())
+            .next();
+
+        getRecords_ = new Select(getDatasource())
+            .from(createTableJournal_.getTable())
+            .field("batchId")
+            .field("record")
+            .orderBy("batchId")
+            .orderBy("ordinal");
+
+        addRecord_ = new Insert(getDatasource())
+            .into(createTableJournal_.getTable())
+            .fieldParameter("batchId")
+            .fieldParameter("ordinal")
+            .fieldParameter("record");
+
+        clearRecords_ = new Delete(getDatasource())
+            .from(createTableJournal_.getTable())
+            .whereParameter("batchId", "<=");
+    }
+
+    public boolean install()
+    throws JournalException {
+        return install_(createSequenceJournal_, createTableJournal_);
+    }
+
+    public boolean remove()
+    throws JournalException {
+        return remove_(dropSequenceJournal_, dropTableJournal_);
+    }
+
+    protected long getNewBatchId()
+    throws JournalException {
+        return getNewBatchId_(getNewBatchId_);
+    }
+
+    protected void writeRecords(List<JournalRecord> records)
+    throws JournalException {
+        writeRecords_(addRecord_, records);
+    }
+
+    public JournalState recover()
+    throws JournalException {
+        return recover_(getRecords_, clearRecords_, addRecord_);
+    }
+}
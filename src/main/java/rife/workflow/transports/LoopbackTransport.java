@@ -0,0 +1,104 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.workflow.transports;
+
+import rife.tools.ExceptionUtils;
+import rife.workflow.Event;
+import rife.workflow.EventTransport;
+import rife.workflow.exceptions.TransportException;
+
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.logging.Logger;
+
+/**
+ * Event transport that connects workflows within the same JVM.
+ * <p>Every transport that is created with {@link #createPeer()} belongs to
+ * the same group, and the events that are published by one of them are
+ * received by all the others. The events are handed over as-is by the
+ * publishing thread, without being serialized.
+ * <p>Only open transports publish and receive events.
+ * <p>This is mainly useful to try out and test multi-node setups locally.
+ *
+ * @rife.apiNote The workflow engine is still in an ALPHA EXPERIMENTAL STAGE and might change.
+ * @author Geert Bevin (gbevin[remove] at uwyn dot com)
+ * @since 1.9.2
+ */
+public class LoopbackTransport implements EventTransport {
+    private final Set<LoopbackTransport> group_;
+    private volatile Receiver receiver_ = null;
+
+    /**
+     * Creates a new loopback transport in a new group.
+     *
+     * @since 1.9.2
+     */
+    public LoopbackTransport() {
+        this(new CopyOnWriteArraySet<>());
+    }
+
+    private LoopbackTransport(Set<LoopbackTransport> group) {
+        group_ = group;
+    }
+
+    /**
+     * Creates a new loopback transport in the same group as this one.
+     *
+     * @return the new transport
+     * @since 1.9.2
+     */
+    public LoopbackTransport createPeer() {
+        return new LoopbackTransport(group_);
+    }
+
+    public void open(Receiver receiver)
+    throws TransportException {
+        if (null == receiver) throw new IllegalArgumentException("receiver can't be null.");
+
+        receiver_ = receiver;
+        group_.add(this);
+    }
+
+    public void publish(Event event)
+    throws TransportException {
+        deliver(event, false);
+    }
+
+    public boolean offer(Event event)
+    throws TransportException {
+        return deliver(event, true);
+    }
+
+    private boolean deliver(Event event, boolean once) {
+        if (null == event) throw new IllegalArgumentException("event can't be null.");
+
+        if (null == receiver_) {
+            return false;
+        }
+
+        for (var peer : group_) {
+            var receiver = peer.receiver_;
+            if (peer == this || null == receiver) {
+                continue;
+            }
+
+            try {
+                if (receiver.eventReceived(event) && once) {
+                    return true;
+                }
+            } catch (RuntimeException e) {
+                Logger.getLogger("rife.workflow").warning(ExceptionUtils.getExceptionStackTrace(e));
+            }
+        }
+
+        return false;
+    }
+
+    public void close()
+    throws TransportException {
+        group_.remove(this);
+        receiver_ = null;
+    }
+}
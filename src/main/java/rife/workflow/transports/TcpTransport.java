@@ -0,0 +1,573 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.workflow.transports;
+
+import rife.tools.ExceptionUtils;
+import rife.workflow.Event;
+import rife.workflow.EventTransport;
+import rife.workflow.exceptions.*;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Logger;
+
+/**
+ * Event transport that exchanges events with other nodes over TCP.
+ * <p>Each node listens on its own port and connects to the ports of the
+ * peers it was configured with. Connections are established when the first
+ * event is published and are re-established once when they turn out to be
+ * broken. Events that can't be delivered to a peer are logged and skipped.
+ * Every event that is sent to a peer is numbered, an event that is sent
+ * again over a new connection is thus recognized by the peer and never
+ * received twice.
+ * Offered events are sent to one peer at a time, which answers whether it
+ * took the event. A peer that doesn't answer within the connect timeout, or
+ * that closes the connection before answering, is considered to have
+ * taken it.
+ * <p>Unless another bind address is provided, the transport only listens on
+ * the loopback address. All the nodes have to be created with the same
+ * shared secret. Both sides of every connection prove that they know it
+ * through a challenge-response handshake before any event is exchanged.
+ * The secret itself is never sent and the events aren't encrypted, use a
+ * trusted network or a tunnel when the events are confidential.
+ * <p>The type, the data and the correlation key of the published events
+ * are transmitted through Java serialization and thus have to be
+ * {@link Serializable}, their classes also need to be available on every
+ * node. Only strings, primitive wrappers, enums, {@link UUID} and arrays of
+ * those are accepted when events are received, other classes have to be
+ * allowed explicitly with {@link #addAllowedClass}.
+ *
+ * @rife.apiNote The workflow engine is still in an ALPHA EXPERIMENTAL STAGE and might change.
+ * @author Geert Bevin (gbevin[remove] at uwyn dot com)
+ * @since 1.9.2
+ */
+public class TcpTransport implements EventTransport {
+    public static final int DEFAULT_CONNECT_TIMEOUT = 5000;
+    public static final int MAX_EVENT_SIZE = 16 * 1024 * 1024;
+    public static final int MIN_SECRET_LENGTH = 16;
+
+    private static final byte FRAME_PUBLISH = 0;
+    private static final byte FRAME_OFFER = 1;
+    private static final int NONCE_LENGTH = 32;
+    private static final int MAX_DECODE_DEPTH = 20;
+    private static final int MAX_DECODE_REFERENCES = 10000;
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final Set<Class<?>> DEFAULT_ALLOWED_CLASSES = Set.of(
+        String.class, Boolean.class, Character.class, Number.class,
+        Byte.class, Short.class, Integer.class, Long.class, Float.class, Double.class,
+        Enum.class, UUID.class);
+
+    private final InetSocketAddress bindAddress_;
+    private final SecretKeySpec secret_;
+    private final Set<Class<?>> allowedClasses_ = ConcurrentHashMap.newKeySet();
+    private final UUID nodeId_ = UUID.randomUUID();
+    private final List<Peer> peers_ = new CopyOnWriteArrayList<>();
+    private final Set<Socket> connections_ = ConcurrentHashMap.newKeySet();
+    // the number of the last event received from each node, together with
+    // whether it was taken
+    private final Map<UUID, long[]> received_ = new ConcurrentHashMap<>();
+    private volatile int connectTimeout_ = DEFAULT_CONNECT_TIMEOUT;
+    private volatile ServerSocket server_ = null;
+    private volatile Receiver receiver_ = null;
+
+    /**
+     * Creates a new TCP transport that listens on the loopback address.
+     *
+     * @param port         the port to listen on; or
+     *                     {@code 0} to pick any available port
+     * @param sharedSecret the secret that all the nodes share, at least
+     *                     {@link #MIN_SECRET_LENGTH} bytes long
+     * @since 1.9.2
+     */
+    public TcpTransport(int port, byte[] sharedSecret) {
+        this(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), sharedSecret);
+    }
+
+    /**
+     * Creates a new TCP transport.
+     *
+     * @param bindAddress  the address to listen on
+     * @param sharedSecret the secret that all the nodes share, at least
+     *                     {@link #MIN_SECRET_LENGTH} bytes long
+     * @since 1.9.2
+     */
+    public TcpTransport(InetSocketAddress bindAddress, byte[] sharedSecret) {
+        if (null == bindAddress) throw new IllegalArgumentException("bindAddress can't be null.");
+        if (null == sharedSecret) throw new IllegalArgumentException("sharedSecret can't be null.");
+        if (sharedSecret.length < MIN_SECRET_LENGTH) throw new IllegalArgumentException("sharedSecret has to be at least " + MIN_SECRET_LENGTH + " bytes long.");
+
+        bindAddress_ = bindAddress;
+        secret_ = new SecretKeySpec(sharedSecret.clone(), MAC_ALGORITHM);
+        allowedClasses_.addAll(DEFAULT_ALLOWED_CLASSES);
+    }
+
+    /**
+     * Allows instances of a class to be received as the type, the data or
+     * the correlation key of events.
+     * <p>Only allow classes whose deserialization can't be abused, every
+     * class that is referenced by their serialized form has to be allowed
+     * as well.
+     *
+     * @param klass the class to allow
+     * @return this transport instance
+     * @since 1.9.2
+     */
+    public TcpTransport addAllowedClass(Class<?> klass) {
+        if (null == klass) throw new IllegalArgumentException("klass can't be null.");
+
+        allowedClasses_.add(klass);
+        return this;
+    }
+
+    /**
+     * Adds a node that the published events will be sent to.
+     *
+     * @param host the host name of the node
+     * @param port the port that the transport of the node listens on
+     * @return this transport instance
+     * @since 1.9.2
+     */
+    public TcpTransport addPeer(String host, int port) {
+        return addPeer(new InetSocketAddress(host, port));
+    }
+
+    /**
+     * Adds a node that the published events will be sent to.
+     *
+     * @param address the address that the transport of the node listens on
+     * @return this transport instance
+     * @since 1.9.2
+     */
+    public TcpTransport addPeer(InetSocketAddress address) {
+        if (null == address) throw new IllegalArgumentException("address can't be null.");
+
+        peers_.add(new Peer(address));
+        return this;
+    }
+
+    /**
+     * Sets the time to wait for a connection to a peer to be established.
+     *
+     * @param timeout the connect timeout in milliseconds
+     * @since 1.9.2
+     */
+    public void setConnectTimeout(int timeout) {
+        if (timeout < 0) throw new IllegalArgumentException("timeout can't be negative.");
+
+        connectTimeout_ = timeout;
+    }
+
+    /**
+     * Retrieves the time to wait for a connection to a peer to be
+     * established.
+     *
+     * @return the connect timeout in milliseconds
+     * @since 1.9.2
+     */
+    public int getConnectTimeout() {
+        return connectTimeout_;
+    }
+
+    /**
+     * Retrieves the port that this transport listens on.
+     *
+     * @return the local port when the transport is open; or
+     * <p>the port it was created with otherwise
+     * @since 1.9.2
+     */
+    public int getPort() {
+        var server = server_;
+        if (server != null) {
+            return server.getLocalPort();
+        }
+        return bindAddress_.getPort();
+    }
+
+    public void open(Receiver receiver)
+    throws TransportException {
+        if (null == receiver) throw new IllegalArgumentException("receiver can't be null.");
+
+        synchronized (this) {
+            if (server_ != null) {
+                throw new TransportException("The transport is already open.");
+            }
+
+            try {
+                var server = new ServerSocket();
+                server.setReuseAddress(true);
+                server.bind(bindAddress_);
+                server_ = server;
+            } catch (IOException e) {
+                throw new OpenTransportErrorException(e);
+            }
+            receiver_ = receiver;
+
+            var acceptor = new Thread(this::acceptConnections, "WORKFLOW_TRANSPORT_ACCEPT");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+    }
+
+    public void publish(Event event)
+    throws TransportException {
+        if (null == event) throw new IllegalArgumentException("event can't be null.");
+
+        if (null == server_ || peers_.isEmpty()) {
+            return;
+        }
+
+        var bytes = encode(event);
+        for (var peer : peers_) {
+            peer.send(FRAME_PUBLISH, bytes);
+        }
+    }
+
+    public boolean offer(Event event)
+    throws TransportException {
+        if (null == event) throw new IllegalArgumentException("event can't be null.");
+
+        if (null == server_ || peers_.isEmpty()) {
+            return false;
+        }
+
+        var bytes = encode(event);
+        for (var peer : peers_) {
+            if (peer.send(FRAME_OFFER, bytes)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void close()
+    throws TransportException {
+        IOException exception = null;
+        synchronized (this) {
+            receiver_ = null;
+            if (server_ != null) {
+                try {
+                    server_.close();
+                } catch (IOException e) {
+                    exception = e;
+                }
+                server_ = null;
+            }
+        }
+
+        for (var peer : peers_) {
+            peer.disconnect();
+        }
+        for (var connection : connections_) {
+            closeQuietly(connection);
+        }
+        connections_.clear();
+
+        if (exception != null) {
+            throw new CloseTransportErrorException(exception);
+        }
+    }
+
+    private void acceptConnections() {
+        var server = server_;
+        while (server != null && !server.isClosed()) {
+            try {
+                var socket = server.accept();
+                connections_.add(socket);
+
+                var reader = new Thread(() -> receiveEvents(socket), "WORKFLOW_TRANSPORT_RECEIVE");
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException e) {
+                if (!server.isClosed()) {
+                    Logger.getLogger("rife.workflow").warning(ExceptionUtils.getExceptionStackTrace(e));
+                }
+            }
+        }
+    }
+
+    private void receiveEvents(Socket socket) {
+        try (var in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+            var out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            socket.setSoTimeout(connectTimeout_);
+            if (!acceptHandshake(in, out)) {
+                Logger.getLogger("rife.workflow").warning("Rejected the connection of " + socket.getRemoteSocketAddress() + " since it doesn't know the shared secret.");
+                return;
+            }
+            socket.setSoTimeout(0);
+
+            while (true) {
+                final long node_msb;
+                try {
+                    node_msb = in.readLong();
+                } catch (EOFException e) {
+                    // the peer closed the connection
+                    break;
+                }
+                var node_lsb = in.readLong();
+                var kind = in.readByte();
+                var sequence = in.readLong();
+                var length = in.readInt();
+                if (length < 0 || length > MAX_EVENT_SIZE) {
+                    throw new StreamCorruptedException("Invalid event size " + length + ".");
+                }
+                var bytes = new byte[length];
+                in.readFully(bytes);
+
+                var receiver = receiver_;
+                if (null == receiver) {
+                    break;
+                }
+
+                // never hand events back to the node that published them
+                var taken = false;
+                if (nodeId_.getMostSignificantBits() != node_msb ||
+                    nodeId_.getLeastSignificantBits() != node_lsb) {
+                    var last = received_.computeIfAbsent(new UUID(node_msb, node_lsb), k -> new long[]{0, 0});
+                    synchronized (last) {
+                        if (sequence <= last[0]) {
+                            // the event was sent again after a broken
+                            // connection, it's only answered again
+                            taken = 0 != last[1];
+                        } else {
+                            try {
+                                taken = receiver.eventReceived(decode(bytes));
+                            } catch (RuntimeException e) {
+                                Logger.getLogger("rife.workflow").warning(ExceptionUtils.getExceptionStackTrace(e));
+                            }
+                            last[0] = sequence;
+                            last[1] = taken ? 1 : 0;
+                        }
+                    }
+                }
+
+                // tell the offering node whether the event was taken
+                if (FRAME_OFFER == kind) {
+                    out.writeBoolean(taken);
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            if (!socket.isClosed()) {
+                Logger.getLogger("rife.workflow").warning(ExceptionUtils.getExceptionStackTrace(e));
+            }
+        } finally {
+            closeQuietly(socket);
+            connections_.remove(socket);
+        }
+    }
+
+    // the accepting side sends a challenge that the connecting side answers
+    // with its own challenge, and the other way around
+    private boolean acceptHandshake(DataInputStream in, DataOutputStream out)
+    throws IOException {
+        var challenge = createNonce();
+        out.write(challenge);
+        out.flush();
+
+        var response = new byte[NONCE_LENGTH];
+        in.readFully(response);
+        var peer_challenge = new byte[NONCE_LENGTH];
+        in.readFully(peer_challenge);
+        if (!MessageDigest.isEqual(response, sign(challenge, 1))) {
+            return false;
+        }
+
+        out.write(sign(peer_challenge, 2));
+        out.flush();
+        return true;
+    }
+
+    private boolean connectHandshake(DataInputStream in, DataOutputStream out)
+    throws IOException {
+        var challenge = new byte[NONCE_LENGTH];
+        in.readFully(challenge);
+
+        var own_challenge = createNonce();
+        out.write(sign(challenge, 1));
+        out.write(own_challenge);
+        out.flush();
+
+        var response = new byte[NONCE_LENGTH];
+        in.readFully(response);
+        return MessageDigest.isEqual(response, sign(own_challenge, 2));
+    }
+
+    private static byte[] createNonce() {
+        var nonce = new byte[NONCE_LENGTH];
+        RANDOM.nextBytes(nonce);
+        return nonce;
+    }
+
+    private byte[] sign(byte[] challenge, int role) {
+        try {
+            var mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(secret_);
+            mac.update(challenge);
+            mac.update((byte) role);
+            return mac.doFinal();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private ObjectInputFilter.Status checkDecodedClass(ObjectInputFilter.FilterInfo info) {
+        if (info.depth() > MAX_DECODE_DEPTH ||
+            info.references() > MAX_DECODE_REFERENCES ||
+            info.arrayLength() > MAX_EVENT_SIZE) {
+            return ObjectInputFilter.Status.REJECTED;
+        }
+
+        var klass = info.serialClass();
+        if (null == klass) {
+            return ObjectInputFilter.Status.ALLOWED;
+        }
+        // the elements of object arrays are checked by themselves
+        if (Object[].class == klass) {
+            return ObjectInputFilter.Status.ALLOWED;
+        }
+        while (klass.isArray()) {
+            klass = klass.getComponentType();
+        }
+        if (klass.isPrimitive() ||
+            klass.isEnum() ||
+            allowedClasses_.contains(klass)) {
+            return ObjectInputFilter.Status.ALLOWED;
+        }
+
+        return ObjectInputFilter.Status.REJECTED;
+    }
+
+    private static byte[] encode(Event event)
+    throws TransportException {
+        var bytes = new ByteArrayOutputStream();
+        try (var out = new ObjectOutputStream(bytes)) {
+            out.writeObject(event.getType());
+            out.writeObject(event.getData());
+            out.writeObject(event.getCorrelationKey());
+        } catch (IOException e) {
+            throw new EncodeEventErrorException(e);
+        }
+
+        var encoded = bytes.toByteArray();
+        if (encoded.length > MAX_EVENT_SIZE) {
+            throw new TransportException("The encoded event is larger than " + MAX_EVENT_SIZE + " bytes.");
+        }
+        return encoded;
+    }
+
+    private Event decode(byte[] bytes)
+    throws TransportException {
+        try (var in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            in.setObjectInputFilter(this::checkDecodedClass);
+            return new Event(in.readObject(), in.readObject(), in.readObject());
+        } catch (IOException | ClassNotFoundException e) {
+            throw new DecodeEventErrorException(e);
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // nothing to do
+        }
+    }
+
+    private class Peer {
+        private final InetSocketAddress address_;
+        private Socket socket_ = null;
+        private DataInputStream in_ = null;
+        private DataOutputStream out_ = null;
+        private long sequence_ = 0;
+
+        private Peer(InetSocketAddress address) {
+            address_ = address;
+        }
+
+        private synchronized boolean send(byte kind, byte[] bytes) {
+            // a retry sends the event with the same number, so that the
+            // peer ignores it when it already received it
+            var sequence = ++sequence_;
+
+            // a connection that was established before can have been closed
+            // by the peer in the meantime, it's thus retried once
+            for (var attempt = 0; attempt < 2; ++attempt) {
+                try {
+                    if (null == socket_) {
+                        var socket = new Socket();
+                        try {
+                            socket.setTcpNoDelay(true);
+                            socket.connect(address_, connectTimeout_);
+                            socket.setSoTimeout(connectTimeout_);
+                            var in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                            var out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                            if (!connectHandshake(in, out)) {
+                                throw new IOException("The peer doesn't know the shared secret.");
+                            }
+                            socket_ = socket;
+                            in_ = in;
+                            out_ = out;
+                        } catch (IOException e) {
+                            closeQuietly(socket);
+                            throw e;
+                        }
+                    }
+
+                    out_.writeLong(nodeId_.getMostSignificantBits());
+                    out_.writeLong(nodeId_.getLeastSignificantBits());
+                    out_.writeByte(kind);
+                    out_.writeLong(sequence);
+                    out_.writeInt(bytes.length);
+                    out_.write(bytes);
+                    out_.flush();
+                } catch (IOException e) {
+                    disconnect();
+                    if (attempt > 0) {
+                        Logger.getLogger("rife.workflow").warning("Can't send event to " + address_ + ": " + e.getMessage());
+                    }
+                    continue;
+                }
+
+                if (kind != FRAME_OFFER) {
+                    return false;
+                }
+
+                try {
+                    return in_.readBoolean();
+                } catch (IOException e) {
+                    // the peer might have taken the event before the answer
+                    // timed out or the connection was closed, it's then not
+                    // offered anywhere else
+                    disconnect();
+                    Logger.getLogger("rife.workflow").warning("No answer from " + address_ + " to an offered event, it's considered to be taken: " + e.getMessage());
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        private synchronized void disconnect() {
+            if (socket_ != null) {
+                closeQuietly(socket_);
+                socket_ = null;
+                in_ = null;
+                out_ = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.cmf.dam;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestByteRange {
+    @Test
+    void testParse() {
+        assertEquals(List.of(new ByteRange(0, 499)), ByteRange.parse("bytes=0-499", 1000));
+        assertEquals(List.of(new ByteRange(500, 999)), ByteRange.parse("bytes=500-", 1000));
+        assertEquals(List.of(new ByteRange(900, 999)), ByteRange.parse("bytes=-100", 1000));
+        assertEquals(List.of(new ByteRange(0, 999)), ByteRange.parse("bytes=-2000", 1000));
+        assertEquals(List.of(new ByteRange(990, 999)), ByteRange.parse("bytes=990-2000", 1000));
+        assertEquals(List.of(new ByteRange(0, 9), new ByteRange(100, 109)), ByteRange.parse("BYTES=100-109, 0-9", 1000));
+    }
+
+    @Test
+    void testParseCoalesce() {
+        assertEquals(List.of(new ByteRange(0, 199)), ByteRange.parse("bytes=0-99,100-199", 1000));
+        assertEquals(List.of(new ByteRange(0, 150)), ByteRange.parse("bytes=50-150,0-100", 1000));
+    }
+
+    @Test
+    void testParseUnsatisfiable() {
+        assertEquals(List.of(), ByteRange.parse("bytes=1000-", 1000));
+        assertEquals(List.of(), ByteRange.parse("bytes=-0", 1000));
+        assertEquals(List.of(), ByteRange.parse("bytes=0-", 0));
+    }
+
+    @Test
+    void testParseInvalid() {
+        assertNull(ByteRange.parse(null, 1000));
+        assertNull(ByteRange.parse("items=0-10", 1000));
+        assertNull(ByteRange.parse("bytes=10", 1000));
+        assertNull(ByteRange.parse("bytes=-", 1000));
+        assertNull(ByteRange.parse("bytes=20-10", 1000));
+        assertNull(ByteRange.parse("bytes=a-b", 1000));
+        assertNull(ByteRange.parse("bytes=" + "0-1,".repeat(ByteRange.MAX_RANGES) + "0-1", 1000));
+    }
+
+    @Test
+    void testContentRange() {
+        var range = new ByteRange(10, 19);
+        assertEquals(10, range.length());
+        assertEquals("bytes 10-19/100", range.toContentRange(100));
+    }
+}
@@ -10,6 +10,7 @@ import org.junit.jupiter.params.provider.ArgumentsSource;
 import rife.cmf.Content;
 import rife.cmf.ContentRepository;
 import rife.cmf.MimeType;
+import rife.cmf.dam.contentmanagers.DatabaseContent;
 import rife.cmf.dam.contentmanagers.DatabaseContentFactory;
 import rife.cmf.dam.contentmanagers.exceptions.InstallContentErrorException;
 import rife.cmf.dam.contentmanagers.exceptions.UnknownContentRepositoryException;
@@ -18,6 +19,7 @@ import rife.cmf.dam.contentstores.DatabaseRawStoreFactory;
 import rife.cmf.dam.contentstores.DatabaseTextStoreFactory;
 import rife.cmf.dam.exceptions.ContentManagerException;
 import rife.database.Datasource;
+import rife.database.DbTransactionUser;
 import rife.database.TestDatasources;
 import rife.resources.ResourceFinderClasspath;
 import rife.tools.FileUtils;
@@ -886,6 +888,96 @@ public class TestContentManager {
         }
     }
 
+    @ParameterizedTest
+    @ArgumentsSource(TestDatasources.class)
+    void testGetContentInfoCached(Datasource datasource) {
+        setup(datasource);
+        try {
+            var manager = DatabaseContentFactory.instance(datasource);
+
+            // the cache is disabled by default
+            assertEquals(0, manager.getContentInfoCacheSize());
+            manager.setContentInfoCacheSize(1000);
+
+            var content_text1 = new Content(MimeType.APPLICATION_XHTML, "<p>some text</p>")
+                .fragment(true)
+                .attribute("attr1", "value1")
+                .name("mytext.html");
+            manager.storeContent("/textcontent", content_text1, null);
+
+            var info1a = manager.getContentInfo("/textcontent");
+            assertEquals(0, info1a.getVersion());
+            info1a.setVersion(10);
+            info1a.getAttributes().put("attr2", "value2");
+
+            // modifying retrieved content info doesn't change the cached one
+            var info1b = manager.getContentInfo("/textcontent");
+            assertNotSame(info1a, info1b);
+            assertEquals(0, info1b.getVersion());
+            assertEquals(1, info1b.getAttributes().size());
+            assertEquals(0, manager.getContentInfo("/textcontent/mytext.html").getVersion());
+
+            // storing content invalidates the path and the names below it
+            var content_text2 = new Content(MimeType.APPLICATION_XHTML, "<p>some other text</p>")
+                .fragment(true)
+                .name("mytext.html");
+            manager.storeContent("/textcontent", content_text2, null);
+
+            var info2a = manager.getContentInfo("/textcontent");
+            assertEquals(1, info2a.getVersion());
+            assertNull(info2a.getAttributes());
+            assertEquals(1, manager.getContentInfo("/textcontent/mytext.html").getVersion());
+
+            // deleting content invalidates it too
+            assertTrue(manager.deleteContent("/textcontent"));
+            assertNull(manager.getContentInfo("/textcontent"));
+            assertNull(manager.getContentInfo("/textcontent/mytext.html"));
+
+            // the cache can be disabled again
+            manager.setContentInfoCacheSize(0);
+            assertEquals(0, manager.getContentInfoCacheSize());
+            manager.storeContent("/textcontent", content_text1, null);
+            assertEquals(0, manager.getContentInfo("/textcontent").getVersion());
+        } finally {
+            DatabaseContentFactory.instance(datasource).setContentInfoCacheSize(DatabaseContent.DEFAULT_CONTENT_INFO_CACHE_SIZE);
+            tearDown(datasource);
+        }
+    }
+
+    @ParameterizedTest
+    @ArgumentsSource(TestDatasources.class)
+    void testGetContentInfoCachedOuterTransaction(Datasource datasource) {
+        setup(datasource);
+        try {
+            var manager = DatabaseContentFactory.instance(datasource);
+            manager.setContentInfoCacheSize(1000);
+
+            var content_text1 = new Content(MimeType.APPLICATION_XHTML, "<p>some text</p>")
+                .fragment(true);
+            manager.storeContent("/textcontent", content_text1, null);
+            assertEquals(0, manager.getContentInfo("/textcontent").getVersion());
+
+            // content info that was cached before the outer transaction
+            // ended is invalidated again afterwards
+            manager.invalidateContentInfoAfter(() -> manager.inTransaction(new DbTransactionUser<Object, Object>() {
+                public Object useTransaction()
+                throws InnerClassException {
+                    var content_text2 = new Content(MimeType.APPLICATION_XHTML, "<p>some other text</p>")
+                        .fragment(true);
+                    manager.storeContent("/textcontent", content_text2, null);
+                    assertEquals(1, manager.getContentInfo("/textcontent").getVersion());
+                    rollback();
+                    return null;
+                }
+            }));
+
+            assertEquals(0, manager.getContentInfo("/textcontent").getVersion());
+        } finally {
+            DatabaseContentFactory.instance(datasource).setContentInfoCacheSize(DatabaseContent.DEFAULT_CONTENT_INFO_CACHE_SIZE);
+            tearDown(datasource);
+        }
+    }
+
     @ParameterizedTest
     @ArgumentsSource(TestDatasources.class)
     void testGetContentInfoIllegalArguments(Datasource datasource) {
@@ -7,6 +7,7 @@ package rife.cmf.dam;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ArgumentsSource;
+import rife.cmf.Content;
 import rife.cmf.MimeType;
 import rife.cmf.dam.contentmanagers.DatabaseContentFactory;
 import rife.cmf.dam.exceptions.*;
@@ -23,6 +24,8 @@ import rife.tools.exceptions.FileUtilsErrorException;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -210,6 +213,207 @@ public class TestContentQueryManager {
         }
     }
 
+    @ParameterizedTest
+    @ArgumentsSource(TestDatasources.class)
+    void testSaveAllContent(Datasource datasource)
+    throws Exception {
+        setup(datasource);
+        try {
+            var manager = new ContentQueryManager<>(datasource, ContentImage.class);
+            manager.install();
+            try {
+                var image_resource_gif = ResourceFinderClasspath.instance().getResource("uwyn.gif");
+                var data_image_gif = FileUtils.readBytes(image_resource_gif);
+                var contents = new ArrayList<ContentImage>();
+                for (var i = 0; i < 5; i++) {
+                    contents.add(new ContentImage()
+                        .name("the content name " + i)
+                        .image(data_image_gif));
+                }
+
+                var ids = manager.saveAll(contents);
+                assertEquals(5, ids.length);
+
+                var image_resource_png = ResourceFinderClasspath.instance().getResource("uwyn.png");
+                final var data_image_png = FileUtils.readBytes(image_resource_png);
+
+                var content_manager = DatabaseContentFactory.instance(datasource);
+                var gqm = GenericQueryManagerFactory.instance(datasource, ContentImage.class);
+                for (var i = 0; i < 5; i++) {
+                    var content = contents.get(i);
+                    assertEquals(ids[i], content.getId());
+
+                    var restored = gqm.restore(ids[i]);
+                    assertEquals(content.getName(), restored.getName());
+                    assertNull(restored.getImage());
+
+                    var path = manager.buildCmfPath(content, "image");
+                    var info = content_manager.getContentInfo(path);
+                    assertEquals(MimeType.IMAGE_PNG.toString(), info.getMimeType());
+                    assertEquals("myimage.png", info.getName());
+                    assertFalse(info.hasAttribute("unformatted"));
+
+                    content_manager.useContentData(path, contentData ->
+                        assertArrayEquals(data_image_png, (byte[]) contentData));
+                }
+
+                assertEquals(0, manager.saveAll(List.of()).length);
+            } finally {
+                manager.remove();
+            }
+        } finally {
+            tearDown(datasource);
+        }
+    }
+
+    @ParameterizedTest
+    @ArgumentsSource(TestDatasources.class)
+    void testSaveBackgroundFormatting(Datasource datasource)
+    throws Exception {
+        setup(datasource);
+        try {
+            var tasks = new ArrayList<Runnable>();
+            var outcomes = new ArrayList<String>();
+            var manager = new ContentQueryManager<>(datasource, ContentImage.class)
+                .backgroundFormatting(tasks::add)
+                .formattingListener(new ContentFormattingListener() {
+                    public void formatted(String location, Content content) {
+                        outcomes.add("formatted " + location);
+                    }
+
+                    public void superseded(String location, Content content) {
+                        outcomes.add("superseded " + location);
+                    }
+
+                    public void failed(String location, Content content, Exception exception) {
+                        outcomes.add("failed " + location);
+                    }
+                });
+            manager.install();
+            try {
+                var image_resource_gif = ResourceFinderClasspath.instance().getResource("uwyn.gif");
+                var data_image_gif = FileUtils.readBytes(image_resource_gif);
+                var content = new ContentImage()
+                    .name("the content name")
+                    .image(data_image_gif);
+
+                var id = manager.save(content);
+                assertTrue(id >= 0);
+                assertEquals(1, tasks.size());
+
+                // the original data is stored until the formatting is done
+                var content_manager = DatabaseContentFactory.instance(datasource);
+                var path = manager.buildCmfPath(content, "image");
+                var info = content_manager.getContentInfo(path);
+                assertTrue(info.hasProperty(ContentQueryManager.PROPERTY_PENDING_FORMATTING));
+                content_manager.useContentData(path, contentData ->
+                    assertArrayEquals(data_image_gif, (byte[]) contentData));
+
+                // content that is saved again before the formatting starts
+                // supersedes the pending formatting
+                manager.save(content);
+                assertEquals(2, tasks.size());
+                for (var task : tasks) {
+                    task.run();
+                }
+                assertEquals(List.of("superseded " + path, "formatted " + path), outcomes);
+
+                var image_resource_png = ResourceFinderClasspath.instance().getResource("uwyn.png");
+                final var data_image_png = FileUtils.readBytes(image_resource_png);
+
+                var formatted_info = content_manager.getContentInfo(path);
+                assertTrue(formatted_info.getVersion() > info.getVersion());
+                assertFalse(formatted_info.hasProperty(ContentQueryManager.PROPERTY_PENDING_FORMATTING));
+                assertEquals("myimage.png", formatted_info.getName());
+                content_manager.useContentData(path, contentData ->
+                    assertArrayEquals(data_image_png, (byte[]) contentData));
+            } finally {
+                manager.remove();
+            }
+        } finally {
+            tearDown(datasource);
+        }
+    }
+
+    @ParameterizedTest
+    @ArgumentsSource(TestDatasources.class)
+    void testSaveBackgroundFormattingFailure(Datasource datasource)
+    throws Exception {
+        setup(datasource);
+        try {
+            var failures = new ArrayList<Exception>();
+            var manager = new ContentQueryManager<>(datasource, ContentImage.class)
+                .backgroundFormatting(Runnable::run)
+                .formattingListener(new ContentFormattingListener() {
+                    public void formatted(String location, Content content) {
+                        fail();
+                    }
+
+                    public void superseded(String location, Content content) {
+                        fail();
+                    }
+
+                    public void failed(String location, Content content, Exception exception) {
+                        failures.add(exception);
+                    }
+                });
+            manager.install();
+            try {
+                var content = new ContentImage()
+                    .name("the content name")
+                    .image(new byte[]{1, 2, 3});
+
+                // the bean is saved even though its content can't be formatted
+                var id = manager.save(content);
+                assertTrue(id >= 0);
+                assertEquals(1, failures.size());
+
+                var content_manager = DatabaseContentFactory.instance(datasource);
+                var info = content_manager.getContentInfo(manager.buildCmfPath(content, "image"));
+                assertTrue(info.hasProperty(ContentQueryManager.PROPERTY_PENDING_FORMATTING));
+            } finally {
+                manager.remove();
+            }
+        } finally {
+            tearDown(datasource);
+        }
+    }
+
+    @ParameterizedTest
+    @ArgumentsSource(TestDatasources.class)
+    void testSaveBackgroundFormattingInTransaction(Datasource datasource)
+    throws Exception {
+        setup(datasource);
+        try {
+            var tasks = new ArrayList<Runnable>();
+            var manager = new ContentQueryManager<>(datasource, ContentImage.class)
+                .backgroundFormatting(tasks::add);
+            manager.install();
+            try {
+                var image_resource_gif = ResourceFinderClasspath.instance().getResource("uwyn.gif");
+                var data_image_gif = FileUtils.readBytes(image_resource_gif);
+                var content = new ContentImage()
+                    .name("the content name")
+                    .image(data_image_gif);
+
+                // the transaction of the caller is only committed after the
+                // save, the content is thus formatted right away
+                Integer id = new DbQueryManager(datasource).inTransaction(() -> manager.save(content));
+                assertTrue(id >= 0);
+                assertTrue(tasks.isEmpty());
+
+                var content_manager = DatabaseContentFactory.instance(datasource);
+                var info = content_manager.getContentInfo(manager.buildCmfPath(content, "image"));
+                assertFalse(info.hasProperty(ContentQueryManager.PROPERTY_PENDING_FORMATTING));
+                assertEquals(MimeType.IMAGE_PNG.toString(), info.getMimeType());
+            } finally {
+                manager.remove();
+            }
+        } finally {
+            tearDown(datasource);
+        }
+    }
+
     @ParameterizedTest
     @ArgumentsSource(TestDatasources.class)
     void testSaveContentOtherTable(Datasource datasource)
@@ -1198,6 +1402,75 @@ public class TestContentQueryManager {
         }
     }
 
+    @ParameterizedTest
+    @ArgumentsSource(TestDatasources.class)
+    void testMoveOrdinalSpaced(Datasource datasource) {
+        setup(datasource);
+        try {
+            var manager = new ContentQueryManager<>(datasource, Ordered.class).ordinalSpacing(10);
+            assertEquals(10, manager.getOrdinalSpacing());
+            manager.install();
+            try {
+                var id1 = manager.save(new Ordered().name("the content name"));
+                var id2 = manager.save(new Ordered().name("another content name"));
+                var id3 = manager.save(new Ordered().name("one more content name"));
+
+                var gqm = GenericQueryManagerFactory.instance(datasource, Ordered.class);
+                assertEquals(10, gqm.restore(id1).getPriority());
+                assertEquals(20, gqm.restore(id2).getPriority());
+                assertEquals(30, gqm.restore(id3).getPriority());
+
+                assertTrue(manager.move(gqm.restore(id3), "priority", gqm.restore(id1)));
+                assertEquals(10, gqm.restore(id1).getPriority());
+                assertEquals(20, gqm.restore(id2).getPriority());
+                assertEquals(4, gqm.restore(id3).getPriority());
+
+                assertTrue(manager.down(gqm.restore(id1), "priority"));
+                assertEquals(20, gqm.restore(id1).getPriority());
+                assertEquals(10, gqm.restore(id2).getPriority());
+
+                // spaced ordinals aren't tightened after a delete
+                assertTrue(manager.delete(id2));
+                assertEquals(20, gqm.restore(id1).getPriority());
+                assertEquals(4, gqm.restore(id3).getPriority());
+            } finally {
+                manager.remove();
+            }
+        } finally {
+            tearDown(datasource);
+        }
+    }
+
+    @ParameterizedTest
+    @ArgumentsSource(TestDatasources.class)
+    void testSaveAllOrdinal(Datasource datasource) {
+        setup(datasource);
+        try {
+            var manager = new ContentQueryManager<>(datasource, OrderedRestricted.class);
+            manager.install();
+            try {
+                var id1 = manager.save(new OrderedRestricted().name("the content name").restricted(1));
+
+                var ids = manager.saveAll(List.of(
+                    new OrderedRestricted().name("another content name").restricted(1),
+                    new OrderedRestricted().name("one more content name").restricted(2),
+                    new OrderedRestricted().name("still another content name").restricted(1),
+                    new OrderedRestricted().name("last content name").restricted(2)));
+
+                var gqm = GenericQueryManagerFactory.instance(datasource, OrderedRestricted.class);
+                assertEquals(0, gqm.restore(id1).getPriority());
+                assertEquals(1, gqm.restore(ids[0]).getPriority());
+                assertEquals(0, gqm.restore(ids[1]).getPriority());
+                assertEquals(2, gqm.restore(ids[2]).getPriority());
+                assertEquals(1, gqm.restore(ids[3]).getPriority());
+            } finally {
+                manager.remove();
+            }
+        } finally {
+            tearDown(datasource);
+        }
+    }
+
     @ParameterizedTest
     @ArgumentsSource(TestDatasources.class)
     void testMoveIllegalArguments(Datasource datasource) {
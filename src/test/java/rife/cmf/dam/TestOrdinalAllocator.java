@@ -0,0 +1,153 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.cmf.dam;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ArgumentsSource;
+import rife.database.Datasource;
+import rife.database.DbQueryManager;
+import rife.database.DbTransactionUser;
+import rife.database.TestDatasources;
+import rife.database.querymanagers.generic.GenericQueryManager;
+import rife.database.querymanagers.generic.GenericQueryManagerFactory;
+import rife.tools.InnerClassException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestOrdinalAllocator {
+    private OrdinalAllocator allocator_ = null;
+    private GenericQueryManager<Ordered> orderedManager_ = null;
+    private GenericQueryManager<OrderedRestricted> orderedRestrictedManager_ = null;
+
+    protected void setup(Datasource datasource) {
+        allocator_ = new OrdinalAllocator(datasource, 3);
+        allocator_.install();
+        orderedManager_ = GenericQueryManagerFactory.instance(datasource, Ordered.class);
+        orderedManager_.install();
+        orderedRestrictedManager_ = GenericQueryManagerFactory.instance(datasource, OrderedRestricted.class);
+        orderedRestrictedManager_.install();
+    }
+
+    protected void tearDown() {
+        orderedManager_.remove();
+        orderedRestrictedManager_.remove();
+        allocator_.remove();
+    }
+
+    @ParameterizedTest
+    @ArgumentsSource(TestDatasources.class)
+    void testAllocate(Datasource datasource) {
+        setup(datasource);
+        try {
+            orderedManager_.save(new Ordered().name("ordered 1").priority(0));
+            orderedManager_.save(new Ordered().name("ordered 2").priority(1));
+
+            var ordinals = new OrdinalManager(datasource, orderedManager_.getTable(), "priority");
+            assertEquals(2, allocator_.allocate(ordinals));
+            assertEquals(3, allocator_.allocate(ordinals));
+            assertEquals(4, allocator_.allocate(ordinals));
+            assertEquals(5, allocator_.allocate(ordinals));
+
+            // the remainder of a block is lost when another allocator
+            // reserves the next one
+            var other = new OrdinalAllocator(datasource, 3);
+            assertEquals(8, other.allocate(ordinals));
+            assertEquals(6, allocator_.allocate(ordinals));
+            assertEquals(7, allocator_.allocate(ordinals));
+            assertEquals(11, allocator_.allocate(ordinals));
+        } finally {
+            tearDown();
+        }
+    }
+
+    @ParameterizedTest
+    @ArgumentsSource(TestDatasources.class)
+    void testAllocateSpacedRestricted(Datasource datasource) {
+        setup(datasource);
+        try {
+            orderedRestrictedManager_.save(new OrderedRestricted().name("ordered 1").priority(10).restricted(1));
+            orderedRestrictedManager_.save(new OrderedRestricted().name("ordered 2").priority(20).restricted(1));
+
+            var ordinals = new OrdinalManager(datasource, orderedRestrictedManager_.getTable(), "priority", "restricted").spacing(10);
+            assertEquals(30, allocator_.allocate(ordinals, 1));
+            assertEquals(10, allocator_.allocate(ordinals, 2));
+            assertEquals(40, allocator_.allocate(ordinals, 1));
+            assertEquals(20, allocator_.allocate(ordinals, 2));
+
+            try {
+                allocator_.allocate(new OrdinalManager(datasource, orderedRestrictedManager_.getTable(), "priority"), 1);
+                fail();
+            } catch (IllegalArgumentException e) {
+                assertTrue(true);
+            }
+        } finally {
+            tearDown();
+        }
+    }
+
+    @ParameterizedTest
+    @ArgumentsSource(TestDatasources.class)
+    void testAllocateRolledBack(Datasource datasource) {
+        setup(datasource);
+        try {
+            var ordinals = new OrdinalManager(datasource, orderedManager_.getTable(), "priority");
+            var rolled_back = new ArrayList<Integer>();
+            new DbQueryManager(datasource).inTransaction(new DbTransactionUser<>() {
+                public Object useTransaction()
+                throws InnerClassException {
+                    rolled_back.add(allocator_.allocate(ordinals));
+                    rollback();
+                    return null;
+                }
+            });
+            assertEquals(List.of(0), rolled_back);
+
+            // the reserved block outlives the rolled back transaction, its
+            // ordinals are never handed out by another allocator
+            var other = new OrdinalAllocator(datasource, 3);
+            assertEquals(3, other.allocate(ordinals));
+            assertEquals(1, allocator_.allocate(ordinals));
+        } finally {
+            tearDown();
+        }
+    }
+
+    @ParameterizedTest
+    @ArgumentsSource(TestDatasources.class)
+    void testAllocateConcurrently(Datasource datasource)
+    throws Exception {
+        setup(datasource);
+        try {
+            var ordinals = new OrdinalManager(datasource, orderedManager_.getTable(), "priority");
+            var allocators = new OrdinalAllocator[]{allocator_, new OrdinalAllocator(datasource, 3)};
+
+            var executor = Executors.newFixedThreadPool(8);
+            try {
+                var futures = new ArrayList<Future<Integer>>();
+                for (var i = 0; i < 200; i++) {
+                    var allocator = allocators[i % allocators.length];
+                    futures.add(executor.submit(() -> allocator.allocate(ordinals)));
+                }
+
+                var allocated = Collections.synchronizedSet(new HashSet<Integer>());
+                for (var future : futures) {
+                    assertTrue(allocated.add(future.get()));
+                }
+                assertEquals(200, allocated.size());
+            } finally {
+                executor.shutdownNow();
+            }
+        } finally {
+            tearDown();
+        }
+    }
+}
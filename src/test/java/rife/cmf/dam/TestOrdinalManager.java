@@ -701,4 +701,98 @@ public class TestOrdinalManager {
             tearDown();
         }
     }
+
+    @ParameterizedTest
+    @ArgumentsSource(TestDatasources.class)
+    void testMoveSpaced(Datasource datasource) {
+        setup(datasource);
+        try {
+            ordinalManager_.spacing(10);
+            assertEquals(10, ordinalManager_.getSpacing());
+            assertEquals(10, ordinalManager_.obtainInsertOrdinal());
+            assertFalse(ordinalManager_.respace());
+
+            var ordered1 = orderedManager_.save(new Ordered().name("ordered 1").priority(10));
+            var ordered2 = orderedManager_.save(new Ordered().name("ordered 2").priority(20));
+            var ordered3 = orderedManager_.save(new Ordered().name("ordered 3").priority(30));
+            var ordered4 = orderedManager_.save(new Ordered().name("ordered 4").priority(40));
+            var ordered5 = orderedManager_.save(new Ordered().name("ordered 5").priority(50));
+            assertEquals(60, ordinalManager_.obtainInsertOrdinal());
+
+            // moved rows take an ordinal in the gap in front of the target
+            assertTrue(ordinalManager_.move(40, 20));
+            assertTrue(ordinalManager_.move(50, 15));
+            assertEquals(10, orderedManager_.restore(ordered1).getPriority());
+            assertEquals(20, orderedManager_.restore(ordered2).getPriority());
+            assertEquals(30, orderedManager_.restore(ordered3).getPriority());
+            assertEquals(15, orderedManager_.restore(ordered4).getPriority());
+            assertEquals(12, orderedManager_.restore(ordered5).getPriority());
+
+            // moving up or down swaps the ordinals of neighbours
+            assertTrue(ordinalManager_.move(OrdinalManager.UP, 12));
+            assertTrue(ordinalManager_.move(OrdinalManager.DOWN, 30));
+            assertFalse(ordinalManager_.move(OrdinalManager.UP, 10));
+            assertEquals(12, orderedManager_.restore(ordered1).getPriority());
+            assertEquals(10, orderedManager_.restore(ordered5).getPriority());
+
+            assertTrue(ordinalManager_.move(30, 10));
+            assertTrue(ordinalManager_.move(20, 12));
+            assertEquals(4, orderedManager_.restore(ordered3).getPriority());
+            assertEquals(10, orderedManager_.restore(ordered5).getPriority());
+            assertEquals(11, orderedManager_.restore(ordered2).getPriority());
+            assertEquals(12, orderedManager_.restore(ordered1).getPriority());
+            assertEquals(15, orderedManager_.restore(ordered4).getPriority());
+
+            // without a gap, the ordinals are spread out again
+            assertTrue(ordinalManager_.move(15, 12));
+            assertEquals(10, orderedManager_.restore(ordered3).getPriority());
+            assertEquals(20, orderedManager_.restore(ordered5).getPriority());
+            assertEquals(30, orderedManager_.restore(ordered2).getPriority());
+            assertEquals(35, orderedManager_.restore(ordered4).getPriority());
+            assertEquals(40, orderedManager_.restore(ordered1).getPriority());
+
+            assertTrue(ordinalManager_.respace());
+            assertEquals(40, orderedManager_.restore(ordered4).getPriority());
+            assertEquals(50, orderedManager_.restore(ordered1).getPriority());
+        } finally {
+            tearDown();
+        }
+    }
+
+    @ParameterizedTest
+    @ArgumentsSource(TestDatasources.class)
+    void testMoveSpacedRestricted(Datasource datasource) {
+        setup(datasource);
+        try {
+            ordinalRestrictedManager_.spacing(5);
+
+            var ordered1 = orderedRestrictedManager_.save(new OrderedRestricted().name("ordered 1").priority(0).restricted(1));
+            var ordered2 = orderedRestrictedManager_.save(new OrderedRestricted().name("ordered 2").priority(1).restricted(1));
+            var ordered3 = orderedRestrictedManager_.save(new OrderedRestricted().name("ordered 3").priority(2).restricted(1));
+            var ordered4 = orderedRestrictedManager_.save(new OrderedRestricted().name("ordered 4").priority(0).restricted(2));
+
+            assertTrue(ordinalRestrictedManager_.respace(1));
+            assertFalse(ordinalRestrictedManager_.respace(3));
+            assertEquals(5, orderedRestrictedManager_.restore(ordered1).getPriority());
+            assertEquals(10, orderedRestrictedManager_.restore(ordered2).getPriority());
+            assertEquals(15, orderedRestrictedManager_.restore(ordered3).getPriority());
+            assertEquals(0, orderedRestrictedManager_.restore(ordered4).getPriority());
+            assertEquals(20, ordinalRestrictedManager_.obtainInsertOrdinal(1));
+            assertEquals(5, ordinalRestrictedManager_.obtainInsertOrdinal(2));
+            assertEquals(5, ordinalRestrictedManager_.obtainInsertOrdinal(3));
+
+            assertTrue(ordinalRestrictedManager_.move(1, 15, 5));
+            assertEquals(5, orderedRestrictedManager_.restore(ordered1).getPriority());
+            assertEquals(10, orderedRestrictedManager_.restore(ordered2).getPriority());
+            assertEquals(2, orderedRestrictedManager_.restore(ordered3).getPriority());
+            assertEquals(0, orderedRestrictedManager_.restore(ordered4).getPriority());
+
+            assertTrue(ordinalRestrictedManager_.move(OrdinalManager.DOWN, 1, 2));
+            assertEquals(2, orderedRestrictedManager_.restore(ordered1).getPriority());
+            assertEquals(5, orderedRestrictedManager_.restore(ordered3).getPriority());
+            assertEquals(0, orderedRestrictedManager_.restore(ordered4).getPriority());
+        } finally {
+            tearDown();
+        }
+    }
 }
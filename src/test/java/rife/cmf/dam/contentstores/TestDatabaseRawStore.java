@@ -11,13 +11,16 @@ import rife.cmf.Content;
 import rife.cmf.ContentInfo;
 import rife.cmf.ContentRepository;
 import rife.cmf.MimeType;
+import rife.cmf.dam.ByteRange;
 import rife.cmf.dam.ContentDataUserWithoutResult;
 import rife.cmf.dam.contentmanagers.DatabaseContentFactory;
 import rife.cmf.dam.contentmanagers.DatabaseContentInfo;
 import rife.cmf.dam.contentstores.exceptions.*;
+import rife.cmf.dam.contentstores.rawstoredrivers.generic;
 import rife.config.RifeConfig;
 import rife.database.Datasource;
 import rife.database.TestDatasources;
+import rife.database.queries.Delete;
 import rife.database.queries.Insert;
 import rife.database.queries.Select;
 import rife.tools.FileUtils;
@@ -25,8 +28,11 @@ import rife.tools.InnerClassException;
 import rife.tools.exceptions.FileUtilsErrorException;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.sql.Timestamp;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 
@@ -327,6 +333,71 @@ public class TestDatabaseRawStore {
         }
     }
 
+    @ParameterizedTest
+    @ArgumentsSource(TestDatasources.class)
+    void testStoreContentDataBatches(Datasource datasource) {
+        setup(datasource);
+        try {
+            final var id = new int[]{1};
+            final var manager = DatabaseContentFactory.instance(datasource);
+            final var insert = new Insert(datasource)
+                .into(RifeConfig.cmf().getTableContentInfo())
+                .fieldParameter("version")
+                .fieldParameter("repositoryId");
+            if ("org.apache.derby.jdbc.EmbeddedDriver".equals(datasource.getAliasedDriver())) {
+                insert.fieldsParametersExcluded(DatabaseContentInfo.class, new String[]{"contentId"});
+            } else {
+                insert.fieldsParameters(DatabaseContentInfo.class);
+            }
+            if ("com.mysql.cj.jdbc.Driver".equals(datasource.getAliasedDriver())) {
+                insert.fieldParameter("created");
+            }
+            manager.executeUpdate(insert, statement -> {
+                var content_info = new DatabaseContentInfo();
+                if (!"org.apache.derby.jdbc.EmbeddedDriver".equals(datasource.getAliasedDriver())) {
+                    content_info.setContentId(id[0]);
+                }
+                content_info.setFragment(false);
+                content_info.setPath("/testpath");
+                content_info.setMimeType(MimeType.RAW.toString());
+                content_info.setCreated(new Timestamp(new Date().getTime()));
+                statement
+                    .setInt("version", 1)
+                    .setInt("repositoryId", manager.executeGetFirstInt(new Select(datasource)
+                        .from(RifeConfig.cmf().getTableContentRepository())
+                        .field("repositoryId")
+                        .where("name", "=", ContentRepository.DEFAULT)))
+                    .setBean(content_info);
+            });
+
+            final var raw = getLargeRaw();
+
+            var store = DatabaseRawStoreFactory.instance(datasource);
+            assertEquals(DatabaseRawStore.DEFAULT_CHUNK_BATCH_SIZE, store.getChunkBatchSize());
+            store.setChunkBatchSize(3);
+            try {
+                var content = new Content(MimeType.RAW, new ByteArrayInputStream(raw, 0, raw.length - 1000));
+                assertTrue(store.storeContentData(id[0], content, null));
+            } finally {
+                store.setChunkBatchSize(DatabaseRawStore.DEFAULT_CHUNK_BATCH_SIZE);
+            }
+            assertEquals(raw.length - 1000, store.getSize(id[0]));
+
+            store.useContentData(id[0], new ContentDataUserWithoutResult() {
+                public void useContentData(Object contentData)
+                throws InnerClassException {
+                    try {
+                        assertArrayEquals(Arrays.copyOf(raw, raw.length - 1000), FileUtils.readBytes((InputStream) contentData));
+                    } catch (FileUtilsErrorException e) {
+                        throwException(e);
+                    }
+                }
+            });
+        } finally {
+            tearDown(datasource);
+        }
+    }
+
     @ParameterizedTest
     @ArgumentsSource(TestDatasources.class)
     void testStoreContentDataLargeBytes(Datasource datasource) {
@@ -773,6 +844,169 @@ public class TestDatabaseRawStore {
         }
     }
 
+    @ParameterizedTest
+    @ArgumentsSource(TestDatasources.class)
+    void testOutputContentDataRangeUnevenChunks(Datasource datasource) {
+        setup(datasource);
+        try {
+            var manager = DatabaseContentFactory.instance(datasource);
+            var store = DatabaseRawStoreFactory.instance(datasource);
+            final var raw = getLargeRaw();
+            assertTrue(manager.storeContent("/rawdata", new Content(MimeType.RAW, new ByteArrayInputStream(raw)), null));
+            final var id = manager.getContentInfo("/rawdata").getContentId();
+
+            // content that was stored from a stream with partial reads has
+            // chunks that are smaller than the chunk size
+            var table_chunk = RifeConfig.cmf().getTableContentStoreRawChunk();
+            store.executeUpdate(new Delete(datasource)
+                .from(table_chunk)
+                .whereParameter("contentId", "="), s -> s.setInt("contentId", id));
+            var insert_chunk = new Insert(datasource)
+                .into(table_chunk)
+                .fieldParameter("contentId")
+                .fieldParameter("ordinal")
+                .fieldParameter("chunk");
+            var sizes = new int[]{100, DatabaseRawStore.CHUNK_SIZE, 1};
+            var position = 0;
+            var ordinal = 0;
+            while (position < raw.length) {
+                final var chunk = Arrays.copyOfRange(raw, position, Math.min(raw.length, position + sizes[ordinal % sizes.length]));
+                final var chunk_ordinal = ordinal;
+                store.executeUpdate(insert_chunk, s -> s
+                    .setInt("contentId", id)
+                    .setInt("ordinal", chunk_ordinal)
+                    .setBytes("chunk", chunk));
+                position += chunk.length;
+                ordinal++;
+            }
+
+            var first = DatabaseRawStore.CHUNK_SIZE * 5 + 50;
+            var os = new ByteArrayOutputStream();
+            assertTrue(store.outputContentDataRange(id, new ByteRange(first, first + 100000), os));
+            assertArrayEquals(Arrays.copyOfRange(raw, first, first + 100001), os.toByteArray());
+        } finally {
+            tearDown(datasource);
+        }
+    }
+
+    @ParameterizedTest
+    @ArgumentsSource(TestDatasources.class)
+    void testDeleteContentDataDeduplicated(Datasource datasource) {
+        setup(datasource);
+        var store = DatabaseRawStoreFactory.instance(datasource);
+        try {
+            assertFalse(store.isDeduplicated());
+            assertTrue(store.installDeduplication());
+            assertTrue(store.isDeduplicated());
+
+            // the installed table enables deduplication for other stores too
+            assertTrue(new generic(datasource).isDeduplicated());
+
+            var manager = DatabaseContentFactory.instance(datasource);
+            var count_chunks = new Select(datasource)
+                .from(RifeConfig.cmf().getTableContentStoreRawChunk())
+                .field("COUNT(*)");
+
+            final var raw = getLargeRaw();
+            var chunks = (raw.length + DatabaseRawStore.CHUNK_SIZE - 1) / DatabaseRawStore.CHUNK_SIZE;
+
+            assertTrue(manager.storeContent("/rawdata1", new Content(MimeType.RAW, new ByteArrayInputStream(raw)), null));
+            var id1 = manager.getContentInfo("/rawdata1").getContentId();
+            assertEquals(chunks, store.executeGetFirstInt(count_chunks));
+
+            // identical data at another location and in a new version
+            // refers to the existing chunks
+            assertTrue(manager.storeContent("/rawdata2", new Content(MimeType.RAW, new ByteArrayInputStream(raw)), null));
+            var id2 = manager.getContentInfo("/rawdata2").getContentId();
+            assertTrue(manager.storeContent("/rawdata1", new Content(MimeType.RAW, new ByteArrayInputStream(raw)), null));
+            var id3 = manager.getContentInfo("/rawdata1").getContentId();
+            assertNotEquals(id1, id3);
+            assertEquals(chunks, store.executeGetFirstInt(count_chunks));
+            assertEquals(raw.length, store.getSize(id2));
+
+            // the chunks are handed over when their owner is deleted
+            assertTrue(store.deleteContentData(id1));
+            assertFalse(store.hasContentData(id1));
+            assertEquals(chunks, store.executeGetFirstInt(count_chunks));
+            store.useContentData(id2, new ContentDataUserWithoutResult() {
+                public void useContentData(Object contentData)
+                throws InnerClassException {
+                    try {
+                        assertArrayEquals(raw, FileUtils.readBytes((InputStream) contentData));
+                    } catch (FileUtilsErrorException e) {
+                        throwException(e);
+                    }
+                }
+            });
+
+            assertTrue(store.deleteContentData(id3));
+            assertEquals(chunks, store.executeGetFirstInt(count_chunks));
+            assertTrue(store.hasContentData(id2));
+
+            // different data gets its own chunks
+            assertTrue(manager.storeContent("/rawdata3", new Content(MimeType.RAW, new ByteArrayInputStream(getSmallRaw())), null));
+            assertEquals(chunks + 1, store.executeGetFirstInt(count_chunks));
+
+            // the last reference removes the chunks
+            assertTrue(store.deleteContentData(id2));
+            assertEquals(1, store.executeGetFirstInt(count_chunks));
+        } finally {
+            tearDown(datasource);
+        }
+        assertFalse(store.isDeduplicated());
+    }
+
+    @ParameterizedTest
+    @ArgumentsSource(TestDatasources.class)
+    void testStoreContentDataDeduplicatedBytes(Datasource datasource) {
+        setup(datasource);
+        var store = DatabaseRawStoreFactory.instance(datasource);
+        try {
+            assertTrue(store.installDeduplication());
+
+            var manager = DatabaseContentFactory.instance(datasource);
+            var count_chunks = new Select(datasource)
+                .from(RifeConfig.cmf().getTableContentStoreRawChunk())
+                .field("COUNT(*)");
+
+            final var raw = getLargeRaw();
+            var chunks = (raw.length + DatabaseRawStore.CHUNK_SIZE - 1) / DatabaseRawStore.CHUNK_SIZE;
+
+            assertTrue(manager.storeContent("/rawdata1", new Content(MimeType.RAW, raw), null));
+            assertTrue(manager.storeContent("/rawdata2", new Content(MimeType.RAW, getSmallRaw()), null));
+            final var id2 = manager.getContentInfo("/rawdata2").getContentId();
+            assertTrue(store.deleteContentData(id2));
+            assertEquals(chunks, store.executeGetFirstInt(count_chunks));
+
+            // identical bytes are hashed before they're stored and
+            // don't write any chunks
+            final var stored_chunks = new int[]{0};
+            var counting_store = new generic(datasource) {
+                protected int storeChunks(Insert storeContentChunk, int id, InputStream data)
+                throws IOException {
+                    stored_chunks[0]++;
+                    return super.storeChunks(storeContentChunk, id, data);
+                }
+            };
+            assertTrue(counting_store.storeContentData(id2, new Content(MimeType.RAW, raw), null));
+            assertEquals(0, stored_chunks[0]);
+            assertEquals(chunks, store.executeGetFirstInt(count_chunks));
+            assertEquals(raw.length, store.getSize(id2));
+            store.useContentData(id2, new ContentDataUserWithoutResult() {
+                public void useContentData(Object contentData)
+                throws InnerClassException {
+                    try {
+                        assertArrayEquals(raw, FileUtils.readBytes((InputStream) contentData));
+                    } catch (FileUtilsErrorException e) {
+                        throwException(e);
+                    }
+                }
+            });
+        } finally {
+            tearDown(datasource);
+        }
+    }
+
     @ParameterizedTest
     @ArgumentsSource(TestDatasources.class)
     void testDeleteContentDataUnknown(Datasource datasource) {
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.cmf.dam.contentstores;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import rife.cmf.Content;
+import rife.cmf.MimeType;
+import rife.cmf.dam.ByteRange;
+import rife.tools.FileUtils;
+import rife.tools.InnerClassException;
+import rife.tools.exceptions.FileUtilsErrorException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestFileRawStore {
+    private File directory_;
+    private FileRawStore store_;
+
+    private byte[] getRaw(int size) {
+        var binary = new byte[size];
+        for (var i = 0; i < size; i++) {
+            binary[i] = (byte) (i % 255);
+        }
+
+        return binary;
+    }
+
+    private static byte[] readBytes(Object data) {
+        try {
+            return FileUtils.readBytes((InputStream) data);
+        } catch (FileUtilsErrorException e) {
+            throw new InnerClassException(e);
+        }
+    }
+
+    @BeforeEach
+    void setup()
+    throws Exception {
+        directory_ = Files.createTempDirectory("filerawstore").toFile();
+        store_ = new FileRawStore(directory_);
+        store_.install();
+    }
+
+    @AfterEach
+    void tearDown() {
+        store_.remove();
+        assertFalse(directory_.exists());
+    }
+
+    @Test
+    void testStoreContentData() {
+        var raw = getRaw(200000);
+        assertTrue(store_.storeContentData(1, new Content(MimeType.RAW, new ByteArrayInputStream(raw)), null));
+
+        assertTrue(store_.hasContentData(1));
+        assertEquals(raw.length, store_.getSize(1));
+        assertArrayEquals(raw, store_.useContentDataResult(1, TestFileRawStore::readBytes));
+    }
+
+    @Test
+    void testStoreContentDataEmpty() {
+        assertTrue(store_.storeContentData(1, new Content(MimeType.RAW, null), null));
+
+        assertFalse(store_.hasContentData(1));
+        assertEquals(0, store_.getSize(1));
+    }
+
+    @Test
+    void testUnknownContentData() {
+        assertFalse(store_.hasContentData(3));
+        assertEquals(-1, store_.getSize(3));
+        assertNull(store_.useContentDataResult(3, data -> data));
+        assertFalse(store_.deleteContentData(3));
+    }
+
+    @Test
+    void testDeduplication()
+    throws Exception {
+        var raw = getRaw(1000);
+        assertTrue(store_.storeContentData(1, new Content(MimeType.RAW, raw), null));
+        assertTrue(store_.storeContentData(2, new Content(MimeType.RAW, new ByteArrayInputStream(raw)), null));
+
+        try (var files = Files.walk(new File(directory_, "data").toPath())) {
+            assertEquals(1, files.filter(Files::isRegularFile).count());
+        }
+
+        // the data remains available as long as one id refers to it
+        assertTrue(store_.deleteContentData(1));
+        assertFalse(store_.hasContentData(1));
+        assertArrayEquals(raw, store_.useContentDataResult(2, TestFileRawStore::readBytes));
+
+        assertTrue(store_.deleteContentData(2));
+        try (var files = Files.walk(new File(directory_, "data").toPath())) {
+            assertEquals(0, files.filter(Files::isRegularFile).count());
+        }
+    }
+
+    @Test
+    void testReplaceContentData()
+    throws Exception {
+        assertTrue(store_.storeContentData(1, new Content(MimeType.RAW, getRaw(100)), null));
+        var raw = getRaw(200);
+        assertTrue(store_.storeContentData(1, new Content(MimeType.RAW, raw), null));
+
+        assertArrayEquals(raw, store_.useContentDataResult(1, TestFileRawStore::readBytes));
+        try (var files = Files.walk(new File(directory_, "data").toPath())) {
+            assertEquals(1, files.filter(Files::isRegularFile).count());
+        }
+    }
+
+    @Test
+    void testSharedDirectory()
+    throws Exception {
+        var other_store = new FileRawStore(directory_);
+        var raw = getRaw(1000);
+
+        var threads = new ArrayList<Thread>();
+        for (var i = 1; i <= 20; i++) {
+            var id = i;
+            var store = (0 == i % 2 ? store_ : other_store);
+            var thread = new Thread(() -> {
+                store.storeContentData(id, new Content(MimeType.RAW, raw), null);
+                if (id > 10) {
+                    store.deleteContentData(id);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (var thread : threads) {
+            thread.join();
+        }
+
+        for (var i = 1; i <= 10; i++) {
+            assertArrayEquals(raw, store_.useContentDataResult(i, TestFileRawStore::readBytes));
+            assertFalse(store_.hasContentData(i + 10));
+        }
+        try (var files = Files.walk(new File(directory_, "data").toPath())) {
+            assertEquals(1, files.filter(Files::isRegularFile).count());
+        }
+    }
+
+    @Test
+    void testOutputContentDataRange() {
+        var raw = getRaw(100000);
+        assertTrue(store_.storeContentData(1, new Content(MimeType.RAW, raw), null));
+
+        assertTrue(store_.supportsByteRanges());
+        var out = new ByteArrayOutputStream();
+        assertTrue(store_.outputContentDataRange(1, new ByteRange(70000, 70099), out));
+        assertArrayEquals(Arrays.copyOfRange(raw, 70000, 70100), out.toByteArray());
+
+        assertFalse(store_.outputContentDataRange(2, new ByteRange(0, 10), new ByteArrayOutputStream()));
+    }
+}
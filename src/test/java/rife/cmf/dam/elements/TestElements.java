@@ -15,6 +15,7 @@ import rife.cmf.Content;
 import rife.cmf.MimeType;
 import rife.cmf.dam.ContentImage;
 import rife.cmf.dam.ContentQueryManager;
+import rife.cmf.dam.ImageVariantCache;
 import rife.cmf.dam.contentmanagers.DatabaseContentFactory;
 import rife.cmf.elements.ServeContent;
 import rife.config.RifeConfig;
@@ -26,12 +27,17 @@ import rife.engine.TestServerRunner;
 import rife.resources.ResourceFinderClasspath;
 import rife.tools.FileUtils;
 
+import javax.imageio.ImageIO;
 import java.io.ByteArrayInputStream;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
 import java.util.Collections;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static rife.cmf.format.ImageFormatter.ContentAttribute.HIDPI;
 
 public class TestElements {
@@ -238,6 +244,41 @@ public class TestElements {
         }
     }
 
+    @ParameterizedTest
+    @ArgumentsSource(TestDatasources.class)
+    void testServeContentPendingFormatting(Datasource datasource)
+    throws Exception {
+        setup(datasource);
+        try {
+            var manager = DatabaseContentFactory.instance(datasource);
+            var content = new Content(MimeType.RAW, new ByteArrayInputStream(new byte[]{1, 2, 3}))
+                .property(ContentQueryManager.PROPERTY_PENDING_FORMATTING, "token");
+            manager.storeContent("/rawpending", content, null);
+
+            try (final var server = new TestServerRunner(new Site() {
+                public void setup() {
+                    get("/serve", PathInfoHandling.CAPTURE, new ServeContent(datasource));
+                }
+            })) {
+                try (final var webClient = new WebClient()) {
+                    webClient.getOptions().setThrowExceptionOnFailingStatusCode(false);
+                    webClient.getOptions().setPrintContentOnFailingStatusCode(false);
+
+                    // content isn't served while its formatting is pending
+                    var response = webClient.getPage("http://localhost:8181/serve/rawpending").getWebResponse();
+                    assertEquals(404, response.getStatusCode());
+
+                    manager.storeContent("/rawpending", new Content(MimeType.RAW, new ByteArrayInputStream(new byte[]{1, 2, 3})), null);
+                    response = webClient.getPage("http://localhost:8181/serve/rawpending").getWebResponse();
+                    assertEquals(200, response.getStatusCode());
+                    assertArrayEquals(new byte[]{1, 2, 3}, FileUtils.readBytes(response.getContentAsStream()));
+                }
+            }
+        } finally {
+            tearDown(datasource);
+        }
+    }
+
     @ParameterizedTest
     @ArgumentsSource(TestDatasources.class)
     void testServeContentNoPathinfo(Datasource datasource)
@@ -387,4 +428,191 @@ public class TestElements {
             RifeConfig.engine().setPassThroughSuffixes(RifeConfig.EngineConfig.DEFAULT_PASS_THROUGH_SUFFIXES);
         }
     }
+
+    @ParameterizedTest
+    @ArgumentsSource(TestDatasources.class)
+    void testServeContentRange(Datasource datasource)
+    throws Exception {
+        setup(datasource);
+        try {
+            var size = (int) (65535 * 5.8);
+            var binary = new byte[size];
+            for (var i = 0; i < size; i++) {
+                binary[i] = (byte) (i % 255);
+            }
+
+            var manager = DatabaseContentFactory.instance(datasource);
+            var content = new Content(MimeType.RAW, new ByteArrayInputStream(binary)).name("mycoollib.so");
+            manager.storeContent("/rawdata", content, null);
+            var etag = "\"" + manager.getContentInfo("/rawdata").getContentId() + "-" + manager.getContentInfo("/rawdata").getVersion() + "\"";
+
+            try (final var server = new TestServerRunner(new Site() {
+                public void setup() {
+                    get("/serve", PathInfoHandling.CAPTURE, new ServeContent(datasource));
+                }
+            })) {
+                try (final var webClient = new WebClient()) {
+                    webClient.getOptions().setThrowExceptionOnFailingStatusCode(false);
+                    webClient.getOptions().setPrintContentOnFailingStatusCode(false);
+
+                    // a single range across chunks
+                    var request = new WebRequest(new URL("http://localhost:8181/serve/rawdata"));
+                    request.setAdditionalHeader("Range", "bytes=65000-140000");
+                    var response = webClient.getPage(request).getWebResponse();
+                    assertEquals(206, response.getStatusCode());
+                    assertEquals("bytes 65000-140000/" + size, response.getResponseHeaderValue("Content-Range"));
+                    assertEquals(etag, response.getResponseHeaderValue("ETag"));
+                    assertArrayEquals(Arrays.copyOfRange(binary, 65000, 140001), FileUtils.readBytes(response.getContentAsStream()));
+
+                    // a suffix range
+                    request = new WebRequest(new URL("http://localhost:8181/serve/rawdata"));
+                    request.setAdditionalHeader("Range", "bytes=-100");
+                    response = webClient.getPage(request).getWebResponse();
+                    assertEquals(206, response.getStatusCode());
+                    assertArrayEquals(Arrays.copyOfRange(binary, size - 100, size), FileUtils.readBytes(response.getContentAsStream()));
+
+                    // multiple ranges
+                    request = new WebRequest(new URL("http://localhost:8181/serve/rawdata"));
+                    request.setAdditionalHeader("Range", "bytes=0-9,200000-200009");
+                    response = webClient.getPage(request).getWebResponse();
+                    assertEquals(206, response.getStatusCode());
+                    assertTrue(response.getContentType().startsWith("multipart/byteranges"));
+                    var body = new String(FileUtils.readBytes(response.getContentAsStream()), StandardCharsets.ISO_8859_1);
+                    assertTrue(body.contains("Content-Range: bytes 0-9/" + size));
+                    assertTrue(body.contains("Content-Range: bytes 200000-200009/" + size));
+                    assertTrue(body.contains(new String(Arrays.copyOfRange(binary, 200000, 200010), StandardCharsets.ISO_8859_1)));
+
+                    // an unsatisfiable range
+                    request = new WebRequest(new URL("http://localhost:8181/serve/rawdata"));
+                    request.setAdditionalHeader("Range", "bytes=" + size + "-");
+                    response = webClient.getPage(request).getWebResponse();
+                    assertEquals(416, response.getStatusCode());
+                    assertEquals("bytes */" + size, response.getResponseHeaderValue("Content-Range"));
+
+                    // a range for content that changed in the meantime
+                    request = new WebRequest(new URL("http://localhost:8181/serve/rawdata"));
+                    request.setAdditionalHeader("Range", "bytes=0-9");
+                    request.setAdditionalHeader("If-Range", "\"0-0\"");
+                    response = webClient.getPage(request).getWebResponse();
+                    assertEquals(200, response.getStatusCode());
+                    assertEquals(size, response.getContentLength());
+
+                    // a range for content that didn't change
+                    request = new WebRequest(new URL("http://localhost:8181/serve/rawdata"));
+                    request.setAdditionalHeader("Range", "bytes=0-9");
+                    request.setAdditionalHeader("If-Range", etag);
+                    response = webClient.getPage(request).getWebResponse();
+                    assertEquals(206, response.getStatusCode());
+                    assertArrayEquals(Arrays.copyOfRange(binary, 0, 10), FileUtils.readBytes(response.getContentAsStream()));
+                }
+            }
+        } finally {
+            tearDown(datasource);
+        }
+    }
+
+    @ParameterizedTest
+    @ArgumentsSource(TestDatasources.class)
+    void testServeContentEntityTag(Datasource datasource)
+    throws Exception {
+        setup(datasource);
+        try {
+            var manager = DatabaseContentFactory.instance(datasource);
+            var image_resource = ResourceFinderClasspath.instance().getResource("uwyn.png");
+            var content = new Content(MimeType.IMAGE_PNG, FileUtils.readBytes(image_resource));
+            manager.storeContent("/imagepng", content, null);
+
+            try (final var server = new TestServerRunner(new Site() {
+                public void setup() {
+                    get("/serve", PathInfoHandling.CAPTURE, new ServeContent(datasource));
+                }
+            })) {
+                try (final var webClient = new WebClient()) {
+                    webClient.getOptions().setThrowExceptionOnFailingStatusCode(false);
+                    webClient.getOptions().setPrintContentOnFailingStatusCode(false);
+
+                    var response = webClient.getPage("http://localhost:8181/serve/imagepng").getWebResponse();
+                    assertEquals(200, response.getStatusCode());
+                    assertEquals("bytes", response.getResponseHeaderValue("Accept-Ranges"));
+                    var etag = response.getResponseHeaderValue("ETag");
+                    var image_bytes = FileUtils.readBytes(response.getContentAsStream());
+
+                    var request = new WebRequest(new URL("http://localhost:8181/serve/imagepng"));
+                    request.setAdditionalHeader("If-None-Match", "W/" + etag);
+                    assertEquals(304, webClient.getPage(request).getWebResponse().getStatusCode());
+
+                    request = new WebRequest(new URL("http://localhost:8181/serve/imagepng"));
+                    request.setAdditionalHeader("If-None-Match", "\"0-0\"");
+                    request.setAdditionalHeader("Range", "bytes=10-19");
+                    response = webClient.getPage(request).getWebResponse();
+                    assertEquals(206, response.getStatusCode());
+                    assertArrayEquals(Arrays.copyOfRange(image_bytes, 10, 20), FileUtils.readBytes(response.getContentAsStream()));
+                }
+            }
+        } finally {
+            tearDown(datasource);
+        }
+    }
+
+    @ParameterizedTest
+    @ArgumentsSource(TestDatasources.class)
+    void testServeContentImageVariant(Datasource datasource)
+    throws Exception {
+        setup(datasource);
+        var cache_dir = Files.createTempDirectory("imagevariants").toFile();
+        try {
+            var manager = DatabaseContentFactory.instance(datasource);
+            var image_resource = ResourceFinderClasspath.instance().getResource("uwyn.png");
+            var image_bytes = FileUtils.readBytes(image_resource);
+            var content = new Content(MimeType.IMAGE_PNG, image_bytes);
+            manager.storeContent("/imagepng", content, null);
+
+            var variants = new ImageVariantCache(cache_dir, 1024 * 1024, 20, 5000);
+            try (final var server = new TestServerRunner(new Site() {
+                public void setup() {
+                    get("/serve", PathInfoHandling.CAPTURE, new ServeContent(datasource, null, variants));
+                }
+            })) {
+                try (final var webClient = new WebClient()) {
+                    webClient.getOptions().setThrowExceptionOnFailingStatusCode(false);
+                    webClient.getOptions().setPrintContentOnFailingStatusCode(false);
+
+                    var response = webClient.getPage("http://localhost:8181/serve/imagepng?width=20").getWebResponse();
+                    assertEquals(200, response.getStatusCode());
+                    assertEquals("image/png", response.getContentType());
+                    var etag = response.getResponseHeaderValue("ETag");
+                    var variant_bytes = FileUtils.readBytes(response.getContentAsStream());
+                    assertEquals(20, ImageIO.read(new ByteArrayInputStream(variant_bytes)).getWidth());
+                    assertEquals(1, cache_dir.listFiles().length);
+
+                    // the same pixel dimensions are served from the same variant
+                    response = webClient.getPage("http://localhost:8181/serve/imagepng?width=10&hidpi=true").getWebResponse();
+                    assertEquals(200, response.getStatusCode());
+                    assertEquals(etag, response.getResponseHeaderValue("ETag"));
+                    assertArrayEquals(variant_bytes, FileUtils.readBytes(response.getContentAsStream()));
+                    assertEquals(1, cache_dir.listFiles().length);
+
+                    var request = new WebRequest(new URL("http://localhost:8181/serve/imagepng?width=20"));
+                    request.setAdditionalHeader("If-None-Match", etag);
+                    assertEquals(304, webClient.getPage(request).getWebResponse().getStatusCode());
+
+                    // images are never enlarged
+                    response = webClient.getPage("http://localhost:8181/serve/imagepng?width=5000").getWebResponse();
+                    assertEquals(200, response.getStatusCode());
+                    assertArrayEquals(image_bytes, FileUtils.readBytes(response.getContentAsStream()));
+                    assertEquals(1, cache_dir.listFiles().length);
+
+                    // sizes that aren't allowed are rejected
+                    response = webClient.getPage("http://localhost:8181/serve/imagepng?width=21").getWebResponse();
+                    assertEquals(400, response.getStatusCode());
+                    response = webClient.getPage("http://localhost:8181/serve/imagepng?width=20&hidpi=true").getWebResponse();
+                    assertEquals(400, response.getStatusCode());
+                    assertEquals(1, cache_dir.listFiles().length);
+                }
+            }
+        } finally {
+            FileUtils.deleteDirectory(cache_dir);
+            tearDown(datasource);
+        }
+    }
 }
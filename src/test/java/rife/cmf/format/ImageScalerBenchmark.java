@@ -0,0 +1,65 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.cmf.format;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Compares the time it takes to scale down a large image with the
+ * progressive {@link java.awt.Graphics2D} scaling of {@link ImageFormatter}
+ * and with the filters of {@link ImageScaler}.
+ * <p>This isn't part of the test suite, run it with an optional width,
+ * height and number of iterations as arguments.
+ */
+public class ImageScalerBenchmark {
+    public static void main(String[] arguments) {
+        var width = arguments.length > 0 ? Integer.parseInt(arguments[0]) : 6000;
+        var height = arguments.length > 1 ? Integer.parseInt(arguments[1]) : 4000;
+        var iterations = arguments.length > 2 ? Integer.parseInt(arguments[2]) : 10;
+        var longest_edge = 800;
+
+        var image = createImage(width, height);
+        var target_width = width >= height ? longest_edge : (int) ((double) width * longest_edge / height + 0.5);
+        var target_height = width >= height ? (int) ((double) height * longest_edge / width + 0.5) : longest_edge;
+
+        System.out.println("Scaling " + width + "x" + height + " to " + target_width + "x" + target_height +
+                           " on " + Runtime.getRuntime().availableProcessors() + " processors");
+
+        run("progressive", iterations, () -> ImageFormatter.progressiveScaling(image, longest_edge, BufferedImage.TYPE_INT_RGB));
+        for (var filter : ImageScaler.Filter.values()) {
+            var scaler = new ImageScaler(filter);
+            run(filter.name().toLowerCase(), iterations, () -> scaler.scale(image, target_width, target_height, BufferedImage.TYPE_INT_RGB));
+        }
+    }
+
+    private static BufferedImage createImage(int width, int height) {
+        var image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        var random = new Random(1);
+        var g2 = image.createGraphics();
+        for (var i = 0; i < 2000; i++) {
+            g2.setColor(new Color(random.nextInt(0xffffff)));
+            g2.fillOval(random.nextInt(width), random.nextInt(height), random.nextInt(width / 4) + 1, random.nextInt(height / 4) + 1);
+        }
+        g2.dispose();
+        return image;
+    }
+
+    private static void run(String name, int iterations, Supplier<BufferedImage> scaling) {
+        // warm up so that the timings don't include the compilation
+        for (var i = 0; i < 3; i++) {
+            scaling.get();
+        }
+
+        var start = System.nanoTime();
+        for (var i = 0; i < iterations; i++) {
+            scaling.get();
+        }
+        var average = (System.nanoTime() - start) / iterations / 1_000_000.0;
+        System.out.printf("%-12s %10.2f ms%n", name, average);
+    }
+}
@@ -17,9 +17,12 @@ import rife.cmf.transform.ImageContentTransformer;
 import rife.resources.ResourceFinderClasspath;
 import rife.tools.FileUtils;
 
+import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -131,6 +134,140 @@ public class TestImageFormatter {
         assertArrayEquals(data_image_png, result);
     }
 
+    @Test
+    void testFormatInputStream()
+    throws Exception {
+        var image_resource_gif = ResourceFinderClasspath.instance().getResource("uwyn.gif");
+        var data_image_gif = FileUtils.readBytes(image_resource_gif);
+
+        var content = new Content(MimeType.IMAGE_PNG, new ByteArrayInputStream(data_image_gif));
+        content
+            .attribute("width", 20);
+        var formatter = new ImageFormatter();
+        var result = formatter.format(content, null);
+
+        assertNotNull(result);
+
+        var image_resource_png = ResourceFinderClasspath.instance().getResource("uwyn_resized-width_20.png");
+        var data_image_png = FileUtils.readBytes(image_resource_png);
+
+        assertArrayEquals(data_image_png, result);
+    }
+
+    @Test
+    void testFormatInputStreamUnreadableData()
+    throws Exception {
+        var content = new Content(MimeType.IMAGE_PNG, new ByteArrayInputStream(new byte[]{34, 9, 12, 5, 92}));
+        var formatter = new ImageFormatter();
+        try {
+            formatter.format(content, null);
+            fail();
+        } catch (UnreadableDataFormatException e) {
+            assertSame(MimeType.IMAGE_PNG, e.getMimeType());
+        }
+    }
+
+    @Test
+    void testFormatSubsampled()
+    throws Exception {
+        var image = new BufferedImage(3000, 2000, BufferedImage.TYPE_INT_RGB);
+        var g2 = image.createGraphics();
+        g2.setColor(Color.BLUE);
+        g2.fillRect(0, 0, 3000, 2000);
+        g2.setColor(Color.RED);
+        g2.fillRect(0, 0, 1500, 2000);
+        g2.dispose();
+        var bytes = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", bytes);
+
+        var content = new Content(MimeType.IMAGE_PNG, new ByteArrayInputStream(bytes.toByteArray()));
+        content
+            .attribute("width", 300);
+        var result = new ImageFormatter().format(content, null);
+
+        var scaled = ImageIO.read(new ByteArrayInputStream(result));
+        assertEquals(300, scaled.getWidth());
+        assertEquals(200, scaled.getHeight());
+        assertEquals(Color.RED.getRGB(), scaled.getRGB(10, 100));
+        assertEquals(Color.BLUE.getRGB(), scaled.getRGB(290, 100));
+        assertEquals("300", content.getProperty(ImageFormatter.CmfProperty.WIDTH));
+        assertEquals("200", content.getProperty(ImageFormatter.CmfProperty.HEIGHT));
+    }
+
+    @Test
+    void testFormatSubsampledBytes()
+    throws Exception {
+        var image = new BufferedImage(3000, 2000, BufferedImage.TYPE_INT_RGB);
+        var g2 = image.createGraphics();
+        g2.setColor(Color.BLUE);
+        g2.fillRect(0, 0, 3000, 2000);
+        g2.setColor(Color.RED);
+        g2.fillRect(0, 0, 1500, 2000);
+        g2.dispose();
+        var bytes = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", bytes);
+
+        var content = new Content(MimeType.IMAGE_PNG, bytes.toByteArray());
+        content
+            .attribute("width", 300);
+        var result = new ImageFormatter().format(content, null);
+
+        var scaled = ImageIO.read(new ByteArrayInputStream(result));
+        assertEquals(300, scaled.getWidth());
+        assertEquals(200, scaled.getHeight());
+        assertEquals(Color.RED.getRGB(), scaled.getRGB(10, 100));
+        assertEquals(Color.BLUE.getRGB(), scaled.getRGB(290, 100));
+        assertEquals("300", content.getProperty(ImageFormatter.CmfProperty.WIDTH));
+        assertEquals("200", content.getProperty(ImageFormatter.CmfProperty.HEIGHT));
+    }
+
+    @Test
+    void testFormatAttributeFilter()
+    throws Exception {
+        var image = new BufferedImage(600, 400, BufferedImage.TYPE_INT_RGB);
+        var g2 = image.createGraphics();
+        g2.setColor(Color.BLUE);
+        g2.fillRect(0, 0, 600, 400);
+        g2.setColor(Color.RED);
+        g2.fillRect(0, 0, 300, 400);
+        g2.dispose();
+        var bytes = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", bytes);
+
+        for (var filter : new String[]{"bilinear", "lanczos"}) {
+            var content = new Content(MimeType.IMAGE_PNG, bytes.toByteArray());
+            content
+                .attribute("width", 60)
+                .attribute("filter", filter);
+            var result = new ImageFormatter().format(content, null);
+
+            var scaled = ImageIO.read(new ByteArrayInputStream(result));
+            assertEquals(60, scaled.getWidth());
+            assertEquals(40, scaled.getHeight());
+            assertEquals(Color.RED.getRGB(), scaled.getRGB(5, 20));
+            assertEquals(Color.BLUE.getRGB(), scaled.getRGB(55, 20));
+        }
+    }
+
+    @Test
+    void testFormatInvalidAttributeFilter()
+    throws Exception {
+        var image_resource_gif = ResourceFinderClasspath.instance().getResource("uwyn.gif");
+        var data_image_gif = FileUtils.readBytes(image_resource_gif);
+
+        var content = new Content(MimeType.IMAGE_PNG, data_image_gif);
+        content
+            .attribute("width", 20)
+            .attribute("filter", "unknown");
+        var formatter = new ImageFormatter();
+        try {
+            formatter.format(content, null);
+            fail();
+        } catch (FormatException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+    }
+
     @Test
     void testFormatInvalidAttributeWidth()
     throws Exception {
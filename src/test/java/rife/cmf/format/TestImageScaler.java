@@ -0,0 +1,111 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.cmf.format;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestImageScaler {
+    private static BufferedImage createImage(int width, int height, int imageType) {
+        var image = new BufferedImage(width, height, imageType);
+        var g2 = image.createGraphics();
+        g2.setColor(Color.BLUE);
+        g2.fillRect(0, 0, width, height);
+        g2.setColor(Color.RED);
+        g2.fillRect(0, 0, width / 2, height);
+        g2.dispose();
+        return image;
+    }
+
+    @Test
+    void testIllegalArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new ImageScaler(null));
+        assertThrows(IllegalArgumentException.class, () -> new ImageScaler(ImageScaler.Filter.BILINEAR, null));
+
+        var scaler = new ImageScaler(ImageScaler.Filter.BILINEAR);
+        var image = createImage(10, 10, BufferedImage.TYPE_INT_RGB);
+        assertThrows(IllegalArgumentException.class, () -> scaler.scale(null, 5, 5, BufferedImage.TYPE_INT_RGB));
+        assertThrows(IllegalArgumentException.class, () -> scaler.scale(image, 0, 5, BufferedImage.TYPE_INT_RGB));
+        assertThrows(IllegalArgumentException.class, () -> scaler.scale(image, 5, 0, BufferedImage.TYPE_INT_RGB));
+        assertThrows(IllegalArgumentException.class, () -> scaler.scale(image, 5, 5, BufferedImage.TYPE_BYTE_GRAY));
+    }
+
+    @Test
+    void testScaleDown() {
+        var image = createImage(1000, 600, BufferedImage.TYPE_INT_RGB);
+        for (var filter : ImageScaler.Filter.values()) {
+            var scaler = new ImageScaler(filter);
+            assertSame(filter, scaler.getFilter());
+
+            var scaled = scaler.scale(image, 100, 60, BufferedImage.TYPE_INT_RGB);
+            assertEquals(100, scaled.getWidth());
+            assertEquals(60, scaled.getHeight());
+            assertEquals(BufferedImage.TYPE_INT_RGB, scaled.getType());
+            assertEquals(Color.RED.getRGB(), scaled.getRGB(0, 0));
+            assertEquals(Color.RED.getRGB(), scaled.getRGB(40, 30));
+            assertEquals(Color.BLUE.getRGB(), scaled.getRGB(60, 30));
+            assertEquals(Color.BLUE.getRGB(), scaled.getRGB(99, 59));
+        }
+    }
+
+    @Test
+    void testScaleUp() {
+        var image = createImage(20, 10, BufferedImage.TYPE_INT_RGB);
+        for (var filter : ImageScaler.Filter.values()) {
+            var scaled = new ImageScaler(filter).scale(image, 200, 100, BufferedImage.TYPE_INT_RGB);
+            assertEquals(200, scaled.getWidth());
+            assertEquals(100, scaled.getHeight());
+            assertEquals(Color.RED.getRGB(), scaled.getRGB(10, 50));
+            assertEquals(Color.BLUE.getRGB(), scaled.getRGB(190, 50));
+        }
+    }
+
+    @Test
+    void testScaleTransparent() {
+        var image = new BufferedImage(200, 200, BufferedImage.TYPE_INT_ARGB);
+        var g2 = image.createGraphics();
+        g2.setColor(Color.GREEN);
+        g2.fillRect(0, 0, 100, 200);
+        g2.dispose();
+
+        for (var filter : ImageScaler.Filter.values()) {
+            var scaled = new ImageScaler(filter).scale(image, 20, 20, BufferedImage.TYPE_INT_ARGB);
+            assertEquals(Color.GREEN.getRGB(), scaled.getRGB(5, 10));
+            assertEquals(0, scaled.getRGB(15, 10));
+
+            // the transparent pixels don't darken the opaque ones at the border
+            var border = scaled.getRGB(10, 10);
+            var alpha = border >>> 24;
+            assertTrue(alpha > 0 && alpha < 255);
+            assertEquals(0, (border >> 16) & 0xff);
+            assertTrue(((border >> 8) & 0xff) > 240);
+            assertEquals(0, border & 0xff);
+        }
+    }
+
+    @Test
+    void testScaleReusesBuffers() {
+        var scaler = new ImageScaler(ImageScaler.Filter.LANCZOS, new ForkJoinPool(4));
+        var large = createImage(800, 800, BufferedImage.TYPE_INT_RGB);
+        var small = createImage(80, 40, BufferedImage.TYPE_INT_RGB);
+
+        var first = scaler.scale(large, 40, 40, BufferedImage.TYPE_INT_RGB);
+        var second = scaler.scale(small, 40, 20, BufferedImage.TYPE_INT_RGB);
+        var third = scaler.scale(large, 40, 40, BufferedImage.TYPE_INT_RGB);
+
+        assertEquals(40, second.getWidth());
+        assertEquals(20, second.getHeight());
+        for (var y = 0; y < 40; y++) {
+            for (var x = 0; x < 40; x++) {
+                assertEquals(first.getRGB(x, y), third.getRGB(x, y));
+            }
+        }
+    }
+}
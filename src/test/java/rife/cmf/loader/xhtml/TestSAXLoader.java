@@ -7,8 +7,11 @@ package rife.cmf.loader.xhtml;
 import org.junit.jupiter.api.Test;
 import rife.cmf.MimeType;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -89,4 +92,43 @@ public class TestSAXLoader {
 
         assertNull(xhtml);
     }
+
+    @Test
+    void testLoadReusesParser() {
+        var loader = new SAXLoader();
+
+        // a failed load doesn't affect the next ones on the same thread
+        for (var i = 0; i < 3; i++) {
+            Set<String> errors = new HashSet<>();
+            assertNull(loader.loadFromString("<i><b>error</i>", true, errors));
+            assertEquals(1, errors.size());
+
+            errors = new HashSet<>();
+            assertNotNull(loader.loadFromString("<p>some &eacute; <b>html</b> here</p>", true, errors));
+            assertEquals(0, errors.size());
+        }
+    }
+
+    @Test
+    void testLoadConcurrently()
+    throws Exception {
+        var executor = Executors.newFixedThreadPool(4);
+        try {
+            var futures = new ArrayList<Future<Boolean>>();
+            for (var i = 0; i < 40; i++) {
+                var valid = i % 2 == 0;
+                futures.add(executor.submit(() -> {
+                    Set<String> errors = new HashSet<>();
+                    var xhtml = new SAXLoader().loadFromString(valid ? "<p>some &copy; <b>html</b> here</p>" : "<i><b>error</i>", true, errors);
+                    return (xhtml != null) == valid && errors.isEmpty() == valid;
+                }));
+            }
+
+            for (var future : futures) {
+                assertTrue(future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 }
@@ -501,4 +501,135 @@ public class TestFeedProvider {
                 ]
             }""", response.getText());
     }
+
+    @Test
+    public void testFeedProviderStreamingRss() {
+        var conversation = new MockConversation(new Site() {
+            public void setup() {
+                get("/streaming_rss", () -> new FeedProvider(FeedProvider.FeedType.RSS_2_0, new ImageEntryProvider()).streaming(true));
+            }
+        });
+
+        var response = conversation.doRequest("http://localhost/streaming_rss");
+        assertEquals("application/xml; charset=UTF-8", response.getContentType());
+        assertEquals("""
+            <?xml version="1.0" encoding="UTF-8"?>
+            <rss xmlns:dc="http://purl.org/dc/elements/1.1/" xmlns:atom="http://www.w3.org/2005/Atom" xmlns:media="http://search.yahoo.com/mrss" version="2.0">
+                <channel>
+                    <title>feed_title</title>
+                    <link>feed_link</link>
+                    <atom:link href="http://localhost/streaming_rss" rel="self" type="application/rss+xml" />
+                    <category>feed_category</category>
+                    <dc:subject>feed_category</dc:subject>
+                    <description>feed_description</description>
+                    <language>feed_language</language>
+                    <copyright>feed_copyright</copyright>
+                    <pubDate>Fri, 24 Nov 2023 00:00:00 -0500</pubDate>
+                    <managingEditor>feed_author</managingEditor>
+                    <dc:language>feed_language</dc:language>
+                    <dc:rights>feed_copyright</dc:rights>
+                    <item>
+                        <title>entry_title1</title>
+                        <link>entry_link1</link>
+                        <description>&quot;entry&quot;
+            &lt;content&gt;1</description>
+                        <pubDate>Fri, 24 Nov 2023 01:00:00 -0500</pubDate>
+                        <author>entry_author1</author>
+                        <dc:creator>entry_author1</dc:creator>
+                        <guid>entry_link1</guid>
+                        <media:thumbnail url="https://rife2.com/images/logo.svg?0" />
+                    </item>
+                    <item>
+                        <title>entry_title2</title>
+                        <link>entry_link2</link>
+                        <description>&quot;entry&quot;
+            &lt;content&gt;2</description>
+                        <pubDate>Fri, 24 Nov 2023 02:00:00 -0500</pubDate>
+                        <author>entry_author2</author>
+                        <dc:creator>entry_author2</dc:creator>
+                        <guid>entry_link2</guid>
+                    </item>
+                    <item>
+                        <title>entry_title3</title>
+                        <link>entry_link3</link>
+                        <description>&quot;entry&quot;
+            &lt;content&gt;3</description>
+                        <pubDate>Fri, 24 Nov 2023 03:00:00 -0500</pubDate>
+                        <author>entry_author3</author>
+                        <dc:creator>entry_author3</dc:creator>
+                        <guid>entry_link3</guid>
+                        <media:thumbnail url="https://rife2.com/images/logo.svg?2" />
+                    </item>
+                </channel>
+            </rss>""", response.getText());
+    }
+
+    @Test
+    public void testFeedProviderStreamingJson1_1()
+    throws Exception {
+        var conversation = new MockConversation(new Site() {
+            public void setup() {
+                get("/streaming_json", () -> new FeedProvider(FeedProvider.FeedType.JSON_1_1, new ImageEntryProvider()).streaming(true));
+            }
+        });
+
+        var response = conversation.doRequest("http://localhost/streaming_json");
+        assertEquals("application/json; charset=UTF-8", response.getContentType());
+        assertEquals("""
+            {
+                "version": "https://jsonfeed.org/version/1.1",
+                "title": "feed_title",
+                "home_page_url": "feed_link",
+                "description": "feed_description",
+                "authors": [
+                    {
+                        "name": "feed_author"
+                    }
+                ],
+                "language": "feed_language",
+                "items": [
+                    {
+                        "id": "entry_link1",
+                        "url": "entry_link1",
+                        "tags": [],
+                        "title": "entry_title1",
+                        "content_html": "\\"entry\\"\\n<content>1",
+                        "date_published": "2023-11-24T01:00:00-0500",
+                        "authors": [
+                            {
+                                "name": "entry_author1"
+                            }
+                        ],
+                        "image": "https://rife2.com/images/logo.svg?0"
+                    },
+                    {
+                        "id": "entry_link2",
+                        "url": "entry_link2",
+                        "tags": [],
+                        "title": "entry_title2",
+                        "content_html": "\\"entry\\"\\n<content>2",
+                        "date_published": "2023-11-24T02:00:00-0500",
+                        "authors": [
+                            {
+                                "name": "entry_author2"
+                            }
+                        ]
+                    },
+                    {
+                        "id": "entry_link3",
+                        "url": "entry_link3",
+                        "tags": [],
+                        "title": "entry_title3",
+                        "content_html": "\\"entry\\"\\n<content>3",
+                        "date_published": "2023-11-24T03:00:00-0500",
+                        "authors": [
+                            {
+                                "name": "entry_author3"
+                            }
+                        ],
+                        "image": "https://rife2.com/images/logo.svg?2"
+                    }
+                ]
+            }""", response.getText());
+    }
 }
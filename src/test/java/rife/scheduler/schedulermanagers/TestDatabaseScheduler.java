@@ -92,6 +92,78 @@ public class TestDatabaseScheduler {
         }
     }
 
+    @ParameterizedTest
+    @ArgumentsSource(TestDatasources.class)
+    void testClaimPartitions(Datasource datasource) {
+        setup(datasource);
+        try {
+            var scheduling = DatabaseSchedulingFactory.instance(datasource);
+
+            var partitions1 = scheduling.claimPartitions("node1", 4, 60000);
+            assertEquals(4, partitions1.size());
+
+            // the second node announces itself, the first node releases half
+            // of its partitions, after which the second node can claim them
+            var partitions2 = scheduling.claimPartitions("node2", 4, 60000);
+            assertTrue(partitions2.isEmpty());
+            partitions1 = scheduling.claimPartitions("node1", 4, 60000);
+            assertEquals(2, partitions1.size());
+            partitions2 = scheduling.claimPartitions("node2", 4, 60000);
+            assertEquals(2, partitions2.size());
+            for (var partition : partitions2) {
+                assertFalse(partitions1.contains(partition));
+            }
+
+            // leaving nodes give their partitions back
+            scheduling.releasePartitions("node2");
+            partitions1 = scheduling.claimPartitions("node1", 4, 60000);
+            assertEquals(4, partitions1.size());
+        } finally {
+            tearDown(datasource);
+        }
+    }
+
+    @ParameterizedTest
+    @ArgumentsSource(TestDatasources.class)
+    void testPartitionedTasksToProcess(Datasource datasource)
+    throws Exception {
+        setup(datasource);
+        try {
+            var scheduler1 = DatabaseSchedulingFactory.instance(datasource).createPartitionedScheduler("node1", 2);
+            var scheduler2 = DatabaseSchedulingFactory.instance(datasource).createPartitionedScheduler("node2", 2);
+            var task_manager1 = (PartitionedTasks) scheduler1.getTaskManager();
+            var task_manager2 = (PartitionedTasks) scheduler2.getTaskManager();
+
+            for (var i = 0; i < 6; i++) {
+                var task = new Task()
+                    .type(TestTasktypes.UPLOAD_GROUPS)
+                    .planned(System.currentTimeMillis() - 60000);
+                task_manager1.addTask(task);
+            }
+
+            assertEquals(6, task_manager1.getTasksToProcess().size());
+            task_manager2.getTasksToProcess();
+            task_manager1.getTasksToProcess();
+
+            var tasks1 = task_manager1.getTasksToProcess();
+            var tasks2 = task_manager2.getTasksToProcess();
+            assertEquals(1, task_manager1.getPartitions().size());
+            assertEquals(1, task_manager2.getPartitions().size());
+            assertEquals(6, tasks1.size() + tasks2.size());
+            for (var task : tasks1) {
+                assertTrue(task_manager1.getPartitions().contains(task.getId() % 2));
+            }
+            for (var task : tasks2) {
+                assertTrue(task_manager2.getPartitions().contains(task.getId() % 2));
+            }
+
+            task_manager1.releasePartitions();
+            task_manager2.releasePartitions();
+        } finally {
+            tearDown(datasource);
+        }
+    }
+
     @ParameterizedTest
     @ArgumentsSource(TestDatasources.class)
     void testOneshotTaskExecution(Datasource datasource)
@@ -7,11 +7,13 @@ package rife.scheduler.schedulermanagers;
 import org.junit.jupiter.api.Test;
 import rife.scheduler.Executor;
 import rife.scheduler.Frequency;
+import rife.scheduler.SchedulerMetrics;
 import rife.scheduler.Task;
 import rife.scheduler.TestTasktypes;
 import rife.tools.ExceptionUtils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Date;
@@ -191,6 +193,49 @@ public class TestMemoryScheduler {
         taskmanager.removeTask(task.getId());
     }
 
+    @Test
+    void testSchedulerMetrics()
+    throws Exception {
+        var sleep_time = 2 * 1000;
+        var scheduler = new MemoryScheduling().createScheduler();
+        var metrics = new SchedulerMetrics();
+        var executor = new TestExecutor();
+        var taskmanager = scheduler.getTaskManager();
+        var task = executor.createTask();
+
+        task.setPlanned(System.currentTimeMillis());
+        task.setFrequency(null);
+        task.setBusy(false);
+
+        scheduler.addListener(metrics);
+        scheduler.addExecutor(executor);
+        scheduler.setSleepTime(sleep_time);
+        task.setId(taskmanager.addTask(task));
+
+        scheduler.start();
+        Thread.sleep(sleep_time * 2);
+        synchronized (scheduler) {
+            scheduler.stop();
+            scheduler.wait();
+        }
+
+        assertTrue(metrics.getRetrievalCount() >= 1);
+        assertTrue(metrics.getMaximumRetrievalDuration() >= metrics.getLastRetrievalDuration());
+        assertTrue(metrics.getTaskTypes().contains(TestTasktypes.UPLOAD_GROUPS));
+
+        var type_metrics = metrics.getTaskTypeMetrics(TestTasktypes.UPLOAD_GROUPS);
+        assertEquals(TestTasktypes.UPLOAD_GROUPS, type_metrics.getType());
+        assertEquals(1, type_metrics.getStartedCount());
+        assertEquals(1, type_metrics.getSuccessfulCount());
+        assertEquals(0, type_metrics.getUnsuccessfulCount());
+        assertEquals(0, type_metrics.getFailedCount());
+        assertEquals(0, type_metrics.getRescheduledCount());
+        assertEquals(0, type_metrics.getRunningCount());
+        assertTrue(type_metrics.getMaximumLateness() >= 0);
+        assertEquals(1, Arrays.stream(type_metrics.getDurationHistogram()).sum());
+        assertNull(metrics.getTaskTypeMetrics("unknown"));
+    }
+
     static class TestExecutor extends Executor {
         private Calendar firstExecution_ = null;
         private ArrayList<Task> executedTasks_ = null;
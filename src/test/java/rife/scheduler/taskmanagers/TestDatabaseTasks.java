@@ -441,4 +441,60 @@ public class TestDatabaseTasks {
             tearDown(datasource);
         }
     }
+
+    @ParameterizedTest
+    @ArgumentsSource(TestDatasources.class)
+    void testBatchedTaskConclusion(Datasource datasource) {
+        setup(datasource);
+
+        var one_hour = 1000 * 60 * 60;
+
+        var manager = DatabaseTasksFactory.instance(datasource);
+        try {
+            manager.setBatchInterval(60000);
+            assertEquals(60000, manager.getBatchInterval());
+
+            var task1 = new Task();
+            task1.setType(TestTasktypes.UPLOAD_GROUPS);
+            task1.setPlanned(System.currentTimeMillis() - one_hour);
+            task1.setFrequency(null);
+            task1.setBusy(false);
+
+            var task2 = new Task();
+            task2.setType(TestTasktypes.UPLOAD_GROUPS);
+            task2.setPlanned(System.currentTimeMillis() - one_hour);
+            task2.setFrequency(Frequency.MINUTELY);
+            task2.setBusy(false);
+
+            task1.setId(manager.addTask(task1));
+            task2.setId(manager.addTask(task2));
+            task1 = manager.getTask(task1.getId());
+            task2 = manager.getTask(task2.getId());
+
+            assertTrue(manager.activateTask(task1.getId()));
+            assertTrue(manager.activateTask(task2.getId()));
+            assertTrue(manager.concludeTask(task1));
+            assertTrue(manager.concludeTask(task2));
+
+            // reading flushes the pending transitions
+            assertNull(manager.getTask(task1.getId()));
+            var task2_new = manager.getTask(task2.getId());
+            assertNotNull(task2_new);
+            assertTrue(task2_new.getPlanned() > task2.getPlanned());
+            assertEquals(task2_new.getFrequency(), task2.getFrequency());
+            assertFalse(task2_new.isBusy());
+
+            assertTrue(manager.activateTask(task2.getId()));
+            manager.flushBatch();
+            manager.setBatchInterval(0);
+            assertTrue(manager.getTask(task2.getId()).isBusy());
+
+            manager.removeTask(task2.getId());
+        } catch (FrequencyException | TaskManagerException e) {
+            fail(ExceptionUtils.getExceptionStackTrace(e));
+        } finally {
+            manager.setBatchInterval(0);
+            tearDown(datasource);
+        }
+    }
 }
@@ -368,4 +368,103 @@ public class TestDatabaseTaskOptions {
             tearDown(datasource);
         }
     }
+
+    @ParameterizedTest
+    @ArgumentsSource(TestDatasources.class)
+    void testLoadTaskOptions(Datasource datasource) {
+        setup(datasource);
+
+        var task_manager = DatabaseSchedulingFactory.instance(datasource).createScheduler().getTaskManager();
+        var taskoption_manager = DatabaseSchedulingFactory.instance(datasource).createScheduler().getTaskOptionManager();
+        try {
+            var cal = Calendar.getInstance();
+            cal.set(2001, Calendar.NOVEMBER, 24, 0, 0, 0);
+
+            var task1 = new Task();
+            task1.setType(TestTasktypes.UPLOAD_GROUPS);
+            task1.setPlanned(cal.getTime());
+            task1.setFrequency(Frequency.MINUTELY);
+            task1.setId(task_manager.addTask(task1));
+
+            var task2 = new Task();
+            task2.setType(TestTasktypes.UPLOAD_GROUPS);
+            task2.setPlanned(cal.getTime());
+            task2.setFrequency(Frequency.MINUTELY);
+            task2.setId(task_manager.addTask(task2));
+
+            assertTrue(taskoption_manager.addTaskOption(new TaskOption().taskId(task1.getId()).name("name1").value("value1")));
+            assertTrue(taskoption_manager.addTaskOption(new TaskOption().taskId(task1.getId()).name("name2").value("value2")));
+
+            taskoption_manager.loadTaskOptions(task_manager.getTasksToProcess());
+
+            assertEquals("value1", taskoption_manager.getTaskOption(task1.getId(), "name1").getValue());
+            assertEquals("value2", taskoption_manager.getTaskOption(task1.getId(), "name2").getValue());
+            assertNull(taskoption_manager.getTaskOption(task1.getId(), "name3"));
+            assertEquals(2, taskoption_manager.getTaskOptions(task1.getId()).size());
+            assertEquals(0, taskoption_manager.getTaskOptions(task2.getId()).size());
+
+            // modifications invalidate the loaded task options
+            assertTrue(taskoption_manager.updateTaskOption(new TaskOption().taskId(task1.getId()).name("name1").value("value1b")));
+            assertTrue(taskoption_manager.addTaskOption(new TaskOption().taskId(task2.getId()).name("name1").value("value3")));
+            assertTrue(taskoption_manager.removeTaskOption(task1.getId(), "name2"));
+
+            taskoption_manager.loadTaskOptions(task_manager.getTasksToProcess());
+
+            assertEquals("value1b", taskoption_manager.getTaskOption(task1.getId(), "name1").getValue());
+            assertNull(taskoption_manager.getTaskOption(task1.getId(), "name2"));
+            assertEquals("value3", taskoption_manager.getTaskOption(task2.getId(), "name1").getValue());
+        } catch (SchedulerException e) {
+            fail(ExceptionUtils.getExceptionStackTrace(e));
+        } finally {
+            tearDown(datasource);
+        }
+    }
+
+    @ParameterizedTest
+    @ArgumentsSource(TestDatasources.class)
+    void testLoadTaskOptionsExpiry(Datasource datasource)
+    throws Exception {
+        setup(datasource);
+
+        var task_manager = DatabaseSchedulingFactory.instance(datasource).createScheduler().getTaskManager();
+        var taskoption_manager1 = (DatabaseTaskOptions) DatabaseSchedulingFactory.instance(datasource).createScheduler().getTaskOptionManager();
+        try {
+            // the factory caches its managers, another instance of the same
+            // driver stands in for the manager of another process
+            var taskoption_manager2 = taskoption_manager1.getClass().getConstructor(Datasource.class).newInstance(datasource);
+            assertNotSame(taskoption_manager1, taskoption_manager2);
+
+            assertEquals(DatabaseTaskOptions.DEFAULT_CACHE_MAX_AGE, taskoption_manager1.getCacheMaxAge());
+            taskoption_manager1.setCacheMaxAge(200);
+            assertEquals(200, taskoption_manager1.getCacheMaxAge());
+
+            var cal = Calendar.getInstance();
+            cal.set(2001, Calendar.NOVEMBER, 24, 0, 0, 0);
+
+            var task = new Task();
+            task.setType(TestTasktypes.UPLOAD_GROUPS);
+            task.setPlanned(cal.getTime());
+            task.setFrequency(Frequency.MINUTELY);
+            task.setId(task_manager.addTask(task));
+
+            assertTrue(taskoption_manager1.addTaskOption(new TaskOption().taskId(task.getId()).name("name1").value("value1")));
+            taskoption_manager1.loadTaskOptions(task_manager.getTasksToProcess());
+            assertEquals("value1", taskoption_manager1.getTaskOption(task.getId(), "name1").getValue());
+
+            // a modification by another manager is only seen after the cached options expired
+            assertTrue(taskoption_manager2.updateTaskOption(new TaskOption().taskId(task.getId()).name("name1").value("value1b")));
+            assertEquals("value1", taskoption_manager1.getTaskOption(task.getId(), "name1").getValue());
+            Thread.sleep(300);
+            assertEquals("value1b", taskoption_manager1.getTaskOption(task.getId(), "name1").getValue());
+
+            // without a maximum age, the task options aren't cached
+            taskoption_manager1.setCacheMaxAge(0);
+            taskoption_manager1.loadTaskOptions(task_manager.getTasksToProcess());
+            assertTrue(taskoption_manager2.updateTaskOption(new TaskOption().taskId(task.getId()).name("name1").value("value1c")));
+            assertEquals("value1c", taskoption_manager1.getTaskOption(task.getId(), "name1").getValue());
+            assertThrows(IllegalArgumentException.class, () -> taskoption_manager1.setCacheMaxAge(-1));
+        } finally {
+            tearDown(datasource);
+        }
+    }
 }
@@ -6,14 +6,21 @@ package rife.workflow;
 
 import org.junit.jupiter.api.Test;
 import rifeworkflowtests.TestEventTypes;
+import rifeworkflowtests.WorkCorrelated;
 import rifeworkflowtests.WorkDep1;
 import rifeworkflowtests.WorkDep2;
 import rifeworkflowtests.WorkPauseType1;
 
+import java.util.ArrayList;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.LongAdder;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class TestWorkflow {
     @Test
@@ -69,4 +76,90 @@ public class TestWorkflow {
 
         assertEquals(2, work.getEvent().getData());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testBoundedExecutor()
+    throws Throwable {
+        var wf = new Workflow(WorkExecutors.createBounded(2, 1));
+        var works = new ArrayList<WorkPauseType1>();
+        for (var i = 0; i < 20; i++) {
+            var work = new WorkPauseType1();
+            works.add(work);
+            wf.start(work);
+        }
+        for (var i = 0; i < 20; i++) {
+            wf.trigger(TestEventTypes.TYPE1, i);
+        }
+        wf.waitForNoWork();
+
+        for (var work : works) {
+            assertNotNull(work.getEvent());
+        }
+    }
+
+    @Test
+    void testAsyncListener()
+    throws Throwable {
+        final var release = new CountDownLatch(1);
+        final var received = new LinkedBlockingQueue<Integer>();
+        final var daemon = new AtomicBoolean(true);
+        EventListener listener = event -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (!Thread.currentThread().isDaemon()) {
+                daemon.set(false);
+            }
+            received.add((Integer) event.getData());
+        };
+
+        var wf = new Workflow();
+        wf.addListener(listener, 1, ListenerQueuePolicy.DROP);
+        for (var i = 0; i < 5; i++) {
+            wf.inform(TestEventTypes.TYPE2, i);
+        }
+
+        // the listener is blocked, one event can be in flight and one queued
+        var metrics = wf.getListenerMetrics(listener);
+        assertTrue(metrics.getDroppedCount() >= 3);
+
+        release.countDown();
+        var previous = -1;
+        for (var i = 0; i < 5 - metrics.getDroppedCount(); i++) {
+            var data = received.poll(5, TimeUnit.SECONDS);
+            assertNotNull(data);
+            assertTrue(data > previous);
+            previous = data;
+        }
+        assertEquals(0, metrics.getFailedCount());
+        assertTrue(metrics.getMaximumWait() >= metrics.getAverageWait());
+        assertTrue(metrics.getMaximumDuration() >= metrics.getAverageDuration());
+
+        // the default listener executor doesn't keep the application running
+        assertTrue(daemon.get());
+    }
+
+    @Test
+    void testCorrelationKey()
+    throws Throwable {
+        var wf = new Workflow();
+        wf.setResumeBatchSize(2);
+        var works = new ArrayList<WorkCorrelated>();
+        for (var key : new String[]{"a", "b", "c"}) {
+            var work = new WorkCorrelated(key);
+            works.add(work);
+            wf.start(work);
+        }
+
+        wf.trigger(new Event(TestEventTypes.TYPE1, "data b", "b"));
+        wf.trigger(new Event(TestEventTypes.TYPE1, "data c", "c"));
+        wf.trigger(new Event(TestEventTypes.TYPE1, "data a", "a"));
+        wf.waitForNoWork();
+
+        for (var work : works) {
+            assertEquals("data " + work.getCorrelationKey(), work.getEvent().getData());
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.workflow.journals;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ArgumentsSource;
+import rife.database.Datasource;
+import rife.database.TestDatasources;
+import rife.workflow.Event;
+import rife.workflow.JournalRecord;
+import rifeworkflowtests.TestEventTypes;
+import rifeworkflowtests.WorkJournaled;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestDatabaseJournal {
+    @ParameterizedTest
+    @ArgumentsSource(TestDatasources.class)
+    void testRecoverState(Datasource datasource) {
+        var journal = DatabaseJournalFactory.instance(datasource);
+        journal.install();
+        try {
+            journal.append(JournalRecord.workStarted(1, WorkJournaled.class.getName()));
+            journal.append(JournalRecord.workStarted(2, WorkJournaled.class.getName()));
+            journal.append(JournalRecord.eventDelivered(1, new Event(TestEventTypes.TYPE1, 5)));
+            journal.append(JournalRecord.eventQueued(3, new Event(TestEventTypes.TYPE2, "one")));
+            journal.append(JournalRecord.eventQueued(4, new Event(TestEventTypes.TYPE2, "two")));
+            journal.append(JournalRecord.workFinished(2));
+            journal.append(JournalRecord.eventDequeued(3));
+            journal.flush();
+
+            var state = journal.recover();
+            assertEquals(4, state.getLastId());
+            assertEquals(1, state.getWorkIds().size());
+            assertEquals(WorkJournaled.class.getName(), state.getWorkClassName(1));
+            assertEquals(5, state.getDeliveredEvents(1).get(0).getData());
+            assertEquals(1, state.getPendingEvents().size());
+            assertEquals("two", state.getPendingEvents().get(4L).getData());
+
+            // records appended after the compaction are preserved
+            journal.append(JournalRecord.workFinished(1));
+            journal.flush();
+
+            var recovered = journal.recover();
+            assertTrue(recovered.getWorkIds().isEmpty());
+            assertEquals(1, recovered.getPendingEvents().size());
+
+            // a compacted journal can be compacted again
+            recovered = journal.recover();
+            assertEquals(4, recovered.getLastId());
+            assertTrue(recovered.getWorkIds().isEmpty());
+            assertEquals("two", recovered.getPendingEvents().get(4L).getData());
+        } finally {
+            journal.remove();
+        }
+    }
+}
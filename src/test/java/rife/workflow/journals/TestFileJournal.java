@@ -0,0 +1,132 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.workflow.journals;
+
+import org.junit.jupiter.api.Test;
+import rife.workflow.Event;
+import rife.workflow.JournalRecord;
+import rife.workflow.Workflow;
+import rife.workflow.exceptions.EncodeJournalRecordErrorException;
+import rifeworkflowtests.TestEventTypes;
+import rifeworkflowtests.WorkJournaled;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestFileJournal {
+    @Test
+    void testRecoverState()
+    throws Throwable {
+        var file = File.createTempFile("workflow", ".journal");
+        try {
+            var journal = new FileJournal(file);
+            journal.setBatchInterval(0);
+            journal.append(JournalRecord.workStarted(1, WorkJournaled.class.getName()));
+            journal.append(JournalRecord.workStarted(2, WorkJournaled.class.getName()));
+            journal.append(JournalRecord.eventDelivered(1, new Event(TestEventTypes.TYPE1, 5)));
+            journal.append(JournalRecord.eventQueued(3, new Event(TestEventTypes.TYPE2, "one")));
+            journal.append(JournalRecord.eventQueued(4, new Event(TestEventTypes.TYPE2, "two")));
+            journal.append(JournalRecord.workFinished(2));
+            journal.append(JournalRecord.eventDequeued(3));
+            journal.close();
+
+            var state = new FileJournal(file).recover();
+            assertEquals(4, state.getLastId());
+            assertEquals(1, state.getWorkIds().size());
+            assertEquals(WorkJournaled.class.getName(), state.getWorkClassName(1));
+            assertEquals(1, state.getDeliveredEvents(1).size());
+            assertEquals(TestEventTypes.TYPE1, state.getDeliveredEvents(1).get(0).getType());
+            assertEquals(5, state.getDeliveredEvents(1).get(0).getData());
+            assertEquals(1, state.getPendingEvents().size());
+            assertEquals("two", state.getPendingEvents().get(4L).getData());
+
+            // the journal has been compacted to only contain the recovered state
+            assertEquals(3, state.getRecords().size());
+            var compacted = new FileJournal(file).recover();
+            assertEquals(state.getWorkIds(), compacted.getWorkIds());
+            assertEquals(state.getPendingEvents().keySet(), compacted.getPendingEvents().keySet());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    void testRecoverWorkflow()
+    throws Throwable {
+        var file = File.createTempFile("workflow", ".journal");
+        try {
+            var journal1 = new FileJournal(file);
+            var workflow1 = new Workflow();
+            workflow1.setJournal(journal1);
+            workflow1.start(WorkJournaled.class);
+            workflow1.waitForPausedWork();
+            workflow1.trigger(TestEventTypes.TYPE1, 5);
+            journal1.close();
+
+            // simulate a restart with a new workflow that uses the same journal
+            final var ended = new CountDownLatch(1);
+            final var sum = new AtomicInteger();
+            var journal2 = new FileJournal(file);
+            var workflow2 = new Workflow();
+            workflow2.addListener(event -> {
+                if (TestEventTypes.END == event.getType()) {
+                    sum.set((Integer) event.getData());
+                    ended.countDown();
+                }
+            });
+            workflow2.setJournal(journal2);
+            workflow2.recover();
+            workflow2.waitForPausedWork();
+            workflow2.trigger(TestEventTypes.TYPE1, 7);
+            ended.await();
+            workflow2.waitForNoWork();
+            journal2.close();
+
+            assertEquals(12, sum.get());
+            assertTrue(new FileJournal(file).recover().getWorkIds().isEmpty());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    void testUnserializableEvent()
+    throws Throwable {
+        var file = File.createTempFile("workflow", ".journal");
+        try {
+            final var ended = new CountDownLatch(1);
+            final var sum = new AtomicInteger();
+            var journal = new FileJournal(file);
+            var workflow = new Workflow();
+            workflow.addListener(event -> {
+                if (TestEventTypes.END == event.getType()) {
+                    sum.set((Integer) event.getData());
+                    ended.countDown();
+                }
+            });
+            workflow.setJournal(journal);
+            workflow.start(WorkJournaled.class);
+            workflow.waitForPausedWork();
+
+            // the event can't be journaled and isn't delivered, the work
+            // stays paused for the next one
+            assertThrows(EncodeJournalRecordErrorException.class, () -> workflow.trigger(TestEventTypes.TYPE1, new Object()));
+
+            workflow.trigger(TestEventTypes.TYPE1, 5);
+            workflow.waitForPausedWork();
+            workflow.trigger(TestEventTypes.TYPE1, 7);
+            ended.await();
+            workflow.waitForNoWork();
+            journal.close();
+
+            assertEquals(12, sum.get());
+        } finally {
+            file.delete();
+        }
+    }
+}
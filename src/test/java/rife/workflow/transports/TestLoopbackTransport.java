@@ -0,0 +1,128 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.workflow.transports;
+
+import org.junit.jupiter.api.Test;
+import rife.workflow.Event;
+import rife.workflow.Workflow;
+import rifeworkflowtests.TestEventTypes;
+import rifeworkflowtests.WorkPauseType1;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestLoopbackTransport {
+    @Test
+    void testPublish() {
+        var transport1 = new LoopbackTransport();
+        var transport2 = transport1.createPeer();
+        var transport3 = transport1.createPeer();
+
+        var received1 = Collections.synchronizedList(new ArrayList<Event>());
+        var received2 = Collections.synchronizedList(new ArrayList<Event>());
+        transport1.open(received1::add);
+        transport2.open(received2::add);
+        transport3.open(event -> false);
+
+        var event = new Event(TestEventTypes.TYPE1, "data");
+        transport1.publish(event);
+        transport3.publish(event);
+
+        assertEquals(1, received1.size());
+        assertEquals(2, received2.size());
+        assertSame(event, received2.get(0));
+
+        transport2.close();
+        transport1.publish(event);
+        assertEquals(2, received2.size());
+
+        // a transport that isn't open doesn't publish
+        transport2.publish(event);
+        assertEquals(1, received1.size());
+    }
+
+    @Test
+    void testOffer() {
+        var transport1 = new LoopbackTransport();
+        var transport2 = transport1.createPeer();
+        var transport3 = transport1.createPeer();
+
+        var received2 = Collections.synchronizedList(new ArrayList<Event>());
+        var received3 = Collections.synchronizedList(new ArrayList<Event>());
+        transport1.open(event -> false);
+        transport2.open(event -> received2.add(event) && false);
+        transport3.open(received3::add);
+
+        var event = new Event(TestEventTypes.TYPE1, "data");
+        assertTrue(transport1.offer(event));
+        assertEquals(1, received2.size());
+        assertEquals(1, received3.size());
+
+        // only the first peer that takes the event receives it
+        transport2.close();
+        transport2.open(received2::add);
+        transport1.offer(event);
+        assertEquals(3, received2.size() + received3.size());
+
+        transport2.close();
+        transport3.close();
+        assertFalse(transport1.offer(event));
+    }
+
+    @Test
+    void testResumeRemoteWork()
+    throws Throwable {
+        var transport1 = new LoopbackTransport();
+        var transport2 = transport1.createPeer();
+        var workflow1 = new Workflow();
+        var workflow2 = new Workflow();
+        workflow1.setTransport(transport1);
+        workflow2.setTransport(transport2);
+        try {
+            var work = new WorkPauseType1();
+            workflow2.start(work);
+            workflow2.waitForPausedWork();
+
+            workflow1.trigger(TestEventTypes.TYPE1, "remote");
+            workflow2.waitForNoWork();
+
+            assertEquals("remote", work.getEvent().getData());
+        } finally {
+            workflow1.setTransport(null);
+            workflow2.setTransport(null);
+        }
+    }
+
+    @Test
+    void testQueueUntakenEventLocally()
+    throws Throwable {
+        var transport1 = new LoopbackTransport();
+        var transport2 = transport1.createPeer();
+        var workflow1 = new Workflow();
+        var workflow2 = new Workflow();
+        workflow1.setTransport(transport1);
+        workflow2.setTransport(transport2);
+        try {
+            // no node has work that is paused for the event, it's queued up
+            // on the node that triggered it and not on the other one
+            workflow1.trigger(TestEventTypes.TYPE1, "local");
+
+            var local_work = new WorkPauseType1();
+            workflow1.start(local_work);
+            workflow1.waitForNoWork();
+            assertEquals("local", local_work.getEvent().getData());
+
+            var remote_work = new WorkPauseType1();
+            workflow2.start(remote_work);
+            workflow2.waitForPausedWork();
+            assertNull(remote_work.getEvent());
+        } finally {
+            workflow1.setTransport(null);
+            workflow2.setTransport(null);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rife.workflow.transports;
+
+import org.junit.jupiter.api.Test;
+import rife.workflow.Event;
+import rife.workflow.Workflow;
+import rifeworkflowtests.TestEventTypes;
+import rifeworkflowtests.WorkCorrelated;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestTcpTransport {
+    private static final byte[] SECRET = "the shared test secret".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void testPublish()
+    throws Throwable {
+        var transport1 = new TcpTransport(0, SECRET);
+        var transport2 = new TcpTransport(0, SECRET);
+        var received = new LinkedBlockingQueue<Event>();
+        transport1.open(event -> fail("no events should be received"));
+        transport2.open(received::add);
+        try {
+            transport1.addPeer("localhost", transport2.getPort());
+            transport1.publish(new Event(TestEventTypes.TYPE2, 12, "key"));
+
+            var event = received.poll(10, TimeUnit.SECONDS);
+            assertNotNull(event);
+            assertEquals(TestEventTypes.TYPE2, event.getType());
+            assertEquals(12, event.getData());
+            assertEquals("key", event.getCorrelationKey());
+        } finally {
+            transport1.close();
+            transport2.close();
+        }
+    }
+
+    @Test
+    void testResumeRemoteWork()
+    throws Throwable {
+        var transport1 = new TcpTransport(0, SECRET);
+        var transport2 = new TcpTransport(0, SECRET);
+        var workflow1 = new Workflow();
+        var workflow2 = new Workflow();
+        workflow1.setTransport(transport1);
+        workflow2.setTransport(transport2);
+        transport1.addPeer("localhost", transport2.getPort());
+        transport2.addPeer("localhost", transport1.getPort());
+        try {
+            var work1 = new WorkCorrelated("one");
+            var work2 = new WorkCorrelated("two");
+            workflow1.start(work1);
+            workflow2.start(work2);
+            workflow1.waitForPausedWork();
+            workflow2.waitForPausedWork();
+
+            workflow1.trigger(new Event(TestEventTypes.TYPE1, "data two", "two"));
+            workflow2.waitForNoWork();
+            assertEquals("data two", work2.getEvent().getData());
+            assertNull(work1.getEvent());
+
+            workflow2.trigger(new Event(TestEventTypes.TYPE1, "data one", "one"));
+            workflow1.waitForNoWork();
+            assertEquals("data one", work1.getEvent().getData());
+        } finally {
+            workflow1.setTransport(null);
+            workflow2.setTransport(null);
+        }
+    }
+
+    @Test
+    void testRejectUnknownSecret()
+    throws Throwable {
+        var transport1 = new TcpTransport(0, "another shared secret".getBytes(StandardCharsets.UTF_8));
+        var transport2 = new TcpTransport(0, SECRET);
+        var received = new LinkedBlockingQueue<Event>();
+        transport1.open(event -> fail("no events should be received"));
+        transport2.open(received::add);
+        try {
+            transport1.addPeer("localhost", transport2.getPort());
+            transport1.publish(new Event(TestEventTypes.TYPE2, 12));
+
+            assertNull(received.poll(1, TimeUnit.SECONDS));
+        } finally {
+            transport1.close();
+            transport2.close();
+        }
+    }
+
+    @Test
+    void testRejectUnknownClasses()
+    throws Throwable {
+        var transport1 = new TcpTransport(0, SECRET);
+        var transport2 = new TcpTransport(0, SECRET);
+        var received = new LinkedBlockingQueue<Event>();
+        transport1.open(event -> fail("no events should be received"));
+        transport2.open(received::add);
+        try {
+            transport1.addPeer("localhost", transport2.getPort());
+            transport1.publish(new Event(TestEventTypes.TYPE2, new ArrayList<>(List.of("one"))));
+            transport1.publish(new Event(TestEventTypes.TYPE2, new int[]{1, 2}));
+
+            var event = received.poll(10, TimeUnit.SECONDS);
+            assertNotNull(event);
+            assertArrayEquals(new int[]{1, 2}, (int[]) event.getData());
+            assertNull(received.poll(1, TimeUnit.SECONDS));
+
+            transport2.addAllowedClass(ArrayList.class);
+            transport1.publish(new Event(TestEventTypes.TYPE2, new ArrayList<>(List.of("two"))));
+            event = received.poll(10, TimeUnit.SECONDS);
+            assertNotNull(event);
+            assertEquals(List.of("two"), event.getData());
+        } finally {
+            transport1.close();
+            transport2.close();
+        }
+    }
+
+    @Test
+    void testIllegalSecret() {
+        assertThrows(IllegalArgumentException.class, () -> new TcpTransport(0, null));
+        assertThrows(IllegalArgumentException.class, () -> new TcpTransport(0, new byte[TcpTransport.MIN_SECRET_LENGTH - 1]));
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rifeworkflowtests;
+
+import rife.workflow.Event;
+import rife.workflow.Work;
+import rife.workflow.Workflow;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+public class WorkCorrelated implements Work {
+    private final Object key_;
+    private final AtomicReference<Event> event_ = new AtomicReference<>();
+
+    public WorkCorrelated(Object key) {
+        key_ = key;
+    }
+
+    public Object getCorrelationKey() {
+        return key_;
+    }
+
+    public void execute(Workflow workflow) {
+        event_.set(pauseForEvent(TestEventTypes.TYPE1));
+    }
+
+    public Event getEvent() {
+        return event_.get();
+    }
+}
@@ -0,0 +1,21 @@
+/*
+ * Copyright 2001-2023 Geert Bevin (gbevin[remove] at uwyn dot com)
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ */
+package rifeworkflowtests;
+
+import rife.workflow.Work;
+import rife.workflow.Workflow;
+
+public class WorkJournaled implements Work {
+    public void execute(Workflow workflow) {
+        var sum = 0;
+        for (var count = 0; count < 2; ++count) {
+            var event = pauseForEvent(TestEventTypes.TYPE1);
+
+            sum += (Integer) event.getData();
+        }
+
+        workflow.inform(TestEventTypes.END, sum);
+    }
+}